@@ -0,0 +1,79 @@
+package com.scipath.scipathj.benchmark;
+
+import de.csbdresden.stardist.Candidates;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StarDist polygon candidate construction and non-maximum suppression on one network tile, at
+ * several nucleus densities. Candidates are pixels above the probability threshold, so their
+ * number grows with the density.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class CandidatesBenchmark {
+
+  private static final int TILE_SIZE = 1024;
+  private static final int RAYS = 32;
+  private static final double PROB_THRESHOLD = 0.5;
+  private static final double NMS_THRESHOLD = 0.4;
+
+  /** Nuclei per 1024 x 1024 tile. */
+  @Param({"500", "2000", "6000"})
+  public int nuclei;
+
+  private SyntheticSlides.StarDistOutput output;
+
+  @Setup
+  public void setUp() {
+    output = SyntheticSlides.starDistOutput(TILE_SIZE, nuclei, RAYS, SyntheticSlides.DEFAULT_SEED);
+  }
+
+  /**
+   * Candidates built before every call, since {@link Candidates#nms(double)} marks them as
+   * suppressed in place.
+   */
+  @State(Scope.Thread)
+  public static class FreshCandidates {
+    private Candidates candidates;
+
+    @Setup(Level.Invocation)
+    public void setUp(final CandidatesBenchmark benchmark) {
+      candidates = benchmark.construct();
+    }
+  }
+
+  @Benchmark
+  public Candidates construction() {
+    return construct();
+  }
+
+  @Benchmark
+  public Candidates nms(final FreshCandidates fresh) {
+    fresh.candidates.nms(NMS_THRESHOLD);
+    return fresh.candidates;
+  }
+
+  Candidates construct() {
+    return new Candidates(output.prob(), output.dist(), PROB_THRESHOLD, 2, null);
+  }
+}
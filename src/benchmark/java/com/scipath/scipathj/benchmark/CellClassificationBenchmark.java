@@ -0,0 +1,66 @@
+package com.scipath.scipathj.benchmark;
+
+import com.scipath.scipathj.analysis.algorithms.classification.CellClassification;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * XGBoost classification of the features of a synthetic image: grouping ROIs into cells,
+ * building the feature matrix and predicting, with the bundled model. Loading the model is done
+ * once in the setup and measured separately.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class CellClassificationBenchmark {
+
+  /** Nucleus, cell and cytoplasm ROIs in total. */
+  @Param({"1000", "10000"})
+  public int roiCount;
+
+  private Map<String, Map<String, Object>> features;
+  private CellClassification classification;
+
+  @Setup
+  public void setUp() {
+    SyntheticSlides.Slide slide =
+        SyntheticSlides.generateForROIs(
+            FeatureExtractionBenchmark.IMAGE_FILE_NAME, roiCount, SyntheticSlides.DEFAULT_SEED);
+    features =
+        FeatureExtractionBenchmark.extract(
+            slide, SyntheticSlides.rois(slide, FeatureExtractionBenchmark.IMAGE_FILE_NAME));
+    classification = new CellClassification(FeatureExtractionBenchmark.IMAGE_FILE_NAME, features);
+    if (!classification.isReady()) {
+      throw new IllegalStateException("The bundled classification model could not be loaded");
+    }
+  }
+
+  @Benchmark
+  public Map<String, CellClassification.ClassificationResult> classifyCells() {
+    return classification.classifyCells();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  public CellClassification loadModel() {
+    return new CellClassification(FeatureExtractionBenchmark.IMAGE_FILE_NAME, features);
+  }
+}
@@ -0,0 +1,76 @@
+package com.scipath.scipathj.benchmark;
+
+import com.scipath.scipathj.analysis.algorithms.classification.FeatureExtraction;
+import com.scipath.scipathj.analysis.config.FeatureExtractionSettings;
+import com.scipath.scipathj.infrastructure.config.MainSettings;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Feature extraction of a whole image, including its H&E deconvolution, at increasing ROI
+ * counts. Each call is long, so every iteration measures a single extraction.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx8g"})
+public class FeatureExtractionBenchmark {
+
+  static final String IMAGE_FILE_NAME = "synthetic.tif";
+
+  /** Nucleus, cell and cytoplasm ROIs in total. */
+  @Param({"1000", "10000", "100000"})
+  public int roiCount;
+
+  private SyntheticSlides.Slide slide;
+  private SyntheticSlides.SlideROIs rois;
+
+  @Setup
+  public void setUp() {
+    slide =
+        SyntheticSlides.generateForROIs(IMAGE_FILE_NAME, roiCount, SyntheticSlides.DEFAULT_SEED);
+    rois = SyntheticSlides.rois(slide, IMAGE_FILE_NAME);
+  }
+
+  @Benchmark
+  public Map<String, Map<String, Object>> extractFeatures() {
+    return extract(slide, rois);
+  }
+
+  /**
+   * Runs feature extraction as the pipeline does, without vessels.
+   */
+  @SuppressWarnings("unchecked")
+  static Map<String, Map<String, Object>> extract(
+      final SyntheticSlides.Slide slide, final SyntheticSlides.SlideROIs rois) {
+    return new FeatureExtraction(
+            slide.image(),
+            IMAGE_FILE_NAME,
+            List.of(),
+            (List<UserROI>) (List<?>) rois.nuclei(),
+            (List<UserROI>) (List<?>) rois.cytoplasm(),
+            (List<UserROI>) (List<?>) rois.cells(),
+            FeatureExtractionSettings.createDefault(),
+            MainSettings.createDefault())
+        .extractFeatures();
+  }
+}
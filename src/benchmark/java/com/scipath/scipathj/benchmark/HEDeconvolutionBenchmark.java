@@ -0,0 +1,53 @@
+package com.scipath.scipathj.benchmark;
+
+import com.scipath.scipathj.analysis.algorithms.segmentation.HEDeconvolution;
+import ij.ImagePlus;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Colour deconvolution of whole synthetic H&E images.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class HEDeconvolutionBenchmark {
+
+  @Param({"1024", "4096"})
+  public int size;
+
+  private ImagePlus image;
+
+  @Setup
+  public void setUp() {
+    image =
+        SyntheticSlides.generate(
+                "deconvolution", size, size, size * size / 600, 3, SyntheticSlides.DEFAULT_SEED)
+            .image();
+  }
+
+  @Benchmark
+  public ImagePlus performDeconvolution() {
+    // A new instance per call: results are cached after the first deconvolution
+    HEDeconvolution deconvolution = new HEDeconvolution(image, true);
+    deconvolution.performDeconvolution();
+    return deconvolution.getHematoxylinImage();
+  }
+}
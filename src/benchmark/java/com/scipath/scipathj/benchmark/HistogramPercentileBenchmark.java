@@ -0,0 +1,69 @@
+package com.scipath.scipathj.benchmark;
+
+import de.csbdresden.csbdeep.normalize.HistogramPercentile;
+import ij.process.ColorProcessor;
+import java.util.concurrent.TimeUnit;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Percentile normalisation bounds of a three-channel network input, with the percentiles StarDist
+ * uses by default.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class HistogramPercentileBenchmark {
+
+  private static final float[] PERCENTILES = {1.0f, 99.8f};
+
+  @Param({"1024", "4096"})
+  public int size;
+
+  private ArrayImg<FloatType, FloatArray> input;
+  private final HistogramPercentile<FloatType> percentile = new HistogramPercentile<>();
+
+  @Setup
+  public void setUp() {
+    ColorProcessor rgb =
+        (ColorProcessor)
+            SyntheticSlides.generate(
+                    "percentiles", size, size, size * size / 600, 3, SyntheticSlides.DEFAULT_SEED)
+                .image()
+                .getProcessor();
+    input = ArrayImgs.floats(size, size, 3);
+    float[] data = input.update(null).getCurrentStorageArray();
+    int[] pixels = (int[]) rgb.getPixels();
+    int plane = size * size;
+    for (int i = 0; i < plane; i++) {
+      data[i] = (pixels[i] >> 16) & 0xff;
+      data[plane + i] = (pixels[i] >> 8) & 0xff;
+      data[2 * plane + i] = pixels[i] & 0xff;
+    }
+  }
+
+  @Benchmark
+  public float[] computePercentiles() {
+    return percentile.computePercentiles(input, PERCENTILES, null);
+  }
+}
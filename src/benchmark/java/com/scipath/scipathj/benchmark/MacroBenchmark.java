@@ -0,0 +1,396 @@
+package com.scipath.scipathj.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.scipath.scipathj.analysis.pipeline.AnalysisPipeline;
+import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
+import com.scipath.scipathj.infrastructure.engine.SciPathJEngine;
+import com.scipath.scipathj.infrastructure.metrics.MetricsExporter;
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import com.scipath.scipathj.ui.common.ROIManager;
+import ij.io.FileSaver;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end throughput benchmark of {@link SciPathJEngine#processImages(List)} on synthetic
+ * slides, over a grid of image sizes, processor counts and StarDist tile counts.
+ *
+ * <p>Slides are rendered once per size by {@link SyntheticSlides}, with their ground-truth nuclei
+ * next to them. Every grid point then runs in a fresh JVM, so that it sees exactly the configured
+ * number of processors ({@code -XX:ActiveProcessorCount}), starts from a cold heap and reports its
+ * own peak memory; its settings live in a private home directory, so the user's configuration is
+ * never touched. A point processes a warm-up batch first, then the measured batch, and reports
+ * images per minute, cells per second, peak RSS and heap, detection recall against the ground
+ * truth and the per-stage timings of the {@link MetricsRegistry}. All points are collected into
+ * one JSON file.
+ *
+ * <pre>
+ * mvn -Pbenchmark compile exec:exec@macro-benchmark \
+ *     -Dmacro.args="--sizes 2048,4096 --threads 2,8 --tiles 1,4 --images 4"
+ * </pre>
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class MacroBenchmark {
+
+  private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+  private static final String POINT_FLAG = "--point";
+
+  private static final String[] JVM_OPTIONS = {
+    "-Djava.awt.headless=true",
+    "--add-opens=java.base/java.lang=ALL-UNNAMED",
+    "--add-opens=java.base/java.lang.reflect=ALL-UNNAMED",
+    "--add-opens=java.base/java.util=ALL-UNNAMED",
+    "--add-opens=java.base/java.util.concurrent=ALL-UNNAMED",
+    "--add-opens=java.base/sun.nio.ch=ALL-UNNAMED"
+  };
+
+  /**
+   * Benchmark options, parsed from {@code --name value} arguments.
+   *
+   * @param output the directory for slides, per-point homes and results
+   * @param sizes the image widths and heights to test
+   * @param threads the processor counts to test
+   * @param tiles the StarDist tile counts to test
+   * @param images the number of measured images per point
+   * @param warmupImages the number of images processed before measuring
+   * @param density nuclei per megapixel
+   * @param vessels vessels per image
+   * @param seed the seed of the first slide; slide {@code i} uses {@code seed + i}
+   * @param maxHeap the heap limit of every point, e.g. {@code 8g}
+   */
+  record Options(
+      Path output,
+      int[] sizes,
+      int[] threads,
+      int[] tiles,
+      int images,
+      int warmupImages,
+      int density,
+      int vessels,
+      long seed,
+      String maxHeap) {
+
+    static Options parse(final String[] args) {
+      Map<String, String> values = new HashMap<>();
+      for (int i = 0; i + 1 < args.length; i += 2) {
+        if (!args[i].startsWith("--")) {
+          throw new IllegalArgumentException("Expected --name value pairs, got: " + args[i]);
+        }
+        values.put(args[i].substring(2), args[i + 1]);
+      }
+      int processors = Runtime.getRuntime().availableProcessors();
+      return new Options(
+          Paths.get(values.getOrDefault("output", "target/macro-benchmark")).toAbsolutePath(),
+          ints(values.getOrDefault("sizes", "2048")),
+          ints(values.getOrDefault("threads", String.valueOf(processors))),
+          ints(values.getOrDefault("tiles", "1")),
+          Integer.parseInt(values.getOrDefault("images", "4")),
+          Integer.parseInt(values.getOrDefault("warmup", "1")),
+          Integer.parseInt(values.getOrDefault("density", "1500")),
+          Integer.parseInt(values.getOrDefault("vessels", "4")),
+          Long.parseLong(values.getOrDefault("seed", String.valueOf(SyntheticSlides.DEFAULT_SEED))),
+          values.getOrDefault("heap", "8g"));
+    }
+
+    /**
+     * @return the arguments that reproduce these options in a point JVM
+     */
+    List<String> toArgs() {
+      return List.of(
+          "--output", output.toString(),
+          "--images", String.valueOf(images),
+          "--warmup", String.valueOf(warmupImages),
+          "--density", String.valueOf(density),
+          "--vessels", String.valueOf(vessels),
+          "--seed", String.valueOf(seed),
+          "--heap", maxHeap);
+    }
+
+    Path slideDirectory(final int size) {
+      return output.resolve("slides").resolve(size + "px");
+    }
+
+    private static int[] ints(final String list) {
+      return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+  }
+
+  private MacroBenchmark() {}
+
+  public static void main(final String[] args) throws Exception {
+    if (args.length > 0 && POINT_FLAG.equals(args[0])) {
+      String[] point = args[1].split(",");
+      Options options = Options.parse(Arrays.copyOfRange(args, 2, args.length));
+      runPoint(
+          options,
+          Integer.parseInt(point[0]),
+          Integer.parseInt(point[1]),
+          Integer.parseInt(point[2]));
+      // TensorFlow and ImageJ leave non-daemon threads behind
+      System.exit(0);
+    }
+    runGrid(Options.parse(args));
+  }
+
+  private static void runGrid(final Options options) throws IOException, InterruptedException {
+    Files.createDirectories(options.output());
+    JsonArray runs = new JsonArray();
+    System.out.printf(
+        Locale.ROOT,
+        "%6s %7s %5s %10s %9s %8s %10s %10s%n",
+        "size", "threads", "tiles", "images/min", "cells/s", "recall", "peak RSS", "peak heap");
+    for (int size : options.sizes()) {
+      generateSlides(options, size);
+      for (int threads : options.threads()) {
+        for (int tiles : options.tiles()) {
+          JsonObject run = launchPoint(options, size, threads, tiles);
+          runs.add(run);
+          printRun(run);
+        }
+      }
+    }
+
+    JsonObject report = new JsonObject();
+    report.add("options", GSON.toJsonTree(options.toArgs()));
+    report.addProperty("javaVersion", System.getProperty("java.version"));
+    report.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+    report.addProperty("timestamp", System.currentTimeMillis());
+    report.add("runs", runs);
+    Path results = options.output().resolve("macro-results.json");
+    Files.writeString(results, GSON.toJson(report), StandardCharsets.UTF_8);
+    System.out.println("Results written to " + results);
+  }
+
+  /**
+   * Renders the slides of one size unless a previous run already did; the seed makes them
+   * identical either way.
+   */
+  private static void generateSlides(final Options options, final int size) throws IOException {
+    Path directory = options.slideDirectory(size);
+    Files.createDirectories(directory);
+    int total = options.warmupImages() + options.images();
+    int nuclei = (int) ((long) size * size * options.density() / 1_000_000L);
+    for (int i = 0; i < total; i++) {
+      Path image = directory.resolve(String.format(Locale.ROOT, "slide-%03d.tif", i));
+      if (Files.exists(image)) {
+        continue;
+      }
+      SyntheticSlides.Slide slide =
+          SyntheticSlides.generate(
+              image.getFileName().toString(), size, size, nuclei, options.vessels(),
+              options.seed() + i);
+      if (!new FileSaver(slide.image()).saveAsTiff(image.toString())) {
+        throw new IOException("Failed to write synthetic slide " + image);
+      }
+      SyntheticSlides.writeGroundTruth(slide, groundTruthFile(image));
+    }
+  }
+
+  private static JsonObject launchPoint(
+      final Options options, final int size, final int threads, final int tiles)
+      throws IOException, InterruptedException {
+    String pointName = pointName(size, threads, tiles);
+    Path home = options.output().resolve("homes").resolve(pointName);
+    Path result = options.output().resolve("runs").resolve(pointName + ".json");
+    Files.createDirectories(home);
+    Files.createDirectories(result.getParent());
+    Files.deleteIfExists(result);
+
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.add("-XX:ActiveProcessorCount=" + threads);
+    command.add("-Xmx" + options.maxHeap());
+    command.add("-Duser.home=" + home);
+    // Measure full analyses, not stage cache hits
+    command.add("-Dscipathj.cache.maxMB=0");
+    command.addAll(Arrays.asList(JVM_OPTIONS));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(MacroBenchmark.class.getName());
+    command.add(POINT_FLAG);
+    command.add(size + "," + threads + "," + tiles);
+    command.addAll(options.toArgs());
+
+    Process process =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(options.output().resolve("runs").resolve(pointName + ".log").toFile())
+            .start();
+    int exitCode = process.waitFor();
+    if (exitCode != 0 || !Files.exists(result)) {
+      JsonObject failed = new JsonObject();
+      failed.addProperty("size", size);
+      failed.addProperty("threads", threads);
+      failed.addProperty("tiles", tiles);
+      failed.addProperty("error", "Point JVM exited with code " + exitCode + ", see its log");
+      return failed;
+    }
+    return JsonParser.parseString(Files.readString(result, StandardCharsets.UTF_8))
+        .getAsJsonObject();
+  }
+
+  /**
+   * Runs one grid point inside its own JVM and writes its result next to its log.
+   */
+  private static void runPoint(
+      final Options options, final int size, final int threads, final int tiles)
+      throws Exception {
+    ConfigurationManager configurationManager = new ConfigurationManager();
+    configurationManager.saveNuclearSegmentationSettings(
+        configurationManager.loadNuclearSegmentationSettings().withNTiles(tiles));
+
+    List<Path> slides;
+    try (Stream<Path> files = Files.list(options.slideDirectory(size))) {
+      slides = files.filter(path -> path.toString().endsWith(".tif")).sorted().toList();
+    }
+    List<Path> warmup = slides.subList(0, options.warmupImages());
+    List<Path> measured =
+        slides.subList(options.warmupImages(), options.warmupImages() + options.images());
+
+    SciPathJEngine engine = new SciPathJEngine(configurationManager);
+    try {
+      if (!warmup.isEmpty()) {
+        engine.processImages(warmup).get();
+      }
+      ROIManager.getInstance().clearAllROIs();
+      System.gc();
+      ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+      long started = System.nanoTime();
+      AnalysisPipeline.AnalysisResults results = engine.processImages(measured).get();
+      double seconds = (System.nanoTime() - started) / 1e9;
+
+      int truthNuclei = 0;
+      int matchedNuclei = 0;
+      for (Path slide : measured) {
+        List<SyntheticSlides.Ellipse> truth =
+            SyntheticSlides.readGroundTruth(groundTruthFile(slide));
+        List<UserROI> detected =
+            ROIManager.getInstance()
+                .getROIsForImage(slide.getFileName().toString(), UserROI.ROIType.NUCLEUS);
+        double[][] centres = new double[detected.size()][];
+        for (int i = 0; i < centres.length; i++) {
+          centres[i] = new double[] {detected.get(i).getCenterX(), detected.get(i).getCenterY()};
+        }
+        truthNuclei += truth.size();
+        matchedNuclei += SyntheticSlides.matchNuclei(truth, centres);
+      }
+
+      JsonObject run = new JsonObject();
+      run.addProperty("size", size);
+      run.addProperty("threads", threads);
+      run.addProperty("tiles", tiles);
+      run.addProperty("images", results.processedImages());
+      run.addProperty("seconds", seconds);
+      run.addProperty("imagesPerMinute", results.processedImages() / seconds * 60);
+      run.addProperty("nuclei", results.totalNuclei());
+      run.addProperty("cells", results.totalCells());
+      run.addProperty("cellsPerSecond", results.totalCells() / seconds);
+      run.addProperty("groundTruthNuclei", truthNuclei);
+      run.addProperty("matchedNuclei", matchedNuclei);
+      run.addProperty("recall", truthNuclei == 0 ? 0 : (double) matchedNuclei / truthNuclei);
+      run.addProperty("peakRssBytes", peakResidentSetSize());
+      run.addProperty("peakHeapBytes", peakHeapUsage());
+      JsonElement metrics =
+          JsonParser.parseString(new MetricsExporter(MetricsRegistry.getInstance()).toJson());
+      run.add("metrics", metrics);
+
+      Path result =
+          options.output().resolve("runs").resolve(pointName(size, threads, tiles) + ".json");
+      Files.writeString(result, GSON.toJson(run), StandardCharsets.UTF_8);
+    } finally {
+      engine.shutdown();
+    }
+  }
+
+  private static void printRun(final JsonObject run) {
+    if (run.has("error")) {
+      System.out.printf(
+          Locale.ROOT,
+          "%6d %7d %5d  %s%n",
+          run.get("size").getAsInt(),
+          run.get("threads").getAsInt(),
+          run.get("tiles").getAsInt(),
+          run.get("error").getAsString());
+      return;
+    }
+    System.out.printf(
+        Locale.ROOT,
+        "%6d %7d %5d %10.2f %9.1f %8.3f %9dM %9dM%n",
+        run.get("size").getAsInt(),
+        run.get("threads").getAsInt(),
+        run.get("tiles").getAsInt(),
+        run.get("imagesPerMinute").getAsDouble(),
+        run.get("cellsPerSecond").getAsDouble(),
+        run.get("recall").getAsDouble(),
+        run.get("peakRssBytes").getAsLong() >> 20,
+        run.get("peakHeapBytes").getAsLong() >> 20);
+  }
+
+  private static String pointName(final int size, final int threads, final int tiles) {
+    return size + "px-" + threads + "t-" + tiles + "tiles";
+  }
+
+  private static Path groundTruthFile(final Path image) {
+    String name = image.getFileName().toString();
+    return image.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".nuclei.csv");
+  }
+
+  /**
+   * @return the peak resident set size of this process from {@code /proc}, or -1 where that is
+   *     not available
+   */
+  private static long peakResidentSetSize() {
+    File status = new File("/proc/self/status");
+    if (!status.canRead()) {
+      return -1;
+    }
+    try {
+      for (String line : Files.readAllLines(status.toPath(), StandardCharsets.UTF_8)) {
+        if (line.startsWith("VmHWM:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      return -1;
+    }
+    return -1;
+  }
+
+  /**
+   * @return the sum of the peak usages of the heap pools since they were last reset
+   */
+  private static long peakHeapUsage() {
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+    return peak;
+  }
+}
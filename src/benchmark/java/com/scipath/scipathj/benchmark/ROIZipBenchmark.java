@@ -0,0 +1,73 @@
+package com.scipath.scipathj.benchmark;
+
+import com.scipath.scipathj.infrastructure.roi.ROIZipIO;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import ij.gui.Roi;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Encoding the ROIs of one image as an ImageJ ROI set and decoding it again.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class ROIZipBenchmark {
+
+  /** Nucleus, cell and cytoplasm ROIs in total. */
+  @Param({"1000", "10000", "100000"})
+  public int roiCount;
+
+  private List<UserROI> rois;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    SyntheticSlides.Slide slide =
+        SyntheticSlides.generateForROIs("rois.tif", roiCount, SyntheticSlides.DEFAULT_SEED);
+    rois = SyntheticSlides.rois(slide, "rois.tif").all();
+    encoded = encode();
+  }
+
+  @Benchmark
+  public byte[] encode() throws IOException {
+    return ROIZipIO.encodeROISet(rois, ROIZipBenchmark::toImageJRoi);
+  }
+
+  @Benchmark
+  public void decode(final Blackhole blackhole) throws IOException {
+    ROIZipIO.readROISet(
+        new ByteArrayInputStream(encoded),
+        (entryName, roi) -> {
+          blackhole.consume(roi);
+          return true;
+        });
+  }
+
+  private static Roi toImageJRoi(final UserROI userROI) {
+    Roi roi = (Roi) userROI.getImageJRoi().clone();
+    roi.setName(userROI.getName());
+    return roi;
+  }
+}
@@ -0,0 +1,459 @@
+package com.scipath.scipathj.benchmark;
+
+import com.scipath.scipathj.infrastructure.roi.CellROI;
+import com.scipath.scipathj.infrastructure.roi.CytoplasmROI;
+import com.scipath.scipathj.infrastructure.roi.NucleusROI;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import ij.ImagePlus;
+import ij.gui.PolygonRoi;
+import ij.gui.Roi;
+import ij.gui.ShapeRoi;
+import ij.process.ColorProcessor;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.FloatArray;
+import net.imglib2.type.numeric.real.FloatType;
+
+/**
+ * Reproducible H&E-like test inputs for benchmarks.
+ *
+ * <p>Images are rendered with the Beer-Lambert model from the same hematoxylin and eosin stain
+ * vectors the deconvolution assumes: an eosin-stained stroma with noise, white vessel lumina with
+ * an eosin rim, and elliptical hematoxylin nuclei on a jittered grid so that they never overlap.
+ * The nuclei are returned as ground truth and can be turned into the nucleus, cell and cytoplasm
+ * ROIs that segmentation would produce. Everything is derived from a seed, so runs on different
+ * machines measure the same work.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class SyntheticSlides {
+
+  public static final long DEFAULT_SEED = 20240917L;
+
+  private static final double[] HEMATOXYLIN = {0.650, 0.704, 0.286};
+  private static final double[] EOSIN = {0.072, 0.990, 0.105};
+
+  private static final int POLYGON_VERTICES = 32;
+
+  /** Distance between nucleus centres in pixels, for about 0.5 micrometres per pixel. */
+  private static final int TYPICAL_SPACING = 24;
+
+  /** Cells reach this multiple of their nucleus radius, within the space to their neighbours. */
+  private static final double CELL_TO_NUCLEUS_RADIUS = 1.8;
+
+  /**
+   * An ellipse in image coordinates.
+   *
+   * @param x the centre x
+   * @param y the centre y
+   * @param radiusX the semi-axis along the rotated x axis
+   * @param radiusY the semi-axis along the rotated y axis
+   * @param angle the rotation in radians
+   */
+  public record Ellipse(double x, double y, double radiusX, double radiusY, double angle) {
+
+    /**
+     * @return whether a point lies inside the ellipse scaled by {@code scale}
+     */
+    boolean contains(final double px, final double py, final double scale) {
+      double cos = Math.cos(angle);
+      double sin = Math.sin(angle);
+      double dx = px - x;
+      double dy = py - y;
+      double u = (dx * cos + dy * sin) / (radiusX * scale);
+      double v = (-dx * sin + dy * cos) / (radiusY * scale);
+      return u * u + v * v <= 1;
+    }
+
+    /**
+     * @return the ellipse scaled by {@code scale} as a polygon, as StarDist would outline it
+     */
+    public PolygonRoi toPolygon(final double scale) {
+      float[] xs = new float[POLYGON_VERTICES];
+      float[] ys = new float[POLYGON_VERTICES];
+      double cos = Math.cos(angle);
+      double sin = Math.sin(angle);
+      for (int i = 0; i < POLYGON_VERTICES; i++) {
+        double t = 2 * Math.PI * i / POLYGON_VERTICES;
+        double u = radiusX * scale * Math.cos(t);
+        double v = radiusY * scale * Math.sin(t);
+        xs[i] = (float) (x + u * cos - v * sin);
+        ys[i] = (float) (y + u * sin + v * cos);
+      }
+      return new PolygonRoi(xs, ys, POLYGON_VERTICES, Roi.POLYGON);
+    }
+
+    double maxRadius() {
+      return Math.max(radiusX, radiusY);
+    }
+  }
+
+  /**
+   * A rendered slide with its ground truth.
+   *
+   * @param image the RGB image
+   * @param nuclei the nuclei in the image
+   * @param vessels the vessel lumina in the image
+   * @param spacing the grid spacing of the nuclei in pixels
+   */
+  public record Slide(ImagePlus image, List<Ellipse> nuclei, List<Ellipse> vessels, int spacing) {}
+
+  /**
+   * The ROIs segmentation would produce for a slide.
+   *
+   * @param nuclei one nucleus per ground-truth nucleus
+   * @param cells the cell around each nucleus
+   * @param cytoplasm each cell minus its nucleus
+   */
+  public record SlideROIs(
+      List<NucleusROI> nuclei, List<CellROI> cells, List<CytoplasmROI> cytoplasm) {
+
+    /**
+     * @return nuclei, cytoplasm and cells in one list, in that order
+     */
+    public List<UserROI> all() {
+      List<UserROI> all = new ArrayList<>(nuclei.size() + cells.size() + cytoplasm.size());
+      all.addAll(nuclei);
+      all.addAll(cytoplasm);
+      all.addAll(cells);
+      return all;
+    }
+  }
+
+  private SyntheticSlides() {}
+
+  /**
+   * Renders a slide.
+   *
+   * @param title the image title
+   * @param width the image width
+   * @param height the image height
+   * @param nucleusCount the approximate number of nuclei; the grid is filled row by row
+   * @param vesselCount the number of vessels; nuclei overlapping a vessel are left out
+   * @param seed the random seed
+   */
+  public static Slide generate(
+      final String title,
+      final int width,
+      final int height,
+      final int nucleusCount,
+      final int vesselCount,
+      final long seed) {
+    Random random = new Random(seed);
+    int spacing = spacing(width, height, nucleusCount);
+    List<Ellipse> vessels = new ArrayList<>(vesselCount);
+    for (int i = 0; i < vesselCount; i++) {
+      double radius = Math.min(width, height) * (0.03 + 0.05 * random.nextDouble());
+      vessels.add(
+          new Ellipse(
+              radius + random.nextDouble() * (width - 2 * radius),
+              radius + random.nextDouble() * (height - 2 * radius),
+              radius,
+              radius * (0.5 + 0.5 * random.nextDouble()),
+              random.nextDouble() * Math.PI));
+    }
+
+    List<Ellipse> nuclei = layoutNuclei(width, height, nucleusCount, vessels, random);
+    return new Slide(
+        new ImagePlus(title, render(width, height, nuclei, vessels, random)),
+        nuclei,
+        vessels,
+        spacing);
+  }
+
+  /**
+   * Renders a square slide just large enough for the given number of nucleus, cell and cytoplasm
+   * ROIs at a typical cell spacing, without vessels.
+   *
+   * @param title the image title
+   * @param roiCount the number of ROIs; a third of it are nuclei
+   * @param seed the random seed
+   */
+  public static Slide generateForROIs(final String title, final int roiCount, final long seed) {
+    int nuclei = Math.max(1, roiCount / 3);
+    int size = (int) Math.ceil(Math.sqrt(nuclei)) * TYPICAL_SPACING;
+    return generate(title, size, size, nuclei, 0, seed);
+  }
+
+  /**
+   * Builds the nucleus, cell and cytoplasm ROIs of a slide, named as segmentation names them.
+   */
+  public static SlideROIs rois(final Slide slide, final String imageFileName) {
+    int count = slide.nuclei().size();
+    List<NucleusROI> nuclei = new ArrayList<>(count);
+    List<CellROI> cells = new ArrayList<>(count);
+    List<CytoplasmROI> cytoplasm = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Ellipse ellipse = slide.nuclei().get(i);
+      int number = i + 1;
+      double cellScale =
+          Math.min(CELL_TO_NUCLEUS_RADIUS, slide.spacing() * 0.48 / ellipse.maxRadius());
+      PolygonRoi nucleusShape = ellipse.toPolygon(1);
+      PolygonRoi cellShape = ellipse.toPolygon(cellScale);
+      ShapeRoi cytoplasmShape = new ShapeRoi(cellShape).not(new ShapeRoi(nucleusShape));
+
+      NucleusROI nucleus = new NucleusROI(nucleusShape, imageFileName, "Nucleus_" + number);
+      CellROI cell = new CellROI(cellShape, imageFileName, "Cell_" + number, nucleus);
+      CytoplasmROI cyto =
+          new CytoplasmROI(cytoplasmShape, imageFileName, "Cytoplasm_" + number, nucleus);
+      nucleus.setParentCell(cell);
+      nucleus.setAssociatedCytoplasm(cyto);
+      cell.setAssociatedCytoplasm(cyto);
+      nuclei.add(nucleus);
+      cells.add(cell);
+      cytoplasm.add(cyto);
+    }
+    return new SlideROIs(nuclei, cells, cytoplasm);
+  }
+
+  /**
+   * Writes the nuclei of a slide as CSV with one {@code x,y,radiusX,radiusY,angle} row each.
+   */
+  public static void writeGroundTruth(final Slide slide, final Path file) throws IOException {
+    List<String> lines = new ArrayList<>(slide.nuclei().size() + 1);
+    lines.add("x,y,radiusX,radiusY,angle");
+    for (Ellipse nucleus : slide.nuclei()) {
+      lines.add(
+          String.format(
+              Locale.ROOT,
+              "%.3f,%.3f,%.3f,%.3f,%.5f",
+              nucleus.x(),
+              nucleus.y(),
+              nucleus.radiusX(),
+              nucleus.radiusY(),
+              nucleus.angle()));
+    }
+    Files.write(file, lines, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads nuclei written by {@link #writeGroundTruth(Slide, Path)}.
+   */
+  public static List<Ellipse> readGroundTruth(final Path file) throws IOException {
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    List<Ellipse> nuclei = new ArrayList<>(Math.max(0, lines.size() - 1));
+    for (String line : lines.subList(1, lines.size())) {
+      String[] values = line.split(",");
+      nuclei.add(
+          new Ellipse(
+              Double.parseDouble(values[0]),
+              Double.parseDouble(values[1]),
+              Double.parseDouble(values[2]),
+              Double.parseDouble(values[3]),
+              Double.parseDouble(values[4])));
+    }
+    return nuclei;
+  }
+
+  /**
+   * Counts the ground-truth nuclei that contain a detected centre, each at most once.
+   *
+   * @param truth the ground-truth nuclei
+   * @param centres detected nucleus centres as {@code x, y} pairs
+   * @return the number of matched ground-truth nuclei
+   */
+  public static int matchNuclei(final List<Ellipse> truth, final double[][] centres) {
+    // Bucket the truth by a grid twice the largest radius wide, so each lookup checks 3 x 3 cells
+    double cellSize = 2 * truth.stream().mapToDouble(Ellipse::maxRadius).max().orElse(1);
+    Map<Long, List<Integer>> grid = new HashMap<>();
+    for (int i = 0; i < truth.size(); i++) {
+      Ellipse nucleus = truth.get(i);
+      grid.computeIfAbsent(gridKey(nucleus.x(), nucleus.y(), cellSize), key -> new ArrayList<>())
+          .add(i);
+    }
+    boolean[] matched = new boolean[truth.size()];
+    int count = 0;
+    for (double[] centre : centres) {
+      long cx = (long) Math.floor(centre[0] / cellSize);
+      long cy = (long) Math.floor(centre[1] / cellSize);
+      search:
+      for (long dy = -1; dy <= 1; dy++) {
+        for (long dx = -1; dx <= 1; dx++) {
+          for (int index : grid.getOrDefault(packKey(cx + dx, cy + dy), List.of())) {
+            if (!matched[index] && truth.get(index).contains(centre[0], centre[1], 1)) {
+              matched[index] = true;
+              count++;
+              break search;
+            }
+          }
+        }
+      }
+    }
+    return count;
+  }
+
+  private static long gridKey(final double x, final double y, final double cellSize) {
+    return packKey((long) Math.floor(x / cellSize), (long) Math.floor(y / cellSize));
+  }
+
+  private static long packKey(final long cellX, final long cellY) {
+    return (cellX << 32) ^ (cellY & 0xffffffffL);
+  }
+
+  /**
+   * Builds StarDist network outputs for nuclei on a tile: a probability that falls from 1 at a
+   * nucleus centre to 0 at its boundary, and for every ray the exact distance to the boundary of
+   * the nucleus's circumscribed circle.
+   *
+   * @param size the tile width and height
+   * @param nucleusCount the number of nuclei
+   * @param rays the number of rays
+   * @param seed the random seed
+   * @return the probability image ({@code size x size}) and the distances ({@code size x size x
+   *     rays})
+   */
+  public static StarDistOutput starDistOutput(
+      final int size, final int nucleusCount, final int rays, final long seed) {
+    List<Ellipse> nuclei = layoutNuclei(size, size, nucleusCount, List.of(), new Random(seed));
+    ArrayImg<FloatType, FloatArray> prob = ArrayImgs.floats(size, size);
+    ArrayImg<FloatType, FloatArray> dist = ArrayImgs.floats(size, size, rays);
+    float[] probData = prob.update(null).getCurrentStorageArray();
+    float[] distData = dist.update(null).getCurrentStorageArray();
+    long plane = (long) size * size;
+    for (Ellipse nucleus : nuclei) {
+      double radius = nucleus.maxRadius();
+      int minX = Math.max(0, (int) Math.floor(nucleus.x() - radius));
+      int maxX = Math.min(size - 1, (int) Math.ceil(nucleus.x() + radius));
+      int minY = Math.max(0, (int) Math.floor(nucleus.y() - radius));
+      int maxY = Math.min(size - 1, (int) Math.ceil(nucleus.y() + radius));
+      for (int y = minY; y <= maxY; y++) {
+        for (int x = minX; x <= maxX; x++) {
+          double px = x - nucleus.x();
+          double py = y - nucleus.y();
+          double r2 = px * px + py * py;
+          float p = (float) (1 - Math.sqrt(r2) / radius);
+          int index = y * size + x;
+          if (p <= probData[index]) {
+            continue;
+          }
+          probData[index] = p;
+          for (int k = 0; k < rays; k++) {
+            double phi = 2 * Math.PI * k / rays;
+            double along = px * Math.cos(phi) + py * Math.sin(phi);
+            distData[(int) (k * plane + index)] =
+                (float) (-along + Math.sqrt(along * along - r2 + radius * radius));
+          }
+        }
+      }
+    }
+    return new StarDistOutput(prob, dist);
+  }
+
+  /**
+   * Network outputs for {@link de.csbdresden.stardist.Candidates}.
+   *
+   * @param prob the object probabilities
+   * @param dist the ray distances
+   */
+  public record StarDistOutput(
+      ArrayImg<FloatType, FloatArray> prob, ArrayImg<FloatType, FloatArray> dist) {}
+
+  private static int spacing(final int width, final int height, final int nucleusCount) {
+    return Math.max(8, (int) Math.sqrt((double) width * height / Math.max(1, nucleusCount)));
+  }
+
+  private static List<Ellipse> layoutNuclei(
+      final int width,
+      final int height,
+      final int nucleusCount,
+      final List<Ellipse> vessels,
+      final Random random) {
+    int spacing = spacing(width, height, nucleusCount);
+    int half = spacing / 2;
+    double maxRadius = Math.min(9, spacing * 0.3);
+    double jitter = spacing * 0.1;
+    List<Ellipse> nuclei = new ArrayList<>(nucleusCount);
+    for (int y = half; y < height - half && nuclei.size() < nucleusCount; y += spacing) {
+      for (int x = half; x < width - half && nuclei.size() < nucleusCount; x += spacing) {
+        double cx = x + (random.nextDouble() * 2 - 1) * jitter;
+        double cy = y + (random.nextDouble() * 2 - 1) * jitter;
+        double radius = maxRadius * (0.6 + 0.4 * random.nextDouble());
+        double aspect = 0.6 + 0.4 * random.nextDouble();
+        double angle = random.nextDouble() * Math.PI;
+        if (vessels.stream().noneMatch(vessel -> vessel.contains(cx, cy, 1.3))) {
+          nuclei.add(new Ellipse(cx, cy, radius, radius * aspect, angle));
+        }
+      }
+    }
+    return nuclei;
+  }
+
+  private static ColorProcessor render(
+      final int width,
+      final int height,
+      final List<Ellipse> nuclei,
+      final List<Ellipse> vessels,
+      final Random random) {
+    // Optical densities per pixel, then converted to RGB in one pass
+    float[] hematoxylin = new float[width * height];
+    float[] eosin = new float[width * height];
+    for (int i = 0; i < eosin.length; i++) {
+      eosin[i] = (float) (0.35 + 0.08 * random.nextGaussian());
+      hematoxylin[i] = (float) Math.abs(0.03 * random.nextGaussian());
+    }
+    for (Ellipse vessel : vessels) {
+      paint(vessel, 1.15, width, height, index -> eosin[index] = 0.7f);
+      paint(
+          vessel,
+          1,
+          width,
+          height,
+          index -> {
+            eosin[index] = 0.02f;
+            hematoxylin[index] = 0;
+          });
+    }
+    for (Ellipse nucleus : nuclei) {
+      paint(
+          nucleus,
+          1,
+          width,
+          height,
+          index -> hematoxylin[index] = (float) (0.8 + 0.15 * random.nextGaussian()));
+    }
+    int[] pixels = new int[width * height];
+    for (int i = 0; i < pixels.length; i++) {
+      int rgb = 0;
+      for (int c = 0; c < 3; c++) {
+        double od = Math.max(0, hematoxylin[i] * HEMATOXYLIN[c] + eosin[i] * EOSIN[c]);
+        int value = (int) Math.round(255 * Math.exp(-od * Math.log(10)));
+        rgb = (rgb << 8) | Math.max(0, Math.min(255, value));
+      }
+      pixels[i] = rgb;
+    }
+    return new ColorProcessor(width, height, pixels);
+  }
+
+  private static void paint(
+      final Ellipse ellipse,
+      final double scale,
+      final int width,
+      final int height,
+      final IntConsumer painter) {
+    double radius = ellipse.maxRadius() * scale;
+    int minX = Math.max(0, (int) Math.floor(ellipse.x() - radius));
+    int maxX = Math.min(width - 1, (int) Math.ceil(ellipse.x() + radius));
+    int minY = Math.max(0, (int) Math.floor(ellipse.y() - radius));
+    int maxY = Math.min(height - 1, (int) Math.ceil(ellipse.y() + radius));
+    for (int y = minY; y <= maxY; y++) {
+      for (int x = minX; x <= maxX; x++) {
+        if (ellipse.contains(x, y, scale)) {
+          painter.accept(y * width + x);
+        }
+      }
+    }
+  }
+}
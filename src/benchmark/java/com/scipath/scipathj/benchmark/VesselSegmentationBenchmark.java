@@ -0,0 +1,67 @@
+package com.scipath.scipathj.benchmark;
+
+import com.scipath.scipathj.analysis.algorithms.segmentation.VesselSegmentation;
+import com.scipath.scipathj.analysis.config.VesselSegmentationSettings;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import com.scipath.scipathj.ui.common.ROIManager;
+import ij.ImagePlus;
+import ij.macro.Interpreter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vessel segmentation: grayscale conversion, blur, threshold, hole filling and labelling of the
+ * lumina with the wand tool.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx4g"})
+public class VesselSegmentationBenchmark {
+
+  @Param({"2048", "4096"})
+  public int size;
+
+  @Param({"4", "16"})
+  public int vessels;
+
+  private ImagePlus image;
+
+  @Setup
+  public void setUp() {
+    // Segmentation "shows" its temporary mask; batch mode keeps that off screen
+    Interpreter.batchMode = true;
+    image =
+        SyntheticSlides.generate(
+                "vessels", size, size, size * size / 600, vessels, SyntheticSlides.DEFAULT_SEED)
+            .image();
+  }
+
+  @Benchmark
+  public List<UserROI> segmentVessels() {
+    return new VesselSegmentation(
+            null,
+            image,
+            "vessels.tif",
+            VesselSegmentationSettings.createDefault(),
+            ROIManager.getInstance())
+        .segmentVessels();
+  }
+}
@@ -1,6 +1,8 @@
 package com.scipath.scipathj;
 
 import com.scipath.scipathj.infrastructure.bootstrap.ApplicationContext;
+import com.scipath.scipathj.infrastructure.bootstrap.HeadlessBatchRunner;
+import com.scipath.scipathj.infrastructure.engine.EngineWarmup;
 import com.scipath.scipathj.ui.main.MainWindow;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -42,23 +44,35 @@ public final class SciPathJApplication {
   /**
    * Application entry point.
    *
-   * @param args command line arguments (currently unused)
+   * <p>{@code batch ...} runs a headless batch through {@link HeadlessBatchRunner} instead of
+   * starting the user interface.
+   *
+   * <p>Only the configuration and the look and feel are set up before the window shows, the latter
+   * on the Event Dispatch Thread while the configuration loads. TensorFlow and the SciJava context
+   * are warmed up in the background afterwards by {@link EngineWarmup}.
+   *
+   * @param args command line arguments
    */
   public static void main(final String[] args) {
+    if (args.length > 0 && HeadlessBatchRunner.COMMAND.equals(args[0])) {
+      System.exit(HeadlessBatchRunner.run(java.util.Arrays.copyOfRange(args, 1, args.length)));
+    }
+
     LOGGER.info("Starting SciPathJ Application v1.0.0");
 
     try {
-      // Initialize application context with dependency injection
       ApplicationContext context = new ApplicationContext();
-      context.initialize();
 
-      // Configure system properties for optimal UI experience
+      // Configure system properties for optimal UI experience, before AWT starts
       context.getSystemConfigurationService().configureSystemProperties();
 
-      // Initialize theme system
-      context.getThemeService().initializeTheme();
+      // Initialize theme system on the Event Dispatch Thread while the configuration loads
+      SwingUtilities.invokeLater(context.getThemeService()::initializeTheme);
 
-      // Start GUI on Event Dispatch Thread
+      // Initialize application context with dependency injection
+      context.initialize();
+
+      // Start GUI on Event Dispatch Thread, after the theme
       SwingUtilities.invokeLater(() -> createAndShowGUI(context));
 
     } catch (Exception e) {
@@ -90,6 +104,9 @@ public final class SciPathJApplication {
 
       LOGGER.info("SciPathJ application started successfully");
 
+      // Warm up TensorFlow and StarDist's context while the user picks images
+      EngineWarmup.startInBackground();
+
     } catch (Exception e) {
       LOGGER.error("Failed to create main application window", e);
       showErrorDialog(
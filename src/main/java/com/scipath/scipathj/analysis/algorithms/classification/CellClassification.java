@@ -7,8 +7,6 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -44,11 +42,6 @@ public class CellClassification {
    private List<String> loadedSelectedFeatureNames = new ArrayList<>();
    private Map<Integer, ClassDetails> classIdToDetails = new HashMap<>();
 
-   // Decimal format configuration
-   private static final String FLOAT_FORMAT_PATTERN = "#.######";
-   private String csvSeparator = ";"; // EU format by default
-   private char decimalSeparator = ',';
-
    // Model paths
    private static final String MODEL_DIR = "/models/2D/";
    private static final String MODEL_PATH = MODEL_DIR + "xgboost_model.json";
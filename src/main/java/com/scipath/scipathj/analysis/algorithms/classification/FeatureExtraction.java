@@ -2,6 +2,8 @@ package com.scipath.scipathj.analysis.algorithms.classification;
 
 import com.scipath.scipathj.analysis.config.FeatureExtractionSettings;
 import com.scipath.scipathj.analysis.algorithms.segmentation.HEDeconvolution;
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.scipath.scipathj.infrastructure.metrics.Timer;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import ij.ImagePlus;
 import ij.gui.Roi;
@@ -33,6 +35,10 @@ public class FeatureExtraction {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FeatureExtraction.class);
 
+    private static final Timer DECONVOLUTION_TIMER =
+        MetricsRegistry.getInstance()
+            .timer("features.deconvolution", "H&E colour deconvolution of the whole image");
+
     // Grid cell size for spatial indexing (optimized for typical ROI sizes)
     private static final int GRID_CELL_SIZE = 100;
     
@@ -158,7 +164,9 @@ public class FeatureExtraction {
             HEDeconvolution heDeconvolution = new HEDeconvolution(originalImage, true);
             
             if (heDeconvolution.isHAndEImage()) {
-                heDeconvolution.performDeconvolution();
+                try (Timer.Sample sample = DECONVOLUTION_TIMER.start()) {
+                    heDeconvolution.performDeconvolution();
+                }
                 
                 this.hematoxylinImage = heDeconvolution.getHematoxylinImage();
                 this.eosinImage = heDeconvolution.getEosinImage();
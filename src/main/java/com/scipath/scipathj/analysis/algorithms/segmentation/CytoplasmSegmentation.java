@@ -3,6 +3,8 @@ package com.scipath.scipathj.analysis.algorithms.segmentation;
 import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
 import com.scipath.scipathj.analysis.config.CytoplasmSegmentationSettings;
 import com.scipath.scipathj.infrastructure.config.MainSettings;
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.scipath.scipathj.infrastructure.metrics.Timer;
 import com.scipath.scipathj.infrastructure.roi.CellROI;
 import com.scipath.scipathj.infrastructure.roi.CytoplasmROI;
 import com.scipath.scipathj.infrastructure.roi.NucleusROI;
@@ -44,6 +46,10 @@ public class CytoplasmSegmentation {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CytoplasmSegmentation.class);
 
+  private static final Timer VORONOI_TIMER =
+      MetricsRegistry.getInstance()
+          .timer("segmentation.cytoplasm.voronoi", "Voronoi tessellation of the nuclei mask");
+
   private final ImagePlus originalImage;
   private final String imageFileName;
   private final List<UserROI> vesselROIs;
@@ -161,7 +167,10 @@ public class CytoplasmSegmentation {
       hideImageWindow(nucleiMask);
 
       // Step 2: Create Voronoi tessellation
-      ImagePlus voronoiImage = createVoronoiTessellation(nucleiMask);
+      ImagePlus voronoiImage;
+      try (Timer.Sample sample = VORONOI_TIMER.start()) {
+        voronoiImage = createVoronoiTessellation(nucleiMask);
+      }
 
       // Step 3: Apply vessel exclusion if enabled
       ImagePlus cytoplasmImage = applyVesselExclusion(voronoiImage);
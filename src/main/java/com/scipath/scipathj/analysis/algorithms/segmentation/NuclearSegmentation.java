@@ -1,7 +1,9 @@
 package com.scipath.scipathj.analysis.algorithms.segmentation;
 
 import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
+import com.scipath.scipathj.infrastructure.engine.EngineWarmup;
 import com.scipath.scipathj.analysis.config.NuclearSegmentationSettings;
+import com.scipath.scipathj.analysis.config.SegmentationConstants;
 import com.scipath.scipathj.infrastructure.roi.NucleusROI;
 import com.scipath.scipathj.ui.common.ROIManager;
 import de.csbdresden.stardist.StarDist2D;
@@ -43,6 +45,10 @@ public class NuclearSegmentation implements AutoCloseable {
   private static final Logger LOGGER = LoggerFactory.getLogger(NuclearSegmentation.class);
   private static final int STARDIST_TIMEOUT_SECONDS = 60;
 
+  // StarDist reports its ROIs through ImageJ's single RoiManager, so images that are analysed
+  // concurrently take turns running it
+  private static final Object STARDIST_LOCK = new Object();
+
   private final ImagePlus originalImage;
   private final String imageFileName;
   private final ROIManager roiManager;
@@ -97,45 +103,14 @@ public class NuclearSegmentation implements AutoCloseable {
   }
 
   /**
-   * Initialize minimal SciJava context for StarDist.
+   * Gets the SciJava context for StarDist, shared by all segmentations and warmed up in the
+   * background by {@link EngineWarmup}.
    */
   private void initializeContext() {
     try {
-      LOGGER.info("Initializing SciJava context for nuclear segmentation");
-
-      // Create SciJava context with required services
-      this.context =
-          new Context(
-              CommandService.class,
-              DatasetService.class,
-              org.scijava.app.StatusService.class,
-              org.scijava.log.LogService.class,
-              org.scijava.thread.ThreadService.class,
-              org.scijava.plugin.PluginService.class,
-              org.scijava.convert.ConvertService.class,
-              org.scijava.module.ModuleService.class,
-              net.imagej.tensorflow.TensorFlowService.class,
-              // Add UI services back as they are required
-              org.scijava.ui.UIService.class,
-              org.scijava.display.DisplayService.class,
-              net.imagej.display.ImageDisplayService.class,
-              net.imagej.lut.LUTService.class,
-              net.imagej.ops.OpService.class,
-              org.scijava.prefs.PrefService.class,
-              org.scijava.io.IOService.class,
-              org.scijava.parse.ParseService.class,
-              org.scijava.object.ObjectService.class,
-              net.imagej.types.DataTypeService.class,
-              org.scijava.app.AppService.class,
-              org.scijava.event.EventService.class);
-
+      this.context = EngineWarmup.getContext();
       this.commandService = context.getService(CommandService.class);
       this.datasetService = context.getService(DatasetService.class);
-
-      LOGGER.info(
-          "SciJava context initialized successfully with {} services",
-          context.getServiceIndex().size());
-
     } catch (Exception e) {
       LOGGER.error("Failed to initialize SciJava context", e);
       throw new NuclearSegmentationException("Failed to initialize context: " + e.getMessage(), e);
@@ -163,7 +138,10 @@ public class NuclearSegmentation implements AutoCloseable {
       Dataset inputDataset = convertToDataset(originalImage);
 
       // Execute StarDist with H&E model
-      List<NucleusROI> nucleiROIs = executeStarDistHE(inputDataset);
+      List<NucleusROI> nucleiROIs;
+      synchronized (STARDIST_LOCK) {
+        nucleiROIs = executeStarDistHE(inputDataset);
+      }
 
       // Note: ROI addition is handled centrally by AnalysisPipeline.addROIsToManager()
       // to avoid duplication. DO NOT add nucleiROIs.forEach(roiManager::addROI) here.
@@ -494,6 +472,20 @@ public class NuclearSegmentation implements AutoCloseable {
     params.put("nTiles", settings.nTiles());
     params.put("verbose", settings.verbose());
 
+    // Stream very large images tile by tile instead of materialising full prob/dist maps
+    long pixelCount = (long) originalImage.getWidth() * originalImage.getHeight();
+    boolean streamTiles =
+        pixelCount > SegmentationConstants.NuclearSegmentation.STREAMING_PIXEL_THRESHOLD;
+    params.put("streamTiles", streamTiles);
+    params.put(
+        "streamTileSize", SegmentationConstants.NuclearSegmentation.DEFAULT_STREAM_TILE_SIZE);
+    if (streamTiles) {
+      LOGGER.info(
+          "Image '{}' has {} pixels, using streaming tile-by-tile StarDist",
+          imageFileName,
+          pixelCount);
+    }
+
     // Disable visual outputs to prevent display service errors
     params.put("showCsbdeepProgress", false);
     params.put("showProbAndDist", false);
@@ -575,17 +567,14 @@ public class NuclearSegmentation implements AutoCloseable {
   }
 
   /**
-   * Close the context and release resources.
+   * Releases the segmentation. The shared context stays alive for later segmentations and is
+   * disposed by {@link EngineWarmup#shutdown()}.
    */
   @Override
   public void close() {
-    try {
-      if (context != null) {
-        context.dispose();
-      }
-    } catch (Exception e) {
-      LOGGER.warn("Error disposing context", e);
-    }
+    context = null;
+    commandService = null;
+    datasetService = null;
   }
 
   /**
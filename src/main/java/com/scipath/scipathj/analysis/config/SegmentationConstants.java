@@ -120,6 +120,15 @@ public final class SegmentationConstants {
     /** Default setting for showing probability and distance maps */
     public static final boolean DEFAULT_SHOW_PROB_AND_DIST = false;
 
+    /**
+     * Images with more pixels than this are segmented tile by tile (streaming StarDist), so that
+     * peak memory depends on the tile size rather than on the image size.
+     */
+    public static final long STREAMING_PIXEL_THRESHOLD = 4096L * 4096L;
+
+    /** Edge length in pixels of the tiles used by streaming StarDist */
+    public static final int DEFAULT_STREAM_TILE_SIZE = 1024;
+
     private NuclearSegmentation() {
       throw new UnsupportedOperationException("Utility class cannot be instantiated");
     }
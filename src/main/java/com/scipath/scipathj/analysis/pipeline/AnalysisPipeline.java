@@ -1,6 +1,8 @@
 package com.scipath.scipathj.analysis.pipeline;
 
 import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
+import com.scipath.scipathj.infrastructure.engine.AdmissionController;
+import com.scipath.scipathj.infrastructure.image.ImageSource;
 import com.scipath.scipathj.analysis.config.CytoplasmSegmentationSettings;
 import com.scipath.scipathj.analysis.config.FeatureExtractionSettings;
 import com.scipath.scipathj.infrastructure.config.MainSettings;
@@ -16,13 +18,25 @@ import com.scipath.scipathj.analysis.algorithms.segmentation.NuclearSegmentation
 import com.scipath.scipathj.analysis.algorithms.segmentation.CytoplasmSegmentation;
 import com.scipath.scipathj.analysis.algorithms.classification.FeatureExtraction;
 import com.scipath.scipathj.analysis.algorithms.classification.CellClassification;
+import com.scipath.scipathj.analysis.results.BatchJournal;
+import com.scipath.scipathj.analysis.results.ResultsFile;
+import com.scipath.scipathj.analysis.results.ResultsFileWriter;
+import com.scipath.scipathj.analysis.results.ResultsSink;
+import com.scipath.scipathj.infrastructure.metrics.MetricsExporter;
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.scipath.scipathj.infrastructure.metrics.Timer;
+import com.scipath.scipathj.infrastructure.utils.Digests;
 import com.scipath.scipathj.ui.common.ROIManager;
 import com.scipath.scipathj.ui.utils.ImageLoader;
 import ij.ImagePlus;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -54,18 +68,34 @@ public class AnalysisPipeline {
   private final MainSettings mainSettings;
   private final ROIManager roiManager;
 
-  // Image information for ignore calculation
-  private ImagePlus currentImage;
-
   // Progress tracking
   private final AtomicBoolean isProcessing = new AtomicBoolean(false);
   private final AtomicBoolean cancelRequested = new AtomicBoolean(false);
   private final AtomicInteger processedImages = new AtomicInteger(0);
   private volatile int totalImages = 0;
 
+  // Optional binary results file written while a batch runs
+  private File resultsFile;
+  private volatile ResultsFileWriter resultsWriter;
+
+  // Checkpoint journal of the results file, and the segments written but not yet journaled
+  private volatile BatchJournal journal;
+  private final java.util.Map<String, ResultsFile.ImageInfo> writtenSegments =
+      new ConcurrentHashMap<>();
+
+  // Optional sink receiving the results of every image besides the results file
+  private ResultsSink resultsSink;
+
+  // Optional metrics file written when a batch ends
+  private File metricsFile;
+
+  // Cache of stage outputs, or null to recompute every stage
+  private volatile StageCache stageCache = StageCache.fromSystemProperties();
+
   // Progress callbacks
   private Consumer<String> progressMessageCallback;
   private Consumer<Integer> progressPercentCallback;
+  private Consumer<ImageAnalysisResult> imageCompletedCallback;
 
   /**
    * Creates a new AnalysisPipeline with default settings.
@@ -137,10 +167,77 @@ public class AnalysisPipeline {
     this.progressPercentCallback = callback;
   }
 
+  /**
+   * Sets the callback that {@link #processBatch(File[])} notifies after each image, with a failure
+   * result if the image could not be analysed. Images finish in any order when a batch runs them in
+   * parallel; the callback runs on the thread that finished the image, after its results have been
+   * written, and never for two images at once.
+   *
+   * @param callback callback to receive the result of every image
+   */
+  public void setImageCompletedCallback(final Consumer<ImageAnalysisResult> callback) {
+    this.imageCompletedCallback = callback;
+  }
+
+  /**
+   * Sets the file that {@link #processBatch(File[])} writes the results of every image to, in the
+   * binary format of {@link ResultsFile}.
+   *
+   * <p>Results are streamed: once an image is written, its ROIs and classifications are released
+   * from the {@link ROIManager}, which pages them back in from the file on demand, and its
+   * features are left out of {@link AnalysisResults#allExtractedFeatures()}. The heap a batch
+   * needs therefore does not grow with the number of images.
+   *
+   * <p>The batch keeps a {@link BatchJournal} next to the file. If the journal already records
+   * images, e.g. because an earlier batch with this file crashed or was cancelled, the file is
+   * continued: images whose contents and settings match a completed entry are not analysed again,
+   * and their results are read back from the file.
+   *
+   * @param resultsFile the file to create or continue, or null to write no results file
+   */
+  public void setResultsFile(final File resultsFile) {
+    this.resultsFile = resultsFile;
+  }
+
+  /**
+   * Sets a sink that {@link #processBatch(File[])} hands the results of every image to as soon as
+   * the image is analysed, in addition to the results file.
+   *
+   * @param resultsSink the sink, or null for none
+   */
+  public void setResultsSink(final ResultsSink resultsSink) {
+    this.resultsSink = resultsSink;
+  }
+
+  /**
+   * Sets the file that {@link #processBatch(File[])} writes the stage timings, counters and JVM
+   * gauges of the batch to when it ends: Prometheus text for {@code .prom} files, JSON otherwise.
+   * Metrics are reset when a batch starts.
+   *
+   * @param metricsFile the file to create, or null to write no metrics file
+   */
+  public void setMetricsFile(final File metricsFile) {
+    this.metricsFile = metricsFile;
+  }
+
+  /**
+   * Sets the cache that stage outputs are read from and written to when images are analysed from
+   * files. By default the cache configured by {@link StageCache#fromSystemProperties()} is used.
+   *
+   * @param stageCache the cache, or null to recompute every stage
+   */
+  public void setStageCache(final StageCache stageCache) {
+    this.stageCache = stageCache;
+  }
+
   /**
    * Processes a batch of images through the complete analysis pipeline.
    * Currently implements steps 1-3 (vessel, nuclear, and cytoplasm segmentation).
    *
+   * <p>Images are analysed in parallel on up to {@code -Dscipathj.batch.threads} workers. An image
+   * starts only once its estimated working set fits in the heap next to the images in flight, as
+   * decided by an {@link AdmissionController}, so large images run fewer at a time.
+   *
    * @param imageFiles array of image files to process
    * @return analysis results containing counts for each step
    * @throws IllegalStateException if pipeline is already processing
@@ -162,12 +259,31 @@ public class AnalysisPipeline {
     totalImages = imageFiles.length;
     processedImages.set(0);
 
-    int totalVessels = 0;
-    int totalNuclei = 0;
-    int totalCells = 0;
-    int successfulImages = 0;
-    java.util.Map<String, java.util.Map<String, Object>> allFeatures = new java.util.HashMap<>();
+    BatchTotals totals = new BatchTotals();
 
+    MetricsRegistry.getInstance().reset();
+    resultsWriter = openResultsWriter();
+    boolean streamed = resultsWriter != null;
+    if (streamed) {
+      roiManager.setResultsSource(resultsWriter);
+      roiManager.setPagedROIColors(this::roiColor);
+    }
+    String settingsDigest =
+        Digests.settings(
+            vesselSettings, nuclearSettings, cytoplasmSettings, featureExtractionSettings,
+            mainSettings);
+    List<String> resumedImages = new ArrayList<>();
+    AdmissionController admission = AdmissionController.fromSystemProperties();
+    AtomicInteger workerCount = new AtomicInteger();
+    ExecutorService workers =
+        Executors.newFixedThreadPool(
+            admission.getMaxConcurrency(),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "AnalysisWorker-" + workerCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
     try {
       for (int i = 0; i < imageFiles.length; i++) {
         if (cancelRequested.get()) {
@@ -178,33 +294,63 @@ public class AnalysisPipeline {
         File imageFile = imageFiles[i];
         String fileName = imageFile.getName();
 
-        updateProgress(i, "Analyzing...");
-
-        try {
-          ImageAnalysisResult result = processImage(imageFile);
-          if (result.success()) {
-            totalVessels += result.vesselCount();
-            totalNuclei += result.nucleusCount();
-            totalCells += result.cellCount();
-            successfulImages++;
-
-            // Collect features from this image
-            if (result.extractedFeatures() != null && !result.extractedFeatures().isEmpty()) {
-              allFeatures.putAll(result.extractedFeatures());
-            }
-          } else {
-            LOGGER.warn("Analysis failed for image: {}", fileName);
-          }
+        updateProgress(processedImages.get(), "Analyzing...");
+
+        String contentDigest = contentDigestOf(imageFile);
+        BatchJournal currentJournal = journal;
+        BatchJournal.Entry completed =
+            currentJournal != null && contentDigest != null
+                ? currentJournal.findCompleted(
+                    imageFile.getAbsolutePath(), contentDigest, settingsDigest)
+                : null;
+        if (completed != null) {
+          LOGGER.info("Skipping {}, its results were completed by an earlier run", fileName);
+          resumedImages.add(fileName);
+          completeImage(
+              totals,
+              ImageAnalysisResult.success(
+                      fileName, completed.vessels(), completed.nuclei(), completed.cells())
+                  .withSourceFile(imageFile));
+          continue;
+        }
 
-        } catch (ImageProcessingException e) {
-          LOGGER.error("Image processing error for {}: {}", fileName, e.getMessage());
-        } catch (IOException e) {
-          LOGGER.error("IO error processing image {}: {}", fileName, e.getMessage());
-        } catch (Exception e) {
-          LOGGER.error("Unexpected error processing image {}: {}", fileName, e.getMessage());
+        // Open the image source first: dimensions are known from the header, before any decoding
+        ImageSource imageSource = ImageLoader.openImageSource(imageFile.getAbsolutePath());
+        if (imageSource == null) {
+          LOGGER.error("IO error processing image {}: cannot open it", fileName);
+          ImageAnalysisResult result =
+              ImageAnalysisResult.failure(fileName, "Failed to load image: " + fileName)
+                  .withSourceFile(imageFile);
+          recordInJournal(imageFile, contentDigest, settingsDigest, result);
+          completeImage(totals, result);
+          continue;
         }
 
-        processedImages.incrementAndGet();
+        // Wait until the image's working set fits in the heap next to the images in flight
+        AdmissionController.Permit permit;
+        try {
+          permit =
+              admission.acquire(
+                  WorkingSetEstimate.bytes(
+                      imageSource.getWidth(), imageSource.getHeight(), cytoplasmSettings));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          imageSource.close();
+          LOGGER.info("Batch processing interrupted at image {} of {}", i + 1, imageFiles.length);
+          break;
+        }
+        if (cancelRequested.get()) {
+          permit.close();
+          imageSource.close();
+          LOGGER.info("Batch processing cancelled at image {} of {}", i + 1, imageFiles.length);
+          break;
+        }
+        workers.execute(
+            () -> {
+              try (permit) {
+                analyseInBatch(imageSource, imageFile, contentDigest, settingsDigest, totals);
+              }
+            });
 
         // Use CompletableFuture for non-blocking delay
         CompletableFuture.delayedExecutor(
@@ -212,27 +358,42 @@ public class AnalysisPipeline {
             java.util.concurrent.TimeUnit.MILLISECONDS);
       }
 
+      // Images in flight finish even if the batch was cancelled
+      workers.shutdown();
+      awaitWorkers(workers);
+
       updateProgress(
           100,
           String.format(
               "Batch analysis completed! Found %d vessels, %d nuclei, and %d cells across %d"
                   + " images.",
-              totalVessels, totalNuclei, totalCells, successfulImages));
+              totals.vessels, totals.nuclei, totals.cells, totals.successfulImages));
 
       LOGGER.info(
-          "Batch analysis completed: {} images processed, {} vessels, {} nuclei, {} cells",
-          successfulImages,
-          totalVessels,
-          totalNuclei,
-          totalCells);
+          "Batch analysis completed: {} images processed, {} vessels, {} nuclei, {} cells, up to"
+              + " {} at once",
+          totals.successfulImages,
+          totals.vessels,
+          totals.nuclei,
+          totals.cells,
+          admission.getPeakConcurrency());
 
     } finally {
+      workers.shutdown();
+      awaitWorkers(workers);
+      admission.close();
+      closeResultsWriter();
+      writeMetrics();
       isProcessing.set(false);
       processedImages.set(0);
       totalImages = 0;
     }
 
-    return new AnalysisResults(successfulImages, totalVessels, totalNuclei, totalCells, allFeatures);
+    if (streamed) {
+      pageFromResultsFile(resumedImages);
+    }
+    return new AnalysisResults(
+        totals.successfulImages, totals.vessels, totals.nuclei, totals.cells, totals.features);
   }
 
   /**
@@ -246,15 +407,40 @@ public class AnalysisPipeline {
    */
   public ImageAnalysisResult processImage(final File imageFile)
       throws ImageProcessingException, IOException {
+    return processImage(imageFile, contentDigestOf(imageFile));
+  }
+
+  private ImageAnalysisResult processImage(final File imageFile, final String contentDigest)
+      throws ImageProcessingException, IOException {
     String fileName = imageFile.getName();
 
-    // Load the image
-    ImagePlus imagePlus = ImageLoader.loadImage(imageFile.getAbsolutePath());
-    if (imagePlus == null) {
+    // Open the image source first: dimensions are known from the header, before any decoding
+    ImageSource imageSource = ImageLoader.openImageSource(imageFile.getAbsolutePath());
+    if (imageSource == null) {
       throw new IOException("Failed to load image: " + fileName);
     }
+    return processImage(imageSource, fileName, contentDigest).withSourceFile(imageFile);
+  }
 
-    return processImage(imagePlus, fileName);
+  /**
+   * Decodes an opened image at full resolution, closing its source, and analyses it.
+   */
+  private ImageAnalysisResult processImage(
+      final ImageSource imageSource, final String fileName, final String contentDigest)
+      throws ImageProcessingException, IOException {
+    ImagePlus imagePlus;
+    try (imageSource) {
+      LOGGER.debug(
+          "Decoding full resolution image {} ({}x{}) for analysis",
+          fileName,
+          imageSource.getWidth(),
+          imageSource.getHeight());
+      try (Timer.Sample sample = PipelineMetrics.LOAD.start()) {
+        imagePlus = imageSource.readFullResolution();
+      }
+    }
+
+    return processImage(imagePlus, fileName, contentDigest);
   }
 
   /**
@@ -268,37 +454,86 @@ public class AnalysisPipeline {
    */
   public ImageAnalysisResult processImage(final ImagePlus imagePlus, final String fileName)
       throws ImageProcessingException {
-    this.currentImage = imagePlus; // Store for ignore calculation
+    return processImage(imagePlus, fileName, null);
+  }
+
+  /**
+   * Analyses an image, reading the outputs of stages whose inputs and settings are unchanged from
+   * the stage cache.
+   *
+   * @param contentDigest the digest of the image file, or null to recompute every stage
+   */
+  private ImageAnalysisResult processImage(
+      final ImagePlus imagePlus, final String fileName, final String contentDigest)
+      throws ImageProcessingException {
+    StageCache cache = contentDigest != null ? stageCache : null;
+    StageCache.Keys keys =
+        cache != null
+            ? StageCache.keysFor(
+                contentDigest,
+                vesselSettings,
+                nuclearSettings,
+                cytoplasmSettings,
+                featureExtractionSettings,
+                mainSettings)
+            : null;
+    Timer.Sample imageSample = PipelineMetrics.IMAGE.start();
     try {
       // Step 1: Vessel Segmentation
-      VesselSegmentation vesselSegmentation =
-          new VesselSegmentation(configurationManager, imagePlus, fileName, vesselSettings);
-      List<UserROI> vesselROIs = vesselSegmentation.segmentVessels();
-
-      // Step 2: Nuclear Segmentation
-      NuclearSegmentation nuclearSegmentation =
-          new NuclearSegmentation(
-              configurationManager, imagePlus, fileName, nuclearSettings, roiManager);
+      List<UserROI> vesselROIs = cache != null ? cache.getVessels(keys.vessels(), fileName) : null;
+      if (vesselROIs == null) {
+        VesselSegmentation vesselSegmentation =
+            new VesselSegmentation(configurationManager, imagePlus, fileName, vesselSettings);
+        try (Timer.Sample sample = PipelineMetrics.VESSEL.start()) {
+          vesselROIs = vesselSegmentation.segmentVessels();
+          sample.setObjects(vesselROIs.size());
+        }
+        if (cache != null) {
+          cache.putVessels(keys.vessels(), vesselROIs);
+        }
+      }
 
-      List<NucleusROI> nucleusROIs = List.of();
-      try {
-        if (nuclearSegmentation.isAvailable()) {
-          nucleusROIs = nuclearSegmentation.segmentNuclei();
-        } else {
-          LOGGER.warn("StarDist H&E model not available for image: {}", fileName);
+      // Step 2: Nuclear Segmentation, skipping StarDist entirely on a cache hit
+      List<NucleusROI> nucleusROIs =
+          cache != null ? cache.getNuclei(keys.nuclei(), fileName) : null;
+      if (nucleusROIs == null) {
+        nucleusROIs = List.of();
+        NuclearSegmentation nuclearSegmentation =
+            new NuclearSegmentation(
+                configurationManager, imagePlus, fileName, nuclearSettings, roiManager);
+        try {
+          if (nuclearSegmentation.isAvailable()) {
+            try (Timer.Sample sample = PipelineMetrics.NUCLEAR.start()) {
+              nucleusROIs = nuclearSegmentation.segmentNuclei();
+              sample.setObjects(nucleusROIs.size());
+            }
+            if (cache != null) {
+              cache.putNuclei(keys.nuclei(), nucleusROIs);
+            }
+          } else {
+            LOGGER.warn("StarDist H&E model not available for image: {}", fileName);
+          }
+        } catch (Exception e) {
+          LOGGER.error("StarDist segmentation failed for image: {}", fileName, e);
+          throw new ImageProcessingException("Nuclear segmentation failed", e);
+        } finally {
+          nuclearSegmentation.close();
         }
-      } catch (Exception e) {
-        LOGGER.error("StarDist segmentation failed for image: {}", fileName, e);
-        throw new ImageProcessingException("Nuclear segmentation failed", e);
-      } finally {
-        nuclearSegmentation.close();
       }
 
       // Step 3: Cytoplasm Segmentation
       List<CellROI> cellROIs = List.of();
       List<CytoplasmROI> cytoplasmROIs = List.of();
 
-      if (!nucleusROIs.isEmpty()) {
+      StageCache.CellStage cachedCells =
+          cache != null && !nucleusROIs.isEmpty()
+              ? cache.getCells(
+                  keys.cells(), fileName, nucleusROIs, cytoplasmSettings.linkNucleusToCytoplasm())
+              : null;
+      if (cachedCells != null) {
+        cellROIs = cachedCells.cells();
+        cytoplasmROIs = cachedCells.cytoplasms();
+      } else if (!nucleusROIs.isEmpty()) {
         List<UserROI> vesselROIsForExclusion =
             cytoplasmSettings.useVesselExclusion() ? vesselROIs : List.of();
 
@@ -314,8 +549,14 @@ public class AnalysisPipeline {
                   mainSettings,
                   roiManager);
 
-          cytoplasmROIs = cytoplasmSegmentation.segmentCytoplasm();
-          cellROIs = cytoplasmSegmentation.getCellROIs();
+          try (Timer.Sample sample = PipelineMetrics.CYTOPLASM.start()) {
+            cytoplasmROIs = cytoplasmSegmentation.segmentCytoplasm();
+            cellROIs = cytoplasmSegmentation.getCellROIs();
+            sample.setObjects(cellROIs.size());
+          }
+          if (cache != null) {
+            cache.putCells(keys.cells(), cellROIs, cytoplasmROIs);
+          }
         } catch (CytoplasmSegmentation.CytoplasmSegmentationException e) {
           LOGGER.error("Cytoplasm segmentation failed for image: {}", fileName, e);
           throw new ImageProcessingException("Cytoplasm segmentation failed", e);
@@ -323,28 +564,47 @@ public class AnalysisPipeline {
       }
 
       // Add ROIs to manager with proper colors
-      addROIsToManager(vesselROIs, nucleusROIs, cellROIs, cytoplasmROIs);
+      int roiCount =
+          vesselROIs.size() + nucleusROIs.size() + cellROIs.size() + cytoplasmROIs.size();
+      try (Timer.Sample sample = PipelineMetrics.ROI_REGISTRATION.start()) {
+        addROIsToManager(imagePlus, vesselROIs, nucleusROIs, cellROIs, cytoplasmROIs);
+        sample.setObjects(roiCount);
+      }
 
       // Step 4: Ultra-Fast Feature Extraction with H&E support and scale conversion
-      LOGGER.info("Starting ultra-fast feature extraction for image: {}", fileName);
-      FeatureExtraction featureExtraction = new FeatureExtraction(
-          imagePlus,
-          fileName,
-          vesselROIs,
-          (java.util.List<UserROI>) (java.util.List<?>) nucleusROIs, // Cast NucleusROI to UserROI
-          (java.util.List<UserROI>) (java.util.List<?>) cytoplasmROIs, // Cast CytoplasmROI to UserROI
-          (java.util.List<UserROI>) (java.util.List<?>) cellROIs, // Cast CellROI to UserROI
-          featureExtractionSettings,
-          mainSettings);
-
-      java.util.Map<String, java.util.Map<String, Object>> extractedFeatures = featureExtraction.extractFeatures();
+      java.util.Map<String, java.util.Map<String, Object>> extractedFeatures =
+          cache != null ? cache.getFeatures(keys.features(), fileName) : null;
+      if (extractedFeatures == null) {
+        LOGGER.info("Starting ultra-fast feature extraction for image: {}", fileName);
+        FeatureExtraction featureExtraction = new FeatureExtraction(
+            imagePlus,
+            fileName,
+            vesselROIs,
+            (java.util.List<UserROI>) (java.util.List<?>) nucleusROIs, // Cast NucleusROI to UserROI
+            (java.util.List<UserROI>) (java.util.List<?>) cytoplasmROIs, // Cast CytoplasmROI
+            (java.util.List<UserROI>) (java.util.List<?>) cellROIs, // Cast CellROI to UserROI
+            featureExtractionSettings,
+            mainSettings);
+
+        try (Timer.Sample sample = PipelineMetrics.FEATURES.start()) {
+          extractedFeatures = featureExtraction.extractFeatures();
+          sample.setObjects(extractedFeatures.size());
+        }
+        if (cache != null) {
+          cache.putFeatures(keys.features(), fileName, extractedFeatures);
+        }
+      }
       LOGGER.info("Feature extraction completed for image: {} - extracted features for {} ROIs",
           fileName, extractedFeatures.size());
 
       // Step 5: Cell Classification using XGBoost
       LOGGER.info("Starting cell classification for image: {}", fileName);
       CellClassification cellClassification = new CellClassification(fileName, extractedFeatures);
-      java.util.Map<String, CellClassification.ClassificationResult> classificationResults = cellClassification.classifyCells();
+      java.util.Map<String, CellClassification.ClassificationResult> classificationResults;
+      try (Timer.Sample sample = PipelineMetrics.CLASSIFICATION.start()) {
+        classificationResults = cellClassification.classifyCells();
+        sample.setObjects(classificationResults != null ? classificationResults.size() : 0);
+      }
 
       // Store classification results in the ROI manager for tooltip display
       if (classificationResults != null && !classificationResults.isEmpty()) {
@@ -358,35 +618,366 @@ public class AnalysisPipeline {
       // Log feature extraction statistics
       LOGGER.info("Feature extraction completed for {} with {} ROIs processed", fileName, extractedFeatures.size());
 
+      writeResults(
+          imagePlus, fileName, vesselROIs, nucleusROIs, cytoplasmROIs, cellROIs,
+          extractedFeatures, classificationResults);
+
       // Clean up
       imagePlus.close();
 
+      imageSample.setObjects(roiCount);
+      imageSample.close();
+
       return ImageAnalysisResult.success(
           fileName, vesselROIs.size(), nucleusROIs.size(), cellROIs.size(), extractedFeatures, classificationResults);
 
     } catch (ImageProcessingException e) {
       // Re-throw ImageProcessingException as-is
+      PipelineMetrics.IMAGES_FAILED.increment();
       throw e;
     } catch (RuntimeException e) {
+      PipelineMetrics.IMAGES_FAILED.increment();
       LOGGER.error("Runtime error during analysis of image: {}", fileName, e);
       throw new ImageProcessingException("Image analysis failed for " + fileName, e);
     }
   }
 
+  /**
+   * Analyses an image of a batch on a worker thread, closing its source, and completes it.
+   */
+  private void analyseInBatch(
+      final ImageSource imageSource,
+      final File imageFile,
+      final String contentDigest,
+      final String settingsDigest,
+      final BatchTotals totals) {
+    String fileName = imageFile.getName();
+    long start = System.nanoTime();
+    ImageAnalysisResult result;
+    try {
+      result = processImage(imageSource, fileName, contentDigest);
+      if (!result.success()) {
+        LOGGER.warn("Analysis failed for image: {}", fileName);
+      }
+    } catch (ImageProcessingException e) {
+      LOGGER.error("Image processing error for {}: {}", fileName, e.getMessage());
+      result = ImageAnalysisResult.failure(fileName, e.getMessage());
+    } catch (IOException e) {
+      LOGGER.error("IO error processing image {}: {}", fileName, e.getMessage());
+      result = ImageAnalysisResult.failure(fileName, e.getMessage());
+    } catch (Exception e) {
+      LOGGER.error("Unexpected error processing image {}: {}", fileName, e.getMessage());
+      result = ImageAnalysisResult.failure(fileName, e.getMessage());
+    }
+    result = result.withSourceFile(imageFile, (System.nanoTime() - start) / 1_000_000);
+
+    // Collect features of images whose results were not streamed to the results file
+    boolean streamed = writtenSegments.containsKey(fileName);
+    recordInJournal(imageFile, contentDigest, settingsDigest, result);
+    if (result.success()
+        && !streamed
+        && result.extractedFeatures() != null
+        && !result.extractedFeatures().isEmpty()) {
+      synchronized (totals) {
+        totals.features.putAll(result.extractedFeatures());
+      }
+    }
+    completeImage(totals, result);
+  }
+
+  /**
+   * Counts a finished image and notifies the image completed callback, one image at a time.
+   */
+  private void completeImage(final BatchTotals totals, final ImageAnalysisResult result) {
+    synchronized (totals) {
+      if (result.success()) {
+        totals.vessels += result.vesselCount();
+        totals.nuclei += result.nucleusCount();
+        totals.cells += result.cellCount();
+        totals.successfulImages++;
+      }
+      processedImages.incrementAndGet();
+      if (imageCompletedCallback != null) {
+        imageCompletedCallback.accept(result);
+      }
+    }
+  }
+
+  /**
+   * Waits for the images in flight of a batch to finish.
+   */
+  private static void awaitWorkers(final ExecutorService workers) {
+    try {
+      while (!workers.awaitTermination(1, java.util.concurrent.TimeUnit.MINUTES)) {
+        LOGGER.debug("Waiting for images in flight to finish");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while waiting for images in flight to finish");
+    }
+  }
+
+  /**
+   * Opens the batch journal and creates the results file, or continues it after the segments the
+   * journal records.
+   */
+  private ResultsFileWriter openResultsWriter() {
+    if (resultsFile == null) {
+      return null;
+    }
+    try {
+      java.nio.file.Files.createDirectories(resultsFile.getAbsoluteFile().toPath().getParent());
+    } catch (IOException e) {
+      LOGGER.error("Failed to create results file {}: {}", resultsFile, e.getMessage());
+      return null;
+    }
+
+    journal = openJournal();
+    if (journal != null && journal.size() > 0) {
+      if (resultsFile.exists()) {
+        try {
+          return ResultsFileWriter.resume(resultsFile.toPath(), journal.getSegments());
+        } catch (IOException e) {
+          LOGGER.warn(
+              "Cannot continue results file {}, analysing all images again: {}",
+              resultsFile,
+              e.getMessage());
+        }
+      }
+      try {
+        journal.clear();
+      } catch (IOException e) {
+        LOGGER.error("Failed to reset batch journal {}: {}", journal.getPath(), e.getMessage());
+        closeJournal();
+      }
+    }
+
+    try {
+      return new ResultsFileWriter(resultsFile.toPath());
+    } catch (IOException e) {
+      LOGGER.error("Failed to create results file {}: {}", resultsFile, e.getMessage());
+      closeJournal();
+      return null;
+    }
+  }
+
+  private BatchJournal openJournal() {
+    java.nio.file.Path journalPath = BatchJournal.pathFor(resultsFile.toPath());
+    try {
+      return BatchJournal.open(journalPath);
+    } catch (IOException e) {
+      LOGGER.error(
+          "Failed to open batch journal {}, the batch cannot be resumed: {}",
+          journalPath,
+          e.getMessage());
+      return null;
+    }
+  }
+
+  private void closeResultsWriter() {
+    ResultsFileWriter writer = resultsWriter;
+    resultsWriter = null;
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        LOGGER.error("Failed to finish results file {}: {}", writer.getPath(), e.getMessage());
+      }
+    }
+    closeJournal();
+    writtenSegments.clear();
+  }
+
+  private void closeJournal() {
+    BatchJournal currentJournal = journal;
+    journal = null;
+    if (currentJournal != null) {
+      try {
+        currentJournal.close();
+      } catch (IOException e) {
+        LOGGER.warn(
+            "Failed to close batch journal {}: {}", currentJournal.getPath(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return the digest identifying an image's contents in the journal and the stage cache, or null
+   *     if neither is used or the file cannot be read
+   */
+  private String contentDigestOf(final File imageFile) {
+    if (journal == null && stageCache == null) {
+      return null;
+    }
+    try {
+      return Digests.file(imageFile.toPath());
+    } catch (IOException e) {
+      LOGGER.warn("Failed to digest {}: {}", imageFile, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Journals the outcome of an image once its results segment is on the storage device, and drops
+   * the segment an earlier run wrote for it if this run wrote none. A failed journal write is
+   * logged; the image is then analysed again if the batch is resumed.
+   */
+  private void recordInJournal(
+      final File imageFile,
+      final String contentDigest,
+      final String settingsDigest,
+      final ImageAnalysisResult result) {
+    ResultsFile.ImageInfo segment = writtenSegments.remove(result.fileName());
+    BatchJournal currentJournal = journal;
+    ResultsFileWriter writer = resultsWriter;
+    // A continued batch keeps the segment of an earlier run until the image writes a new one
+    if (segment == null && writer != null && writer.removeImage(result.fileName())) {
+      LOGGER.debug("Dropped earlier results of {}, it was analysed again", result.fileName());
+    }
+    if (currentJournal == null || contentDigest == null) {
+      return;
+    }
+    try {
+      if (segment != null && writer != null) {
+        writer.sync();
+      }
+      currentJournal.append(
+          new BatchJournal.Entry(
+              imageFile.getAbsolutePath(),
+              result.fileName(),
+              contentDigest,
+              settingsDigest,
+              result.success(),
+              result.vesselCount(),
+              result.nucleusCount(),
+              result.cellCount(),
+              result.extractedFeatures() != null ? result.extractedFeatures().size() : 0,
+              result.classificationResults() != null ? result.classificationResults().size() : 0,
+              segment,
+              result.errorMessage(),
+              System.currentTimeMillis()));
+    } catch (IOException e) {
+      LOGGER.error(
+          "Failed to record {} in batch journal {}: {}",
+          result.fileName(),
+          currentJournal.getPath(),
+          e.getMessage());
+    }
+  }
+
+  /**
+   * Points the ROI manager at the finished results file, which holds the images released while
+   * the batch ran and those completed by an earlier run.
+   */
+  private void pageFromResultsFile(final List<String> resumedImages) {
+    try {
+      roiManager.setResultsSource(ResultsFile.openSource(resultsFile.toPath()));
+      resumedImages.forEach(roiManager::releaseImage);
+    } catch (IOException e) {
+      roiManager.setResultsSource(null);
+      LOGGER.error(
+          "Failed to reopen results file {}, its ROIs cannot be shown: {}",
+          resultsFile,
+          e.getMessage());
+    }
+  }
+
+  private void writeMetrics() {
+    if (metricsFile == null) {
+      return;
+    }
+    try {
+      new MetricsExporter(MetricsRegistry.getInstance()).writeTo(metricsFile.toPath());
+      LOGGER.info("Wrote batch metrics to {}", metricsFile);
+    } catch (IOException e) {
+      LOGGER.error("Failed to write metrics file {}: {}", metricsFile, e.getMessage());
+    }
+  }
+
+  /**
+   * Appends the results of an image to the batch results file, if one is being written, releasing
+   * them from the ROI manager, and hands them to the results sink. A failed write is logged and
+   * does not fail the analysis.
+   */
+  private void writeResults(
+      final ImagePlus imagePlus,
+      final String fileName,
+      final List<UserROI> vesselROIs,
+      final List<NucleusROI> nucleusROIs,
+      final List<CytoplasmROI> cytoplasmROIs,
+      final List<CellROI> cellROIs,
+      final java.util.Map<String, java.util.Map<String, Object>> extractedFeatures,
+      final java.util.Map<String, CellClassification.ClassificationResult> classificationResults) {
+    ResultsFileWriter writer = resultsWriter;
+    ResultsSink sink = resultsSink;
+    if (writer == null && sink == null) {
+      return;
+    }
+    Timer.Sample sample = PipelineMetrics.RESULTS_WRITE.start();
+    List<UserROI> rois = new ArrayList<>(
+        vesselROIs.size() + nucleusROIs.size() + cytoplasmROIs.size() + cellROIs.size());
+    rois.addAll(vesselROIs);
+    rois.addAll(nucleusROIs);
+    rois.addAll(cytoplasmROIs);
+    rois.addAll(cellROIs);
+    try {
+      if (writer != null) {
+        ResultsFile.ImageInfo segment =
+            writer.writeImage(
+                fileName,
+                imagePlus.getWidth(),
+                imagePlus.getHeight(),
+                rois,
+                extractedFeatures,
+                classificationResults);
+        writtenSegments.put(fileName, segment);
+        roiManager.releaseImage(fileName);
+      }
+      if (sink != null) {
+        sink.imageAnalysed(
+            fileName,
+            imagePlus.getWidth(),
+            imagePlus.getHeight(),
+            rois,
+            extractedFeatures,
+            classificationResults);
+      }
+      sample.setObjects(rois.size());
+    } catch (IOException e) {
+      LOGGER.error("Failed to write results of {}: {}", fileName, e.getMessage());
+    } finally {
+      sample.close();
+    }
+  }
+
+  /**
+   * @return the display color of a ROI type, as set by {@link #addROIsToManager}
+   */
+  private java.awt.Color roiColor(final UserROI.ROIType type) {
+    return switch (type) {
+      case VESSEL -> mainSettings.getVesselSettings().borderColor();
+      case NUCLEUS -> mainSettings.getNucleusSettings().borderColor();
+      case CELL -> mainSettings.getCellSettings().borderColor();
+      case CYTOPLASM -> mainSettings.getCytoplasmSettings().borderColor();
+      default -> null;
+    };
+  }
+
   /**
    * Adds ROIs to the manager with appropriate colors and ignore status.
    * This method follows the Single Responsibility Principle by separating ROI management.
    * Ensures consistency: if a cell or cytoplasm is ignored, its nucleus is also ignored.
    */
   private void addROIsToManager(
+      final ImagePlus imagePlus,
       final List<UserROI> vesselROIs,
       final List<NucleusROI> nucleusROIs,
       final List<CellROI> cellROIs,
       final List<CytoplasmROI> cytoplasmROIs) {
 
     // Get image dimensions for ignore calculation
-    int imageWidth = currentImage.getWidth();
-    int imageHeight = currentImage.getHeight();
+    int imageWidth = imagePlus.getWidth();
+    int imageHeight = imagePlus.getHeight();
     int borderDistance = mainSettings.ignoreSettings().borderDistance();
 
     // First pass: mark ROIs as ignored based on border distance (only if ignore functionality is enabled)
@@ -458,11 +1049,15 @@ public class AnalysisPipeline {
       }
     });
 
-    // Add all ROIs to manager after consistency check
-    vesselROIs.forEach(roiManager::addROI);
-    nucleusROIs.forEach(roiManager::addROI);
-    cellROIs.forEach(roiManager::addROI);
-    cytoplasmROIs.forEach(roiManager::addROI);
+    // Add all ROIs to manager after consistency check, as one batch so listeners refresh once
+    List<UserROI> allROIs =
+        new ArrayList<>(
+            vesselROIs.size() + nucleusROIs.size() + cellROIs.size() + cytoplasmROIs.size());
+    allROIs.addAll(vesselROIs);
+    allROIs.addAll(nucleusROIs);
+    allROIs.addAll(cellROIs);
+    allROIs.addAll(cytoplasmROIs);
+    roiManager.addROIs(allROIs);
   }
 
   /**
@@ -528,8 +1123,23 @@ public class AnalysisPipeline {
     return totalImages;
   }
 
+  /**
+   * Running totals of a batch, updated by its workers while holding the instance's lock.
+   */
+  private static final class BatchTotals {
+    private int successfulImages;
+    private int vessels;
+    private int nuclei;
+    private int cells;
+    private final java.util.Map<String, java.util.Map<String, Object>> features =
+        new java.util.HashMap<>();
+  }
+
   /**
    * Result record for batch analysis operations using Java 16+ record syntax.
+   *
+   * <p>{@code allExtractedFeatures} only holds the features of images that were not streamed to a
+   * results file; read the others back with {@link ResultsFile#readAllFeatures()}.
    */
   public record AnalysisResults(
       int processedImages,
@@ -548,6 +1158,9 @@ public class AnalysisPipeline {
 
   /**
    * Result record for single image analysis operations using Java 16+ record syntax.
+   *
+   * @param sourceFile the analysed file, or null if the image was analysed from memory
+   * @param analysisMillis the time a batch spent analysing the image, 0 if it did not analyse it
    */
   public record ImageAnalysisResult(
       String fileName,
@@ -557,28 +1170,46 @@ public class AnalysisPipeline {
       int nucleusCount,
       int cellCount,
       java.util.Map<String, java.util.Map<String, Object>> extractedFeatures,
-      java.util.Map<String, CellClassification.ClassificationResult> classificationResults) {
+      java.util.Map<String, CellClassification.ClassificationResult> classificationResults,
+      File sourceFile,
+      long analysisMillis) {
 
     public static ImageAnalysisResult success(
         final String fileName, final int vesselCount, final int nucleusCount, final int cellCount,
         final java.util.Map<String, java.util.Map<String, Object>> extractedFeatures,
         final java.util.Map<String, CellClassification.ClassificationResult> classificationResults) {
-      return new ImageAnalysisResult(fileName, true, null, vesselCount, nucleusCount, cellCount, extractedFeatures, classificationResults);
+      return new ImageAnalysisResult(fileName, true, null, vesselCount, nucleusCount, cellCount, extractedFeatures, classificationResults, null, 0);
     }
 
     public static ImageAnalysisResult success(
         final String fileName, final int vesselCount, final int nucleusCount, final int cellCount,
         final java.util.Map<String, java.util.Map<String, Object>> extractedFeatures) {
-      return new ImageAnalysisResult(fileName, true, null, vesselCount, nucleusCount, cellCount, extractedFeatures, java.util.Map.of());
+      return new ImageAnalysisResult(fileName, true, null, vesselCount, nucleusCount, cellCount, extractedFeatures, java.util.Map.of(), null, 0);
     }
 
     public static ImageAnalysisResult success(
         final String fileName, final int vesselCount, final int nucleusCount, final int cellCount) {
-      return new ImageAnalysisResult(fileName, true, null, vesselCount, nucleusCount, cellCount, java.util.Map.of(), java.util.Map.of());
+      return new ImageAnalysisResult(fileName, true, null, vesselCount, nucleusCount, cellCount, java.util.Map.of(), java.util.Map.of(), null, 0);
     }
 
     public static ImageAnalysisResult failure(final String fileName, final String errorMessage) {
-      return new ImageAnalysisResult(fileName, false, errorMessage, 0, 0, 0, java.util.Map.of(), java.util.Map.of());
+      return new ImageAnalysisResult(fileName, false, errorMessage, 0, 0, 0, java.util.Map.of(), java.util.Map.of(), null, 0);
+    }
+
+    /**
+     * @return this result for the image analysed from the given file
+     */
+    public ImageAnalysisResult withSourceFile(final File file) {
+      return withSourceFile(file, analysisMillis);
+    }
+
+    /**
+     * @return this result for the image analysed from the given file in the given time
+     */
+    public ImageAnalysisResult withSourceFile(final File file, final long millis) {
+      return new ImageAnalysisResult(
+          fileName, success, errorMessage, vesselCount, nucleusCount, cellCount,
+          extractedFeatures, classificationResults, file, millis);
     }
 
     @Override
@@ -0,0 +1,48 @@
+package com.scipath.scipathj.analysis.pipeline;
+
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.scipath.scipathj.infrastructure.metrics.Timer;
+
+/**
+ * Timers and counters of the per-image pipeline stages, registered with the {@link
+ * MetricsRegistry}. Stages nested inside these, such as StarDist inference or the Voronoi
+ * tessellation, register their own timers next to the code they measure.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class PipelineMetrics {
+
+  private static final MetricsRegistry REGISTRY = MetricsRegistry.getInstance();
+
+  static final Timer LOAD =
+      REGISTRY.timer("pipeline.stage.load", "Image decoding at full resolution");
+  static final Timer VESSEL =
+      REGISTRY.timer("pipeline.stage.vessel", "Vessel segmentation, objects are vessels");
+  static final Timer NUCLEAR =
+      REGISTRY.timer("pipeline.stage.nuclear", "Nuclear segmentation, objects are nuclei");
+  static final Timer CYTOPLASM =
+      REGISTRY.timer("pipeline.stage.cytoplasm", "Cytoplasm segmentation, objects are cells");
+  static final Timer ROI_REGISTRATION =
+      REGISTRY.timer("pipeline.stage.roi_registration", "Adding ROIs to the ROI manager");
+  static final Timer FEATURES =
+      REGISTRY.timer("pipeline.stage.features", "Feature extraction, objects are ROIs");
+  static final Timer CLASSIFICATION =
+      REGISTRY.timer("pipeline.stage.classification", "Cell classification, objects are ROIs");
+  static final Timer RESULTS_WRITE =
+      REGISTRY.timer("pipeline.stage.results_write", "Appending an image to the results file");
+  static final Timer IMAGE =
+      REGISTRY.timer("pipeline.image", "Whole-image analysis, objects are ROIs");
+
+  static final MetricsRegistry.Counter IMAGES_FAILED =
+      REGISTRY.counter("pipeline.images.failed", "Images whose analysis failed");
+  static final MetricsRegistry.Counter CACHE_HITS =
+      REGISTRY.counter("pipeline.cache.hits", "Stage outputs read from the stage cache");
+  static final MetricsRegistry.Counter CACHE_MISSES =
+      REGISTRY.counter("pipeline.cache.misses", "Stage outputs not found in the stage cache");
+  static final MetricsRegistry.Counter CACHE_EVICTIONS =
+      REGISTRY.counter("pipeline.cache.evictions", "Stage cache entries evicted to free space");
+
+  private PipelineMetrics() {}
+}
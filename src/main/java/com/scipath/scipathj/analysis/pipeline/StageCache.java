@@ -0,0 +1,594 @@
+package com.scipath.scipathj.analysis.pipeline;
+
+import com.scipath.scipathj.analysis.config.CytoplasmSegmentationSettings;
+import com.scipath.scipathj.analysis.config.FeatureExtractionSettings;
+import com.scipath.scipathj.analysis.config.NuclearSegmentationSettings;
+import com.scipath.scipathj.analysis.config.VesselSegmentationSettings;
+import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
+import com.scipath.scipathj.infrastructure.config.MainSettings;
+import com.scipath.scipathj.infrastructure.roi.CellROI;
+import com.scipath.scipathj.infrastructure.roi.CytoplasmROI;
+import com.scipath.scipathj.infrastructure.roi.NucleusROI;
+import com.scipath.scipathj.infrastructure.roi.ROIZipIO;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import com.scipath.scipathj.infrastructure.utils.Digests;
+import ij.gui.Roi;
+import ij.io.RoiEncoder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content-addressed on-disk cache of the outputs of the segmentation and feature extraction
+ * stages, so that re-analysing an image after changing the settings of one stage only recomputes
+ * that stage and the stages after it.
+ *
+ * <p>Every entry is keyed by the SHA-256 digest of the image file, the stage and its version, the
+ * settings the stage reads and the keys of the stages it consumes; see {@link #keysFor}. Changing
+ * the cytoplasm settings therefore invalidates the cytoplasm and feature entries but still finds
+ * the vessels and the StarDist nuclei of every image. Stage versions are bumped whenever an
+ * algorithm, or the StarDist model it bundles, changes its output.
+ *
+ * <p>Entries are written to a temporary file and moved into place, so concurrent analyses may
+ * share a cache. A hit refreshes the modification time of its entry; when the cache grows beyond
+ * its size limit, the least recently used entries are deleted.
+ *
+ * <p>The cache lives in {@code ~/.scipathj/cache} and holds up to 2 GB unless the system
+ * properties {@code scipathj.cache.dir} and {@code scipathj.cache.maxMB} say otherwise; a size of
+ * 0 disables it.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class StageCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StageCache.class);
+
+  // Bump a version when the stage produces different output for the same input and settings
+  static final String VESSEL_STAGE = "vessel/1";
+  static final String NUCLEAR_STAGE = "nuclear/1";
+  static final String CYTOPLASM_STAGE = "cytoplasm/1";
+  static final String FEATURES_STAGE = "features/1";
+
+  private static final long DEFAULT_MAX_MB = 2048;
+  // Eviction frees space down to this fraction of the limit, so it does not run on every write
+  private static final double EVICTION_TARGET = 0.9;
+
+  private static final String EXTENSION = ".stage";
+  private static final int MAGIC = 0x53504A43; // "SPJC"
+  private static final int FORMAT_VERSION = 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // Feature value tags
+  private static final byte NULL_VALUE = 0;
+  private static final byte DOUBLE_VALUE = 1;
+  private static final byte INT_VALUE = 2;
+  private static final byte LONG_VALUE = 3;
+  private static final byte BOOLEAN_VALUE = 4;
+  private static final byte STRING_VALUE = 5;
+
+  /**
+   * Cache keys of the stages of one image.
+   *
+   * @param vessels the key of the vessel ROIs
+   * @param nuclei the key of the StarDist nuclei
+   * @param cells the key of the cell and cytoplasm ROIs
+   * @param features the key of the feature table
+   */
+  public record Keys(String vessels, String nuclei, String cells, String features) {}
+
+  /**
+   * Cell and cytoplasm ROIs read from the cache, linked to their nuclei.
+   *
+   * @param cells the cell ROIs
+   * @param cytoplasms the cytoplasm ROIs
+   */
+  public record CellStage(List<CellROI> cells, List<CytoplasmROI> cytoplasms) {}
+
+  /** A ROI as stored in an entry. */
+  private record StoredROI(String name, String notes, String method, String nucleus, Roi roi) {}
+
+  private final Path directory;
+  private final long maxBytes;
+  private long sizeBytes = -1;
+
+  /**
+   * Creates a cache.
+   *
+   * @param directory the directory holding the entries, created on the first write
+   * @param maxBytes the size above which least recently used entries are evicted
+   */
+  public StageCache(final Path directory, final long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Creates the cache configured by the {@code scipathj.cache.dir} and {@code
+   * scipathj.cache.maxMB} system properties.
+   *
+   * @return the cache, or null if it is disabled
+   */
+  public static StageCache fromSystemProperties() {
+    long maxMB = Long.getLong("scipathj.cache.maxMB", DEFAULT_MAX_MB);
+    if (maxMB <= 0) {
+      return null;
+    }
+    String defaultDirectory =
+        ConfigurationManager.getDefaultConfigDirectory() + File.separator + "cache";
+    Path directory = Paths.get(System.getProperty("scipathj.cache.dir", defaultDirectory));
+    return new StageCache(directory, maxMB * 1024 * 1024);
+  }
+
+  /**
+   * Computes the keys of every stage of an image. Each key covers the settings its stage reads
+   * and the keys of its inputs: vessels and nuclei depend on the image alone, cells on the nuclei
+   * and, with vessel exclusion, the vessels, and features on all ROIs and the main settings, which
+   * decide the scale and which ROIs are ignored.
+   *
+   * @param contentDigest the digest of the image file
+   */
+  public static Keys keysFor(
+      final String contentDigest,
+      final VesselSegmentationSettings vesselSettings,
+      final NuclearSegmentationSettings nuclearSettings,
+      final CytoplasmSegmentationSettings cytoplasmSettings,
+      final FeatureExtractionSettings featureExtractionSettings,
+      final MainSettings mainSettings) {
+    String vessels =
+        Digests.strings(VESSEL_STAGE, contentDigest, Digests.settings(vesselSettings));
+    String nuclei =
+        Digests.strings(NUCLEAR_STAGE, contentDigest, Digests.settings(nuclearSettings));
+    String cells =
+        Digests.strings(
+            CYTOPLASM_STAGE,
+            nuclei,
+            cytoplasmSettings.useVesselExclusion() ? vessels : "",
+            Digests.settings(cytoplasmSettings));
+    String features =
+        Digests.strings(
+            FEATURES_STAGE,
+            vessels,
+            nuclei,
+            cells,
+            Digests.settings(featureExtractionSettings, mainSettings));
+    return new Keys(vessels, nuclei, cells, features);
+  }
+
+  /**
+   * @return the cached vessels of an image, or null on a miss
+   */
+  public List<UserROI> getVessels(final String key, final String imageFileName) {
+    List<StoredROI> stored = readROIEntry(key);
+    if (stored == null) {
+      return null;
+    }
+    List<UserROI> vessels = new ArrayList<>(stored.size());
+    for (StoredROI roi : stored) {
+      UserROI vessel = new UserROI(roi.roi(), imageFileName, roi.name());
+      vessel.setNotes(roi.notes());
+      vessels.add(vessel);
+    }
+    return vessels;
+  }
+
+  public void putVessels(final String key, final List<UserROI> vessels) {
+    writeEntry(key, out -> writeROIs(out, vessels));
+  }
+
+  /**
+   * @return the cached nuclei of an image, or null on a miss
+   */
+  public List<NucleusROI> getNuclei(final String key, final String imageFileName) {
+    List<StoredROI> stored = readROIEntry(key);
+    if (stored == null) {
+      return null;
+    }
+    List<NucleusROI> nuclei = new ArrayList<>(stored.size());
+    for (StoredROI roi : stored) {
+      NucleusROI nucleus = new NucleusROI(roi.roi(), imageFileName, roi.name());
+      nucleus.setSegmentationMethod(roi.method());
+      nucleus.setNotes(roi.notes());
+      nuclei.add(nucleus);
+    }
+    return nuclei;
+  }
+
+  public void putNuclei(final String key, final List<NucleusROI> nuclei) {
+    writeEntry(key, out -> writeROIs(out, nuclei));
+  }
+
+  /**
+   * Reads the cached cells and cytoplasms of an image and links them to their nuclei the way
+   * cytoplasm segmentation does.
+   *
+   * @param nuclei the nuclei of the image, from the entry the cells were computed from
+   * @param linkNucleusToCytoplasm whether nuclei are linked back to their cytoplasm
+   * @return the cells and cytoplasms, or null on a miss
+   */
+  public CellStage getCells(
+      final String key,
+      final String imageFileName,
+      final List<NucleusROI> nuclei,
+      final boolean linkNucleusToCytoplasm) {
+    List<List<StoredROI>> sections = readEntry(key, in -> List.of(readROIs(in), readROIs(in)));
+    if (sections == null) {
+      return null;
+    }
+    Map<String, NucleusROI> nucleiByName = new HashMap<>();
+    nuclei.forEach(nucleus -> nucleiByName.put(nucleus.getName(), nucleus));
+
+    Map<String, CellROI> cellsByNucleus = new HashMap<>();
+    List<CellROI> cells = new ArrayList<>(sections.get(0).size());
+    for (StoredROI roi : sections.get(0)) {
+      NucleusROI nucleus = nucleiByName.get(roi.nucleus());
+      CellROI cell = new CellROI(roi.roi(), imageFileName, roi.name(), nucleus);
+      cell.setSegmentationMethod(roi.method());
+      cell.setNotes(roi.notes());
+      cells.add(cell);
+      if (roi.nucleus() != null) {
+        cellsByNucleus.put(roi.nucleus(), cell);
+      }
+    }
+
+    List<CytoplasmROI> cytoplasms = new ArrayList<>(sections.get(1).size());
+    for (StoredROI roi : sections.get(1)) {
+      NucleusROI nucleus = nucleiByName.get(roi.nucleus());
+      CytoplasmROI cytoplasm = new CytoplasmROI(roi.roi(), imageFileName, roi.name(), nucleus);
+      cytoplasm.setSegmentationMethod(roi.method());
+      cytoplasm.setNotes(roi.notes());
+      CellROI cell = roi.nucleus() != null ? cellsByNucleus.get(roi.nucleus()) : null;
+      if (cell != null) {
+        cell.setAssociatedCytoplasm(cytoplasm);
+        cytoplasm.setParentCell(cell);
+      }
+      if (linkNucleusToCytoplasm && nucleus != null) {
+        nucleus.setAssociatedCytoplasm(cytoplasm);
+      }
+      cytoplasms.add(cytoplasm);
+    }
+    return new CellStage(cells, cytoplasms);
+  }
+
+  public void putCells(
+      final String key, final List<CellROI> cells, final List<CytoplasmROI> cytoplasms) {
+    writeEntry(
+        key,
+        out -> {
+          writeROIs(out, cells);
+          writeROIs(out, cytoplasms);
+        });
+  }
+
+  /**
+   * @return the cached feature table of an image, keyed like {@code
+   *     FeatureExtraction#extractFeatures()}, or null on a miss
+   */
+  public Map<String, Map<String, Object>> getFeatures(
+      final String key, final String imageFileName) {
+    String prefix = imageFileName + "_";
+    return readEntry(
+        key,
+        in -> {
+          int rowCount = in.readInt();
+          Map<String, Map<String, Object>> features = new LinkedHashMap<>();
+          for (int row = 0; row < rowCount; row++) {
+            String rowKey = in.readBoolean() ? prefix + in.readUTF() : in.readUTF();
+            int columnCount = in.readInt();
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int column = 0; column < columnCount; column++) {
+              values.put(in.readUTF(), readValue(in));
+            }
+            features.put(rowKey, values);
+          }
+          return features;
+        });
+  }
+
+  /**
+   * Stores the feature table of an image. Row keys are stored without the image file name, so
+   * the entry also serves a copy of the image under another name.
+   */
+  public void putFeatures(
+      final String key,
+      final String imageFileName,
+      final Map<String, Map<String, Object>> features) {
+    String prefix = imageFileName + "_";
+    writeEntry(
+        key,
+        out -> {
+          out.writeInt(features.size());
+          for (Map.Entry<String, Map<String, Object>> row : features.entrySet()) {
+            boolean relative = row.getKey().startsWith(prefix);
+            out.writeBoolean(relative);
+            out.writeUTF(relative ? row.getKey().substring(prefix.length()) : row.getKey());
+            out.writeInt(row.getValue().size());
+            for (Map.Entry<String, Object> value : row.getValue().entrySet()) {
+              out.writeUTF(value.getKey());
+              writeValue(out, value.getValue());
+            }
+          }
+        });
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  @FunctionalInterface
+  private interface EntryWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface EntryReader<T> {
+    T read(DataInputStream in) throws IOException;
+  }
+
+  private List<StoredROI> readROIEntry(final String key) {
+    return readEntry(key, StageCache::readROIs);
+  }
+
+  /**
+   * Reads an entry and marks it as recently used. A damaged entry is deleted.
+   *
+   * @return the content, or null on a miss
+   */
+  private <T> T readEntry(final String key, final EntryReader<T> reader) {
+    Path entry = entryPath(key);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(entry), BUFFER_SIZE))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("not a stage cache entry of version " + FORMAT_VERSION);
+      }
+      T content = reader.read(in);
+      touch(entry);
+      PipelineMetrics.CACHE_HITS.increment();
+      return content;
+    } catch (NoSuchFileException e) {
+      PipelineMetrics.CACHE_MISSES.increment();
+      return null;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Discarding damaged stage cache entry {}: {}", entry, e.getMessage());
+      PipelineMetrics.CACHE_MISSES.increment();
+      delete(entry);
+      return null;
+    }
+  }
+
+  /**
+   * Writes an entry and evicts old entries if the cache grew beyond its limit. A failed write is
+   * logged and leaves the cache as it was.
+   */
+  private void writeEntry(final String key, final EntryWriter writer) {
+    Path entry = entryPath(key);
+    Path temporary = null;
+    try {
+      Files.createDirectories(directory);
+      temporary = Files.createTempFile(directory, key, ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writer.write(out);
+      }
+      long size = Files.size(temporary);
+      try {
+        Files.move(
+            temporary,
+            entry,
+            StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+      }
+      temporary = null;
+      grow(size);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed to write stage cache entry {}: {}", entry, e.getMessage());
+    } finally {
+      if (temporary != null) {
+        delete(temporary);
+      }
+    }
+  }
+
+  private synchronized void grow(final long bytes) throws IOException {
+    if (sizeBytes < 0) {
+      // The first write measures the entries left by earlier runs, including this one
+      sizeBytes = 0;
+      evict();
+    } else {
+      sizeBytes += bytes;
+      if (sizeBytes > maxBytes) {
+        evict();
+      }
+    }
+  }
+
+  /**
+   * Measures the cache and, if it is over its limit, deletes the least recently used entries.
+   */
+  private void evict() throws IOException {
+    record CachedFile(Path path, long size, long lastUsed) {}
+    List<CachedFile> files = new ArrayList<>();
+    try (Stream<Path> entries = Files.list(directory)) {
+      for (Path path : (Iterable<Path>) entries::iterator) {
+        if (!path.getFileName().toString().endsWith(EXTENSION)) {
+          continue;
+        }
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+          files.add(
+              new CachedFile(
+                  path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+          // Evicted by another analysis
+        }
+      }
+    }
+    long total = files.stream().mapToLong(CachedFile::size).sum();
+    if (total > maxBytes) {
+      long target = (long) (maxBytes * EVICTION_TARGET);
+      int evicted = 0;
+      files.sort(Comparator.comparingLong(CachedFile::lastUsed));
+      for (CachedFile file : files) {
+        if (total <= target) {
+          break;
+        }
+        delete(file.path());
+        total -= file.size();
+        evicted++;
+      }
+      PipelineMetrics.CACHE_EVICTIONS.add(evicted);
+      LOGGER.info("Evicted {} stage cache entries from {}", evicted, directory);
+    }
+    sizeBytes = total;
+  }
+
+  private Path entryPath(final String key) {
+    return directory.resolve(key + EXTENSION);
+  }
+
+  private static void touch(final Path entry) {
+    try {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      LOGGER.debug("Failed to mark stage cache entry {} as used: {}", entry, e.getMessage());
+    }
+  }
+
+  private static void delete(final Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOGGER.debug("Failed to delete stage cache file {}: {}", path, e.getMessage());
+    }
+  }
+
+  private static void writeROIs(final DataOutputStream out, final List<? extends UserROI> rois)
+      throws IOException {
+    out.writeInt(rois.size());
+    for (UserROI roi : rois) {
+      byte[] data = RoiEncoder.saveAsByteArray(roi.getImageJRoi());
+      if (data == null) {
+        throw new IOException("cannot encode ROI " + roi.getName());
+      }
+      out.writeUTF(roi.getName());
+      writeNullable(out, roi.getNotes());
+      writeNullable(out, segmentationMethodOf(roi));
+      writeNullable(out, associatedNucleusOf(roi));
+      out.writeInt(data.length);
+      out.write(data);
+    }
+  }
+
+  private static List<StoredROI> readROIs(final DataInputStream in) throws IOException {
+    int count = in.readInt();
+    List<StoredROI> rois = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String name = in.readUTF();
+      String notes = readNullable(in);
+      String method = readNullable(in);
+      String nucleus = readNullable(in);
+      byte[] data = new byte[in.readInt()];
+      in.readFully(data);
+      Roi roi = ROIZipIO.decode(data, name);
+      if (roi == null) {
+        throw new IOException("cannot decode ROI " + name);
+      }
+      rois.add(new StoredROI(name, notes, method, nucleus, roi));
+    }
+    return rois;
+  }
+
+  private static String segmentationMethodOf(final UserROI roi) {
+    if (roi instanceof NucleusROI nucleus) {
+      return nucleus.getSegmentationMethod();
+    } else if (roi instanceof CellROI cell) {
+      return cell.getSegmentationMethod();
+    } else if (roi instanceof CytoplasmROI cytoplasm) {
+      return cytoplasm.getSegmentationMethod();
+    }
+    return null;
+  }
+
+  private static String associatedNucleusOf(final UserROI roi) {
+    NucleusROI nucleus = null;
+    if (roi instanceof CellROI cell) {
+      nucleus = cell.getAssociatedNucleus();
+    } else if (roi instanceof CytoplasmROI cytoplasm) {
+      nucleus = cytoplasm.getAssociatedNucleus();
+    }
+    return nucleus != null ? nucleus.getName() : null;
+  }
+
+  private static void writeNullable(final DataOutputStream out, final String value)
+      throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(final DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeValue(final DataOutputStream out, final Object value)
+      throws IOException {
+    if (value == null) {
+      out.writeByte(NULL_VALUE);
+    } else if (value instanceof Integer number) {
+      out.writeByte(INT_VALUE);
+      out.writeInt(number);
+    } else if (value instanceof Long number) {
+      out.writeByte(LONG_VALUE);
+      out.writeLong(number);
+    } else if (value instanceof Number number) {
+      out.writeByte(DOUBLE_VALUE);
+      out.writeDouble(number.doubleValue());
+    } else if (value instanceof Boolean flag) {
+      out.writeByte(BOOLEAN_VALUE);
+      out.writeBoolean(flag);
+    } else {
+      out.writeByte(STRING_VALUE);
+      out.writeUTF(value.toString());
+    }
+  }
+
+  private static Object readValue(final DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    return switch (tag) {
+      case NULL_VALUE -> null;
+      case DOUBLE_VALUE -> in.readDouble();
+      case INT_VALUE -> in.readInt();
+      case LONG_VALUE -> in.readLong();
+      case BOOLEAN_VALUE -> in.readBoolean();
+      case STRING_VALUE -> in.readUTF();
+      default -> throw new IOException("unknown feature value type " + tag);
+    };
+  }
+}
@@ -0,0 +1,77 @@
+package com.scipath.scipathj.analysis.pipeline;
+
+import com.scipath.scipathj.analysis.config.CytoplasmSegmentationSettings;
+import com.scipath.scipathj.analysis.config.SegmentationConstants;
+
+/**
+ * Estimates the peak heap that analysing an image needs, from its dimensions and the stages that
+ * run on it, for admitting images to a batch running in parallel.
+ *
+ * <p>The decoded RGB image and the image's ROIs stay resident while the stages run one after the
+ * other, so the peak is their size plus that of the largest stage:
+ *
+ * <ul>
+ *   <li>vessels: a duplicate of the image, its 8-bit conversion and the threshold mask
+ *   <li>nuclei: the channel stack and float input of StarDist, plus its probability map and 32
+ *       distance maps on a grid of 2; images above {@link
+ *       SegmentationConstants.NuclearSegmentation#STREAMING_PIXEL_THRESHOLD} are streamed, so
+ *       only one tile of the maps is held
+ *   <li>cytoplasm: the Voronoi image and its masks
+ *   <li>features: the hematoxylin, eosin and background rasters and the feature maps
+ * </ul>
+ *
+ * <p>The figures are deliberately approximate; {@link
+ * com.scipath.scipathj.infrastructure.engine.AdmissionController} corrects them from the peaks it
+ * observes.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class WorkingSetEstimate {
+
+  // Resident bytes per pixel
+  private static final int RGB_BYTES = 4;
+  private static final int ROI_BYTES = 4;
+
+  // Stage bytes per pixel
+  private static final int VESSEL_BYTES = 6;
+  private static final int STARDIST_INPUT_BYTES = 3 + 3 * Float.BYTES;
+  private static final int STARDIST_MAP_BYTES = (1 + 32) * Float.BYTES / (2 * 2);
+  private static final int VORONOI_BYTES = 6;
+  private static final int CYTOPLASM_BYTES = 2;
+  private static final int FEATURE_BYTES = 3 + 1;
+
+  // StarDist halo around each streamed tile
+  private static final int STREAM_TILE_OVERLAP = 64;
+
+  private WorkingSetEstimate() {}
+
+  /**
+   * @return the estimated peak heap of analysing an image of the given size, in bytes
+   */
+  static long bytes(
+      final int width, final int height, final CytoplasmSegmentationSettings cytoplasmSettings) {
+    long pixels = (long) width * height;
+
+    long nuclear = pixels * STARDIST_INPUT_BYTES;
+    if (pixels > SegmentationConstants.NuclearSegmentation.STREAMING_PIXEL_THRESHOLD) {
+      long tile =
+          SegmentationConstants.NuclearSegmentation.DEFAULT_STREAM_TILE_SIZE
+              + 2L * STREAM_TILE_OVERLAP;
+      nuclear += tile * tile * (STARDIST_INPUT_BYTES + STARDIST_MAP_BYTES);
+    } else {
+      nuclear += pixels * STARDIST_MAP_BYTES;
+    }
+
+    long cytoplasm =
+        pixels * (cytoplasmSettings.applyVoronoi() ? VORONOI_BYTES : 0)
+            + pixels * CYTOPLASM_BYTES;
+
+    long stage =
+        Math.max(
+            Math.max(pixels * VESSEL_BYTES, nuclear),
+            Math.max(cytoplasm, pixels * FEATURE_BYTES));
+    return pixels * (RGB_BYTES + ROI_BYTES) + stage;
+  }
+}
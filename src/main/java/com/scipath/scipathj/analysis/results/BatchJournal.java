@@ -0,0 +1,317 @@
+package com.scipath.scipathj.analysis.results;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only checkpoint journal of a batch, kept next to its {@link ResultsFile}.
+ *
+ * <p>Every analysed image appends one JSON line holding the digest of the image file, the digest
+ * of the settings it was analysed with, its status, the object counts of each stage and the
+ * location of its segment in the results file. Each line is forced to the storage device before
+ * the next image starts, after the segment it points to, so after a crash or a cancellation the
+ * journal lists exactly the images whose results are safely on disk. A restarted batch reopens the
+ * results file with {@link ResultsFileWriter#resume} and skips those images.
+ *
+ * <p>A line cut short by a crash is ignored and overwritten by the next entry.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class BatchJournal implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchJournal.class);
+
+  /** File extension of batch journals. */
+  public static final String EXTENSION = ".journal";
+
+  static final int VERSION = 1;
+
+  private static final Gson GSON = new Gson();
+
+  /**
+   * Outcome of one image.
+   *
+   * @param imagePath the absolute path of the image
+   * @param imageFileName the image file name results are keyed by
+   * @param contentDigest the digest of the image file
+   * @param settingsDigest the digest of the settings the image was analysed with
+   * @param success whether the analysis succeeded
+   * @param vessels the number of vessels found
+   * @param nuclei the number of nuclei found
+   * @param cells the number of cells found
+   * @param featureRows the number of ROIs features were extracted for
+   * @param classified the number of classified cells
+   * @param segment where the image's results were written, or null if they were not
+   * @param error the failure message, or null
+   * @param completedMillis when the image finished
+   */
+  public record Entry(
+      String imagePath,
+      String imageFileName,
+      String contentDigest,
+      String settingsDigest,
+      boolean success,
+      int vessels,
+      int nuclei,
+      int cells,
+      int featureRows,
+      int classified,
+      ResultsFile.ImageInfo segment,
+      String error,
+      long completedMillis) {
+
+    /**
+     * @return whether this entry covers the given image file and settings
+     */
+    public boolean matches(final String contentDigest, final String settingsDigest) {
+      return success
+          && segment != null
+          && this.contentDigest.equals(contentDigest)
+          && this.settingsDigest.equals(settingsDigest);
+    }
+  }
+
+  private final Path path;
+  private final FileChannel channel;
+  private final Map<String, Entry> latest = new LinkedHashMap<>();
+
+  private BatchJournal(final Path path, final FileChannel channel) {
+    this.path = path;
+    this.channel = channel;
+  }
+
+  /**
+   * @return the journal kept for a results file, e.g. {@code batch-1.journal} for {@code
+   *     batch-1.spjr}
+   */
+  public static Path pathFor(final Path resultsFile) {
+    String name = resultsFile.getFileName().toString();
+    if (name.endsWith(ResultsFile.EXTENSION)) {
+      name = name.substring(0, name.length() - ResultsFile.EXTENSION.length());
+    }
+    return resultsFile.resolveSibling(name + EXTENSION);
+  }
+
+  /**
+   * Opens a journal, reading the entries of earlier runs, or creates it.
+   *
+   * @param path the journal file
+   * @throws IOException if the journal cannot be read or created
+   */
+  public static BatchJournal open(final Path path) throws IOException {
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    FileChannel channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    BatchJournal journal = new BatchJournal(path, channel);
+    try {
+      long validEnd = journal.readEntries();
+      channel.truncate(validEnd);
+      channel.position(validEnd);
+      if (validEnd == 0) {
+        journal.writeHeader();
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    if (!journal.latest.isEmpty()) {
+      LOGGER.info("Opened batch journal {} with {} images", path, journal.latest.size());
+    }
+    return journal;
+  }
+
+  /**
+   * Returns the latest entry of an image if it completed with the same file contents and
+   * settings.
+   *
+   * @return the entry, or null if the image has to be analysed
+   */
+  public synchronized Entry findCompleted(
+      final String imagePath, final String contentDigest, final String settingsDigest) {
+    Entry entry = latest.get(imagePath);
+    return entry != null && entry.matches(contentDigest, settingsDigest) ? entry : null;
+  }
+
+  /**
+   * @return the results file segments of all images whose latest entry succeeded, in the order
+   *     they were written
+   */
+  public synchronized List<ResultsFile.ImageInfo> getSegments() {
+    List<ResultsFile.ImageInfo> segments = new ArrayList<>();
+    for (Entry entry : latest.values()) {
+      if (entry.success() && entry.segment() != null) {
+        segments.add(entry.segment());
+      }
+    }
+    segments.sort(Comparator.comparingLong(ResultsFile.ImageInfo::offset));
+    return segments;
+  }
+
+  /**
+   * @return the number of images with an entry
+   */
+  public synchronized int size() {
+    return latest.size();
+  }
+
+  /**
+   * Appends an entry and forces it to the storage device.
+   */
+  public synchronized void append(final Entry entry) throws IOException {
+    JsonObject line = new JsonObject();
+    line.addProperty("type", "image");
+    line.addProperty("path", entry.imagePath());
+    line.addProperty("name", entry.imageFileName());
+    line.addProperty("content", entry.contentDigest());
+    line.addProperty("settings", entry.settingsDigest());
+    line.addProperty("status", entry.success() ? "done" : "failed");
+    line.addProperty("vessels", entry.vessels());
+    line.addProperty("nuclei", entry.nuclei());
+    line.addProperty("cells", entry.cells());
+    line.addProperty("featureRows", entry.featureRows());
+    line.addProperty("classified", entry.classified());
+    if (entry.segment() != null) {
+      line.add("segment", GSON.toJsonTree(entry.segment()));
+    }
+    if (entry.error() != null) {
+      line.addProperty("error", entry.error());
+    }
+    line.addProperty("completed", entry.completedMillis());
+    writeLine(line);
+    channel.force(false);
+    latest.remove(entry.imagePath());
+    latest.put(entry.imagePath(), entry);
+  }
+
+  /**
+   * Discards all entries, e.g. when the results file they point into is gone.
+   */
+  public synchronized void clear() throws IOException {
+    latest.clear();
+    channel.truncate(0);
+    channel.position(0);
+    writeHeader();
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private void writeHeader() throws IOException {
+    JsonObject header = new JsonObject();
+    header.addProperty("type", "batch");
+    header.addProperty("version", VERSION);
+    header.addProperty("created", System.currentTimeMillis());
+    writeLine(header);
+    channel.force(false);
+  }
+
+  private void writeLine(final JsonObject line) throws IOException {
+    ByteBuffer bytes =
+        ByteBuffer.wrap((GSON.toJson(line) + "\n").getBytes(StandardCharsets.UTF_8));
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  /**
+   * Reads all complete lines.
+   *
+   * @return the length of the valid prefix of the file
+   */
+  private long readEntries() throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      return 0;
+    }
+    ByteBuffer content = ByteBuffer.allocate(Math.toIntExact(size));
+    while (content.hasRemaining() && channel.read(content, content.position()) >= 0) {
+      // Read the whole journal
+    }
+    byte[] bytes = content.array();
+    long validEnd = 0;
+    int lineStart = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] != '\n') {
+        continue;
+      }
+      String text = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+      try {
+        JsonObject line = JsonParser.parseString(text).getAsJsonObject();
+        if (lineStart == 0 && !isHeader(line)) {
+          throw new IOException("Not a batch journal: " + path.getFileName());
+        }
+        if ("image".equals(line.get("type").getAsString())) {
+          Entry entry = toEntry(line);
+          latest.remove(entry.imagePath());
+          latest.put(entry.imagePath(), entry);
+        }
+      } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+        LOGGER.warn("Ignoring the rest of batch journal {} after a damaged entry", path);
+        return validEnd;
+      }
+      validEnd = i + 1;
+      lineStart = i + 1;
+    }
+    if (lineStart < bytes.length) {
+      LOGGER.warn("Ignoring an incomplete last entry of batch journal {}", path);
+    }
+    return validEnd;
+  }
+
+  private static boolean isHeader(final JsonObject line) throws IOException {
+    if (!"batch".equals(line.get("type").getAsString())) {
+      return false;
+    }
+    int version = line.get("version").getAsInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported batch journal version " + version);
+    }
+    return true;
+  }
+
+  private static Entry toEntry(final JsonObject line) {
+    JsonElement segment = line.get("segment");
+    JsonElement error = line.get("error");
+    return new Entry(
+        line.get("path").getAsString(),
+        line.get("name").getAsString(),
+        line.get("content").getAsString(),
+        line.get("settings").getAsString(),
+        "done".equals(line.get("status").getAsString()),
+        line.get("vessels").getAsInt(),
+        line.get("nuclei").getAsInt(),
+        line.get("cells").getAsInt(),
+        line.get("featureRows").getAsInt(),
+        line.get("classified").getAsInt(),
+        segment != null ? GSON.fromJson(segment, ResultsFile.ImageInfo.class) : null,
+        error != null ? error.getAsString() : null,
+        line.get("completed").getAsLong());
+  }
+}
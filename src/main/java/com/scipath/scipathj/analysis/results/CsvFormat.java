@@ -0,0 +1,51 @@
+package com.scipath.scipathj.analysis.results;
+
+import com.scipath.scipathj.infrastructure.config.MainSettings;
+import java.io.File;
+
+/**
+ * Delimiter and decimal separator of an exported feature table.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public enum CsvFormat {
+  /** Comma delimiter, period decimal separator. */
+  US(',', '.'),
+  /** Semicolon delimiter, comma decimal separator, as expected by European spreadsheet locales. */
+  EU(';', ','),
+  /** Tab delimiter, period decimal separator. */
+  TSV('\t', '.');
+
+  private final char delimiter;
+  private final char decimalSeparator;
+
+  CsvFormat(final char delimiter, final char decimalSeparator) {
+    this.delimiter = delimiter;
+    this.decimalSeparator = decimalSeparator;
+  }
+
+  public char getDelimiter() {
+    return delimiter;
+  }
+
+  public char getDecimalSeparator() {
+    return decimalSeparator;
+  }
+
+  /**
+   * Picks the format for an export file: TSV for {@code .tsv} files, otherwise the CSV variant
+   * selected in the main settings.
+   *
+   * @param file the output file, optionally with a {@code .gz} suffix
+   * @param settings the main settings, or null for US format
+   */
+  public static CsvFormat forFile(final File file, final MainSettings settings) {
+    String name = file.getName().toLowerCase();
+    if (name.endsWith(".tsv") || name.endsWith(".tsv.gz")) {
+      return TSV;
+    }
+    return settings != null && settings.useEuCsvFormat() ? EU : US;
+  }
+}
@@ -0,0 +1,176 @@
+package com.scipath.scipathj.analysis.results;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable UTF-8 byte buffer that formats table cells without intermediate strings.
+ *
+ * <p>Doubles are written with at most {@link #FRACTION_DIGITS} fraction digits and no trailing
+ * zeros, the output of the {@code "#.######"} pattern used so far, but by integer arithmetic on
+ * the scaled value instead of {@link java.text.DecimalFormat}; negative zero is written as
+ * {@code 0}. Instances are not thread-safe; each export worker formats into its own buffer.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class CsvRowBuffer {
+
+  static final int FRACTION_DIGITS = 6;
+
+  private static final long SCALE = 1_000_000L;
+
+  // Up to here the scaled value is exact enough to detect rounding ties
+  private static final double MAX_FAST_VALUE = 1e8;
+
+  private static final double TIE_TOLERANCE = 1e-3;
+
+  private final char delimiter;
+  private final byte decimalSeparator;
+  private byte[] bytes;
+  private int size = 0;
+
+  CsvRowBuffer(final CsvFormat format, final int initialCapacity) {
+    this.delimiter = format.getDelimiter();
+    this.decimalSeparator = (byte) format.getDecimalSeparator();
+    this.bytes = new byte[Math.max(64, initialCapacity)];
+  }
+
+  void delimiter() {
+    put((byte) delimiter);
+  }
+
+  void newLine() {
+    put((byte) '\n');
+  }
+
+  /**
+   * Appends a cell value: numbers as decimals, null as an empty cell, anything else as text.
+   */
+  void value(final Object value) {
+    if (value instanceof Number number) {
+      decimal(number.doubleValue());
+    } else if (value != null) {
+      text(value.toString());
+    }
+  }
+
+  /**
+   * Appends text, quoted if it contains the delimiter, a quote or a line break.
+   */
+  void text(final String value) {
+    if (value.indexOf(delimiter) < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      raw(value);
+      return;
+    }
+    put((byte) '"');
+    raw(value.replace("\"", "\"\""));
+    put((byte) '"');
+  }
+
+  void decimal(final double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      ascii(Double.toString(value));
+      return;
+    }
+    double abs = Math.abs(value);
+    double scaledValue = abs * SCALE;
+    double remainder = scaledValue - Math.floor(scaledValue);
+    if (abs >= MAX_FAST_VALUE || Math.abs(remainder - 0.5) < TIE_TOLERANCE) {
+      // Large values and near-ties are rounded exactly, as DecimalFormat does
+      decimalExact(value);
+      return;
+    }
+    long scaled = Math.round(scaledValue);
+    if (scaled == 0) {
+      put((byte) '0');
+      return;
+    }
+    if (value < 0) {
+      put((byte) '-');
+    }
+    integer(scaled / SCALE);
+    long fraction = scaled % SCALE;
+    if (fraction == 0) {
+      return;
+    }
+    int digits = FRACTION_DIGITS;
+    while (fraction % 10 == 0) {
+      fraction /= 10;
+      digits--;
+    }
+    ensure(digits + 1);
+    bytes[size] = decimalSeparator;
+    for (int i = digits; i > 0; i--) {
+      bytes[size + i] = (byte) ('0' + fraction % 10);
+      fraction /= 10;
+    }
+    size += digits + 1;
+  }
+
+  private void decimalExact(final double value) {
+    BigDecimal rounded =
+        new BigDecimal(value)
+            .setScale(FRACTION_DIGITS, RoundingMode.HALF_EVEN)
+            .stripTrailingZeros();
+    if (rounded.signum() == 0) {
+      put((byte) '0');
+      return;
+    }
+    ascii(rounded.toPlainString().replace('.', (char) decimalSeparator));
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(bytes, size);
+  }
+
+  private void integer(long value) {
+    int digits = 1;
+    for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+      digits++;
+    }
+    ensure(digits);
+    for (int i = digits - 1; i >= 0; i--) {
+      bytes[size + i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    size += digits;
+  }
+
+  private void raw(final String value) {
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) >= 0x80) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        return;
+      }
+    }
+    ascii(value);
+  }
+
+  private void ascii(final String value) {
+    ensure(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      bytes[size++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void put(final byte value) {
+    ensure(1);
+    bytes[size++] = value;
+  }
+
+  private void ensure(final int extra) {
+    if (size + extra > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+    }
+  }
+}
@@ -0,0 +1,310 @@
+package com.scipath.scipathj.analysis.results;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams feature tables to CSV or TSV files.
+ *
+ * <p>Rows are grouped into partitions, normally one per image. Partitions are formatted in
+ * parallel, each straight into a byte buffer by {@link CsvRowBuffer}, and written to the file
+ * channel in their original order. Only a bounded number of formatted partitions is held at a time,
+ * so the table never exists in memory as strings, whatever its size. Output can optionally be
+ * gzip-compressed.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class FeatureCsvExporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(FeatureCsvExporter.class);
+
+  private static final int FORMATTER_THREADS =
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+  private static final int MAX_PARTITIONS_IN_FLIGHT = FORMATTER_THREADS * 2;
+
+  private static final int GZIP_BUFFER_SIZE = 256 * 1024;
+
+  private static final ExecutorService FORMATTERS =
+      Executors.newFixedThreadPool(
+          FORMATTER_THREADS,
+          runnable -> {
+            Thread thread = new Thread(runnable, "SciPathJ-CsvExport");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** Name of the feature that marks ignored ROIs. */
+  public static final String IGNORE_FEATURE = "ignore";
+
+  /**
+   * One table row: leading label cells followed by feature values.
+   *
+   * @param labels the label cells, one per label column
+   * @param features the feature values by name; missing features are written as empty cells
+   */
+  public record ExportRow(Object[] labels, Map<String, Object> features) {}
+
+  private final CsvFormat format;
+  private final boolean includeIgnored;
+  private final boolean gzip;
+
+  /**
+   * @param format the delimiter and decimal separator
+   * @param includeIgnored whether rows whose {@value #IGNORE_FEATURE} feature is set are written
+   * @param gzip whether to gzip-compress the output
+   */
+  public FeatureCsvExporter(
+      final CsvFormat format, final boolean includeIgnored, final boolean gzip) {
+    this.format = format;
+    this.includeIgnored = includeIgnored;
+    this.gzip = gzip;
+  }
+
+  /**
+   * Writes a table from partitions of rows. Each partition is loaded and formatted on a worker
+   * thread, so loading may itself be expensive, e.g. reading an image from a results file.
+   *
+   * @param output the file to create
+   * @param labelColumns the names of the label columns
+   * @param featureColumns the feature names, in column order
+   * @param partitions loaders of the row partitions, in output order
+   * @return the number of rows written
+   */
+  public long export(
+      final Path output,
+      final List<String> labelColumns,
+      final List<String> featureColumns,
+      final List<? extends Callable<List<ExportRow>>> partitions)
+      throws IOException {
+    long started = System.nanoTime();
+    long rows = 0;
+    Deque<Future<Partition>> inFlight = new ArrayDeque<>();
+    try (FileChannel channel =
+            FileChannel.open(
+                output,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        OutputStream compressed =
+            gzip
+                ? new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_SIZE)
+                : null) {
+      CsvRowBuffer header = new CsvRowBuffer(format, 1024);
+      List<String> columns = new ArrayList<>(labelColumns);
+      columns.addAll(featureColumns);
+      for (int i = 0; i < columns.size(); i++) {
+        if (i > 0) {
+          header.delimiter();
+        }
+        header.text(columns.get(i));
+      }
+      header.newLine();
+      write(channel, compressed, header.toByteArray());
+
+      try {
+        for (Callable<List<ExportRow>> partition : partitions) {
+          if (inFlight.size() >= MAX_PARTITIONS_IN_FLIGHT) {
+            rows += writePartition(channel, compressed, inFlight.poll());
+          }
+          inFlight.add(FORMATTERS.submit(() -> format(partition.call(), featureColumns)));
+        }
+        while (!inFlight.isEmpty()) {
+          rows += writePartition(channel, compressed, inFlight.poll());
+        }
+      } finally {
+        inFlight.forEach(future -> future.cancel(true));
+      }
+      if (compressed != null) {
+        compressed.flush();
+      }
+    }
+    LOGGER.info(
+        "Exported {} rows from {} partitions to {} in {} ms",
+        rows,
+        partitions.size(),
+        output.getFileName(),
+        (System.nanoTime() - started) / 1_000_000);
+    return rows;
+  }
+
+  /**
+   * Writes feature maps as produced by feature extraction, one partition per image.
+   *
+   * @param output the file to create
+   * @param labelColumns the names of the label columns
+   * @param features feature maps keyed by ROI key
+   * @param labeler derives the label cells of a row from its ROI key; the first label is the
+   *     image name, which rows are partitioned by
+   * @return the number of rows written
+   */
+  public long export(
+      final Path output,
+      final List<String> labelColumns,
+      final Map<String, Map<String, Object>> features,
+      final Function<String, Object[]> labeler)
+      throws IOException {
+    Map<Object, List<ExportRow>> byImage = new LinkedHashMap<>();
+    for (Map.Entry<String, Map<String, Object>> entry : features.entrySet()) {
+      Object[] labels = labeler.apply(entry.getKey());
+      byImage
+          .computeIfAbsent(labels[0], image -> new ArrayList<>())
+          .add(new ExportRow(labels, entry.getValue()));
+    }
+    List<Callable<List<ExportRow>>> partitions = new ArrayList<>(byImage.size());
+    for (List<ExportRow> rows : byImage.values()) {
+      partitions.add(() -> rows);
+    }
+    return export(output, labelColumns, featureColumns(features.values()), partitions);
+  }
+
+  /**
+   * Writes every image of a results file, with the predicted class and its confidence. Images are
+   * read from the file on the worker threads.
+   *
+   * @param output the file to create
+   * @param results an open results file
+   * @return the number of rows written
+   */
+  public long export(final Path output, final ResultsFile results) throws IOException {
+    Set<String> featureNames = new TreeSet<>();
+    List<Callable<List<ExportRow>>> partitions = new ArrayList<>();
+    for (ResultsFile.ImageInfo image : results.getImages()) {
+      featureNames.addAll(results.readImage(image.imageFileName()).getFeatureNames());
+      partitions.add(() -> rowsOf(results.readImage(image.imageFileName())));
+    }
+    return export(
+        output,
+        List.of("Image Name", "ROI Type", "ROI Name", "Predicted Class", "Confidence"),
+        new ArrayList<>(featureNames),
+        partitions);
+  }
+
+  /**
+   * @return the sorted union of the feature names of all rows
+   */
+  public static List<String> featureColumns(final Collection<Map<String, Object>> rows) {
+    Set<String> names = new TreeSet<>();
+    for (Map<String, Object> row : rows) {
+      names.addAll(row.keySet());
+    }
+    return new ArrayList<>(names);
+  }
+
+  /**
+   * @return whether a row's {@value #IGNORE_FEATURE} feature marks it as ignored
+   */
+  public static boolean isIgnored(final Map<String, Object> features) {
+    Object value = features.get(IGNORE_FEATURE);
+    if (value instanceof Boolean flag) {
+      return flag;
+    }
+    if (value == null) {
+      return false;
+    }
+    String text = value.toString().trim().toLowerCase();
+    return "true".equals(text) || "1".equals(text) || "yes".equals(text);
+  }
+
+  private record Partition(byte[] bytes, int rows) {}
+
+  private Partition format(final List<ExportRow> rows, final List<String> featureColumns) {
+    int estimatedSize = (int) Math.min(1 << 24, (long) rows.size() * featureColumns.size() * 8);
+    CsvRowBuffer buffer = new CsvRowBuffer(format, estimatedSize);
+    int written = 0;
+    for (ExportRow row : rows) {
+      if (!includeIgnored && isIgnored(row.features())) {
+        continue;
+      }
+      Object[] labels = row.labels();
+      for (int i = 0; i < labels.length; i++) {
+        if (i > 0) {
+          buffer.delimiter();
+        }
+        buffer.value(labels[i]);
+      }
+      for (String featureName : featureColumns) {
+        buffer.delimiter();
+        buffer.value(row.features().get(featureName));
+      }
+      buffer.newLine();
+      written++;
+    }
+    return new Partition(buffer.toByteArray(), written);
+  }
+
+  private static List<ExportRow> rowsOf(final ImageResults image) {
+    List<ExportRow> rows = new ArrayList<>(image.getROICount());
+    Map<String, Map<String, Object>> features = image.toFeatureMap();
+    String imageFileName = image.getImageInfo().imageFileName();
+    for (int roi = 0; roi < image.getROICount(); roi++) {
+      String roiName = image.getROIName(roi);
+      double confidence = image.getConfidence(roi);
+      Object[] labels = {
+        imageFileName,
+        image.getROIType(roi).getDisplayName(),
+        roiName,
+        image.getPredictedClass(roi),
+        Double.isNaN(confidence) ? null : confidence
+      };
+      Map<String, Object> row = features.get(ResultsFile.featureKey(imageFileName, roiName));
+      rows.add(new ExportRow(labels, row != null ? row : Map.of()));
+    }
+    return rows;
+  }
+
+  private static int writePartition(
+      final FileChannel channel, final OutputStream compressed, final Future<Partition> future)
+      throws IOException {
+    Partition partition;
+    try {
+      partition = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Export interrupted");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to format export rows: " + e.getCause().getMessage(), e);
+    }
+    write(channel, compressed, partition.bytes());
+    return partition.rows();
+  }
+
+  private static void write(
+      final FileChannel channel, final OutputStream compressed, final byte[] bytes)
+      throws IOException {
+    if (compressed != null) {
+      compressed.write(bytes);
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+}
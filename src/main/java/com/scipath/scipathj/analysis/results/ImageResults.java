@@ -0,0 +1,362 @@
+package com.scipath.scipathj.analysis.results;
+
+import com.scipath.scipathj.analysis.algorithms.classification.CellClassification;
+import com.scipath.scipathj.infrastructure.roi.CellROI;
+import com.scipath.scipathj.infrastructure.roi.CytoplasmROI;
+import com.scipath.scipathj.infrastructure.roi.NucleusROI;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import ij.gui.ShapeRoi;
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of one image, read from a memory-mapped {@link ResultsFile} segment.
+ *
+ * <p>Columns are views onto the mapping rather than copies, so opening an image is cheap and only
+ * the columns that are read are paged in. Instances are not thread-safe.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ImageResults {
+
+  private static final UserROI.ROIType[] ROI_TYPES = UserROI.ROIType.values();
+
+  private final ResultsFile.ImageInfo image;
+  private final int roiCount;
+  private final String[] dictionary;
+  private final IntBuffer names;
+  private final ByteBuffer types;
+  private final IntBuffer bounds;
+  private final IntBuffer subpathOffsets;
+  private final IntBuffer pointOffsets;
+  private final IntBuffer subpathStarts;
+  private final FloatBuffer coordinates;
+  private final Map<String, Column> columns;
+  private final IntBuffer classes;
+  private final FloatBuffer confidences;
+
+  /** One feature column; exactly one of the value views is set, matching the type. */
+  private record Column(byte type, DoubleBuffer doubles, ByteBuffer booleans, IntBuffer strings) {}
+
+  ImageResults(final ResultsFile.ImageInfo image, final ByteBuffer segment) {
+    this.image = image;
+    ByteBuffer in = segment.order(ByteOrder.LITTLE_ENDIAN);
+    roiCount = in.getInt();
+    int columnCount = in.getInt();
+    int dictionarySize = in.getInt();
+    int subpathCount = in.getInt();
+    int pointCount = in.getInt();
+    if (roiCount != image.roiCount()) {
+      throw new IllegalArgumentException("ROI count does not match the image table");
+    }
+    dictionary = new String[dictionarySize];
+    for (int i = 0; i < dictionarySize; i++) {
+      dictionary[i] = ResultsFile.readString(in);
+    }
+
+    align(in, Integer.BYTES);
+    names = ints(in, roiCount);
+    types = bytes(in, roiCount);
+    align(in, Integer.BYTES);
+    bounds = ints(in, 4 * roiCount);
+    subpathOffsets = ints(in, roiCount + 1);
+    pointOffsets = ints(in, roiCount + 1);
+    subpathStarts = ints(in, subpathCount);
+    coordinates = floats(in, 2 * pointCount);
+
+    Map<String, Column> columnMap = new LinkedHashMap<>();
+    for (int c = 0; c < columnCount; c++) {
+      align(in, Long.BYTES);
+      String name = dictionary[in.getInt()];
+      byte type = (byte) in.getInt();
+      Column column =
+          switch (type) {
+            case ResultsFile.COLUMN_DOUBLE -> new Column(type, doubles(in, roiCount), null, null);
+            case ResultsFile.COLUMN_BOOLEAN -> new Column(type, null, bytes(in, roiCount), null);
+            case ResultsFile.COLUMN_STRING -> new Column(type, null, null, ints(in, roiCount));
+            default -> throw new IllegalArgumentException("Unknown column type " + type);
+          };
+      columnMap.put(name, column);
+    }
+    columns = Collections.unmodifiableMap(columnMap);
+
+    align(in, Integer.BYTES);
+    classes = ints(in, roiCount);
+    confidences = floats(in, roiCount);
+  }
+
+  public ResultsFile.ImageInfo getImageInfo() {
+    return image;
+  }
+
+  public int getROICount() {
+    return roiCount;
+  }
+
+  public String getROIName(final int roi) {
+    return dictionary[names.get(roi)];
+  }
+
+  public UserROI.ROIType getROIType(final int roi) {
+    return ROI_TYPES[types.get(roi)];
+  }
+
+  public Rectangle getBounds(final int roi) {
+    int base = 4 * roi;
+    return new Rectangle(
+        bounds.get(base), bounds.get(base + 1), bounds.get(base + 2), bounds.get(base + 3));
+  }
+
+  /**
+   * Builds the outline of a ROI in image coordinates.
+   *
+   * @return the outline, or null if none was stored
+   */
+  public Path2D.Float getOutline(final int roi) {
+    int firstPoint = pointOffsets.get(roi);
+    int pointEnd = pointOffsets.get(roi + 1);
+    int firstSubpath = subpathOffsets.get(roi);
+    int subpathEnd = subpathOffsets.get(roi + 1);
+    if (pointEnd == firstPoint) {
+      return null;
+    }
+    Path2D.Float path =
+        new Path2D.Float(
+            subpathEnd - firstSubpath > 1 ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO,
+            pointEnd - firstPoint);
+    for (int subpath = firstSubpath; subpath < subpathEnd; subpath++) {
+      int start = firstPoint + subpathStarts.get(subpath);
+      int end = subpath + 1 < subpathEnd ? firstPoint + subpathStarts.get(subpath + 1) : pointEnd;
+      for (int point = start; point < end; point++) {
+        float x = coordinates.get(2 * point);
+        float y = coordinates.get(2 * point + 1);
+        if (point == start) {
+          path.moveTo(x, y);
+        } else {
+          path.lineTo(x, y);
+        }
+      }
+      path.closePath();
+    }
+    return path;
+  }
+
+  /**
+   * @return the feature names in stored order
+   */
+  public List<String> getFeatureNames() {
+    return new ArrayList<>(columns.keySet());
+  }
+
+  /**
+   * Returns a numeric feature column as a view onto the file, one value per ROI, NaN where the
+   * ROI has no value.
+   *
+   * @return the column, or null if the feature is missing or not numeric
+   */
+  public DoubleBuffer getNumericColumn(final String featureName) {
+    Column column = columns.get(featureName);
+    return column != null && column.doubles() != null ? column.doubles().asReadOnlyBuffer() : null;
+  }
+
+  /**
+   * @return a Double, Boolean or String, or null if the ROI has no value for the feature
+   */
+  public Object getFeatureValue(final int roi, final String featureName) {
+    Column column = columns.get(featureName);
+    if (column == null) {
+      return null;
+    }
+    switch (column.type()) {
+      case ResultsFile.COLUMN_DOUBLE:
+        double value = column.doubles().get(roi);
+        return Double.isNaN(value) ? null : value;
+      case ResultsFile.COLUMN_BOOLEAN:
+        byte flag = column.booleans().get(roi);
+        return flag == ResultsFile.BOOLEAN_MISSING ? null : flag != 0;
+      default:
+        int index = column.strings().get(roi);
+        return index < 0 ? null : dictionary[index];
+    }
+  }
+
+  /**
+   * @return the predicted class of a ROI, or null if it was not classified
+   */
+  public String getPredictedClass(final int roi) {
+    int index = classes.get(roi);
+    return index < 0 ? null : dictionary[index];
+  }
+
+  /**
+   * @return the confidence of the predicted class, NaN if the ROI was not classified
+   */
+  public double getConfidence(final int roi) {
+    return confidences.get(roi);
+  }
+
+  /**
+   * Rebuilds the feature maps of this image in the shape produced by feature extraction, keyed by
+   * {@code imageFileName + "_" + roiName}. ROIs without features are left out.
+   */
+  public Map<String, Map<String, Object>> toFeatureMap() {
+    Map<String, Map<String, Object>> features = new LinkedHashMap<>();
+    for (int roi = 0; roi < roiCount; roi++) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (String featureName : columns.keySet()) {
+        Object value = getFeatureValue(roi, featureName);
+        if (value != null) {
+          row.put(featureName, value);
+        }
+      }
+      if (!row.isEmpty()) {
+        features.put(ResultsFile.featureKey(image.imageFileName(), getROIName(roi)), row);
+      }
+    }
+    return features;
+  }
+
+  /**
+   * Rebuilds the ROIs of this image from their outlines as the ROI class of their type, with cells
+   * and cytoplasms linked to the nucleus of the same number the way cytoplasm segmentation links
+   * them. ROIs are marked as ignored if their {@code ignore} feature says so, and keep the default
+   * color of their class. ROIs stored without an outline are left out.
+   */
+  public List<UserROI> toROIs() {
+    UserROI[] rebuilt = new UserROI[roiCount];
+    Map<Integer, NucleusROI> nucleiByNumber = new HashMap<>();
+    for (int roi = 0; roi < roiCount; roi++) {
+      if (getROIType(roi) == UserROI.ROIType.NUCLEUS) {
+        Path2D.Float outline = getOutline(roi);
+        if (outline != null) {
+          NucleusROI nucleus =
+              new NucleusROI(new ShapeRoi(outline), image.imageFileName(), getROIName(roi));
+          if (nucleus.getNucleusNumber() >= 0) {
+            nucleiByNumber.putIfAbsent(nucleus.getNucleusNumber(), nucleus);
+          }
+          rebuilt[roi] = nucleus;
+        }
+      }
+    }
+
+    Map<Integer, CellROI> cellsByNumber = new HashMap<>();
+    List<CytoplasmROI> cytoplasms = new ArrayList<>();
+    for (int roi = 0; roi < roiCount; roi++) {
+      UserROI.ROIType type = getROIType(roi);
+      Path2D.Float outline = type != UserROI.ROIType.NUCLEUS ? getOutline(roi) : null;
+      if (outline == null) {
+        continue;
+      }
+      ShapeRoi shape = new ShapeRoi(outline);
+      String name = getROIName(roi);
+      int number = roiNumber(name);
+      switch (type) {
+        case CELL -> {
+          CellROI cell =
+              new CellROI(shape, image.imageFileName(), name, nucleiByNumber.get(number));
+          if (number >= 0) {
+            cellsByNumber.putIfAbsent(number, cell);
+          }
+          rebuilt[roi] = cell;
+        }
+        case CYTOPLASM -> {
+          CytoplasmROI cytoplasm =
+              new CytoplasmROI(shape, image.imageFileName(), name, nucleiByNumber.get(number));
+          cytoplasms.add(cytoplasm);
+          rebuilt[roi] = cytoplasm;
+        }
+        default -> rebuilt[roi] = new UserROI(shape, image.imageFileName(), name, type);
+      }
+    }
+    for (CytoplasmROI cytoplasm : cytoplasms) {
+      CellROI cell = cellsByNumber.get(roiNumber(cytoplasm.getName()));
+      if (cell != null && cytoplasm.hasAssociatedNucleus()) {
+        cell.setAssociatedCytoplasm(cytoplasm);
+        cytoplasm.setParentCell(cell);
+      }
+    }
+
+    List<UserROI> rois = new ArrayList<>(roiCount);
+    for (int roi = 0; roi < roiCount; roi++) {
+      if (rebuilt[roi] != null) {
+        rebuilt[roi].setIgnored(Boolean.TRUE.equals(getFeatureValue(roi, "ignore")));
+        rois.add(rebuilt[roi]);
+      }
+    }
+    return rois;
+  }
+
+  /**
+   * @return the nucleus number in a ROI name like {@code Cell_5}, or -1 if it has none
+   */
+  private static int roiNumber(final String name) {
+    int separator = name != null ? name.indexOf('_') : -1;
+    if (separator < 0) {
+      return -1;
+    }
+    int end = name.indexOf('_', separator + 1);
+    try {
+      return Integer.parseInt(name.substring(separator + 1, end < 0 ? name.length() : end));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Rebuilds the classification results of this image, keyed like {@link #toFeatureMap()}.
+   * Class probabilities are not stored and come back empty.
+   */
+  public Map<String, CellClassification.ClassificationResult> toClassifications() {
+    Map<String, CellClassification.ClassificationResult> classifications = new LinkedHashMap<>();
+    for (int roi = 0; roi < roiCount; roi++) {
+      String predictedClass = getPredictedClass(roi);
+      if (predictedClass != null) {
+        String key = ResultsFile.featureKey(image.imageFileName(), getROIName(roi));
+        classifications.put(
+            key,
+            new CellClassification.ClassificationResult(
+                key, predictedClass, getConfidence(roi), Map.of()));
+      }
+    }
+    return classifications;
+  }
+
+  private static void align(final ByteBuffer in, final int alignment) {
+    in.position((in.position() + alignment - 1) / alignment * alignment);
+  }
+
+  private static ByteBuffer view(final ByteBuffer in, final int bytes) {
+    ByteBuffer view = in.slice(in.position(), bytes).order(ByteOrder.LITTLE_ENDIAN);
+    in.position(in.position() + bytes);
+    return view;
+  }
+
+  private static ByteBuffer bytes(final ByteBuffer in, final int count) {
+    return view(in, count);
+  }
+
+  private static IntBuffer ints(final ByteBuffer in, final int count) {
+    return view(in, count * Integer.BYTES).asIntBuffer();
+  }
+
+  private static FloatBuffer floats(final ByteBuffer in, final int count) {
+    return view(in, count * Float.BYTES).asFloatBuffer();
+  }
+
+  private static DoubleBuffer doubles(final ByteBuffer in, final int count) {
+    return view(in, count * Double.BYTES).asDoubleBuffer();
+  }
+}
@@ -0,0 +1,284 @@
+package com.scipath.scipathj.analysis.results;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary columnar file holding the analysis results of a batch: per-image metadata, ROI outlines,
+ * feature columns and classifications.
+ *
+ * <p>Results are stored as one segment per image followed by an image table, so a file can be
+ * written while the batch runs and any image can be read without touching the others. Segments are
+ * memory-mapped on demand and their columns are exposed as buffer views, reloading a finished run
+ * for review or re-export involves no text parsing and no analysis.
+ *
+ * <pre>
+ * header:  magic "SPJRES01", int version, int reserved
+ * segment: int roiCount, int columnCount, int dictionarySize, int subpathCount, int pointCount
+ *          dictionarySize x string
+ *          int[roiCount] nameIndex, byte[roiCount] roiType
+ *          int[4 x roiCount] bounds (x, y, width, height)
+ *          int[roiCount + 1] subpathOffset, int[roiCount + 1] pointOffset
+ *          int[subpathCount] subpathStart, float[2 x pointCount] coordinates
+ *          columnCount x { int nameIndex, int type, values }
+ *          int[roiCount] classIndex, float[roiCount] confidence
+ * table:   int imageCount, imageCount x { string imageFileName, int width, int height,
+ *          int roiCount, long createdMillis, long offset, long length }
+ * footer:  long tableOffset, magic
+ * </pre>
+ *
+ * <p>Numbers are little-endian and arrays are aligned to their element size; strings are an int
+ * byte count followed by UTF-8 bytes. Names, text cells and class names are indices into the
+ * segment's string dictionary, -1 meaning missing. Feature values are double (NaN when missing),
+ * boolean (one byte, {@link #BOOLEAN_MISSING} when missing) or text.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ResultsFile implements Closeable, ResultsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultsFile.class);
+
+  /** File extension of results files. */
+  public static final String EXTENSION = ".spjr";
+
+  static final byte[] MAGIC = "SPJRES01".getBytes(StandardCharsets.US_ASCII);
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = MAGIC.length + 2 * Integer.BYTES;
+  static final int FOOTER_SIZE = Long.BYTES + MAGIC.length;
+
+  static final byte COLUMN_DOUBLE = 0;
+  static final byte COLUMN_BOOLEAN = 1;
+  static final byte COLUMN_STRING = 2;
+  static final byte BOOLEAN_MISSING = -1;
+
+  /**
+   * Metadata of one image and the location of its segment.
+   *
+   * @param imageFileName the image file name
+   * @param width the image width in pixels
+   * @param height the image height in pixels
+   * @param roiCount the number of ROIs stored for the image
+   * @param createdMillis when the image's results were written
+   * @param offset the file offset of the segment
+   * @param length the segment length in bytes
+   */
+  public record ImageInfo(
+      String imageFileName,
+      int width,
+      int height,
+      int roiCount,
+      long createdMillis,
+      long offset,
+      long length) {}
+
+  private final Path path;
+  private final FileChannel channel;
+  private final Map<String, ImageInfo> images;
+
+  private ResultsFile(
+      final Path path, final FileChannel channel, final Map<String, ImageInfo> images) {
+    this.path = path;
+    this.channel = channel;
+    this.images = images;
+  }
+
+  /**
+   * Opens a results file and reads its image table.
+   *
+   * @param path a file written by {@link ResultsFileWriter}
+   * @throws IOException if the file cannot be read, is not a results file or was not completed
+   */
+  public static ResultsFile open(final Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      if (size < HEADER_SIZE + FOOTER_SIZE) {
+        throw new IOException("Not a results file: " + path.getFileName());
+      }
+      ByteBuffer header = map(channel, 0, HEADER_SIZE);
+      ByteBuffer footer = map(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+      if (!hasMagic(header) || !hasMagic(footer.position(Long.BYTES))) {
+        throw new IOException(
+            "Not a results file, or its writer did not finish: " + path.getFileName());
+      }
+      int version = header.getInt(MAGIC.length);
+      if (version != VERSION) {
+        throw new IOException("Unsupported results file version " + version);
+      }
+      long tableOffset = footer.getLong(0);
+      if (tableOffset < HEADER_SIZE || tableOffset > size - FOOTER_SIZE) {
+        throw new IOException("Corrupt results file table: " + path.getFileName());
+      }
+      ByteBuffer table = map(channel, tableOffset, size - FOOTER_SIZE - tableOffset);
+      Map<String, ImageInfo> images = new LinkedHashMap<>();
+      int imageCount = table.getInt();
+      for (int i = 0; i < imageCount; i++) {
+        ImageInfo image =
+            new ImageInfo(
+                readString(table),
+                table.getInt(),
+                table.getInt(),
+                table.getInt(),
+                table.getLong(),
+                table.getLong(),
+                table.getLong());
+        if (image.offset() < HEADER_SIZE || image.offset() + image.length() > tableOffset) {
+          throw new IOException("Corrupt results file table: " + path.getFileName());
+        }
+        images.put(image.imageFileName(), image);
+      }
+      LOGGER.debug("Opened results file '{}' with {} images", path.getFileName(), images.size());
+      return new ResultsFile(path, channel, images);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      if (e instanceof RuntimeException) {
+        throw new IOException("Corrupt results file: " + path.getFileName(), e);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Reads the image table of a finished results file into a source that reopens the file for each
+   * image it reads, so no file stays open while its images are paged into a viewer.
+   *
+   * @param path a file written by {@link ResultsFileWriter}
+   * @throws IOException if the file cannot be read, is not a results file or was not completed
+   */
+  public static ResultsSource openSource(final Path path) throws IOException {
+    Map<String, ImageInfo> table;
+    try (ResultsFile results = open(path)) {
+      table = results.images;
+    }
+    return new ResultsSource() {
+      @Override
+      public ImageInfo getImage(final String imageFileName) {
+        return table.get(imageFileName);
+      }
+
+      @Override
+      public ImageResults readImage(final String imageFileName) throws IOException {
+        ImageInfo image = table.get(imageFileName);
+        if (image == null) {
+          return null;
+        }
+        // Mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+          return readSegment(channel, path, image);
+        }
+      }
+    };
+  }
+
+  /**
+   * @return the images in the order they were analysed
+   */
+  public List<ImageInfo> getImages() {
+    return List.copyOf(images.values());
+  }
+
+  /**
+   * @return the metadata of an image, or null if the file has no results for it
+   */
+  @Override
+  public ImageInfo getImage(final String imageFileName) {
+    return images.get(imageFileName);
+  }
+
+  /**
+   * Maps the segment of one image. Only the string dictionary is decoded; columns are read from
+   * the mapping when accessed.
+   *
+   * @return the results of the image, or null if the file has no results for it
+   * @throws IOException if the segment cannot be mapped or is corrupt
+   */
+  @Override
+  public ImageResults readImage(final String imageFileName) throws IOException {
+    ImageInfo image = images.get(imageFileName);
+    return image != null ? readSegment(channel, path, image) : null;
+  }
+
+  /**
+   * Rebuilds the feature maps of every image in the shape produced by feature extraction, keyed
+   * by {@code imageFileName + "_" + roiName}, e.g. to re-export them.
+   */
+  public Map<String, Map<String, Object>> readAllFeatures() throws IOException {
+    Map<String, Map<String, Object>> features = new LinkedHashMap<>();
+    for (String imageFileName : images.keySet()) {
+      features.putAll(readImage(imageFileName).toFeatureMap());
+    }
+    return Collections.unmodifiableMap(features);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * @return the key feature extraction and classification use for a ROI
+   */
+  public static String featureKey(final String imageFileName, final String roiName) {
+    return imageFileName + "_" + roiName;
+  }
+
+  /**
+   * Maps the segment of one image.
+   *
+   * @throws IOException if the segment cannot be mapped or is corrupt
+   */
+  static ImageResults readSegment(final FileChannel channel, final Path path, final ImageInfo image)
+      throws IOException {
+    try {
+      return new ImageResults(image, map(channel, image.offset(), image.length()));
+    } catch (BufferUnderflowException
+        | IndexOutOfBoundsException
+        | IllegalArgumentException
+        | NegativeArraySizeException e) {
+      throw new IOException(
+          "Corrupt results of '" + image.imageFileName() + "' in " + path, e);
+    }
+  }
+
+  static String readString(final ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static ByteBuffer map(final FileChannel channel, final long offset, final long length)
+      throws IOException {
+    if (length > Integer.MAX_VALUE) {
+      throw new IOException("Results segment too large to map: " + length + " bytes");
+    }
+    return channel
+        .map(FileChannel.MapMode.READ_ONLY, offset, length)
+        .order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  static boolean hasMagic(final ByteBuffer buffer) {
+    byte[] magic = new byte[MAGIC.length];
+    buffer.get(buffer.position(), magic);
+    return Arrays.equals(magic, MAGIC);
+  }
+}
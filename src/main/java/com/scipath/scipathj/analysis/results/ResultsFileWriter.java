@@ -0,0 +1,495 @@
+package com.scipath.scipathj.analysis.results;
+
+import com.scipath.scipathj.analysis.algorithms.classification.CellClassification;
+import com.scipath.scipathj.infrastructure.roi.ROIGeometryCache;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import java.awt.Rectangle;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a {@link ResultsFile} incrementally while a batch is analysed.
+ *
+ * <p>Each image is appended as one segment as soon as its analysis finishes, so memory use does
+ * not grow with the batch. Values go through a single reusable direct buffer straight to the file
+ * channel; nothing is formatted as text. The image table is written by {@link #close()}, a file
+ * whose writer never closed cannot be opened.
+ *
+ * <p>While the batch runs, the writer is also the {@link ResultsSource} of the images written so
+ * far, so they can be released from memory and read back on demand.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ResultsFileWriter implements Closeable, ResultsSink, ResultsSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultsFileWriter.class);
+
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final ByteBuffer buffer =
+      ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  private final List<ResultsFile.ImageInfo> images = new ArrayList<>();
+
+  /** File position of the first byte in the buffer. */
+  private long flushed = 0;
+
+  private boolean closed = false;
+
+  /**
+   * Creates or replaces a results file.
+   *
+   * @param path the file to write
+   */
+  public ResultsFileWriter(final Path path) throws IOException {
+    this.path = path;
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    buffer.put(ResultsFile.MAGIC);
+    buffer.putInt(ResultsFile.VERSION);
+    buffer.putInt(0);
+  }
+
+  private ResultsFileWriter(
+      final Path path, final FileChannel channel, final List<ResultsFile.ImageInfo> segments)
+      throws IOException {
+    this.path = path;
+    this.channel = channel;
+    long end = ResultsFile.HEADER_SIZE;
+    for (ResultsFile.ImageInfo segment : segments) {
+      end = Math.max(end, segment.offset() + segment.length());
+      images.removeIf(image -> image.imageFileName().equals(segment.imageFileName()));
+      images.add(segment);
+    }
+    // Drops the image table of a finished run, or whatever a crashed run left after its last
+    // recorded segment
+    channel.truncate(end);
+    channel.position(end);
+    this.flushed = end;
+  }
+
+  /**
+   * Reopens a results file whose writer crashed or was closed, keeping the given segments and
+   * appending after them. The segments are those a {@link BatchJournal} recorded as written.
+   *
+   * @param path the file to continue
+   * @param segments the segments to keep, in the order they were written
+   * @throws IOException if the file is not a results file or does not hold the segments
+   */
+  public static ResultsFileWriter resume(
+      final Path path, final List<ResultsFile.ImageInfo> segments) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(ResultsFile.HEADER_SIZE);
+      if (channel.read(header, 0) < ResultsFile.HEADER_SIZE
+          || !ResultsFile.hasMagic(header.position(0))) {
+        throw new IOException("Not a results file: " + path.getFileName());
+      }
+      long size = channel.size();
+      for (ResultsFile.ImageInfo segment : segments) {
+        if (segment.offset() < ResultsFile.HEADER_SIZE
+            || segment.offset() + segment.length() > size) {
+          throw new IOException(
+              "Results file " + path.getFileName() + " does not hold the recorded results of '"
+                  + segment.imageFileName() + "'");
+        }
+      }
+      ResultsFileWriter writer = new ResultsFileWriter(path, channel, segments);
+      LOGGER.info("Resuming results file {} after {} images", path, writer.images.size());
+      return writer;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends the results of one image.
+   *
+   * @param imageFileName the image file name
+   * @param width the image width in pixels
+   * @param height the image height in pixels
+   * @param rois the ROIs of the image, in the order they are stored
+   * @param features feature maps keyed by {@code imageFileName + "_" + roiName}, as produced by
+   *     feature extraction; may be empty
+   * @param classifications classification results with the same keys; may be empty
+   * @return the location of the image's segment
+   */
+  public synchronized ResultsFile.ImageInfo writeImage(
+      final String imageFileName,
+      final int width,
+      final int height,
+      final List<? extends UserROI> rois,
+      final Map<String, Map<String, Object>> features,
+      final Map<String, CellClassification.ClassificationResult> classifications)
+      throws IOException {
+    if (closed) {
+      throw new IOException("Results file was closed: " + path.getFileName());
+    }
+    int roiCount = rois.size();
+    Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+    int[] names = new int[roiCount];
+    ROIGeometryCache.Outline[] outlines = new ROIGeometryCache.Outline[roiCount];
+    Map<String, Object>[] rows = newRowArray(roiCount);
+    int totalSubpaths = 0;
+    int totalPoints = 0;
+    for (int i = 0; i < roiCount; i++) {
+      UserROI roi = rois.get(i);
+      names[i] = intern(dictionary, roi.getName());
+      outlines[i] = ROIGeometryCache.compute(roi);
+      if (outlines[i] != null) {
+        totalSubpaths += outlines[i].getSubpathCount();
+        totalPoints += outlines[i].getPointCount();
+      }
+      rows[i] =
+          features != null
+              ? features.get(ResultsFile.featureKey(imageFileName, roi.getName()))
+              : null;
+    }
+
+    Map<String, Byte> columnTypes = new LinkedHashMap<>();
+    for (Map<String, Object> row : rows) {
+      if (row != null) {
+        for (Map.Entry<String, Object> value : row.entrySet()) {
+          if (value.getValue() != null) {
+            columnTypes.merge(
+                value.getKey(), columnType(value.getValue()), ResultsFileWriter::widen);
+          }
+        }
+      }
+    }
+    int[] columnNames = new int[columnTypes.size()];
+    int column = 0;
+    for (String name : columnTypes.keySet()) {
+      columnNames[column++] = intern(dictionary, name);
+    }
+
+    int[] classes = new int[roiCount];
+    float[] confidences = new float[roiCount];
+    for (int i = 0; i < roiCount; i++) {
+      CellClassification.ClassificationResult result =
+          classifications != null
+              ? classifications.get(ResultsFile.featureKey(imageFileName, rois.get(i).getName()))
+              : null;
+      classes[i] = result != null ? intern(dictionary, result.getPredictedClass()) : -1;
+      confidences[i] = result != null ? (float) result.getConfidence() : Float.NaN;
+    }
+    // String cells are interned last, the dictionary must be complete before it is written
+    int[][] stringCells = new int[columnTypes.size()][];
+    column = 0;
+    for (Map.Entry<String, Byte> entry : columnTypes.entrySet()) {
+      if (entry.getValue() == ResultsFile.COLUMN_STRING) {
+        int[] cells = new int[roiCount];
+        for (int i = 0; i < roiCount; i++) {
+          Object value = rows[i] != null ? rows[i].get(entry.getKey()) : null;
+          cells[i] = value != null ? intern(dictionary, value.toString()) : -1;
+        }
+        stringCells[column] = cells;
+      }
+      column++;
+    }
+
+    align(Long.BYTES);
+    long segmentStart = position();
+    ensure(5 * Integer.BYTES);
+    buffer.putInt(roiCount);
+    buffer.putInt(columnTypes.size());
+    buffer.putInt(dictionary.size());
+    buffer.putInt(totalSubpaths);
+    buffer.putInt(totalPoints);
+    for (String value : dictionary.keySet()) {
+      putString(value);
+    }
+
+    align(Integer.BYTES);
+    for (int i = 0; i < roiCount; i++) {
+      putInt(names[i]);
+    }
+    for (int i = 0; i < roiCount; i++) {
+      ensure(1);
+      buffer.put((byte) rois.get(i).getType().ordinal());
+    }
+
+    align(Integer.BYTES);
+    for (UserROI roi : rois) {
+      Rectangle bounds = roi.getBounds();
+      putInt(bounds.x);
+      putInt(bounds.y);
+      putInt(bounds.width);
+      putInt(bounds.height);
+    }
+    int subpathOffset = 0;
+    int pointOffset = 0;
+    for (int i = 0; i <= roiCount; i++) {
+      putInt(subpathOffset);
+      if (i < roiCount && outlines[i] != null) {
+        subpathOffset += outlines[i].getSubpathCount();
+      }
+    }
+    for (int i = 0; i <= roiCount; i++) {
+      putInt(pointOffset);
+      if (i < roiCount && outlines[i] != null) {
+        pointOffset += outlines[i].getPointCount();
+      }
+    }
+    // Sub-path starts are stored relative to the first point of their ROI
+    for (ROIGeometryCache.Outline outline : outlines) {
+      if (outline != null) {
+        for (int s = 0; s < outline.getSubpathCount(); s++) {
+          putInt(outline.getSubpathStart(s));
+        }
+      }
+    }
+    for (ROIGeometryCache.Outline outline : outlines) {
+      if (outline != null) {
+        for (int p = 0; p < outline.getPointCount(); p++) {
+          ensure(2 * Float.BYTES);
+          buffer.putFloat(outline.getX(p));
+          buffer.putFloat(outline.getY(p));
+        }
+      }
+    }
+
+    column = 0;
+    for (Map.Entry<String, Byte> entry : columnTypes.entrySet()) {
+      byte type = entry.getValue();
+      align(Long.BYTES);
+      putInt(columnNames[column]);
+      putInt(type);
+      for (int i = 0; i < roiCount; i++) {
+        Object value = rows[i] != null ? rows[i].get(entry.getKey()) : null;
+        if (type == ResultsFile.COLUMN_DOUBLE) {
+          ensure(Double.BYTES);
+          buffer.putDouble(value instanceof Number number ? number.doubleValue() : Double.NaN);
+        } else if (type == ResultsFile.COLUMN_BOOLEAN) {
+          ensure(1);
+          buffer.put(
+              value == null
+                  ? ResultsFile.BOOLEAN_MISSING
+                  : ((Boolean) value ? (byte) 1 : (byte) 0));
+        } else {
+          putInt(stringCells[column][i]);
+        }
+      }
+      column++;
+    }
+
+    align(Integer.BYTES);
+    for (int i = 0; i < roiCount; i++) {
+      putInt(classes[i]);
+    }
+    for (int i = 0; i < roiCount; i++) {
+      ensure(Float.BYTES);
+      buffer.putFloat(confidences[i]);
+    }
+    flush();
+
+    ResultsFile.ImageInfo segment =
+        new ResultsFile.ImageInfo(
+            imageFileName,
+            width,
+            height,
+            roiCount,
+            System.currentTimeMillis(),
+            segmentStart,
+            position() - segmentStart);
+    // A re-analysed image replaces its earlier segment in the table
+    images.removeIf(image -> image.imageFileName().equals(imageFileName));
+    images.add(segment);
+    LOGGER.debug(
+        "Wrote results of '{}': {} ROIs, {} feature columns, {} bytes",
+        imageFileName,
+        roiCount,
+        columnTypes.size(),
+        position() - segmentStart);
+    return segment;
+  }
+
+  @Override
+  public void imageAnalysed(
+      final String imageFileName,
+      final int width,
+      final int height,
+      final List<? extends UserROI> rois,
+      final Map<String, Map<String, Object>> features,
+      final Map<String, CellClassification.ClassificationResult> classifications)
+      throws IOException {
+    writeImage(imageFileName, width, height, rois, features, classifications);
+  }
+
+  @Override
+  public synchronized ResultsFile.ImageInfo getImage(final String imageFileName) {
+    for (ResultsFile.ImageInfo image : images) {
+      if (image.imageFileName().equals(imageFileName)) {
+        return image;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Drops an image from the table, e.g. one analysed again without writing a new segment, so the
+   * finished file does not keep results of an earlier run. Its bytes stay in the file, unused.
+   *
+   * @return true if the image had a segment
+   */
+  public synchronized boolean removeImage(final String imageFileName) {
+    return images.removeIf(image -> image.imageFileName().equals(imageFileName));
+  }
+
+  /**
+   * Maps the segment of an image written so far.
+   *
+   * @throws IOException if the writer was closed or the segment is corrupt
+   */
+  @Override
+  public synchronized ImageResults readImage(final String imageFileName) throws IOException {
+    if (closed) {
+      throw new IOException("Results file was closed: " + path.getFileName());
+    }
+    ResultsFile.ImageInfo image = getImage(imageFileName);
+    return image != null ? ResultsFile.readSegment(channel, path, image) : null;
+  }
+
+  /**
+   * Forces everything written so far to the storage device, so that the segments returned by
+   * {@link #writeImage} survive a crash of the process or the machine.
+   */
+  public synchronized void sync() throws IOException {
+    if (!closed) {
+      flush();
+      channel.force(false);
+    }
+  }
+
+  /**
+   * @return the number of images written so far
+   */
+  public synchronized int getImageCount() {
+    return images.size();
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Writes the image table and closes the file.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      align(Long.BYTES);
+      long tableOffset = position();
+      putInt(images.size());
+      for (ResultsFile.ImageInfo image : images) {
+        putString(image.imageFileName());
+        ensure(3 * Integer.BYTES + 3 * Long.BYTES);
+        buffer.putInt(image.width());
+        buffer.putInt(image.height());
+        buffer.putInt(image.roiCount());
+        buffer.putLong(image.createdMillis());
+        buffer.putLong(image.offset());
+        buffer.putLong(image.length());
+      }
+      ensure(Long.BYTES + ResultsFile.MAGIC.length);
+      buffer.putLong(tableOffset);
+      buffer.put(ResultsFile.MAGIC);
+      flush();
+      LOGGER.info("Wrote results of {} images to {}", images.size(), path);
+    } finally {
+      channel.close();
+    }
+  }
+
+  private long position() {
+    return flushed + buffer.position();
+  }
+
+  private void ensure(final int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush();
+    }
+  }
+
+  private void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      flushed += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void align(final int alignment) throws IOException {
+    int padding = (int) ((alignment - position() % alignment) % alignment);
+    ensure(padding);
+    for (int i = 0; i < padding; i++) {
+      buffer.put((byte) 0);
+    }
+  }
+
+  private void putInt(final int value) throws IOException {
+    ensure(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  private void putString(final String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    putInt(bytes.length);
+    int written = 0;
+    while (written < bytes.length) {
+      ensure(1);
+      int chunk = Math.min(buffer.remaining(), bytes.length - written);
+      buffer.put(bytes, written, chunk);
+      written += chunk;
+    }
+  }
+
+  private static int intern(final Map<String, Integer> dictionary, final String value) {
+    return dictionary.computeIfAbsent(value != null ? value : "", key -> dictionary.size());
+  }
+
+  private static byte columnType(final Object value) {
+    if (value instanceof Number) {
+      return ResultsFile.COLUMN_DOUBLE;
+    }
+    return value instanceof Boolean ? ResultsFile.COLUMN_BOOLEAN : ResultsFile.COLUMN_STRING;
+  }
+
+  /**
+   * Combines the types seen in one column: a column mixing kinds of values is stored as text.
+   */
+  private static Byte widen(final Byte current, final Byte next) {
+    return current.equals(next) ? current : ResultsFile.COLUMN_STRING;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object>[] newRowArray(final int size) {
+    return new Map[size];
+  }
+}
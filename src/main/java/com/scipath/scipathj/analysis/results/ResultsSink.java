@@ -0,0 +1,40 @@
+package com.scipath.scipathj.analysis.results;
+
+import com.scipath.scipathj.analysis.algorithms.classification.CellClassification;
+import com.scipath.scipathj.infrastructure.roi.UserROI;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives the results of each image as soon as its analysis finishes, so a batch never holds
+ * more than one image's results. {@link ResultsFileWriter} is the sink of the batch results file;
+ * other sinks can be added to the pipeline, e.g. to feed a database.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ResultsSink {
+
+  /**
+   * Receives the results of one image. The collections belong to the caller and must not be
+   * retained.
+   *
+   * @param imageFileName the image file name
+   * @param width the image width in pixels
+   * @param height the image height in pixels
+   * @param rois the ROIs of the image
+   * @param features feature maps keyed by {@code imageFileName + "_" + roiName}; may be empty
+   * @param classifications classification results with the same keys; may be empty
+   * @throws IOException if the results cannot be stored
+   */
+  void imageAnalysed(
+      String imageFileName,
+      int width,
+      int height,
+      List<? extends UserROI> rois,
+      Map<String, Map<String, Object>> features,
+      Map<String, CellClassification.ClassificationResult> classifications)
+      throws IOException;
+}
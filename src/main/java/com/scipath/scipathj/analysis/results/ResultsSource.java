@@ -0,0 +1,26 @@
+package com.scipath.scipathj.analysis.results;
+
+import java.io.IOException;
+
+/**
+ * Analysis results that can be read back one image at a time, so they need not stay in memory:
+ * the {@link ResultsFileWriter} of a running batch, or a finished results file opened with {@link
+ * ResultsFile#openSource}.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ResultsSource {
+
+  /**
+   * @return the metadata of an image, or null if the source has no results for it
+   */
+  ResultsFile.ImageInfo getImage(String imageFileName);
+
+  /**
+   * @return the results of an image, or null if the source has no results for it
+   * @throws IOException if the results cannot be read
+   */
+  ImageResults readImage(String imageFileName) throws IOException;
+}
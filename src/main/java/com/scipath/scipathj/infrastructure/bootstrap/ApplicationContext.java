@@ -18,10 +18,13 @@ public final class ApplicationContext {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationContext.class);
 
+  // Services needed before the context is initialized, e.g. to set up the UI meanwhile
+  private final ThemeService themeService = new ThemeService();
+  private final SystemConfigurationService systemConfigurationService =
+      new SystemConfigurationService();
+
   private ConfigurationManager configurationManager;
   private SciPathJEngine engine;
-  private ThemeService themeService;
-  private SystemConfigurationService systemConfigurationService;
   private ApplicationLifecycleManager lifecycleManager;
 
   /**
@@ -31,8 +34,6 @@ public final class ApplicationContext {
     LOGGER.debug("Initializing application context");
 
     // Initialize services in dependency order
-    systemConfigurationService = new SystemConfigurationService();
-    themeService = new ThemeService();
     configurationManager = new ConfigurationManager();
 
     // Initialize all settings
@@ -1,6 +1,11 @@
 package com.scipath.scipathj.infrastructure.bootstrap;
 
+import com.scipath.scipathj.infrastructure.engine.EngineWarmup;
 import com.scipath.scipathj.infrastructure.engine.SciPathJEngine;
+import com.scipath.scipathj.infrastructure.metrics.MetricsExporter;
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +21,11 @@ public final class ApplicationLifecycleManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ApplicationLifecycleManager.class);
 
+  /** System property naming the local port metrics are served on; unset serves none. */
+  public static final String METRICS_PORT_PROPERTY = "scipathj.metrics.port";
+
   private final SciPathJEngine engine;
+  private HttpServer metricsEndpoint;
 
   /**
    * Creates a new lifecycle manager with the specified engine.
@@ -26,6 +35,24 @@ public final class ApplicationLifecycleManager {
   public ApplicationLifecycleManager(SciPathJEngine engine) {
     this.engine = engine;
     registerShutdownHook();
+    startMetricsEndpoint();
+  }
+
+  /**
+   * Serves pipeline metrics on the loopback interface if {@value #METRICS_PORT_PROPERTY} is set.
+   */
+  private void startMetricsEndpoint() {
+    String port = System.getProperty(METRICS_PORT_PROPERTY);
+    if (port == null || port.isBlank()) {
+      return;
+    }
+    try {
+      metricsEndpoint =
+          new MetricsExporter(MetricsRegistry.getInstance())
+              .startEndpoint(Integer.parseInt(port.trim()));
+    } catch (IOException | NumberFormatException e) {
+      LOGGER.warn("Could not serve metrics on port {}: {}", port, e.getMessage());
+    }
   }
 
   /**
@@ -50,6 +77,10 @@ public final class ApplicationLifecycleManager {
       if (engine != null) {
         engine.shutdown();
       }
+      EngineWarmup.shutdown();
+      if (metricsEndpoint != null) {
+        metricsEndpoint.stop(0);
+      }
       LOGGER.info("Application shutdown completed successfully");
     } catch (Exception e) {
       LOGGER.error("Error during application shutdown", e);
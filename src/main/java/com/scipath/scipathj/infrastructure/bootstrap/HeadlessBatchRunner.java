@@ -0,0 +1,509 @@
+package com.scipath.scipathj.infrastructure.bootstrap;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.scipath.scipathj.SciPathJApplication;
+import com.scipath.scipathj.analysis.config.SegmentationConstants;
+import com.scipath.scipathj.analysis.pipeline.AnalysisPipeline;
+import com.scipath.scipathj.analysis.results.BatchJournal;
+import com.scipath.scipathj.analysis.results.ResultsFile;
+import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
+import com.scipath.scipathj.infrastructure.engine.EngineWarmup;
+import com.scipath.scipathj.ui.common.ROIManager;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs an analysis batch from the command line, without a window.
+ *
+ * <pre>
+ * scipathj batch --input &lt;folder|glob&gt; --output &lt;folder&gt;
+ *     [--settings &lt;folder&gt;] [--set &lt;file&gt;.&lt;key&gt;=&lt;value&gt; ...]
+ *     [--threads &lt;n&gt;] [--resume] [--progress &lt;file|-&gt;]
+ * </pre>
+ *
+ * <p>The settings files of {@code --settings}, {@code ~/.scipathj} by default, are copied into
+ * {@code <output>/settings} with the {@code --set} overrides applied, e.g. {@code --set
+ * nuclear_segmentation.nTiles=4}, and the batch reads only that copy, so the output folder records
+ * the exact settings it was produced with. The batch writes a results file, its {@link
+ * BatchJournal} and a metrics file into the output folder. {@code --resume} continues the most
+ * recent batch in the output folder, skipping the images its journal records as completed. Progress
+ * is written as one JSON object per line to {@code <output>/progress.jsonl}, or to standard output
+ * with {@code --progress -}.
+ *
+ * <p>{@code --threads} limits the processors the whole JVM sees: unless the JVM already runs with
+ * that many, the batch is relaunched in a child JVM with {@code -XX:ActiveProcessorCount}, so every
+ * thread pool sizes itself accordingly and several batches can share a node.
+ *
+ * <p>The runner sets {@code java.awt.headless} and never touches the theme or window classes.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class HeadlessBatchRunner {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(HeadlessBatchRunner.class);
+
+  /** First argument selecting the batch runner instead of the GUI. */
+  public static final String COMMAND = "batch";
+
+  public static final int EXIT_OK = 0;
+  public static final int EXIT_ERROR = 1;
+  public static final int EXIT_IMAGES_FAILED = 2;
+
+  private static final String PROGRESS_FILE = "progress.jsonl";
+  private static final String SETTINGS_DIRECTORY = "settings";
+  private static final String CHILD_PROPERTY = "scipathj.batch.child";
+
+  private static final Gson GSON = new Gson();
+
+  /**
+   * Command-line options of a batch.
+   *
+   * @param input a folder of images or a glob such as {@code /data/slides/**.tif}
+   * @param output the folder results, settings and progress are written to
+   * @param settings the folder settings are copied from
+   * @param overrides settings overrides as {@code file.key -> value}
+   * @param threads the number of processors to use, or 0 for all
+   * @param resume whether to continue the most recent batch in the output folder
+   * @param progress the progress file, or {@code -} for standard output
+   */
+  record Options(
+      String input,
+      Path output,
+      Path settings,
+      Map<String, String> overrides,
+      int threads,
+      boolean resume,
+      String progress) {
+
+    static Options parse(final String[] args) {
+      String input = null;
+      Path output = null;
+      Path settings = null;
+      Map<String, String> overrides = new LinkedHashMap<>();
+      int threads = 0;
+      boolean resume = false;
+      String progress = null;
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        switch (arg) {
+          case "--input" -> input = value(args, ++i, arg);
+          case "--output" -> output = Paths.get(value(args, ++i, arg)).toAbsolutePath();
+          case "--settings" -> settings = Paths.get(value(args, ++i, arg)).toAbsolutePath();
+          case "--set" -> {
+            String override = value(args, ++i, arg);
+            int equals = override.indexOf('=');
+            if (equals <= 0 || override.indexOf('.') < 0 || override.indexOf('.') > equals) {
+              throw new IllegalArgumentException(
+                  "Expected --set <file>.<key>=<value>, got: " + override);
+            }
+            overrides.put(override.substring(0, equals), override.substring(equals + 1));
+          }
+          case "--threads" -> threads = Integer.parseInt(value(args, ++i, arg));
+          case "--resume" -> resume = true;
+          case "--progress" -> progress = value(args, ++i, arg);
+          default -> throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+      }
+      if (input == null || output == null) {
+        throw new IllegalArgumentException("--input and --output are required");
+      }
+      if (threads < 0) {
+        throw new IllegalArgumentException("--threads must not be negative");
+      }
+      return new Options(input, output, settings, overrides, threads, resume, progress);
+    }
+
+    private static String value(final String[] args, final int index, final String option) {
+      if (index >= args.length) {
+        throw new IllegalArgumentException(option + " requires a value");
+      }
+      return args[index];
+    }
+  }
+
+  private HeadlessBatchRunner() {}
+
+  /**
+   * Runs a batch and returns its process exit code.
+   *
+   * @param args the arguments following {@value #COMMAND}
+   * @return {@link #EXIT_OK}, {@link #EXIT_IMAGES_FAILED} if some images failed, or {@link
+   *     #EXIT_ERROR} if the batch could not run
+   */
+  public static int run(final String[] args) {
+    System.setProperty("java.awt.headless", "true");
+
+    Options options;
+    try {
+      options = Options.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(
+          "Usage: scipathj batch --input <folder|glob> --output <folder> [--settings <folder>]"
+              + " [--set <file>.<key>=<value> ...] [--threads <n>] [--resume]"
+              + " [--progress <file|->]");
+      return EXIT_ERROR;
+    }
+
+    try {
+      if (needsRelaunch(options.threads())) {
+        Integer exitCode = relaunch(options.threads(), args);
+        if (exitCode != null) {
+          return exitCode;
+        }
+      }
+      return runBatch(options);
+    } catch (IOException e) {
+      LOGGER.error("Batch failed", e);
+      System.err.println("Batch failed: " + e.getMessage());
+      return EXIT_ERROR;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return EXIT_ERROR;
+    }
+  }
+
+  private static int runBatch(final Options options) throws IOException {
+    Files.createDirectories(options.output());
+    List<Path> images = findImages(options.input());
+    if (images.isEmpty()) {
+      System.err.println("No supported images match " + options.input());
+      return EXIT_ERROR;
+    }
+
+    // Load TensorFlow and StarDist's context while the settings and the first image load
+    EngineWarmup.startInBackground();
+
+    ConfigurationManager configurationManager =
+        new ConfigurationManager(prepareSettings(options).toString());
+    String batchName = options.resume() ? latestBatchName(options.output()) : null;
+    boolean resumed = batchName != null;
+    if (!resumed) {
+      batchName =
+          "batch-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+    File resultsFile = options.output().resolve(batchName + ResultsFile.EXTENSION).toFile();
+
+    ROIManager roiManager = ROIManager.getInstance();
+    AnalysisPipeline pipeline =
+        new AnalysisPipeline(
+            configurationManager, configurationManager.loadMainSettings(), roiManager);
+    pipeline.setResultsFile(resultsFile);
+    pipeline.setMetricsFile(options.output().resolve(batchName + ".metrics.json").toFile());
+
+    try (PrintStream progress = openProgress(options)) {
+      JsonObject start = event("start");
+      start.addProperty("images", images.size());
+      start.addProperty("resumed", resumed);
+      start.addProperty("processors", Runtime.getRuntime().availableProcessors());
+      start.addProperty("output", options.output().toString());
+      emit(progress, start);
+
+      int[] failed = {0};
+      long batchStart = System.nanoTime();
+      int[] index = {0};
+      // Images finish in any order when they are analysed in parallel
+      pipeline.setImageCompletedCallback(
+          result -> {
+            String image =
+                result.sourceFile() != null ? result.sourceFile().getPath() : result.fileName();
+            index[0]++;
+            JsonObject event = event("image");
+            event.addProperty("index", index[0]);
+            event.addProperty("total", images.size());
+            event.addProperty("file", image);
+            event.addProperty("status", result.success() ? "ok" : "failed");
+            // The image's own analysis time; images resumed from an earlier run report 0
+            event.addProperty("seconds", result.analysisMillis() / 1e3);
+            if (result.success()) {
+              event.addProperty("vessels", result.vesselCount());
+              event.addProperty("nuclei", result.nucleusCount());
+              event.addProperty("cells", result.cellCount());
+            } else {
+              failed[0]++;
+              event.addProperty("error", result.errorMessage());
+            }
+            emit(progress, event);
+          });
+
+      AnalysisPipeline.AnalysisResults results =
+          pipeline.processBatch(images.stream().map(Path::toFile).toArray(File[]::new));
+      roiManager.clearAllROIs();
+
+      JsonObject done = event("done");
+      done.addProperty("processed", results.processedImages());
+      done.addProperty("failed", failed[0]);
+      done.addProperty("vessels", results.totalVessels());
+      done.addProperty("nuclei", results.totalNuclei());
+      done.addProperty("cells", results.totalCells());
+      done.addProperty("seconds", (System.nanoTime() - batchStart) / 1e9);
+      done.addProperty("results", resultsFile.toString());
+      emit(progress, done);
+      return failed[0] == 0 ? EXIT_OK : EXIT_IMAGES_FAILED;
+    }
+  }
+
+  /**
+   * @return the name of the most recent batch with a journal in the output folder, or null
+   */
+  private static String latestBatchName(final Path output) throws IOException {
+    try (Stream<Path> files = Files.list(output)) {
+      return files
+          .map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith("batch-") && name.endsWith(BatchJournal.EXTENSION))
+          .map(name -> name.substring(0, name.length() - BatchJournal.EXTENSION.length()))
+          .max(String::compareTo)
+          .orElse(null);
+    }
+  }
+
+  /**
+   * Expands the input into the supported images it names, sorted by path. A folder yields its
+   * images; anything else is a glob, matched below its longest literal parent folder.
+   *
+   * @throws IOException if two images share a file name, which results, ROIs and features are
+   *     keyed by
+   */
+  static List<Path> findImages(final String input) throws IOException {
+    List<Path> images = matchImages(input);
+    Map<String, Path> imagesByName = new HashMap<>();
+    for (Path image : images) {
+      Path previous = imagesByName.putIfAbsent(image.getFileName().toString(), image);
+      if (previous != null) {
+        throw new IOException(
+            "Images in a batch must have distinct file names, but "
+                + previous
+                + " and "
+                + image
+                + " are both named "
+                + image.getFileName());
+      }
+    }
+    return images;
+  }
+
+  private static List<Path> matchImages(final String input) throws IOException {
+    Path folder = Paths.get(input);
+    if (Files.isDirectory(folder)) {
+      try (Stream<Path> files = Files.list(folder)) {
+        return files
+            .filter(Files::isRegularFile)
+            .filter(HeadlessBatchRunner::isSupportedImage)
+            .map(Path::toAbsolutePath)
+            .sorted()
+            .toList();
+      }
+    }
+
+    String separators = File.separatorChar == '/' ? "/" : "/\\";
+    int firstGlobChar = indexOfAny(input, "*?[{");
+    int baseEnd = firstGlobChar < 0 ? input.length() : firstGlobChar;
+    int lastSeparator = -1;
+    for (int i = 0; i < baseEnd; i++) {
+      if (separators.indexOf(input.charAt(i)) >= 0) {
+        lastSeparator = i;
+      }
+    }
+    Path base =
+        lastSeparator < 0 ? Paths.get("") : Paths.get(input.substring(0, lastSeparator + 1));
+    Path root = base.toAbsolutePath();
+    PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+    if (!Files.isDirectory(root)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.walk(root)) {
+      return files
+          .filter(Files::isRegularFile)
+          .filter(path -> matcher.matches(base.resolve(root.relativize(path))))
+          .filter(HeadlessBatchRunner::isSupportedImage)
+          .map(Path::toAbsolutePath)
+          .sorted()
+          .toList();
+    }
+  }
+
+  private static boolean isSupportedImage(final Path path) {
+    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+    for (String extension : SegmentationConstants.SUPPORTED_IMAGE_EXTENSIONS) {
+      if (name.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int indexOfAny(final String text, final String characters) {
+    for (int i = 0; i < text.length(); i++) {
+      if (characters.indexOf(text.charAt(i)) >= 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Copies the settings files into the output folder and applies the overrides. A resumed batch
+   * without new settings options keeps the copy of the run it resumes.
+   *
+   * @return the settings folder of the batch
+   */
+  private static Path prepareSettings(final Options options) throws IOException {
+    Path target = options.output().resolve(SETTINGS_DIRECTORY);
+    boolean keepExisting =
+        options.resume()
+            && options.settings() == null
+            && options.overrides().isEmpty()
+            && Files.isDirectory(target);
+    if (keepExisting) {
+      return target;
+    }
+
+    Path source =
+        options.settings() != null
+            ? options.settings()
+            : Paths.get(ConfigurationManager.getDefaultConfigDirectory());
+    Files.createDirectories(target);
+    for (String fileName : ConfigurationManager.SETTINGS_FILES) {
+      Path file = source.resolve(fileName);
+      if (Files.exists(file)) {
+        Files.copy(file, target.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+      } else {
+        Files.deleteIfExists(target.resolve(fileName));
+      }
+    }
+
+    Map<String, Properties> overridden = new LinkedHashMap<>();
+    for (Map.Entry<String, String> override : options.overrides().entrySet()) {
+      String key = override.getKey();
+      String fileName = key.substring(0, key.indexOf('.')) + ".properties";
+      if (!ConfigurationManager.SETTINGS_FILES.contains(fileName)) {
+        throw new IOException(
+            "Unknown settings file in --set " + key + ", expected one of "
+                + ConfigurationManager.SETTINGS_FILES);
+      }
+      Properties properties =
+          overridden.computeIfAbsent(fileName, name -> loadProperties(target.resolve(name)));
+      properties.setProperty(key.substring(key.indexOf('.') + 1), override.getValue());
+    }
+    for (Map.Entry<String, Properties> entry : overridden.entrySet()) {
+      try (OutputStream output = Files.newOutputStream(target.resolve(entry.getKey()))) {
+        entry.getValue().store(output, "SciPathJ batch settings with command-line overrides");
+      }
+    }
+    return target;
+  }
+
+  private static Properties loadProperties(final Path file) {
+    Properties properties = new Properties();
+    if (Files.exists(file)) {
+      try (InputStream input = Files.newInputStream(file)) {
+        properties.load(input);
+      } catch (IOException e) {
+        LOGGER.warn("Could not read settings file {}: {}", file, e.getMessage());
+      }
+    }
+    return properties;
+  }
+
+  private static PrintStream openProgress(final Options options) throws IOException {
+    if ("-".equals(options.progress())) {
+      // Standard output stays open for the rest of the process
+      return new PrintStream(System.out, true, StandardCharsets.UTF_8) {
+        @Override
+        public void close() {
+          flush();
+        }
+      };
+    }
+    Path file =
+        options.progress() != null
+            ? Paths.get(options.progress())
+            : options.output().resolve(PROGRESS_FILE);
+    return new PrintStream(
+        Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+        true,
+        StandardCharsets.UTF_8);
+  }
+
+  private static JsonObject event(final String type) {
+    JsonObject event = new JsonObject();
+    event.addProperty("event", type);
+    event.addProperty("time", System.currentTimeMillis());
+    return event;
+  }
+
+  private static void emit(final PrintStream progress, final JsonObject event) {
+    progress.println(GSON.toJson(event));
+  }
+
+  private static boolean needsRelaunch(final int threads) {
+    return threads > 0
+        && threads != Runtime.getRuntime().availableProcessors()
+        && !Boolean.getBoolean(CHILD_PROPERTY);
+  }
+
+  /**
+   * Runs the same batch in a child JVM that sees only {@code threads} processors.
+   *
+   * @return the child's exit code, or null if no java launcher is available, e.g. in a packaged
+   *     runtime, and the batch should run in this JVM
+   */
+  private static Integer relaunch(final int threads, final String[] args)
+      throws IOException, InterruptedException {
+    Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+    if (!Files.isExecutable(java) && !Files.isExecutable(Paths.get(java + ".exe"))) {
+      LOGGER.warn(
+          "No java launcher in {}, running on all {} processors; start the JVM with"
+              + " -XX:ActiveProcessorCount={} to limit it",
+          System.getProperty("java.home"),
+          Runtime.getRuntime().availableProcessors(),
+          threads);
+      return null;
+    }
+
+    List<String> command = new ArrayList<>();
+    command.add(java.toString());
+    for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      if (!argument.startsWith("-XX:ActiveProcessorCount=")) {
+        command.add(argument);
+      }
+    }
+    command.add("-XX:ActiveProcessorCount=" + threads);
+    command.add("-D" + CHILD_PROPERTY + "=true");
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(SciPathJApplication.class.getName());
+    command.add(COMMAND);
+    command.addAll(List.of(args));
+
+    LOGGER.info("Relaunching batch with {} processors", threads);
+    return new ProcessBuilder(command).inheritIO().start().waitFor();
+  }
+}
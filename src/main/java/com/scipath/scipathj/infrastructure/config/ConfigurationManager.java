@@ -29,7 +29,7 @@ public class ConfigurationManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationManager.class);
 
   // Configuration file paths
-  private static final String CONFIG_DIR =
+  private static final String DEFAULT_CONFIG_DIR =
       System.getProperty("user.home") + File.separator + ".scipathj";
   private static final String VESSEL_SETTINGS_FILE = "vessel_segmentation.properties";
   private static final String NUCLEAR_SETTINGS_FILE = "nuclear_segmentation.properties";
@@ -37,26 +37,57 @@ public class ConfigurationManager {
   private static final String FEATURE_EXTRACTION_SETTINGS_FILE = "feature_extraction.properties";
   private static final String MAIN_SETTINGS_FILE = "main_settings.properties";
 
+  /** Names of all settings files kept in a configuration directory. */
+  public static final java.util.List<String> SETTINGS_FILES =
+      java.util.List.of(
+          VESSEL_SETTINGS_FILE,
+          NUCLEAR_SETTINGS_FILE,
+          CYTOPLASM_SETTINGS_FILE,
+          FEATURE_EXTRACTION_SETTINGS_FILE,
+          MAIN_SETTINGS_FILE);
+
+  private final String configDirectory;
+
   /**
    * Creates a new ConfigurationManager instance.
    * Initializes the configuration directory if it doesn't exist.
    */
   public ConfigurationManager() {
+    this(DEFAULT_CONFIG_DIR);
+  }
+
+  /**
+   * Creates a ConfigurationManager that reads and writes its settings files in another directory,
+   * e.g. the settings snapshot of a headless batch run.
+   *
+   * @param configDirectory the directory holding the settings files
+   */
+  public ConfigurationManager(String configDirectory) {
+    this.configDirectory = configDirectory;
     ensureConfigDirectoryExists();
   }
 
+  /**
+   * Get the default configuration directory, {@code ~/.scipathj}.
+   *
+   * @return The default configuration directory path
+   */
+  public static String getDefaultConfigDirectory() {
+    return DEFAULT_CONFIG_DIR;
+  }
+
   /**
    * Ensure the configuration directory exists.
    */
   private void ensureConfigDirectoryExists() {
     try {
-      Path configPath = Paths.get(CONFIG_DIR);
+      Path configPath = Paths.get(configDirectory);
       if (!Files.exists(configPath)) {
         Files.createDirectories(configPath);
-        LOGGER.info("Created configuration directory: {}", CONFIG_DIR);
+        LOGGER.info("Created configuration directory: {}", configDirectory);
       }
     } catch (IOException e) {
-      LOGGER.error("Failed to create configuration directory: {}", CONFIG_DIR, e);
+      LOGGER.error("Failed to create configuration directory: {}", configDirectory, e);
     }
   }
 
@@ -70,7 +101,7 @@ public class ConfigurationManager {
    */
   private <T> void loadSettings(
       String fileName, BiConsumer<Properties, T> settingsLoader, T settings) {
-    Path settingsFile = Paths.get(CONFIG_DIR, fileName);
+    Path settingsFile = Paths.get(configDirectory, fileName);
 
     if (!Files.exists(settingsFile)) {
       LOGGER.debug("Settings file not found: {}, using defaults", fileName);
@@ -98,7 +129,7 @@ public class ConfigurationManager {
    */
   private <T> void saveSettings(
       String fileName, String comment, Function<T, Properties> settingsSaver, T settings) {
-    Path settingsFile = Paths.get(CONFIG_DIR, fileName);
+    Path settingsFile = Paths.get(configDirectory, fileName);
 
     Properties properties = settingsSaver.apply(settings);
     try (OutputStream output = Files.newOutputStream(settingsFile)) {
@@ -115,7 +146,7 @@ public class ConfigurationManager {
    * @return The loaded vessel segmentation settings, or default settings if file doesn't exist
    */
   public VesselSegmentationSettings loadVesselSegmentationSettings() {
-    Path settingsFile = Paths.get(CONFIG_DIR, VESSEL_SETTINGS_FILE);
+    Path settingsFile = Paths.get(configDirectory, VESSEL_SETTINGS_FILE);
 
     if (!Files.exists(settingsFile)) {
       return VesselSegmentationSettings.createDefault();
@@ -150,7 +181,7 @@ public class ConfigurationManager {
    * @return The loaded nuclear segmentation settings, or default settings if file doesn't exist
    */
   public NuclearSegmentationSettings loadNuclearSegmentationSettings() {
-    Path settingsFile = Paths.get(CONFIG_DIR, NUCLEAR_SETTINGS_FILE);
+    Path settingsFile = Paths.get(configDirectory, NUCLEAR_SETTINGS_FILE);
 
     if (!Files.exists(settingsFile)) {
       return NuclearSegmentationSettings.createDefault();
@@ -185,7 +216,7 @@ public class ConfigurationManager {
    * @return The loaded cytoplasm segmentation settings, or default settings if file doesn't exist
    */
   public CytoplasmSegmentationSettings loadCytoplasmSegmentationSettings() {
-    Path settingsFile = Paths.get(CONFIG_DIR, CYTOPLASM_SETTINGS_FILE);
+    Path settingsFile = Paths.get(configDirectory, CYTOPLASM_SETTINGS_FILE);
 
     if (!Files.exists(settingsFile)) {
       return CytoplasmSegmentationSettings.createDefault();
@@ -220,7 +251,7 @@ public class ConfigurationManager {
    * @return The loaded main settings, or default settings if file doesn't exist
    */
   public MainSettings loadMainSettings() {
-    Path settingsFile = Paths.get(CONFIG_DIR, MAIN_SETTINGS_FILE);
+    Path settingsFile = Paths.get(configDirectory, MAIN_SETTINGS_FILE);
 
     if (!Files.exists(settingsFile)) {
       return MainSettings.createDefault();
@@ -252,7 +283,7 @@ public class ConfigurationManager {
    * @return The loaded feature extraction settings, or default settings if file doesn't exist
    */
   public FeatureExtractionSettings loadFeatureExtractionSettings() {
-    Path settingsFile = Paths.get(CONFIG_DIR, FEATURE_EXTRACTION_SETTINGS_FILE);
+    Path settingsFile = Paths.get(configDirectory, FEATURE_EXTRACTION_SETTINGS_FILE);
 
     if (!Files.exists(settingsFile)) {
       return FeatureExtractionSettings.createDefault();
@@ -287,7 +318,7 @@ public class ConfigurationManager {
    * @return The configuration directory path
    */
   public String getConfigDirectory() {
-    return CONFIG_DIR;
+    return configDirectory;
   }
 
   /**
@@ -297,7 +328,7 @@ public class ConfigurationManager {
    * @return true if the settings file exists
    */
   public boolean settingsFileExists(String fileName) {
-    Path settingsFile = Paths.get(CONFIG_DIR, fileName);
+    Path settingsFile = Paths.get(configDirectory, fileName);
     return Files.exists(settingsFile);
   }
 
@@ -0,0 +1,218 @@
+package com.scipath.scipathj.infrastructure.engine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits concurrent work, such as the images of a batch, only while the estimated working sets of
+ * everything running fit in a heap budget, so a batch runs as many images at once as memory
+ * allows instead of either idling or running out of memory.
+ *
+ * <p>Estimates are corrected from observed peaks: after every garbage collection the heap still
+ * in use, above the baseline measured while nothing ran, is compared with the estimates admitted
+ * at the time. The correction grows at once when work needs more than estimated, and shrinks
+ * gradually as images finish using less, so concurrency follows what images really need.
+ *
+ * <p>One unit of work is always admitted when nothing else runs, however large its estimate.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class AdmissionController implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionController.class);
+
+  /** Default share of the maximum heap that admitted work may use, in percent */
+  public static final int DEFAULT_HEAP_PERCENT = 75;
+
+  private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+  private static final double MIN_CORRECTION = 0.25;
+  private static final double MAX_CORRECTION = 8.0;
+  // Weight of the latest observation when the correction shrinks
+  private static final double SHRINK_WEIGHT = 0.25;
+
+  private final long budgetBytes;
+  private final int maxConcurrency;
+  private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+  private final List<NotificationEmitter> emitters = new ArrayList<>();
+  private final NotificationListener gcListener = this::gcCompleted;
+
+  // Guarded by this
+  private int running;
+  private long reservedBytes;
+  private long baselineBytes;
+  private double correction = 1.0;
+  private double intervalPeak;
+  private int peakConcurrency;
+
+  /**
+   * Creates a controller and starts observing garbage collections.
+   *
+   * @param budgetBytes the heap that admitted work and the baseline may use together
+   * @param maxConcurrency the most units of work admitted at once, e.g. the worker threads
+   */
+  public AdmissionController(final long budgetBytes, final int maxConcurrency) {
+    if (budgetBytes <= 0 || maxConcurrency < 1) {
+      throw new IllegalArgumentException(
+          "Invalid admission budget " + budgetBytes + " or concurrency " + maxConcurrency);
+    }
+    this.budgetBytes = budgetBytes;
+    this.maxConcurrency = maxConcurrency;
+    this.baselineBytes = memoryBean.getHeapMemoryUsage().getUsed();
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (collector instanceof NotificationEmitter emitter) {
+        emitter.addNotificationListener(gcListener, null, null);
+        emitters.add(emitter);
+      }
+    }
+    LOGGER.debug(
+        "Admitting up to {} units of work within {} MB of heap",
+        maxConcurrency,
+        budgetBytes / (1024 * 1024));
+  }
+
+  /**
+   * Creates a controller for the heap of this JVM. {@code -Dscipathj.batch.threads} sets the
+   * maximum concurrency (default: the available processors) and {@code
+   * -Dscipathj.batch.heapPercent} the share of the maximum heap admitted work may use.
+   */
+  public static AdmissionController fromSystemProperties() {
+    Runtime runtime = Runtime.getRuntime();
+    int threads = Integer.getInteger("scipathj.batch.threads", runtime.availableProcessors());
+    int heapPercent = Integer.getInteger("scipathj.batch.heapPercent", DEFAULT_HEAP_PERCENT);
+    heapPercent = Math.max(10, Math.min(95, heapPercent));
+    return new AdmissionController(runtime.maxMemory() / 100 * heapPercent, Math.max(1, threads));
+  }
+
+  /**
+   * @return the most units of work admitted at once
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * @return the most units of work that ran at once since this controller was created
+   */
+  public synchronized int getPeakConcurrency() {
+    return peakConcurrency;
+  }
+
+  /**
+   * @return the factor estimates are currently multiplied by
+   */
+  public synchronized double getCorrection() {
+    return correction;
+  }
+
+  /**
+   * Waits until a unit of work with the given estimated working set fits in the budget.
+   *
+   * @param estimatedBytes the estimated peak heap the work needs
+   * @return the permit of the work, to close when it has finished and released its memory
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public Permit acquire(final long estimatedBytes) throws InterruptedException {
+    long estimate = Math.max(0, estimatedBytes);
+    synchronized (this) {
+      while (running > 0 && (running >= maxConcurrency || !fits(estimate))) {
+        wait();
+      }
+      running++;
+      reservedBytes += estimate;
+      peakConcurrency = Math.max(peakConcurrency, running);
+    }
+    return new Permit(estimate);
+  }
+
+  private boolean fits(final long estimate) {
+    return baselineBytes + (reservedBytes + estimate) * correction <= budgetBytes;
+  }
+
+  private synchronized void release(final long estimate) {
+    running--;
+    reservedBytes -= estimate;
+    if (intervalPeak > 0 && intervalPeak < correction) {
+      correction =
+          Math.max(
+              MIN_CORRECTION, correction * (1 - SHRINK_WEIGHT) + intervalPeak * SHRINK_WEIGHT);
+    }
+    intervalPeak = 0;
+    notifyAll();
+  }
+
+  private synchronized void gcCompleted(final Notification notification, final Object handback) {
+    if (!GC_NOTIFICATION.equals(notification.getType())) {
+      return;
+    }
+    long used = memoryBean.getHeapMemoryUsage().getUsed();
+    if (running == 0) {
+      baselineBytes = used;
+      notifyAll();
+      return;
+    }
+    if (reservedBytes <= 0) {
+      return;
+    }
+    double observed = (double) Math.max(0, used - baselineBytes) / reservedBytes;
+    intervalPeak = Math.max(intervalPeak, observed);
+    if (observed > correction) {
+      correction = Math.min(MAX_CORRECTION, observed);
+      LOGGER.debug(
+          "Working sets exceed their estimates, correcting them by {}",
+          String.format("%.2f", correction));
+    }
+  }
+
+  /**
+   * Stops observing garbage collections. Permits still open remain valid.
+   */
+  @Override
+  public void close() {
+    for (NotificationEmitter emitter : emitters) {
+      try {
+        emitter.removeNotificationListener(gcListener);
+      } catch (ListenerNotFoundException e) {
+        LOGGER.debug("GC listener was already removed", e);
+      }
+    }
+    emitters.clear();
+  }
+
+  /**
+   * The admission of one unit of work, releasing its share of the budget when closed.
+   */
+  public final class Permit implements AutoCloseable {
+
+    private final long estimatedBytes;
+    private boolean released;
+
+    private Permit(final long estimatedBytes) {
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * Releases the budget of the work; later calls have no effect.
+     */
+    @Override
+    public void close() {
+      synchronized (AdmissionController.this) {
+        if (released) {
+          return;
+        }
+        released = true;
+      }
+      release(estimatedBytes);
+    }
+  }
+}
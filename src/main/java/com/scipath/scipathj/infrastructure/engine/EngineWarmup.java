@@ -0,0 +1,160 @@
+package com.scipath.scipathj.infrastructure.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import net.imagej.DatasetService;
+import org.scijava.Context;
+import org.scijava.command.CommandService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms up the analysis engine once per JVM: loads the TensorFlow native library and creates the
+ * SciJava context StarDist runs in, which every nuclear segmentation then shares.
+ *
+ * <p>The application starts the warm-up in the background once its window shows, so startup does
+ * not wait for TensorFlow and the first analysis finds the engine ready. Code that needs the
+ * context before, e.g. a headless batch, warms up on first use instead.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class EngineWarmup {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EngineWarmup.class);
+
+  private static final Object LOCK = new Object();
+  private static CompletableFuture<Context> context; // Guarded by LOCK
+
+  private EngineWarmup() {
+    // Utility class - prevent instantiation
+  }
+
+  /**
+   * Starts the warm-up on a low priority background thread, unless it was already started.
+   */
+  public static void startInBackground() {
+    start(true);
+  }
+
+  /**
+   * Gets the shared SciJava context, waiting for a warm-up in progress or warming up on the
+   * calling thread if none was started. A failed warm-up is retried by the next call.
+   *
+   * @return the shared context; it must not be disposed by callers
+   * @throws IllegalStateException if the context cannot be created
+   */
+  public static Context getContext() {
+    CompletableFuture<Context> future = start(false);
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      synchronized (LOCK) {
+        if (context == future) {
+          context = null;
+        }
+      }
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      throw new IllegalStateException(
+          "Failed to initialize SciJava context: " + cause.getMessage(), cause);
+    }
+  }
+
+  /**
+   * @return true if the warm-up has finished successfully
+   */
+  public static boolean isWarm() {
+    synchronized (LOCK) {
+      return context != null && context.isDone() && !context.isCompletedExceptionally();
+    }
+  }
+
+  private static CompletableFuture<Context> start(final boolean background) {
+    CompletableFuture<Context> future;
+    synchronized (LOCK) {
+      if (context != null) {
+        return context;
+      }
+      future = new CompletableFuture<>();
+      context = future;
+    }
+    if (background) {
+      Thread thread = new Thread(() -> warmUp(future), "EngineWarmup");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      thread.start();
+    } else {
+      warmUp(future);
+    }
+    return future;
+  }
+
+  private static void warmUp(final CompletableFuture<Context> future) {
+    long start = System.nanoTime();
+    try {
+      // Loading the library also applies the class loader fix to this thread, so the context
+      // below discovers its plugins through the compatible class loader
+      if (!TensorFlowLibraryLoader.loadTensorFlowLibrary()) {
+        LOGGER.warn("TensorFlow native library could not be loaded during warm-up");
+      }
+      Context created = createContext();
+      LOGGER.info(
+          "Analysis engine warmed up in {} ms with {} SciJava services",
+          (System.nanoTime() - start) / 1_000_000,
+          created.getServiceIndex().size());
+      future.complete(created);
+    } catch (RuntimeException | LinkageError e) {
+      LOGGER.error("Failed to warm up the analysis engine", e);
+      future.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Creates the minimal SciJava context StarDist needs.
+   */
+  private static Context createContext() {
+    return new Context(
+        CommandService.class,
+        DatasetService.class,
+        org.scijava.app.StatusService.class,
+        org.scijava.log.LogService.class,
+        org.scijava.thread.ThreadService.class,
+        org.scijava.plugin.PluginService.class,
+        org.scijava.convert.ConvertService.class,
+        org.scijava.module.ModuleService.class,
+        net.imagej.tensorflow.TensorFlowService.class,
+        // Add UI services back as they are required
+        org.scijava.ui.UIService.class,
+        org.scijava.display.DisplayService.class,
+        net.imagej.display.ImageDisplayService.class,
+        net.imagej.lut.LUTService.class,
+        net.imagej.ops.OpService.class,
+        org.scijava.prefs.PrefService.class,
+        org.scijava.io.IOService.class,
+        org.scijava.parse.ParseService.class,
+        org.scijava.object.ObjectService.class,
+        net.imagej.types.DataTypeService.class,
+        org.scijava.app.AppService.class,
+        org.scijava.event.EventService.class);
+  }
+
+  /**
+   * Disposes the shared context if the warm-up has finished. A warm-up still running is left to
+   * end with the JVM.
+   */
+  public static void shutdown() {
+    CompletableFuture<Context> future;
+    synchronized (LOCK) {
+      future = context;
+      context = null;
+    }
+    if (future != null && future.isDone() && !future.isCompletedExceptionally()) {
+      try {
+        future.join().dispose();
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error disposing SciJava context", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,365 @@
+package com.scipath.scipathj.infrastructure.image;
+
+import ij.ImagePlus;
+import ij.io.Opener;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ImageSource} backed by an ImageIO reader that stays open for the lifetime of the source.
+ *
+ * <p>Region reads use {@link ImageReadParam#setSourceRegion}, so tiled and stripped TIFFs only
+ * decode the tiles/strips that intersect the region. Pyramidal TIFFs (e.g. SVS) expose their
+ * reduced-resolution IFDs as levels. Below the coarsest stored level a synthetic power-of-two
+ * pyramid is decoded with {@link ImageReadParam#setSourceSubsampling} and cached behind soft
+ * references, so flat formats such as JPEG or PNG also get cheap overview levels.
+ *
+ * <p>Only 8-bit per sample images are handled here; higher bit depths need ImageJ's display range
+ * handling and are served by {@link ImagePlusImageSource} instead.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ImageIOImageSource implements ImageSource {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImageIOImageSource.class);
+
+  /** Synthetic levels are generated until the larger side drops below this size. */
+  private static final int MIN_LEVEL_SIZE = 512;
+
+  /** Maximum relative aspect-ratio difference for a TIFF IFD to count as a pyramid level. */
+  private static final double LEVEL_ASPECT_TOLERANCE = 0.02;
+
+  private final File file;
+  private final ImageInputStream stream;
+  private final ImageReader reader;
+  private final List<Level> levels;
+  private final boolean fastRegionAccess;
+  private final Map<Integer, SoftReference<BufferedImage>> levelCache = new HashMap<>();
+  private boolean closed = false;
+
+  /**
+   * A resolution level: either an image index stored in the file, or a subsampled view of one.
+   */
+  private record Level(int imageIndex, int subsampling, int width, int height) {}
+
+  private ImageIOImageSource(
+      final File file, final ImageInputStream stream, final ImageReader reader)
+      throws IOException {
+    this.file = file;
+    this.stream = stream;
+    this.reader = reader;
+    this.levels = buildLevels();
+    // TIFF tiles and strips are decoded independently; JPEG/PNG regions decode from the start
+    String formatName = reader.getFormatName();
+    this.fastRegionAccess = formatName != null && formatName.toLowerCase().startsWith("tif");
+  }
+
+  /**
+   * Opens a source if ImageIO can decode the file as an 8-bit image.
+   *
+   * @param file the image file
+   * @return the source, or {@code null} if the format is not handled by ImageIO
+   * @throws IOException if the file cannot be read
+   */
+  static ImageIOImageSource open(final File file) throws IOException {
+    ImageInputStream stream = ImageIO.createImageInputStream(file);
+    if (stream == null) {
+      return null;
+    }
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+    if (!readers.hasNext()) {
+      stream.close();
+      return null;
+    }
+    ImageReader reader = readers.next();
+    try {
+      reader.setInput(stream, false, true);
+      if (!isEightBit(reader)) {
+        reader.dispose();
+        stream.close();
+        return null;
+      }
+      return new ImageIOImageSource(file, stream, reader);
+    } catch (IOException | RuntimeException e) {
+      reader.dispose();
+      stream.close();
+      LOGGER.debug("ImageIO cannot open {}: {}", file.getName(), e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Decodes a small version of an image without allocating its full resolution raster. An embedded
+   * thumbnail is used if it is large enough, otherwise the smallest stored pyramid level that still
+   * covers {@code maxSize} is read with source subsampling.
+   *
+   * @param file the image file
+   * @param maxSize the wanted size of the larger side; the result may be up to twice as large
+   * @return the decoded image, or {@code null} if the format is not handled by ImageIO
+   * @throws IOException if the file cannot be read
+   */
+  static BufferedImage readThumbnail(final File file, final int maxSize) throws IOException {
+    try (ImageInputStream stream = ImageIO.createImageInputStream(file)) {
+      if (stream == null) {
+        return null;
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, false, true);
+        if (!isEightBit(reader)) {
+          return null;
+        }
+
+        if (reader.readerSupportsThumbnails() && reader.hasThumbnails(0)) {
+          for (int index = 0; index < reader.getNumThumbnails(0); index++) {
+            int size =
+                Math.max(reader.getThumbnailWidth(0, index), reader.getThumbnailHeight(0, index));
+            if (size >= maxSize) {
+              return reader.readThumbnail(0, index);
+            }
+          }
+        }
+
+        // Counting images scans the whole stream for non-TIFF formats, which hold only one anyway
+        int imageIndex = 0;
+        String formatName = reader.getFormatName();
+        if (formatName != null && formatName.toLowerCase().startsWith("tif")) {
+          imageIndex = findSmallestLevel(reader, maxSize);
+        }
+
+        int size = Math.max(reader.getWidth(imageIndex), reader.getHeight(imageIndex));
+        int subsampling = Math.max(1, size / maxSize);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(imageIndex, param);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.debug(
+            "ImageIO cannot read a thumbnail of {}: {}", file.getName(), e.getMessage());
+        return null;
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Finds the smallest stored pyramid level whose larger side is still at least {@code maxSize}.
+   */
+  private static int findSmallestLevel(final ImageReader reader, final int maxSize)
+      throws IOException {
+    int width = reader.getWidth(0);
+    int height = reader.getHeight(0);
+    double aspect = (double) width / height;
+    int best = 0;
+    int bestSize = Math.max(width, height);
+    int numImages = reader.getNumImages(true);
+    for (int index = 1; index < numImages; index++) {
+      int levelWidth = reader.getWidth(index);
+      int levelHeight = reader.getHeight(index);
+      int levelSize = Math.max(levelWidth, levelHeight);
+      double levelAspect = (double) levelWidth / levelHeight;
+      if (levelSize >= maxSize
+          && levelSize < bestSize
+          && Math.abs(levelAspect - aspect) / aspect <= LEVEL_ASPECT_TOLERANCE) {
+        best = index;
+        bestSize = levelSize;
+      }
+    }
+    return best;
+  }
+
+  private static boolean isEightBit(final ImageReader reader) throws IOException {
+    ImageTypeSpecifier type = reader.getRawImageType(0);
+    if (type == null) {
+      Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+      type = types.hasNext() ? types.next() : null;
+    }
+    if (type == null) {
+      return false;
+    }
+    for (int band = 0; band < type.getNumBands(); band++) {
+      if (type.getBitsPerBand(band) > 8) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<Level> buildLevels() throws IOException {
+    List<Level> result = new ArrayList<>();
+    int width = reader.getWidth(0);
+    int height = reader.getHeight(0);
+    result.add(new Level(0, 1, width, height));
+
+    // Stored reduced-resolution images (pyramidal TIFF). Label/macro images have a different
+    // aspect ratio and are skipped.
+    int numImages = reader.getNumImages(true);
+    double aspect = (double) width / height;
+    for (int index = 1; index < numImages; index++) {
+      int levelWidth = reader.getWidth(index);
+      int levelHeight = reader.getHeight(index);
+      Level coarsest = result.get(result.size() - 1);
+      double levelAspect = (double) levelWidth / levelHeight;
+      if (levelWidth < coarsest.width()
+          && Math.abs(levelAspect - aspect) / aspect <= LEVEL_ASPECT_TOLERANCE) {
+        result.add(new Level(index, 1, levelWidth, levelHeight));
+      }
+    }
+
+    // Synthetic power-of-two levels below the coarsest stored level.
+    Level base = result.get(result.size() - 1);
+    for (int factor = 2;
+        Math.max(base.width(), base.height()) / (factor / 2) > MIN_LEVEL_SIZE;
+        factor *= 2) {
+      result.add(
+          new Level(
+              base.imageIndex(),
+              factor,
+              (base.width() + factor - 1) / factor,
+              (base.height() + factor - 1) / factor));
+    }
+
+    LOGGER.debug(
+        "Opened {} ({}x{}) with {} resolution levels", file.getName(), width, height, result.size());
+    return List.copyOf(result);
+  }
+
+  @Override
+  public String getName() {
+    return file.getName();
+  }
+
+  @Override
+  public int getWidth() {
+    return levels.get(0).width();
+  }
+
+  @Override
+  public int getHeight() {
+    return levels.get(0).height();
+  }
+
+  @Override
+  public int getLevelCount() {
+    return levels.size();
+  }
+
+  @Override
+  public int getLevelWidth(final int level) {
+    return levels.get(level).width();
+  }
+
+  @Override
+  public int getLevelHeight(final int level) {
+    return levels.get(level).height();
+  }
+
+  @Override
+  public boolean hasFastRegionAccess() {
+    return fastRegionAccess;
+  }
+
+  @Override
+  public synchronized BufferedImage readRegion(final int level, final Rectangle region)
+      throws IOException {
+    if (closed) {
+      throw new IOException("Image source is closed: " + file.getName());
+    }
+    Level info = levels.get(level);
+    Rectangle clipped = region.intersection(new Rectangle(0, 0, info.width(), info.height()));
+    if (clipped.isEmpty()) {
+      throw new IOException("Region " + region + " is outside level " + level);
+    }
+
+    if (info.subsampling() == 1) {
+      ImageReadParam param = reader.getDefaultReadParam();
+      param.setSourceRegion(clipped);
+      return reader.read(info.imageIndex(), param);
+    }
+
+    BufferedImage levelImage = getSyntheticLevel(level, info);
+    return copyOf(levelImage, clipped);
+  }
+
+  private BufferedImage getSyntheticLevel(final int level, final Level info) throws IOException {
+    SoftReference<BufferedImage> ref = levelCache.get(level);
+    BufferedImage cached = ref != null ? ref.get() : null;
+    if (cached != null) {
+      return cached;
+    }
+    long start = System.currentTimeMillis();
+    ImageReadParam param = reader.getDefaultReadParam();
+    param.setSourceSubsampling(info.subsampling(), info.subsampling(), 0, 0);
+    BufferedImage image = reader.read(info.imageIndex(), param);
+    levelCache.put(level, new SoftReference<>(image));
+    LOGGER.debug(
+        "Decoded pyramid level {} of {} ({}x{}) in {} ms",
+        level,
+        file.getName(),
+        image.getWidth(),
+        image.getHeight(),
+        System.currentTimeMillis() - start);
+    return image;
+  }
+
+  private static BufferedImage copyOf(final BufferedImage source, final Rectangle region) {
+    if (region.x == 0
+        && region.y == 0
+        && region.width == source.getWidth()
+        && region.height == source.getHeight()) {
+      return source;
+    }
+    BufferedImage sub = source.getSubimage(region.x, region.y, region.width, region.height);
+    BufferedImage copy = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = copy.createGraphics();
+    g2d.drawImage(sub, 0, 0, null);
+    g2d.dispose();
+    return copy;
+  }
+
+  @Override
+  public ImagePlus readFullResolution() throws IOException {
+    ImagePlus image = new Opener().openImage(file.getAbsolutePath());
+    if (image == null) {
+      throw new IOException("Failed to load image: " + file.getName());
+    }
+    return image;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    levelCache.clear();
+    reader.dispose();
+    try {
+      stream.close();
+    } catch (IOException e) {
+      LOGGER.debug("Error closing image stream for {}", file.getName(), e);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.scipath.scipathj.infrastructure.image;
+
+import ij.ImagePlus;
+import ij.process.ImageProcessor;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ImageSource} over an already decoded {@link ImagePlus}.
+ *
+ * <p>Used for formats that only ImageJ's {@code Opener} understands (and for images with more than
+ * 8 bits per sample, whose display needs ImageJ's display range). The full image is resident, but
+ * the downsampled levels are still computed once and cached, so viewers can work on small rasters.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ImagePlusImageSource implements ImageSource {
+
+  private static final int MIN_LEVEL_SIZE = 512;
+
+  private final String name;
+  private final ImagePlus image;
+  private final List<int[]> levelSizes = new ArrayList<>();
+  private final Map<Integer, ImageProcessor> levelCache = new HashMap<>();
+
+  ImagePlusImageSource(final ImagePlus image, final String name) {
+    this.image = image;
+    this.name = name;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    levelSizes.add(new int[] {width, height});
+    for (int factor = 2; Math.max(width, height) / (factor / 2) > MIN_LEVEL_SIZE; factor *= 2) {
+      levelSizes.add(new int[] {Math.max(1, width / factor), Math.max(1, height / factor)});
+    }
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public int getWidth() {
+    return image.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return image.getHeight();
+  }
+
+  @Override
+  public int getLevelCount() {
+    return levelSizes.size();
+  }
+
+  @Override
+  public int getLevelWidth(final int level) {
+    return levelSizes.get(level)[0];
+  }
+
+  @Override
+  public int getLevelHeight(final int level) {
+    return levelSizes.get(level)[1];
+  }
+
+  @Override
+  public synchronized BufferedImage readRegion(final int level, final Rectangle region)
+      throws IOException {
+    ImageProcessor processor = getLevelProcessor(level);
+    Rectangle clipped =
+        region.intersection(new Rectangle(0, 0, processor.getWidth(), processor.getHeight()));
+    if (clipped.isEmpty()) {
+      throw new IOException("Region " + region + " is outside level " + level);
+    }
+    processor.setRoi(clipped);
+    ImageProcessor cropped = processor.crop();
+    processor.resetRoi();
+    return cropped.getBufferedImage();
+  }
+
+  private ImageProcessor getLevelProcessor(final int level) {
+    if (level == 0) {
+      return image.getProcessor();
+    }
+    return levelCache.computeIfAbsent(
+        level,
+        key -> {
+          ImageProcessor processor = image.getProcessor().duplicate();
+          processor.setInterpolationMethod(ImageProcessor.BILINEAR);
+          return processor.resize(getLevelWidth(key), getLevelHeight(key), true);
+        });
+  }
+
+  @Override
+  public ImagePlus readFullResolution() {
+    return image;
+  }
+
+  @Override
+  public synchronized void close() {
+    levelCache.clear();
+  }
+}
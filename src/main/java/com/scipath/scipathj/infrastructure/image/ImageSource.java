@@ -0,0 +1,122 @@
+package com.scipath.scipathj.infrastructure.image;
+
+import ij.ImagePlus;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Region- and resolution-level based access to an image on disk.
+ *
+ * <p>An image source exposes a multi-resolution pyramid: level 0 is the full resolution image and
+ * every further level is a downsampled version of it. Callers request only the region of the level
+ * they need, so that opening a large slide does not require decoding the whole RGB raster. Formats
+ * that store a pyramid (tiled/pyramidal TIFF) map levels to their stored resolutions; flat formats
+ * get a cached, synthetic pyramid.
+ *
+ * <p>Implementations are thread-safe.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface ImageSource extends AutoCloseable {
+
+  /**
+   * @return the name of the underlying image (usually the file name)
+   */
+  String getName();
+
+  /**
+   * @return the full resolution width in pixels
+   */
+  int getWidth();
+
+  /**
+   * @return the full resolution height in pixels
+   */
+  int getHeight();
+
+  /**
+   * @return the number of resolution levels, always at least 1
+   */
+  int getLevelCount();
+
+  int getLevelWidth(int level);
+
+  int getLevelHeight(int level);
+
+  /**
+   * Reads a region of one resolution level.
+   *
+   * @param level the resolution level (0 = full resolution)
+   * @param region the region in the coordinate system of that level
+   * @return the pixels of the region, clipped to the level bounds
+   * @throws IOException if the image cannot be decoded
+   */
+  BufferedImage readRegion(int level, Rectangle region) throws IOException;
+
+  /**
+   * Reads the full resolution image as an ImageJ image, with the same semantics (bit depth,
+   * calibration, stacks) as ImageJ's {@code Opener}. This allocates the whole raster and is meant
+   * for analysis steps that need every pixel.
+   *
+   * @return the full resolution image
+   * @throws IOException if the image cannot be decoded
+   */
+  ImagePlus readFullResolution() throws IOException;
+
+  @Override
+  void close();
+
+  /**
+   * Whether small regions can be read without decoding the whole level (e.g. tiled or stripped
+   * TIFF). Callers that display an image tile by tile should otherwise decode each level once.
+   */
+  default boolean hasFastRegionAccess() {
+    return false;
+  }
+
+  /**
+   * @return the downsampling factor of a level relative to full resolution
+   */
+  default double getDownsample(final int level) {
+    return (double) getWidth() / getLevelWidth(level);
+  }
+
+  /**
+   * Finds the coarsest level that still has at least the requested resolution.
+   *
+   * @param downsample the wanted downsampling factor (e.g. {@code 1 / zoom})
+   * @return the best level for that factor
+   */
+  default int getBestLevel(final double downsample) {
+    int best = 0;
+    for (int level = 1; level < getLevelCount(); level++) {
+      if (getDownsample(level) <= downsample * 1.01) {
+        best = level;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Finds the finest level whose larger side does not exceed {@code maxDimension}, or the coarsest
+   * level if none is small enough.
+   */
+  default int getBestLevelForSize(final int maxDimension) {
+    for (int level = 0; level < getLevelCount(); level++) {
+      if (Math.max(getLevelWidth(level), getLevelHeight(level)) <= maxDimension) {
+        return level;
+      }
+    }
+    return getLevelCount() - 1;
+  }
+
+  /**
+   * Reads a whole resolution level.
+   */
+  default BufferedImage readLevel(final int level) throws IOException {
+    return readRegion(level, new Rectangle(0, 0, getLevelWidth(level), getLevelHeight(level)));
+  }
+}
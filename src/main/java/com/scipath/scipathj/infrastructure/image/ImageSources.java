@@ -0,0 +1,98 @@
+package com.scipath.scipathj.infrastructure.image;
+
+import ij.ImagePlus;
+import ij.io.Opener;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Factory for {@link ImageSource}s.
+ *
+ * <p>Files that ImageIO can decode as 8-bit images (JPEG, PNG, BMP, GIF and plain, tiled or
+ * pyramidal TIFF) are opened lazily, without decoding any pixels. Everything else falls back to
+ * ImageJ's {@code Opener}, which decodes the full image once.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ImageSources {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImageSources.class);
+
+  private ImageSources() {
+    throw new UnsupportedOperationException("Utility class cannot be instantiated");
+  }
+
+  /**
+   * Opens an image source for a file.
+   *
+   * @param file the image file
+   * @return the opened source, to be closed by the caller
+   * @throws IOException if the file cannot be opened by either ImageIO or ImageJ
+   */
+  public static ImageSource open(final File file) throws IOException {
+    if (file == null || !file.isFile()) {
+      throw new IOException("Not a file: " + file);
+    }
+
+    ImageSource source = ImageIOImageSource.open(file);
+    if (source != null) {
+      return source;
+    }
+
+    LOGGER.debug("Falling back to ImageJ Opener for {}", file.getName());
+    ImagePlus image = new Opener().openImage(file.getAbsolutePath());
+    if (image == null) {
+      throw new IOException("Failed to load image: " + file.getName());
+    }
+    return new ImagePlusImageSource(image, file.getName());
+  }
+
+  /**
+   * Decodes a downsampled version of an image for thumbnails, avoiding a full resolution decode
+   * where the format allows it (embedded thumbnails, pyramid levels, subsampled reads).
+   *
+   * @param file the image file
+   * @param maxSize the wanted size of the larger side; the result is at least that large unless the
+   *     image itself is smaller, and should be scaled down by the caller
+   * @return the decoded image
+   * @throws IOException if the file cannot be decoded by either ImageIO or ImageJ
+   */
+  public static BufferedImage readThumbnail(final File file, final int maxSize)
+      throws IOException {
+    if (file == null || !file.isFile()) {
+      throw new IOException("Not a file: " + file);
+    }
+
+    BufferedImage thumbnail = ImageIOImageSource.readThumbnail(file, maxSize);
+    if (thumbnail != null) {
+      return thumbnail;
+    }
+
+    LOGGER.debug("Falling back to ImageJ Opener for thumbnail of {}", file.getName());
+    ImagePlus image = new Opener().openImage(file.getAbsolutePath());
+    if (image == null) {
+      throw new IOException("Failed to load image: " + file.getName());
+    }
+    try {
+      return image.getBufferedImage();
+    } finally {
+      image.close();
+    }
+  }
+
+  /**
+   * Wraps an already loaded image as a source.
+   *
+   * @param image the loaded image
+   * @param name the name of the image
+   * @return a source over the image
+   */
+  public static ImageSource wrap(final ImagePlus image, final String name) {
+    return new ImagePlusImageSource(image, name);
+  }
+}
@@ -0,0 +1,228 @@
+package com.scipath.scipathj.infrastructure.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent on-disk cache of gallery thumbnails, stored as PNG files under
+ * {@code ~/.scipathj/thumbnails}.
+ *
+ * <p>Entries are keyed by a hash of the file rather than its path, so renamed or moved slides are
+ * still found. Hashing whole slides would cost as much I/O as decoding them, so the key covers the
+ * file length, its modification time and three 64 KiB samples (start, middle and end); the start
+ * holds the format header and the TIFF directory offsets. A file rewritten in place changes its
+ * modification time, so its stale thumbnail is not served; only a change that keeps length,
+ * modification time and samples alike would go unnoticed.
+ *
+ * <p>The cache holds at most {@code -Dscipathj.thumbnails.maxMB} megabytes (default 256); beyond
+ * that, the least recently used entries are deleted.
+ *
+ * <p>All methods are thread-safe. Entries are written to a temporary file and moved into place, so
+ * concurrent readers never see partial files.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ThumbnailCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailCache.class);
+
+  private static final int SAMPLE_SIZE = 64 * 1024;
+  private static final long DEFAULT_MAX_MB = 256;
+  // Eviction frees space down to this fraction of the limit, so it does not run on every write
+  private static final double EVICTION_TARGET = 0.9;
+  private static final String EXTENSION = ".png";
+
+  private static final ThumbnailCache INSTANCE =
+      new ThumbnailCache(
+          Paths.get(System.getProperty("user.home"), ".scipathj", "thumbnails"),
+          Math.max(1, Long.getLong("scipathj.thumbnails.maxMB", DEFAULT_MAX_MB)) * 1024 * 1024);
+
+  private final Path directory;
+  private final long maxBytes;
+  private long sizeBytes = -1; // Guarded by this
+
+  /**
+   * Creates a cache in the given directory, which is created on first write.
+   *
+   * @param directory the cache directory
+   * @param maxBytes the size above which least recently used entries are deleted
+   */
+  public ThumbnailCache(final Path directory, final long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the shared cache in the user's SciPathJ directory
+   */
+  public static ThumbnailCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Looks up a cached thumbnail.
+   *
+   * @param key the content key of the image file, see {@link #keyOf(File)}
+   * @param size the thumbnail size the entry was stored with
+   * @return the thumbnail, or {@code null} if it is not cached or cannot be read
+   */
+  public BufferedImage get(final String key, final int size) {
+    Path entry = entryFor(key, size);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    try {
+      BufferedImage thumbnail = ImageIO.read(entry.toFile());
+      if (thumbnail != null) {
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+      }
+      return thumbnail;
+    } catch (IOException e) {
+      LOGGER.debug("Cannot read cached thumbnail {}: {}", entry, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Stores a thumbnail. Failures are logged and otherwise ignored, the cache is only an
+   * optimization.
+   *
+   * @param key the content key of the image file, see {@link #keyOf(File)}
+   * @param size the thumbnail size
+   * @param thumbnail the thumbnail to store
+   */
+  public void put(final String key, final int size, final BufferedImage thumbnail) {
+    Path entry = entryFor(key, size);
+    Path temp = null;
+    try {
+      Files.createDirectories(directory);
+      temp = Files.createTempFile(directory, "thumb", ".tmp");
+      if (!ImageIO.write(thumbnail, "png", temp.toFile())) {
+        throw new IOException("No PNG writer available");
+      }
+      long bytes = Files.size(temp);
+      Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      temp = null;
+      grow(bytes);
+    } catch (IOException e) {
+      LOGGER.debug("Cannot cache thumbnail {}: {}", entry, e.getMessage());
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          LOGGER.debug("Cannot delete temporary thumbnail {}", temp, e);
+        }
+      }
+    }
+  }
+
+  private Path entryFor(final String key, final int size) {
+    return directory.resolve(key + "-" + size + EXTENSION);
+  }
+
+  private synchronized void grow(final long bytes) throws IOException {
+    if (sizeBytes < 0) {
+      // The first write measures the entries left by earlier runs, including this one
+      evict();
+    } else {
+      sizeBytes += bytes;
+      if (sizeBytes > maxBytes) {
+        evict();
+      }
+    }
+  }
+
+  /**
+   * Measures the cache and, if it is over its limit, deletes the least recently used entries.
+   */
+  private void evict() throws IOException {
+    record CachedFile(Path path, long size, long lastUsed) {}
+    List<CachedFile> files = new ArrayList<>();
+    try (Stream<Path> entries = Files.list(directory)) {
+      for (Path path : (Iterable<Path>) entries::iterator) {
+        if (!path.getFileName().toString().endsWith(EXTENSION)) {
+          continue;
+        }
+        try {
+          BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+          files.add(
+              new CachedFile(path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException e) {
+          // Evicted by another instance
+        }
+      }
+    }
+    long total = files.stream().mapToLong(CachedFile::size).sum();
+    if (total > maxBytes) {
+      long target = (long) (maxBytes * EVICTION_TARGET);
+      int evicted = 0;
+      files.sort(Comparator.comparingLong(CachedFile::lastUsed));
+      for (CachedFile file : files) {
+        if (total <= target) {
+          break;
+        }
+        Files.deleteIfExists(file.path());
+        total -= file.size();
+        evicted++;
+      }
+      LOGGER.debug("Evicted {} cached thumbnails from {}", evicted, directory);
+    }
+    sizeBytes = total;
+  }
+
+  /**
+   * Computes the content key of a file: SHA-256 over its length, modification time and the sampled
+   * content. Reads at most 192 KiB regardless of the file size.
+   *
+   * @param file the image file
+   * @return the hex encoded key
+   * @throws IOException if the file cannot be read
+   */
+  public String keyOf(final File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-256 not available", e);
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long length = raf.length();
+      digest.update(
+          ByteBuffer.allocate(2 * Long.BYTES).putLong(length).putLong(file.lastModified()).array());
+      byte[] buffer = new byte[SAMPLE_SIZE];
+      long[] offsets = {0, length / 2 - SAMPLE_SIZE / 2, length - SAMPLE_SIZE};
+      for (long offset : offsets) {
+        long start = Math.max(0, offset);
+        int toRead = (int) Math.min(SAMPLE_SIZE, length - start);
+        raf.seek(start);
+        raf.readFully(buffer, 0, toRead);
+        digest.update(buffer, 0, toRead);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+}
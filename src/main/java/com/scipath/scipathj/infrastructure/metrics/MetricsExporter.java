@@ -0,0 +1,214 @@
+package com.scipath.scipathj.infrastructure.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders a {@link MetricsRegistry} as JSON or Prometheus text and publishes it to a file or a
+ * local HTTP endpoint.
+ *
+ * <p>Timers are exported as Prometheus histograms in seconds, plus an objects counter for stages
+ * that report how many objects they produced. The JSON form carries the same data with derived
+ * mean, percentiles and objects per second, for reading by people and scripts.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class MetricsExporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsExporter.class);
+
+  private static final String PROMETHEUS_PREFIX = "scipathj_";
+
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+  private final MetricsRegistry registry;
+
+  public MetricsExporter(final MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Writes the metrics to a file, as Prometheus text for {@code .prom} and {@code .txt} files and
+   * as JSON otherwise.
+   */
+  public void writeTo(final Path file) throws IOException {
+    String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    String content =
+        name.endsWith(".prom") || name.endsWith(".txt") ? toPrometheus() : toJson();
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+    LOGGER.debug("Wrote metrics to {}", file);
+  }
+
+  /**
+   * Serves the metrics in Prometheus text format at {@code http://127.0.0.1:port/metrics}, and as
+   * JSON at {@code /metrics.json}. The server binds to the loopback address only.
+   *
+   * @param port the port, or 0 for any free port
+   * @return the started server; stop it with {@link HttpServer#stop(int)}
+   */
+  public HttpServer startEndpoint(final int port) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(
+        "/metrics",
+        exchange -> {
+          boolean json = exchange.getRequestURI().getPath().endsWith(".json");
+          byte[] body = (json ? toJson() : toPrometheus()).getBytes(StandardCharsets.UTF_8);
+          exchange
+              .getResponseHeaders()
+              .set("Content-Type", json ? "application/json" : PROMETHEUS_CONTENT_TYPE);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+    LOGGER.info("Serving metrics at http://127.0.0.1:{}/metrics", server.getAddress().getPort());
+    return server;
+  }
+
+  /**
+   * @return the metrics in the Prometheus text exposition format
+   */
+  public String toPrometheus() {
+    StringBuilder out = new StringBuilder(4096);
+    for (Timer.Snapshot timer : registry.timerSnapshots()) {
+      String name = prometheusName(timer.name()) + "_seconds";
+      header(out, name, timer.description(), "histogram");
+      long cumulative = 0;
+      long[] buckets = timer.buckets();
+      for (int i = 0; i < buckets.length - 1; i++) {
+        cumulative += buckets[i];
+        out.append(name).append("_bucket{le=\"");
+        number(out, Timer.bucketUpperSeconds(i)).append("\"} ").append(cumulative).append('\n');
+      }
+      out.append(name).append("_bucket{le=\"+Inf\"} ").append(timer.count()).append('\n');
+      out.append(name).append("_sum ");
+      number(out, timer.totalSeconds()).append('\n');
+      out.append(name).append("_count ").append(timer.count()).append('\n');
+      if (timer.objects() > 0) {
+        String objects = prometheusName(timer.name()) + "_objects_total";
+        header(out, objects, "Objects produced: " + timer.description(), "counter");
+        out.append(objects).append(' ').append(timer.objects()).append('\n');
+      }
+    }
+    for (MetricsRegistry.Counter counter : registry.getCounters()) {
+      String name = prometheusName(counter.getName()) + "_total";
+      header(out, name, counter.getDescription(), "counter");
+      out.append(name).append(' ').append(counter.get()).append('\n');
+    }
+    for (MetricsRegistry.Gauge gauge : registry.getGauges()) {
+      String name = prometheusName(gauge.name());
+      header(out, name, gauge.description(), "gauge");
+      out.append(name).append(' ');
+      number(out, gauge.get()).append('\n');
+    }
+    return out.toString();
+  }
+
+  /**
+   * @return the metrics as a JSON object with {@code timers}, {@code counters} and {@code gauges}
+   */
+  public String toJson() {
+    StringBuilder out = new StringBuilder(4096);
+    out.append("{\n  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+    out.append("  \"timers\": {");
+    List<Timer.Snapshot> timers = registry.timerSnapshots();
+    for (int i = 0; i < timers.size(); i++) {
+      Timer.Snapshot timer = timers.get(i);
+      out.append(i == 0 ? "\n" : ",\n").append("    ");
+      string(out, timer.name()).append(": {\"count\": ").append(timer.count());
+      out.append(", \"totalSeconds\": ");
+      number(out, timer.totalSeconds()).append(", \"meanSeconds\": ");
+      number(out, timer.meanSeconds()).append(", \"maxSeconds\": ");
+      number(out, timer.maxNanos() / 1e9);
+      for (double percentile : PERCENTILES) {
+        out.append(", \"p").append(Math.round(percentile * 100)).append("Seconds\": ");
+        number(out, timer.percentileSeconds(percentile));
+      }
+      if (timer.objects() > 0) {
+        out.append(", \"objects\": ").append(timer.objects());
+        out.append(", \"objectsPerSecond\": ");
+        number(out, timer.objectsPerSecond());
+      }
+      out.append('}');
+    }
+    out.append(timers.isEmpty() ? "},\n" : "\n  },\n");
+    out.append("  \"counters\": {");
+    List<MetricsRegistry.Counter> counters = registry.getCounters();
+    for (int i = 0; i < counters.size(); i++) {
+      out.append(i == 0 ? "\n" : ",\n").append("    ");
+      string(out, counters.get(i).getName()).append(": ").append(counters.get(i).get());
+    }
+    out.append(counters.isEmpty() ? "},\n" : "\n  },\n");
+    out.append("  \"gauges\": {");
+    List<MetricsRegistry.Gauge> gauges = registry.getGauges();
+    for (int i = 0; i < gauges.size(); i++) {
+      out.append(i == 0 ? "\n" : ",\n").append("    ");
+      string(out, gauges.get(i).name()).append(": ");
+      number(out, gauges.get(i).get());
+    }
+    out.append(gauges.isEmpty() ? "}\n" : "\n  }\n").append("}\n");
+    return out.toString();
+  }
+
+  private static void header(
+      final StringBuilder out, final String name, final String help, final String type) {
+    out.append("# HELP ").append(name).append(' ');
+    out.append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  static String prometheusName(final String name) {
+    StringBuilder result = new StringBuilder(PROMETHEUS_PREFIX.length() + name.length());
+    result.append(PROMETHEUS_PREFIX);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      result.append(Character.isLetterOrDigit(c) && c < 0x80 ? c : '_');
+    }
+    return result.toString();
+  }
+
+  private static StringBuilder number(final StringBuilder out, final double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      // Neither format has a portable spelling for these in every consumer
+      return out.append('0');
+    }
+    if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return out.append((long) value);
+    }
+    return out.append(value);
+  }
+
+  private static StringBuilder string(final StringBuilder out, final String value) {
+    out.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append(String.format("\\u%04x", (int) c));
+      } else {
+        out.append(c);
+      }
+    }
+    return out.append('"');
+  }
+}
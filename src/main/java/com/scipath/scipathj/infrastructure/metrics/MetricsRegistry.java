@@ -0,0 +1,167 @@
+package com.scipath.scipathj.infrastructure.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide registry of pipeline timers, counters and gauges.
+ *
+ * <p>Metrics are created on first use and live for the lifetime of the process, so call sites can
+ * look them up by name without holding references. Names are dot-separated, e.g. {@code
+ * pipeline.stage.vessel}; exporters translate them to the target format. JVM heap and garbage
+ * collection gauges are registered up front.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class MetricsRegistry {
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  private final Map<String, Timer> timers = new ConcurrentSkipListMap<>();
+  private final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+  private final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+
+  private MetricsRegistry() {
+    registerJvmGauges();
+  }
+
+  public static MetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the timer with the given name, creating it on first use.
+   */
+  public Timer timer(final String name, final String description) {
+    return timers.computeIfAbsent(name, key -> new Timer(key, description));
+  }
+
+  /**
+   * Returns the counter with the given name, creating it on first use.
+   */
+  public Counter counter(final String name, final String description) {
+    return counters.computeIfAbsent(name, key -> new Counter(key, description));
+  }
+
+  /**
+   * Registers a gauge, replacing any gauge of the same name.
+   *
+   * @param supplier reads the current value; called on export, from the exporting thread
+   */
+  public void gauge(final String name, final String description, final DoubleSupplier supplier) {
+    gauges.put(name, new Gauge(name, description, supplier));
+  }
+
+  /**
+   * @return snapshots of all timers, by name
+   */
+  public List<Timer.Snapshot> timerSnapshots() {
+    List<Timer.Snapshot> snapshots = new ArrayList<>(timers.size());
+    timers.values().forEach(timer -> snapshots.add(timer.snapshot()));
+    return snapshots;
+  }
+
+  public List<Counter> getCounters() {
+    return new ArrayList<>(counters.values());
+  }
+
+  public List<Gauge> getGauges() {
+    return new ArrayList<>(gauges.values());
+  }
+
+  /**
+   * Clears all timers and counters, e.g. before a new batch. Gauges are live values and stay.
+   */
+  public void reset() {
+    timers.values().forEach(Timer::reset);
+    counters.values().forEach(Counter::reset);
+  }
+
+  private void registerJvmGauges() {
+    MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    gauge(
+        "jvm.heap.used.bytes",
+        "Heap memory in use",
+        () -> memory.getHeapMemoryUsage().getUsed());
+    gauge(
+        "jvm.heap.committed.bytes",
+        "Heap memory committed by the JVM",
+        () -> memory.getHeapMemoryUsage().getCommitted());
+    gauge(
+        "jvm.heap.max.bytes",
+        "Maximum heap memory",
+        () -> memory.getHeapMemoryUsage().getMax());
+    gauge(
+        "jvm.gc.collections",
+        "Garbage collections since start, all collectors",
+        () -> collectors.stream().mapToLong(gc -> Math.max(0, gc.getCollectionCount())).sum());
+    gauge(
+        "jvm.gc.time.seconds",
+        "Time spent in garbage collection since start, all collectors",
+        () ->
+            collectors.stream().mapToLong(gc -> Math.max(0, gc.getCollectionTime())).sum()
+                / 1000.0);
+  }
+
+  /**
+   * A monotonically increasing count.
+   */
+  public static final class Counter {
+    private final String name;
+    private final String description;
+    private final LongAdder value = new LongAdder();
+
+    Counter(final String name, final String description) {
+      this.name = name;
+      this.description = description;
+    }
+
+    public void increment() {
+      value.increment();
+    }
+
+    public void add(final long amount) {
+      value.add(amount);
+    }
+
+    public long get() {
+      return value.sum();
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+
+    void reset() {
+      value.reset();
+    }
+  }
+
+  /**
+   * A value read when metrics are exported.
+   *
+   * @param name the metric name
+   * @param description what the gauge reports
+   * @param supplier reads the current value
+   */
+  public record Gauge(String name, String description, DoubleSupplier supplier) {
+
+    public double get() {
+      return supplier.getAsDouble();
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.scipath.scipathj.infrastructure.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records durations of a pipeline stage together with the number of objects it produced.
+ *
+ * <p>Durations go into a histogram with power-of-two microsecond buckets, so recording is a few
+ * uncontended atomic additions and percentiles can be estimated without keeping samples. Object
+ * counts give the stage's throughput in objects per second of stage time.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Timer {
+
+  /** Number of histogram buckets; bucket {@code i} ends at {@code 2^(i+1)} microseconds. */
+  static final int BUCKET_COUNT = 40;
+
+  private final String name;
+  private final String description;
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAdder objects = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+  Timer(final String name, final String description) {
+    this.name = name;
+    this.description = description;
+  }
+
+  /**
+   * A running measurement, recorded when closed.
+   */
+  public final class Sample implements AutoCloseable {
+    private final long start = System.nanoTime();
+    private long objectCount = 0;
+
+    /**
+     * Sets the number of objects the measured work produced.
+     */
+    public void setObjects(final long objectCount) {
+      this.objectCount = objectCount;
+    }
+
+    @Override
+    public void close() {
+      record(System.nanoTime() - start, objectCount);
+    }
+  }
+
+  /**
+   * Starts a measurement, typically in a try-with-resources block.
+   */
+  public Sample start() {
+    return new Sample();
+  }
+
+  /**
+   * Records one measurement.
+   *
+   * @param nanos the duration in nanoseconds
+   * @param objectCount the number of objects produced, or 0
+   */
+  public void record(final long nanos, final long objectCount) {
+    long duration = Math.max(0, nanos);
+    count.increment();
+    totalNanos.add(duration);
+    maxNanos.accumulate(duration);
+    if (objectCount > 0) {
+      objects.add(objectCount);
+    }
+    buckets.incrementAndGet(bucketIndex(duration));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  /**
+   * @return a consistent-enough copy of the current values for export
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new Snapshot(
+        name, description, count.sum(), totalNanos.sum(), maxNanos.get(), objects.sum(), counts);
+  }
+
+  void reset() {
+    count.reset();
+    totalNanos.reset();
+    objects.reset();
+    maxNanos.reset();
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets.set(i, 0);
+    }
+  }
+
+  static int bucketIndex(final long nanos) {
+    long micros = Math.max(1, nanos / 1000);
+    return Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(micros));
+  }
+
+  /**
+   * @return the upper bound of a bucket in seconds
+   */
+  static double bucketUpperSeconds(final int bucket) {
+    return Math.scalb(1.0, bucket + 1) / 1e6;
+  }
+
+  /**
+   * Values of a timer at one point in time.
+   *
+   * @param name the metric name
+   * @param description what the timer measures
+   * @param count the number of measurements
+   * @param totalNanos the sum of all durations
+   * @param maxNanos the longest duration
+   * @param objects the number of objects produced by all measurements
+   * @param buckets the histogram bucket counts
+   */
+  public record Snapshot(
+      String name,
+      String description,
+      long count,
+      long totalNanos,
+      long maxNanos,
+      long objects,
+      long[] buckets) {
+
+    public double totalSeconds() {
+      return totalNanos / 1e9;
+    }
+
+    public double meanSeconds() {
+      return count == 0 ? 0 : totalSeconds() / count;
+    }
+
+    /**
+     * @return objects produced per second of measured time, 0 if nothing was measured
+     */
+    public double objectsPerSecond() {
+      return totalNanos == 0 ? 0 : objects / totalSeconds();
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in.
+     *
+     * @param quantile between 0 and 1
+     */
+    public double percentileSeconds(final double quantile) {
+      long rank = (long) Math.ceil(quantile * count);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return Math.min(bucketUpperSeconds(i), maxNanos / 1e9);
+        }
+      }
+      return maxNanos / 1e9;
+    }
+  }
+}
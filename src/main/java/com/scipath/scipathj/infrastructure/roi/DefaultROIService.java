@@ -6,18 +6,14 @@ import ij.io.RoiEncoder;
 import java.awt.Rectangle;
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-import java.util.zip.ZipOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Default implementation of ROIService that provides core ROI management functionality.
  * This replaces the singleton ROIManager with a proper service-based approach.
+ * Storage is delegated to an indexed, thread-safe {@link ROIStore}.
  * 
  * @author Sebastian Micu
  * @version 2.0.0
@@ -26,8 +22,8 @@ public class DefaultROIService implements ROIService {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultROIService.class);
     
-    // Map of image filename to list of ROIs for that image
-    private final Map<String, List<UserROI>> imageROIs = new ConcurrentHashMap<>();
+    // Indexed ROI storage, partitioned by image filename and ROI type
+    private final ROIStore imageROIs = new ROIStore();
     
     // Listeners for ROI changes
     private final List<ROIChangeListener> listeners = new CopyOnWriteArrayList<>();
@@ -44,44 +40,49 @@ public class DefaultROIService implements ROIService {
         }
         
         String imageFileName = roi.getImageFileName();
-        List<UserROI> roisForImage = imageROIs.computeIfAbsent(imageFileName, k -> new ArrayList<>());
         
         // Check for duplicate ROI by ID to prevent double counting
-        boolean isDuplicate = roisForImage.stream().anyMatch(existing -> existing.getId().equals(roi.getId()));
-        if (isDuplicate) {
+        if (!imageROIs.add(roi)) {
             LOGGER.debug("Skipping duplicate ROI '{}' for image '{}'", roi.getName(), imageFileName);
             return;
         }
         
-        roisForImage.add(roi);
-        LOGGER.debug("Added ROI '{}' to image '{}' (total: {})", roi.getName(), imageFileName, roisForImage.size());
+        LOGGER.debug("Added ROI '{}' to image '{}' (total: {})",
+            roi.getName(), imageFileName, imageROIs.size(imageFileName));
         
         // Notify listeners
         notifyListeners(listener -> listener.onROIAdded(roi));
     }
     
+    @Override
+    public void addROIs(Collection<? extends UserROI> rois) {
+        if (rois == null || rois.isEmpty()) {
+            return;
+        }
+        
+        Map<String, List<UserROI>> added = imageROIs.addAll(rois);
+        added.forEach((imageFileName, imageRois) -> {
+            LOGGER.debug("Added {} ROIs to image '{}'", imageRois.size(), imageFileName);
+            List<UserROI> batch = Collections.unmodifiableList(imageRois);
+            notifyListeners(listener -> listener.onROIsAdded(imageFileName, batch));
+        });
+    }
+    
     @Override
     public boolean removeROI(String roiId) {
         if (roiId == null) {
             return false;
         }
         
-        for (List<UserROI> rois : imageROIs.values()) {
-            UserROI toRemove = rois.stream()
-                .filter(roi -> roi.getId().equals(roiId))
-                .findFirst()
-                .orElse(null);
-            
-            if (toRemove != null) {
-                rois.remove(toRemove);
-                LOGGER.debug("Removed ROI '{}' from image '{}'", toRemove.getName(), toRemove.getImageFileName());
-                
-                // Notify listeners
-                notifyListeners(listener -> listener.onROIRemoved(toRemove));
-                return true;
-            }
+        UserROI toRemove = imageROIs.remove(roiId);
+        if (toRemove == null) {
+            return false;
         }
-        return false;
+        LOGGER.debug("Removed ROI '{}' from image '{}'", toRemove.getName(), toRemove.getImageFileName());
+        
+        // Notify listeners
+        notifyListeners(listener -> listener.onROIRemoved(toRemove));
+        return true;
     }
     
     @Override
@@ -94,25 +95,18 @@ public class DefaultROIService implements ROIService {
         if (imageFileName == null) {
             return Collections.emptyList();
         }
-        return imageROIs.getOrDefault(imageFileName, Collections.emptyList())
-            .stream()
-            .collect(Collectors.toList()); // Return defensive copy
+        return imageROIs.getForImage(imageFileName); // Immutable snapshot
     }
     
     @Override
     public List<UserROI> getAllROIs() {
-        return imageROIs.values().stream()
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
+        return imageROIs.getAll();
     }
     
     @Override
     public Map<String, List<UserROI>> getAllROIsByImage() {
-        // Return defensive copy
-        Map<String, List<UserROI>> result = new HashMap<>();
-        imageROIs.forEach((image, rois) -> 
-            result.put(image, new ArrayList<>(rois)));
-        return result;
+        // Immutable snapshots
+        return imageROIs.getAllByImage();
     }
     
     @Override
@@ -121,8 +115,8 @@ public class DefaultROIService implements ROIService {
             return;
         }
         
-        List<UserROI> removed = imageROIs.remove(imageFileName);
-        if (removed != null && !removed.isEmpty()) {
+        List<UserROI> removed = imageROIs.clearImage(imageFileName);
+        if (!removed.isEmpty()) {
             LOGGER.debug("Cleared {} ROIs from image '{}'", removed.size(), imageFileName);
             
             // Notify listeners
@@ -132,8 +126,7 @@ public class DefaultROIService implements ROIService {
     
     @Override
     public void clearAllROIs() {
-        Set<String> imageNames = new HashSet<>(imageROIs.keySet());
-        imageROIs.clear();
+        Set<String> imageNames = imageROIs.clear();
         
         LOGGER.debug("Cleared all ROIs from {} images", imageNames.size());
         
@@ -147,12 +140,12 @@ public class DefaultROIService implements ROIService {
         if (imageFileName == null) {
             return 0;
         }
-        return imageROIs.getOrDefault(imageFileName, Collections.emptyList()).size();
+        return imageROIs.size(imageFileName);
     }
     
     @Override
     public int getTotalROICount() {
-        return imageROIs.values().stream().mapToInt(List::size).sum();
+        return imageROIs.size();
     }
     
     @Override
@@ -165,10 +158,7 @@ public class DefaultROIService implements ROIService {
         if (roiId == null) {
             return null;
         }
-        return getAllROIs().stream()
-            .filter(roi -> roi.getId().equals(roiId))
-            .findFirst()
-            .orElse(null);
+        return imageROIs.get(roiId);
     }
     
     @Override
@@ -190,41 +180,15 @@ public class DefaultROIService implements ROIService {
     
     @Override
     public void saveAllROIsToMasterZip(File outputFile) throws IOException {
-        if (imageROIs.isEmpty()) {
+        Map<String, List<UserROI>> roisByImage = imageROIs.getAllByImage();
+        if (roisByImage.isEmpty()) {
             throw new IllegalArgumentException("No ROIs found in any image");
         }
         
-        File tempDir = new File(System.getProperty("java.io.tmpdir"), 
-            "scipathj_master_rois_" + System.currentTimeMillis());
-        tempDir.mkdirs();
+        ROIArchive.write(outputFile, roisByImage, this::convertToImageJROI);
         
-        try {
-            // Create ZIP file for each image that has ROIs
-            for (Map.Entry<String, List<UserROI>> entry : imageROIs.entrySet()) {
-                String imageFileName = entry.getKey();
-                List<UserROI> rois = entry.getValue();
-                
-                if (!rois.isEmpty()) {
-                    String safeImageName = sanitizeFileName(imageFileName);
-                    File imageZipFile = new File(tempDir, safeImageName + "_ROIs.zip");
-                    
-                    if (rois.size() == 1) {
-                        saveSingleROIAsZip(rois.get(0), imageZipFile);
-                    } else {
-                        saveMultipleROIs(rois, imageZipFile);
-                    }
-                }
-            }
-            
-            // Create master ZIP file containing all image ZIP files
-            createMasterZipFile(tempDir, outputFile);
-            
-            LOGGER.info("Saved ROIs from {} images to master ZIP file '{}'", 
-                imageROIs.size(), outputFile.getAbsolutePath());
-                
-        } finally {
-            deleteDirectory(tempDir);
-        }
+        LOGGER.info("Saved ROIs from {} images to master ZIP file '{}'", 
+            roisByImage.size(), outputFile.getAbsolutePath());
     }
     
     @Override
@@ -276,109 +240,7 @@ public class DefaultROIService implements ROIService {
     }
     
     private void saveMultipleROIs(List<UserROI> rois, File outputFile) throws IOException {
-        File tempDir = new File(System.getProperty("java.io.tmpdir"), 
-            "scipathj_rois_" + System.currentTimeMillis());
-        tempDir.mkdirs();
-        
-        try {
-            // Save each ROI as individual file
-            for (int i = 0; i < rois.size(); i++) {
-                UserROI userROI = rois.get(i);
-                Roi ijRoi = convertToImageJROI(userROI);
-                File roiFile = new File(tempDir, String.format("%04d-%s.roi", i + 1, userROI.getName()));
-                RoiEncoder.save(ijRoi, roiFile.getAbsolutePath());
-            }
-            
-            // Create ZIP file containing all ROIs
-            createROIZipFile(tempDir, outputFile);
-            
-        } finally {
-            deleteDirectory(tempDir);
-        }
-    }
-    
-    private void saveSingleROIAsZip(UserROI userROI, File outputFile) throws IOException {
-        File tempDir = new File(System.getProperty("java.io.tmpdir"), 
-            "scipathj_single_roi_" + System.currentTimeMillis());
-        tempDir.mkdirs();
-        
-        try {
-            Roi ijRoi = convertToImageJROI(userROI);
-            File roiFile = new File(tempDir, "0001-" + userROI.getName() + ".roi");
-            RoiEncoder.save(ijRoi, roiFile.getAbsolutePath());
-            
-            createROIZipFile(tempDir, outputFile);
-            
-        } finally {
-            deleteDirectory(tempDir);
-        }
-    }
-    
-    private void createMasterZipFile(File sourceDir, File outputFile) throws IOException {
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(outputFile))) {
-            File[] zipFiles = sourceDir.listFiles((dir, name) -> name.endsWith(".zip"));
-            if (zipFiles != null) {
-                for (File zipFile : zipFiles) {
-                    ZipEntry entry = new ZipEntry(zipFile.getName());
-                    zos.putNextEntry(entry);
-                    
-                    try (FileInputStream fis = new FileInputStream(zipFile)) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        while ((length = fis.read(buffer)) > 0) {
-                            zos.write(buffer, 0, length);
-                        }
-                    }
-                    zos.closeEntry();
-                }
-            }
-        }
-    }
-    
-    private void createROIZipFile(File roiDir, File outputFile) throws IOException {
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(outputFile))) {
-            File[] roiFiles = roiDir.listFiles((dir, name) -> name.endsWith(".roi"));
-            if (roiFiles != null) {
-                for (File roiFile : roiFiles) {
-                    ZipEntry entry = new ZipEntry(roiFile.getName());
-                    zos.putNextEntry(entry);
-                    
-                    try (FileInputStream fis = new FileInputStream(roiFile)) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        while ((length = fis.read(buffer)) > 0) {
-                            zos.write(buffer, 0, length);
-                        }
-                    }
-                    zos.closeEntry();
-                }
-            }
-        }
-    }
-    
-    private String sanitizeFileName(String fileName) {
-        String baseName = fileName;
-        int lastDot = baseName.lastIndexOf('.');
-        if (lastDot > 0) {
-            baseName = baseName.substring(0, lastDot);
-        }
-        return baseName.replaceAll("[^a-zA-Z0-9._-]", "_");
-    }
-    
-    private void deleteDirectory(File dir) {
-        if (dir.exists()) {
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.isDirectory()) {
-                        deleteDirectory(file);
-                    } else {
-                        file.delete();
-                    }
-                }
-            }
-            dir.delete();
-        }
+        ROIZipIO.writeROISet(outputFile, rois, this::convertToImageJROI);
     }
     
     private Roi convertToImageJROI(UserROI userROI) {
@@ -410,28 +272,11 @@ public class DefaultROIService implements ROIService {
     private List<UserROI> loadROISetFromZip(File zipFile, String imageFileName) throws IOException {
         List<UserROI> rois = new ArrayList<>();
         
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile))) {
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.getName().endsWith(".roi")) {
-                    File tempFile = File.createTempFile("roi_", ".roi");
-                    try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                        byte[] buffer = new byte[1024];
-                        int length;
-                        while ((length = zis.read(buffer)) > 0) {
-                            fos.write(buffer, 0, length);
-                        }
-                    }
-                    
-                    UserROI roi = loadSingleROI(tempFile, imageFileName);
-                    if (roi != null) {
-                        rois.add(roi);
-                    }
-                    
-                    tempFile.delete();
-                }
-                zis.closeEntry();
-            }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(zipFile))) {
+            ROIZipIO.readROISet(in, (entryName, ijRoi) -> {
+                rois.add(convertFromImageJROI(ijRoi, imageFileName));
+                return true;
+            });
         }
         
         return rois;
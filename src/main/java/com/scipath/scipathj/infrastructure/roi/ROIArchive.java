@@ -0,0 +1,269 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import ij.gui.Roi;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Random-access reader for master ROI archives: nested ZIP archives written by {@link ROIZipIO}
+ * and binary {@link ROIContainerFile}s.
+ *
+ * <p>Opening an archive reads its directory once: the ZIP central directory through
+ * {@link ZipFile}, or the container's offset table. The ROIs of an image are then read by seeking
+ * straight to its entry, so switching images costs the same regardless of how many images the
+ * archive holds. Nested sets in archives written by this version are stored uncompressed and are
+ * read without inflating the outer entry; older archives with deflated entries still work.
+ *
+ * <p>Open archives are cached by path, so repeated lookups in the dataset viewer reuse the parsed
+ * directory. The cache is small and revalidated against the file's size and modification time.
+ * Reads may run concurrently.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROIArchive implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ROIArchive.class);
+
+  private static final int MAX_OPEN_ARCHIVES = 4;
+
+  private static final LinkedHashMap<String, ROIArchive> OPEN_ARCHIVES =
+      new LinkedHashMap<>(8, 0.75f, true);
+
+  private final File file;
+  private final long length;
+  private final long lastModified;
+  private final ZipFile zipFile;
+  private final FileChannel channel;
+  private final Map<String, ROIContainerFile.Block> blocks;
+
+  private int activeReads = 0;
+  private boolean retired = false;
+
+  private ROIArchive(final File file) throws IOException {
+    this.file = file;
+    this.length = file.length();
+    this.lastModified = file.lastModified();
+    FileChannel opened = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      if (ROIContainerFile.isContainer(opened)) {
+        this.channel = opened;
+        this.blocks = ROIContainerFile.readTable(opened);
+        this.zipFile = null;
+      } else {
+        opened.close();
+        this.channel = null;
+        this.blocks = null;
+        this.zipFile = new ZipFile(file);
+      }
+    } catch (IOException | RuntimeException e) {
+      opened.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns an open archive for a file, reusing a cached one if the file has not changed.
+   *
+   * @param file a master ZIP or ROI container
+   * @throws IOException if the file cannot be opened or its directory is corrupt
+   */
+  public static ROIArchive open(final File file) throws IOException {
+    String key = file.getAbsolutePath();
+    synchronized (OPEN_ARCHIVES) {
+      ROIArchive cached = OPEN_ARCHIVES.get(key);
+      if (cached != null
+          && cached.length == file.length()
+          && cached.lastModified == file.lastModified()) {
+        return cached;
+      }
+      if (cached != null) {
+        OPEN_ARCHIVES.remove(key);
+        cached.retire();
+      }
+    }
+    ROIArchive archive = new ROIArchive(file);
+    synchronized (OPEN_ARCHIVES) {
+      ROIArchive previous = OPEN_ARCHIVES.put(key, archive);
+      if (previous != null && previous != archive) {
+        previous.retire();
+      }
+      var iterator = OPEN_ARCHIVES.values().iterator();
+      while (OPEN_ARCHIVES.size() > MAX_OPEN_ARCHIVES && iterator.hasNext()) {
+        ROIArchive eldest = iterator.next();
+        iterator.remove();
+        eldest.retire();
+      }
+    }
+    LOGGER.debug("Opened ROI archive '{}' with {} images", file.getName(), archive.size());
+    return archive;
+  }
+
+  /**
+   * Writes a master archive, as a {@link ROIContainerFile} if the file has the container
+   * extension and as a nested ZIP otherwise.
+   *
+   * @param outputFile the file to create
+   * @param roisByImage the ROIs to save, keyed by image file name
+   * @param converter converts a ROI to the ImageJ ROI to encode
+   */
+  public static void write(
+      final File outputFile,
+      final Map<String, List<UserROI>> roisByImage,
+      final Function<UserROI, Roi> converter)
+      throws IOException {
+    // Drop a cached handle first, an open file cannot be replaced on every platform
+    synchronized (OPEN_ARCHIVES) {
+      ROIArchive cached = OPEN_ARCHIVES.remove(outputFile.getAbsolutePath());
+      if (cached != null) {
+        cached.retire();
+      }
+    }
+    if (ROIContainerFile.hasContainerExtension(outputFile)) {
+      ROIContainerFile.write(outputFile, roisByImage, converter);
+    } else {
+      ROIZipIO.writeMasterZip(outputFile, roisByImage, converter);
+    }
+  }
+
+  /**
+   * @return whether the archive holds ROIs for an image
+   */
+  public boolean containsImage(final String imageFileName) {
+    String entryName = ROIZipIO.imageEntryName(imageFileName);
+    return blocks != null ? blocks.containsKey(entryName) : zipFile.getEntry(entryName) != null;
+  }
+
+  /**
+   * Decodes the ROIs of one image.
+   *
+   * @param imageFileName the image file name
+   * @param consumer receives each decoded ROI with its entry name; returning false stops reading
+   * @return false if the archive has no ROIs for the image
+   */
+  public boolean readImage(final String imageFileName, final ROIZipIO.RoiConsumer consumer)
+      throws IOException {
+    return readImageEntries(
+        imageFileName,
+        (entryName, data) -> {
+          Roi roi = ROIZipIO.decode(data, entryName);
+          return roi == null || consumer.accept(entryName, roi);
+        });
+  }
+
+  /**
+   * Reads the raw {@code .roi} entries of one image without decoding them.
+   *
+   * @param imageFileName the image file name
+   * @param consumer receives each entry name with its bytes; returning false stops reading
+   * @return false if the archive has no ROIs for the image
+   */
+  public boolean readImageEntries(
+      final String imageFileName, final ROIZipIO.EntryConsumer consumer) throws IOException {
+    String entryName = ROIZipIO.imageEntryName(imageFileName);
+    acquire();
+    try {
+      if (blocks != null) {
+        ROIContainerFile.Block block = blocks.get(entryName);
+        if (block == null) {
+          return false;
+        }
+        ROIContainerFile.readBlockEntries(channel, block, consumer);
+        return true;
+      }
+      ZipEntry entry = zipFile.getEntry(entryName);
+      if (entry == null || entry.isDirectory()) {
+        return false;
+      }
+      try (InputStream in = zipFile.getInputStream(entry)) {
+        ROIZipIO.readEntries(in, consumer);
+      }
+      return true;
+    } finally {
+      release();
+    }
+  }
+
+  /**
+   * @return the number of ROIs stored for an image if the format records it, otherwise -1
+   */
+  public int getROICount(final String imageFileName) {
+    if (blocks == null) {
+      return -1;
+    }
+    ROIContainerFile.Block block = blocks.get(ROIZipIO.imageEntryName(imageFileName));
+    return block != null ? block.roiCount() : 0;
+  }
+
+  /**
+   * @return the number of images in the archive
+   */
+  public int size() {
+    return blocks != null ? blocks.size() : zipFile.size();
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Removes the archive from the cache and closes it once running reads have finished.
+   */
+  @Override
+  public void close() {
+    synchronized (OPEN_ARCHIVES) {
+      OPEN_ARCHIVES.remove(file.getAbsolutePath(), this);
+    }
+    retire();
+  }
+
+  private synchronized void acquire() throws IOException {
+    if (retired) {
+      throw new IOException("ROI archive was closed: " + file.getName());
+    }
+    activeReads++;
+  }
+
+  private synchronized void release() {
+    activeReads--;
+    if (retired && activeReads == 0) {
+      closeQuietly();
+    }
+  }
+
+  private synchronized void retire() {
+    if (retired) {
+      return;
+    }
+    retired = true;
+    if (activeReads == 0) {
+      closeQuietly();
+    }
+  }
+
+  private void closeQuietly() {
+    try {
+      if (zipFile != null) {
+        zipFile.close();
+      }
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Failed to close ROI archive '{}': {}", file.getName(), e.getMessage());
+    }
+  }
+}
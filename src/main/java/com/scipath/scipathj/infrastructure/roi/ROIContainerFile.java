@@ -0,0 +1,236 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import ij.gui.Roi;
+import ij.io.RoiEncoder;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary container for the ROIs of many images, an alternative to the nested ZIP master
+ * archive.
+ *
+ * <p>The file starts with a table that maps every image to the offset and length of its block,
+ * followed by the blocks themselves. A block is a sequence of records, each holding the ROI entry
+ * name and the unmodified {@code .roi} bytes written by {@link RoiEncoder}. Reading an image
+ * therefore costs one table lookup and one memory-mapped read of its block, independent of the
+ * number of images in the file, and there is no ZIP directory or inflation to go through.
+ *
+ * <pre>
+ * magic "SPJROIC1"
+ * int imageCount
+ * imageCount x { string entryName, long offset, int length, int roiCount }
+ * blocks: roiCount x { string entryName, int dataLength, byte[dataLength] }
+ * </pre>
+ *
+ * <p>Strings are an int byte count followed by UTF-8 bytes; all numbers are big-endian. Images are
+ * keyed by {@link ROIZipIO#imageEntryName(String)}, the same names the master ZIP uses.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROIContainerFile {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ROIContainerFile.class);
+
+  /** File extension of ROI containers. */
+  public static final String EXTENSION = ".sroi";
+
+  private static final byte[] MAGIC = "SPJROIC1".getBytes(StandardCharsets.US_ASCII);
+
+  /** Location of one image's block. */
+  record Block(long offset, int length, int roiCount) {}
+
+  private ROIContainerFile() {}
+
+  /**
+   * @return whether the file name has the container extension
+   */
+  public static boolean hasContainerExtension(final File file) {
+    return file.getName().toLowerCase().endsWith(EXTENSION);
+  }
+
+  /**
+   * @return whether the channel starts with the container magic
+   */
+  static boolean isContainer(final FileChannel channel) throws IOException {
+    if (channel.size() < MAGIC.length) {
+      return false;
+    }
+    ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+    channel.read(header, 0);
+    return Arrays.equals(header.array(), MAGIC);
+  }
+
+  /**
+   * Writes a container with one block per image.
+   *
+   * @param outputFile the file to create
+   * @param roisByImage the ROIs to save, keyed by image file name
+   * @param converter converts a ROI to the ImageJ ROI to encode
+   */
+  public static void write(
+      final File outputFile,
+      final Map<String, List<UserROI>> roisByImage,
+      final Function<UserROI, Roi> converter)
+      throws IOException {
+    Map<String, byte[]> blocks = new LinkedHashMap<>();
+    Map<String, Integer> roiCounts = new HashMap<>();
+    for (Map.Entry<String, List<UserROI>> entry : roisByImage.entrySet()) {
+      if (entry.getValue().isEmpty()) {
+        continue;
+      }
+      String entryName = ROIZipIO.imageEntryName(entry.getKey());
+      if (blocks.containsKey(entryName)) {
+        LOGGER.warn(
+            "Skipping ROIs of '{}': another image is already saved as '{}'",
+            entry.getKey(),
+            entryName);
+        continue;
+      }
+      int[] roiCount = {0};
+      blocks.put(entryName, encodeBlock(entry.getValue(), converter, roiCount));
+      roiCounts.put(entryName, roiCount[0]);
+    }
+
+    // The table size is known once all names are, so offsets can be written up front
+    long offset = MAGIC.length + Integer.BYTES;
+    for (String entryName : blocks.keySet()) {
+      offset += stringSize(entryName) + Long.BYTES + 2 * Integer.BYTES;
+    }
+    try (DataOutputStream out =
+        new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(outputFile), 64 * 1024))) {
+      out.write(MAGIC);
+      out.writeInt(blocks.size());
+      for (Map.Entry<String, byte[]> block : blocks.entrySet()) {
+        writeString(out, block.getKey());
+        out.writeLong(offset);
+        out.writeInt(block.getValue().length);
+        out.writeInt(roiCounts.get(block.getKey()));
+        offset += block.getValue().length;
+      }
+      for (byte[] block : blocks.values()) {
+        out.write(block);
+      }
+    }
+  }
+
+  /**
+   * Reads the offset table.
+   *
+   * @return the blocks keyed by image entry name
+   */
+  static Map<String, Block> readTable(final FileChannel channel) throws IOException {
+    try {
+      ByteBuffer count = readFully(channel, MAGIC.length, Integer.BYTES);
+      int imageCount = count.getInt();
+      long position = MAGIC.length + Integer.BYTES;
+      Map<String, Block> table = new HashMap<>(Math.max(16, imageCount * 2));
+      for (int i = 0; i < imageCount; i++) {
+        int nameLength = readFully(channel, position, Integer.BYTES).getInt();
+        position += Integer.BYTES;
+        ByteBuffer entry =
+            readFully(channel, position, nameLength + Long.BYTES + 2 * Integer.BYTES);
+        position += entry.remaining();
+        byte[] name = new byte[nameLength];
+        entry.get(name);
+        table.put(
+            new String(name, StandardCharsets.UTF_8),
+            new Block(entry.getLong(), entry.getInt(), entry.getInt()));
+      }
+      return table;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Corrupt ROI container table", e);
+    }
+  }
+
+  /**
+   * Reads the raw {@code .roi} records of one block.
+   */
+  static void readBlockEntries(
+      final FileChannel channel, final Block block, final ROIZipIO.EntryConsumer consumer)
+      throws IOException {
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, block.offset(), block.length());
+    try {
+      for (int i = 0; i < block.roiCount(); i++) {
+        byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        if (!consumer.accept(new String(name, StandardCharsets.UTF_8), data)) {
+          return;
+        }
+      }
+    } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+      throw new IOException("Corrupt ROI container block", e);
+    }
+  }
+
+  private static byte[] encodeBlock(
+      final List<UserROI> rois, final Function<UserROI, Roi> converter, final int[] roiCount)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    List<String> skipped = new ArrayList<>();
+    for (int i = 0; i < rois.size(); i++) {
+      UserROI userROI = rois.get(i);
+      byte[] data = RoiEncoder.saveAsByteArray(converter.apply(userROI));
+      if (data == null) {
+        skipped.add(userROI.getName());
+        continue;
+      }
+      writeString(out, String.format("%04d-%s.roi", i + 1, userROI.getName()));
+      out.writeInt(data.length);
+      out.write(data);
+      roiCount[0]++;
+    }
+    if (!skipped.isEmpty()) {
+      LOGGER.warn("Failed to encode {} ROIs, skipped: {}", skipped.size(), skipped);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static ByteBuffer readFully(
+      final FileChannel channel, final long position, final int length) throws IOException {
+    if (length < 0 || position + length > channel.size()) {
+      throw new IOException("ROI container is truncated");
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("ROI container is truncated");
+      }
+    }
+    return buffer.flip();
+  }
+
+  private static void writeString(final DataOutputStream out, final String value)
+      throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static int stringSize(final String value) {
+    return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
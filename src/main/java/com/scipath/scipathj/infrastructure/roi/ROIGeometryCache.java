@@ -0,0 +1,255 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import ij.gui.Roi;
+import ij.gui.ShapeRoi;
+import java.awt.Polygon;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * Shared, size-bounded cache of ROI outlines as flat coordinate arrays.
+ *
+ * <p>Each ROI outline is converted once from its ImageJ {@link Roi} into an {@link Outline}: the
+ * flattened vertices in absolute image coordinates (ShapeRoi base offsets applied) packed into a
+ * single {@code float[]}, plus the start index of every sub-path. That is a fraction of the memory
+ * of a {@link java.awt.geom.GeneralPath} or {@link ShapeRoi}, and renderers can append many
+ * outlines to one {@link Path2D} with a single transform, so a redraw issues one fill and one draw
+ * call per colour instead of one per ROI.
+ *
+ * <p>The cache is bounded by the total number of stored coordinates and evicts the least recently
+ * used outlines. {@link ROIStore} evicts outlines of ROIs it removes, so the cache follows the
+ * lifecycle of the stored ROIs. All methods are thread-safe.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROIGeometryCache {
+
+  /** Default budget: 16M floats, 64 MB, enough for several hundred thousand nuclei. */
+  private static final long DEFAULT_MAX_COORDINATES = 16L * 1024 * 1024;
+
+  /** Curve flattening tolerance in image pixels. */
+  private static final double FLATNESS = 0.25;
+
+  private static final ROIGeometryCache INSTANCE = new ROIGeometryCache(DEFAULT_MAX_COORDINATES);
+
+  private final long maxCoordinates;
+  private final LinkedHashMap<String, Outline> outlines = new LinkedHashMap<>(1024, 0.75f, true);
+  private long coordinateCount = 0;
+
+  /**
+   * A flattened ROI outline in image coordinates.
+   */
+  public static final class Outline {
+
+    private final float[] coordinates;
+    private final int[] subpathStarts;
+    private final int pointCount;
+
+    private Outline(final float[] coordinates, final int[] subpathStarts, final int pointCount) {
+      this.coordinates = coordinates;
+      this.subpathStarts = subpathStarts;
+      this.pointCount = pointCount;
+    }
+
+    public int getPointCount() {
+      return pointCount;
+    }
+
+    public int getSubpathCount() {
+      return subpathStarts.length;
+    }
+
+    /**
+     * @return the index of the first point of a sub-path
+     */
+    public int getSubpathStart(final int subpath) {
+      return subpathStarts[subpath];
+    }
+
+    public float getX(final int point) {
+      return coordinates[2 * point];
+    }
+
+    public float getY(final int point) {
+      return coordinates[2 * point + 1];
+    }
+
+    /**
+     * @return whether the outline consists of several sub-paths, e.g. a ring with a hole, and must
+     *     be filled with the even-odd rule
+     */
+    public boolean hasHoles() {
+      return subpathStarts.length > 1;
+    }
+
+    /**
+     * Appends the transformed outline to a path, closing every sub-path.
+     *
+     * @param path the path to append to
+     * @param transform image to target coordinates; only the affine matrix is used
+     */
+    public void appendTo(final Path2D path, final AffineTransform transform) {
+      double m00 = transform.getScaleX();
+      double m01 = transform.getShearX();
+      double m02 = transform.getTranslateX();
+      double m10 = transform.getShearY();
+      double m11 = transform.getScaleY();
+      double m12 = transform.getTranslateY();
+      for (int subpath = 0; subpath < subpathStarts.length; subpath++) {
+        int start = subpathStarts[subpath];
+        int end = subpath + 1 < subpathStarts.length ? subpathStarts[subpath + 1] : pointCount;
+        for (int point = start; point < end; point++) {
+          double x = coordinates[2 * point];
+          double y = coordinates[2 * point + 1];
+          double tx = m00 * x + m01 * y + m02;
+          double ty = m10 * x + m11 * y + m12;
+          if (point == start) {
+            path.moveTo(tx, ty);
+          } else {
+            path.lineTo(tx, ty);
+          }
+        }
+        path.closePath();
+      }
+    }
+
+    /**
+     * @return the outline as a shape in image coordinates
+     */
+    public Shape toShape() {
+      Path2D.Float path =
+          new Path2D.Float(hasHoles() ? Path2D.WIND_EVEN_ODD : Path2D.WIND_NON_ZERO, pointCount);
+      appendTo(path, new AffineTransform());
+      return path;
+    }
+  }
+
+  /**
+   * Creates a cache holding at most {@code maxCoordinates} floats of outline data.
+   */
+  public ROIGeometryCache(final long maxCoordinates) {
+    this.maxCoordinates = maxCoordinates;
+  }
+
+  /**
+   * @return the cache shared by all overlays
+   */
+  public static ROIGeometryCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the outline of a ROI, computing it on first use.
+   *
+   * @param roi the ROI
+   * @return the outline in image coordinates
+   */
+  public Outline get(final UserROI roi) {
+    synchronized (this) {
+      Outline outline = outlines.get(roi.getId());
+      if (outline != null) {
+        return outline;
+      }
+    }
+    // Flatten outside the lock, concurrent tile renderers must not wait for each other
+    Outline outline = computeOutline(roi);
+    synchronized (this) {
+      Outline previous = outlines.put(roi.getId(), outline);
+      if (previous != null) {
+        coordinateCount -= previous.coordinates.length;
+      }
+      coordinateCount += outline.coordinates.length;
+      evictIfNeeded();
+    }
+    return outline;
+  }
+
+  /**
+   * Computes the outline of a ROI without caching it, e.g. for a one-off export.
+   */
+  public static Outline compute(final UserROI roi) {
+    return computeOutline(roi);
+  }
+
+  /**
+   * Drops the outline of a ROI, e.g. after it was removed or its geometry changed.
+   */
+  public synchronized void evict(final String roiId) {
+    Outline removed = outlines.remove(roiId);
+    if (removed != null) {
+      coordinateCount -= removed.coordinates.length;
+    }
+  }
+
+  public synchronized void clear() {
+    outlines.clear();
+    coordinateCount = 0;
+  }
+
+  /**
+   * @return the number of cached outlines
+   */
+  public synchronized int size() {
+    return outlines.size();
+  }
+
+  private void evictIfNeeded() {
+    var iterator = outlines.values().iterator();
+    while (coordinateCount > maxCoordinates && iterator.hasNext()) {
+      coordinateCount -= iterator.next().coordinates.length;
+      iterator.remove();
+    }
+  }
+
+  private static Outline computeOutline(final UserROI roi) {
+    Shape shape = null;
+    AffineTransform toImage = null;
+    Roi imageJRoi = roi.getImageJRoi();
+    if (imageJRoi instanceof ShapeRoi shapeRoi) {
+      // ShapeRoi shapes are relative to the ROI's base position
+      shape = shapeRoi.getShape();
+      toImage = AffineTransform.getTranslateInstance(shapeRoi.getXBase(), shapeRoi.getYBase());
+    }
+    if (shape == null && imageJRoi != null) {
+      Polygon polygon = imageJRoi.getPolygon();
+      shape = polygon != null ? polygon : imageJRoi.getBounds();
+    }
+    if (shape == null) {
+      shape = roi.getBounds();
+    }
+
+    float[] coordinates = new float[64];
+    int[] subpathStarts = new int[1];
+    int subpathCount = 0;
+    int pointCount = 0;
+    float[] segment = new float[6];
+    for (PathIterator it = shape.getPathIterator(toImage, FLATNESS); !it.isDone(); it.next()) {
+      int type = it.currentSegment(segment);
+      if (type == PathIterator.SEG_CLOSE) {
+        continue;
+      }
+      if (type == PathIterator.SEG_MOVETO) {
+        if (subpathCount == subpathStarts.length) {
+          subpathStarts = Arrays.copyOf(subpathStarts, subpathCount * 2);
+        }
+        subpathStarts[subpathCount++] = pointCount;
+      }
+      if (2 * pointCount + 2 > coordinates.length) {
+        coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+      }
+      coordinates[2 * pointCount] = segment[0];
+      coordinates[2 * pointCount + 1] = segment[1];
+      pointCount++;
+    }
+    return new Outline(
+        Arrays.copyOf(coordinates, 2 * pointCount),
+        Arrays.copyOf(subpathStarts, subpathCount),
+        pointCount);
+  }
+}
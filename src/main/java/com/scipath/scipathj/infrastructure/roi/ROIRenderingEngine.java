@@ -1,15 +1,10 @@
 package com.scipath.scipathj.infrastructure.roi;
 
 import com.scipath.scipathj.infrastructure.config.MainSettings;
-import ij.gui.Roi;
-import ij.gui.ShapeRoi;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
-import java.awt.image.BufferedImage;
 import java.util.*;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +12,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Shared ROI rendering engine that provides optimized rendering for all parts of the application.
  * This replaces the duplicated rendering logic in ROIOverlay and DatasetROIOverlay.
+ * Rendering is tiled through {@link ROITileRenderer}: only the visible area is drawn, with
+ * level-of-detail primitives when zoomed out, so memory does not grow with the slide size.
  * 
  * @author Sebastian Micu
  * @version 2.0.0
@@ -25,19 +22,10 @@ public class ROIRenderingEngine {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(ROIRenderingEngine.class);
     
-    // Performance constants
-    private static final int BUFFER_MARGIN = 100;
-    
-    // Shape cache for performance optimization
-    private final Map<String, java.awt.Shape> shapeCache = new ConcurrentHashMap<>();
-    
-    // Rendering buffer
-    private BufferedImage masterBuffer;
-    private int bufferWidth;
-    private int bufferHeight;
-    private boolean bufferValid = false;
-    private long lastRenderTime = 0;
-    private int lastROICount = 0;
+    // Tiled rendering of the ROIs passed to renderToBuffer
+    private final ROISpatialIndex spatialIndex = new ROISpatialIndex();
+    private final ROITileRenderer tileRenderer =
+        new ROITileRenderer(spatialIndex, new EnginePainter());
     
     // Current rendering settings
     private MainSettings settings;
@@ -140,110 +128,36 @@ public class ROIRenderingEngine {
     }
     
     /**
-     * Ensure buffer is large enough for the specified dimensions.
+     * Set the image dimensions, which bound the rendered tiles.
      */
     public void ensureBufferSize(int imageWidth, int imageHeight) {
-        int requiredWidth = imageWidth + 2 * BUFFER_MARGIN;
-        int requiredHeight = imageHeight + 2 * BUFFER_MARGIN;
-        
-        if (masterBuffer == null || bufferWidth < requiredWidth || bufferHeight < requiredHeight) {
-            bufferWidth = Math.max(requiredWidth, bufferWidth);
-            bufferHeight = Math.max(requiredHeight, bufferHeight);
-            masterBuffer = new BufferedImage(bufferWidth, bufferHeight, BufferedImage.TYPE_INT_ARGB);
-            invalidateBuffer();
-            LOGGER.debug("Resized rendering buffer to {}x{}", bufferWidth, bufferHeight);
-        }
+        tileRenderer.setImageSize(imageWidth, imageHeight);
     }
+    
     /**
-     * Render ROIs to the master buffer at native resolution with smart caching.
+     * Set the ROIs to render. Tiles are rendered lazily when they become visible.
      */
     public void renderToBuffer(List<UserROI> rois, int imageWidth, int imageHeight) {
-        ensureBufferSize(imageWidth, imageHeight);
-        
-        if (masterBuffer == null || rois.isEmpty()) {
-            bufferValid = false;
-            return;
-        }
+        tileRenderer.setImageSize(imageWidth, imageHeight);
         
-        // Smart caching: only re-render if buffer is invalid or data changed
-        long currentTime = System.currentTimeMillis();
-        boolean dataChanged = (rois.size() != lastROICount);
-        
-        if (bufferValid && !dataChanged && (currentTime - lastRenderTime) < 100) {
-            // Buffer is valid and recent, skip rendering
-            LOGGER.trace("Skipping buffer render - valid cache ({}ms ago, {} ROIs)",
-                        currentTime - lastRenderTime, rois.size());
-            return;
-        }
-        
-        long startTime = System.nanoTime();
-        
-        Graphics2D g2d = masterBuffer.createGraphics();
-        try {
-            // Clear buffer
-            g2d.setComposite(AlphaComposite.Clear);
-            g2d.fillRect(0, 0, bufferWidth, bufferHeight);
-            g2d.setComposite(AlphaComposite.SrcOver);
-            
-            // Optimize for maximum speed
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-            g2d.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_SPEED);
-            g2d.setRenderingHint(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_SPEED);
-            g2d.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
-            g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
-            
-            // Choose rendering approach based on mode
-            int renderedCount;
-            if (fastModeEnabled) {
-                renderedCount = renderROIsFastMode(g2d, rois);
-            } else {
-                renderedCount = renderROIsBatch(g2d, rois);
-            }
-            
-            bufferValid = true;
-            lastRenderTime = currentTime;
-            lastROICount = rois.size();
-            
-            long renderTimeMs = (System.nanoTime() - startTime) / 1_000_000;
-            LOGGER.debug("Rendered {} ROIs to buffer in {}ms", renderedCount, renderTimeMs);
-            
-        } finally {
-            g2d.dispose();
-        }
+        // Update the index incrementally, only tiles need to be redrawn
+        spatialIndex.update(rois);
+        invalidateBuffer();
+        LOGGER.debug("Updated tiled overlay with {} ROIs", rois.size());
     }
     
     /**
-     * Copy from master buffer to target graphics with specified transform.
+     * Paint the visible overlay tiles to target graphics with specified transform.
      */
     public void copyFromBuffer(Graphics2D target, int imageWidth, int imageHeight, 
                               double scaleX, double scaleY, double offsetX, double offsetY) {
-        if (!bufferValid || masterBuffer == null) {
-            LOGGER.debug("Buffer not valid, cannot copy");
-            return;
-        }
-        
         try {
-            int srcX = BUFFER_MARGIN;
-            int srcY = BUFFER_MARGIN;
-            int srcWidth = Math.min(imageWidth, bufferWidth - 2 * BUFFER_MARGIN);
-            int srcHeight = Math.min(imageHeight, bufferHeight - 2 * BUFFER_MARGIN);
-            
-            if (srcWidth <= 0 || srcHeight <= 0) {
-                return;
-            }
-            
-            BufferedImage visiblePortion = masterBuffer.getSubimage(srcX, srcY, srcWidth, srcHeight);
-            
-            // Apply transform for proper coordinate synchronization
-            AffineTransform transform = new AffineTransform();
-            transform.translate(offsetX, offsetY);
-            transform.scale(scaleX, scaleY);
-            
-            target.drawImage(visiblePortion, transform, null);
-            
+            long startTime = System.nanoTime();
+            int painted = tileRenderer.paint(target, scaleX, scaleY, offsetX, offsetY);
+            LOGGER.trace("Painted {} overlay tiles in {}ms", painted,
+                        (System.nanoTime() - startTime) / 1_000_000);
         } catch (Exception e) {
-            LOGGER.warn("Failed to copy from buffer: {}", e.getMessage());
+            LOGGER.warn("Failed to paint overlay tiles: {}", e.getMessage());
         }
     }
     
@@ -255,28 +169,18 @@ public class ROIRenderingEngine {
         target.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
         target.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
         
-        for (UserROI roi : rois) {
-            if (colorProvider.shouldRenderROI(roi)) {
-                renderROIDirectly(target, roi, scaleX, scaleY, offsetX, offsetY);
-            }
-        }
+        AffineTransform transform = new AffineTransform();
+        transform.translate(offsetX, offsetY);
+        transform.scale(scaleX, scaleY);
+        
+        renderBatched(target, rois, transform);
     }
     
     /**
-     * Get or calculate shape for ROI (cached for performance).
+     * Get the shape of an ROI in image coordinates, built from the shared geometry cache.
      */
     public java.awt.Shape getROIShape(UserROI roi) {
-        String roiKey = roi.getId();
-        java.awt.Shape cachedShape = shapeCache.get(roiKey);
-        
-        if (cachedShape == null) {
-            cachedShape = calculateROIShape(roi);
-            if (cachedShape != null) {
-                shapeCache.put(roiKey, cachedShape);
-            }
-        }
-        
-        return cachedShape;
+        return ROIGeometryCache.getInstance().get(roi).toShape();
     }
     
     /**
@@ -306,240 +210,64 @@ public class ROIRenderingEngine {
     }
     
     /**
-     * Invalidate the buffer to force re-rendering.
+     * Invalidate the cached tiles to force re-rendering.
      */
     public void invalidateBuffer() {
-        bufferValid = false;
-        lastRenderTime = 0; // Reset cache timer
+        tileRenderer.invalidate();
     }
     
     /**
-     * Clear shape cache (call when ROIs are modified).
+     * Clear the shared geometry cache (call when ROI outlines are modified).
      */
     public void clearShapeCache() {
-        shapeCache.clear();
+        ROIGeometryCache.getInstance().clear();
     }
     
     // === PRIVATE METHODS ===
     
     /**
-     * Ultra-fast polygon rendering mode for dataset creation - optimized for speed.
+     * Tile painter using the current color provider and rendering mode.
      */
-    private int renderROIsFastMode(Graphics2D g2d, List<UserROI> rois) {
-        int renderedCount = 0;
+    private class EnginePainter implements ROITileRenderer.ROIPainter {
         
-        // Set single color and stroke for all ROIs to minimize state changes
-        g2d.setColor(Color.YELLOW);
-        g2d.setStroke(new BasicStroke(1.0f));
-        
-        // Pre-allocate arrays for polygon coordinates to avoid repeated allocations
-        int[] xPoints = new int[1000]; // Most ROIs won't exceed this
-        int[] yPoints = new int[1000];
+        @Override
+        public boolean isVisible(UserROI roi) {
+            return colorProvider.shouldRenderROI(roi);
+        }
         
-        // Render all ROIs as fast polygons
-        for (UserROI roi : rois) {
-            if (!colorProvider.shouldRenderROI(roi)) {
-                continue;
-            }
-            
-            try {
-                Roi imageJRoi = roi.getImageJRoi();
-                if (imageJRoi != null) {
-                    // Get polygon directly from ImageJ ROI (fastest method)
-                    Polygon polygon = imageJRoi.getPolygon();
-                    if (polygon != null && polygon.npoints > 2) {
-                        
-                        // Ensure arrays are large enough
-                        if (polygon.npoints > xPoints.length) {
-                            xPoints = new int[polygon.npoints + 100];
-                            yPoints = new int[polygon.npoints + 100];
-                        }
-                        
-                        // Copy and translate coordinates with proper offset handling
-                        int baseOffsetX = BUFFER_MARGIN;
-                        int baseOffsetY = BUFFER_MARGIN;
-                        
-                        // For ShapeRoi, DON'T add base coordinates as they're already in the polygon
-                        // The polygon coordinates from getPolygon() are already relative to the image
-                        
-                        for (int i = 0; i < polygon.npoints; i++) {
-                            xPoints[i] = polygon.xpoints[i] + baseOffsetX;
-                            yPoints[i] = polygon.ypoints[i] + baseOffsetY;
-                        }
-                        
-                        // Draw polygon outline (fast method)
-                        g2d.drawPolygon(xPoints, yPoints, polygon.npoints);
-                        renderedCount++;
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore errors in fast mode for maximum performance
-            }
+        @Override
+        public void paintROIs(Graphics2D g2d, List<UserROI> rois, AffineTransform imageToTile) {
+            renderBatched(g2d, rois, imageToTile);
         }
         
-        return renderedCount;
+        @Override
+        public Color getLODColor(UserROI roi) {
+            return fastModeEnabled ? Color.YELLOW
+                : colorProvider.getBorderColor(roi, determineROICategory(roi));
+        }
     }
     
     /**
-     * Fast batch rendering optimized for large numbers of ROIs.
+     * Render ROIs with one fill and one draw call per run of the same color. Fast mode draws all
+     * outlines as a single yellow path (like Fiji).
      */
-    private int renderROIsBatch(Graphics2D g2d, List<UserROI> rois) {
-        int renderedCount = 0;
-        
-        // Group ROIs by color to minimize graphics state changes
-        Map<Color, List<UserROI>> roisByColor = new HashMap<>();
-        
+    private void renderBatched(Graphics2D g2d, List<UserROI> rois, AffineTransform transform) {
+        ROIPathBatch batch = new ROIPathBatch(transform);
         for (UserROI roi : rois) {
             if (!colorProvider.shouldRenderROI(roi)) {
                 continue;
             }
-            
-            MainSettings.ROICategory category = determineROICategory(roi);
-            Color borderColor = colorProvider.getBorderColor(roi, category);
-            
-            roisByColor.computeIfAbsent(borderColor, k -> new ArrayList<>()).add(roi);
-        }
-        
-        // Render each color group in batch
-        for (Map.Entry<Color, List<UserROI>> entry : roisByColor.entrySet()) {
-            Color color = entry.getKey();
-            List<UserROI> roisWithColor = entry.getValue();
-            
-            // Set color once for the whole batch
-            g2d.setColor(color);
-            g2d.setStroke(new BasicStroke(2.0f)); // Use fixed stroke width for speed
-            
-            // Render all ROIs with this color
-            for (UserROI roi : roisWithColor) {
-                if (renderROIFast(g2d, roi)) {
-                    renderedCount++;
-                }
-            }
-        }
-        
-        return renderedCount;
-    }
-    
-    /**
-     * Fast ROI rendering using simplified geometry.
-     */
-    private boolean renderROIFast(Graphics2D g2d, UserROI roi) {
-        try {
-            // Use bounds rectangle for maximum speed (like Fiji)
-            Rectangle bounds = roi.getBounds();
-            if (bounds == null || bounds.width <= 0 || bounds.height <= 0) {
-                return false;
-            }
-            
-            // Calculate position with buffer margin only (bounds are already image-relative)
-            int x = bounds.x + BUFFER_MARGIN;
-            int y = bounds.y + BUFFER_MARGIN;
-            
-            // Draw simple rectangle outline (fastest approach)
-            g2d.drawRect(x, y, bounds.width, bounds.height);
-            
-            return true;
-        } catch (Exception e) {
-            LOGGER.warn("Failed to render ROI '{}': {}", roi.getName(), e.getMessage());
-            return false;
-        }
-    }
-    
-    private void renderROIToBuffer(Graphics2D g2d, UserROI roi) {
-        java.awt.Shape shape = getROIShape(roi);
-        if (shape == null) {
-            return;
-        }
-        
-        // Calculate position with buffer margin
-        double totalOffsetX = BUFFER_MARGIN;
-        double totalOffsetY = BUFFER_MARGIN;
-        
-        // Account for ShapeRoi base coordinates
-        Roi imageJRoi = roi.getImageJRoi();
-        if (imageJRoi instanceof ShapeRoi) {
-            ShapeRoi shapeRoi = (ShapeRoi) imageJRoi;
-            totalOffsetX += shapeRoi.getXBase();
-            totalOffsetY += shapeRoi.getYBase();
-        }
-        
-        // Transform shape with position offset only
-        AffineTransform transform = AffineTransform.getTranslateInstance(totalOffsetX, totalOffsetY);
-        java.awt.Shape transformedShape = transform.createTransformedShape(shape);
-        
-        // Get colors and render
-        MainSettings.ROICategory category = determineROICategory(roi);
-        renderShape(g2d, transformedShape, roi, category);
-    }
-    
-    private void renderROIDirectly(Graphics2D g2d, UserROI roi, 
-                                  double scaleX, double scaleY, double offsetX, double offsetY) {
-        java.awt.Shape shape = getROIShape(roi);
-        if (shape == null) {
-            return;
-        }
-        
-        // Apply full transform
-        AffineTransform transform = new AffineTransform();
-        transform.scale(scaleX, scaleY);
-        transform.translate(offsetX / scaleX, offsetY / scaleY);
-        
-        // Account for ShapeRoi base coordinates
-        Roi imageJRoi = roi.getImageJRoi();
-        if (imageJRoi instanceof ShapeRoi) {
-            ShapeRoi shapeRoi = (ShapeRoi) imageJRoi;
-            transform.translate(shapeRoi.getXBase(), shapeRoi.getYBase());
-        }
-        
-        java.awt.Shape transformedShape = transform.createTransformedShape(shape);
-        
-        // Get colors and render
-        MainSettings.ROICategory category = determineROICategory(roi);
-        renderShape(g2d, transformedShape, roi, category);
-    }
-    
-    private void renderShape(Graphics2D g2d, java.awt.Shape shape, UserROI roi, MainSettings.ROICategory category) {
-        // Get colors from provider
-        Color fillColor = colorProvider.getFillColor(roi, category);
-        Color borderColor = colorProvider.getBorderColor(roi, category);
-        float borderWidth = colorProvider.getBorderWidth(roi, category);
-        
-        // Fill shape
-        g2d.setColor(fillColor);
-        g2d.fill(shape);
-        
-        // Draw border
-        g2d.setStroke(new BasicStroke(borderWidth));
-        g2d.setColor(borderColor);
-        g2d.draw(shape);
-    }
-    
-    private java.awt.Shape calculateROIShape(UserROI roi) {
-        Roi imageJRoi = roi.getImageJRoi();
-        if (imageJRoi == null) {
-            // Fallback to bounds rectangle
-            Rectangle bounds = roi.getBounds();
-            return new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height);
-        }
-        
-        // Handle ShapeRoi (complex biological shapes)
-        if (imageJRoi instanceof ShapeRoi) {
-            ShapeRoi shapeRoi = (ShapeRoi) imageJRoi;
-            java.awt.Shape shape = shapeRoi.getShape();
-            if (shape != null) {
-                return shape;
+            if (fastModeEnabled) {
+                batch.add(roi, null, Color.YELLOW, 1.0f);
+            } else {
+                MainSettings.ROICategory category = determineROICategory(roi);
+                batch.add(roi,
+                    colorProvider.getFillColor(roi, category),
+                    colorProvider.getBorderColor(roi, category),
+                    colorProvider.getBorderWidth(roi, category));
             }
         }
-        
-        // Fallback to polygon for other complex shapes
-        Polygon polygon = imageJRoi.getPolygon();
-        if (polygon != null) {
-            return polygon;
-        }
-        
-        // Final fallback to bounding rectangle
-        Rectangle bounds = imageJRoi.getBounds();
-        return new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height);
+        batch.draw(g2d);
     }
     
     private MainSettings.ROICategory determineROICategory(UserROI roi) {
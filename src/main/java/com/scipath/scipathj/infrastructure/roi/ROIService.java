@@ -3,6 +3,7 @@ package com.scipath.scipathj.infrastructure.roi;
 import java.awt.Rectangle;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -21,6 +22,12 @@ public interface ROIService {
      */
     void addROI(UserROI roi);
     
+    /**
+     * Add several ROIs at once, skipping duplicates. Listeners receive a single
+     * {@link ROIChangeListener#onROIsAdded} event per image.
+     */
+    void addROIs(Collection<? extends UserROI> rois);
+    
     /**
      * Remove a ROI by ID.
      */
@@ -82,7 +89,8 @@ public interface ROIService {
     void saveROIsToFile(String imageFileName, File outputFile) throws IOException;
     
     /**
-     * Save all ROIs to a master ZIP file.
+     * Save all ROIs to a master ZIP file, or to a binary ROI container if the file has the
+     * {@code .sroi} extension.
      */
     void saveAllROIsToMasterZip(File outputFile) throws IOException;
     
@@ -106,6 +114,14 @@ public interface ROIService {
      */
     interface ROIChangeListener {
         void onROIAdded(UserROI roi);
+        
+        /**
+         * Called once for a batch added with {@link ROIService#addROIs}.
+         */
+        default void onROIsAdded(String imageFileName, List<UserROI> rois) {
+            rois.forEach(this::onROIAdded);
+        }
+        
         void onROIRemoved(UserROI roi);
         void onROIUpdated(UserROI roi);
         void onROIsCleared(String imageFileName);
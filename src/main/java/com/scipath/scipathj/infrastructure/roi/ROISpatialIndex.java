@@ -0,0 +1,212 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index over the bounding boxes of the ROIs of one image, used for hit-testing and viewport
+ * culling in the overlays.
+ *
+ * <p>The index is a uniform grid: every ROI is registered in each cell its bounding box overlaps.
+ * A point lookup only inspects the ROIs of a single cell and a region query only the cells it
+ * covers, so the cost depends on the local ROI density rather than the total ROI count. Unlike a
+ * packed R-tree the grid supports cheap incremental inserts and removals, which suits ROIs that
+ * arrive in batches while an image is displayed.
+ *
+ * <p>ROIs keep their insertion order, which is also their paint order: later ROIs are drawn on top
+ * and win hit-tests. All methods are thread-safe.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROISpatialIndex {
+
+  /** Default grid cell size in image pixels, a few nuclei across. */
+  public static final int DEFAULT_CELL_SIZE = 128;
+
+  private static final Comparator<Entry> PAINT_ORDER = Comparator.comparingLong(Entry::order);
+
+  private final int cellSize;
+  private final Map<Long, List<Entry>> cells = new HashMap<>();
+  private final Map<UserROI, Entry> entries = new IdentityHashMap<>();
+  private long nextOrder = 0;
+
+  private record Entry(UserROI roi, Rectangle bounds, long order) {}
+
+  public ROISpatialIndex() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * @param cellSize grid cell size in image pixels
+   */
+  public ROISpatialIndex(final int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+    }
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Adds a ROI on top of all indexed ROIs. Adding a ROI that is already indexed does nothing.
+   */
+  public synchronized void add(final UserROI roi) {
+    if (roi == null || entries.containsKey(roi)) {
+      return;
+    }
+    Entry entry = new Entry(roi, roi.getBounds(), nextOrder++);
+    entries.put(roi, entry);
+    forEachCell(
+        entry.bounds(), key -> cells.computeIfAbsent(key, k -> new ArrayList<>()).add(entry));
+  }
+
+  /**
+   * Adds several ROIs in order, the last one ends up on top.
+   */
+  public synchronized void addAll(final Collection<? extends UserROI> rois) {
+    rois.forEach(this::add);
+  }
+
+  /**
+   * Removes a ROI from the index.
+   *
+   * @return true if the ROI was indexed
+   */
+  public synchronized boolean remove(final UserROI roi) {
+    Entry entry = entries.remove(roi);
+    if (entry == null) {
+      return false;
+    }
+    forEachCell(
+        entry.bounds(),
+        key -> {
+          List<Entry> cell = cells.get(key);
+          if (cell != null) {
+            cell.remove(entry);
+            if (cell.isEmpty()) {
+              cells.remove(key);
+            }
+          }
+        });
+    return true;
+  }
+
+  /**
+   * Brings the index in line with a new ROI list without rebuilding it: ROIs that are no longer
+   * listed are removed and new ones are added on top, unchanged ROIs keep their cells.
+   */
+  public synchronized void update(final Collection<? extends UserROI> rois) {
+    Set<UserROI> wanted = Collections.newSetFromMap(new IdentityHashMap<>());
+    wanted.addAll(rois);
+    List<UserROI> stale = new ArrayList<>();
+    for (UserROI roi : entries.keySet()) {
+      if (!wanted.contains(roi)) {
+        stale.add(roi);
+      }
+    }
+    stale.forEach(this::remove);
+    rois.forEach(this::add);
+  }
+
+  public synchronized void clear() {
+    cells.clear();
+    entries.clear();
+    nextOrder = 0;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Finds the topmost ROI at a point.
+   *
+   * @param x image x coordinate
+   * @param y image y coordinate
+   * @param hit exact test applied to ROIs whose bounding box contains the point, e.g. the shape
+   *     test combined with the overlay's visibility filters
+   * @return the topmost ROI accepted by {@code hit}, or null
+   */
+  public synchronized UserROI findTopmost(
+      final double x, final double y, final Predicate<UserROI> hit) {
+    List<Entry> cell = cells.get(cellKey(cellIndex(x), cellIndex(y)));
+    if (cell == null) {
+      return null;
+    }
+    List<Entry> candidates = new ArrayList<>();
+    for (Entry entry : cell) {
+      if (entry.bounds().contains(x, y)) {
+        candidates.add(entry);
+      }
+    }
+    candidates.sort(PAINT_ORDER.reversed());
+    for (Entry entry : candidates) {
+      if (hit.test(entry.roi())) {
+        return entry.roi();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the ROIs whose bounding box intersects a region, in paint order. Used for viewport
+   * culling and rectangle selection.
+   *
+   * @param region the region in image coordinates
+   */
+  public synchronized List<UserROI> query(final Rectangle region) {
+    if (region == null || region.isEmpty()) {
+      return List.of();
+    }
+    List<Entry> hits = new ArrayList<>();
+    Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    forEachCell(
+        region,
+        key -> {
+          List<Entry> cell = cells.get(key);
+          if (cell != null) {
+            for (Entry entry : cell) {
+              if (entry.bounds().intersects(region) && seen.add(entry)) {
+                hits.add(entry);
+              }
+            }
+          }
+        });
+    hits.sort(PAINT_ORDER);
+    List<UserROI> result = new ArrayList<>(hits.size());
+    hits.forEach(entry -> result.add(entry.roi()));
+    return result;
+  }
+
+  private void forEachCell(final Rectangle bounds, final LongConsumer action) {
+    int minX = cellIndex(bounds.x);
+    int minY = cellIndex(bounds.y);
+    // Bounds are half-open; an empty box still occupies the cell of its origin
+    int maxX = cellIndex(bounds.x + Math.max(bounds.width, 1) - 1);
+    int maxY = cellIndex(bounds.y + Math.max(bounds.height, 1) - 1);
+    for (int cy = minY; cy <= maxY; cy++) {
+      for (int cx = minX; cx <= maxX; cx++) {
+        action.accept(cellKey(cx, cy));
+      }
+    }
+  }
+
+  private int cellIndex(final double coordinate) {
+    return (int) Math.floor(coordinate / cellSize);
+  }
+
+  private static long cellKey(final int cx, final int cy) {
+    return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+  }
+}
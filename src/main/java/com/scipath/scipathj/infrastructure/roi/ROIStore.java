@@ -0,0 +1,277 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe, indexed storage for ROIs, shared by {@code ROIManager} and
+ * {@link DefaultROIService}.
+ *
+ * <p>ROIs are indexed by id in a hash map and partitioned per image and, within an image, per
+ * {@link UserROI.ROIType}. Duplicate checks, lookups and removals by id are therefore O(1) instead
+ * of scanning every list, and {@link #addAll(Collection)} inserts a whole batch while taking each
+ * image's lock only once. Writers for different images never contend, so parallel image workers
+ * can add their results concurrently.
+ *
+ * <p>Removing ROIs also evicts their outlines from the {@link ROIGeometryCache}.
+ *
+ * <p>Readers get immutable snapshots. A partition builds its snapshot lazily on the first read
+ * after a change and hands out the same list until the next write, so repeated reads (e.g. on
+ * every repaint) do not copy.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROIStore {
+
+  private final Map<String, UserROI> roisById = new ConcurrentHashMap<>();
+  private final Map<String, ImagePartition> partitions = new ConcurrentHashMap<>();
+
+  /**
+   * The ROIs of one image, in insertion order and split by type. Guarded by its own monitor, which
+   * also covers indexing its ROIs by id, so a cleared image never leaves an indexed ROI behind.
+   */
+  private static final class ImagePartition {
+    private final LinkedHashMap<String, UserROI> rois = new LinkedHashMap<>();
+    private final Map<UserROI.ROIType, LinkedHashMap<String, UserROI>> roisByType =
+        new EnumMap<>(UserROI.ROIType.class);
+    private List<UserROI> snapshot = List.of();
+    private boolean snapshotValid = true;
+    // Set once the partition is removed from the store; writers then retry with a new one
+    private boolean detached;
+
+    synchronized void add(final UserROI roi) {
+      rois.put(roi.getId(), roi);
+      roisByType
+          .computeIfAbsent(roi.getType(), type -> new LinkedHashMap<>())
+          .put(roi.getId(), roi);
+      snapshotValid = false;
+    }
+
+    synchronized void remove(final UserROI roi) {
+      rois.remove(roi.getId());
+      Map<String, UserROI> ofType = roisByType.get(roi.getType());
+      if (ofType != null) {
+        ofType.remove(roi.getId());
+      }
+      snapshotValid = false;
+    }
+
+    synchronized List<UserROI> snapshot() {
+      if (!snapshotValid) {
+        snapshot = List.copyOf(rois.values());
+        snapshotValid = true;
+      }
+      return snapshot;
+    }
+
+    synchronized List<UserROI> snapshot(final UserROI.ROIType type) {
+      Map<String, UserROI> ofType = roisByType.get(type);
+      return ofType == null ? List.of() : List.copyOf(ofType.values());
+    }
+
+    synchronized int size() {
+      return rois.size();
+    }
+  }
+
+  /**
+   * Adds a ROI unless one with the same id is already stored.
+   *
+   * @param roi the ROI to add
+   * @return true if the ROI was added, false if it was a duplicate
+   */
+  public boolean add(final UserROI roi) {
+    while (true) {
+      ImagePartition partition = partition(roi.getImageFileName());
+      synchronized (partition) {
+        if (partition.detached) {
+          continue;
+        }
+        if (roisById.putIfAbsent(roi.getId(), roi) != null) {
+          return false;
+        }
+        partition.add(roi);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Adds several ROIs, skipping duplicates. Each image partition is locked once for the whole
+   * batch.
+   *
+   * @param rois the ROIs to add, possibly for several images
+   * @return the ROIs actually added, grouped by image file name in encounter order
+   */
+  public Map<String, List<UserROI>> addAll(final Collection<? extends UserROI> rois) {
+    Map<String, List<UserROI>> byImage = new LinkedHashMap<>();
+    for (UserROI roi : rois) {
+      if (roi != null) {
+        byImage.computeIfAbsent(roi.getImageFileName(), name -> new ArrayList<>()).add(roi);
+      }
+    }
+    Map<String, List<UserROI>> added = new LinkedHashMap<>();
+    byImage.forEach(
+        (imageFileName, imageRois) -> {
+          List<UserROI> imageAdded = addToImage(imageFileName, imageRois);
+          if (!imageAdded.isEmpty()) {
+            added.put(imageFileName, imageAdded);
+          }
+        });
+    return added;
+  }
+
+  private List<UserROI> addToImage(final String imageFileName, final List<UserROI> rois) {
+    while (true) {
+      ImagePartition partition = partition(imageFileName);
+      synchronized (partition) {
+        if (partition.detached) {
+          continue;
+        }
+        List<UserROI> added = new ArrayList<>(rois.size());
+        for (UserROI roi : rois) {
+          if (roisById.putIfAbsent(roi.getId(), roi) == null) {
+            partition.add(roi);
+            added.add(roi);
+          }
+        }
+        return added;
+      }
+    }
+  }
+
+  /**
+   * Removes a ROI by id.
+   *
+   * @param roiId the id of the ROI
+   * @return the removed ROI, or null if no ROI has that id
+   */
+  public UserROI remove(final String roiId) {
+    UserROI removed = roisById.remove(roiId);
+    if (removed != null) {
+      ROIGeometryCache.getInstance().evict(roiId);
+      ImagePartition partition = partitions.get(removed.getImageFileName());
+      if (partition != null) {
+        partition.remove(removed);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * @return the ROI with the given id, or null
+   */
+  public UserROI get(final String roiId) {
+    return roisById.get(roiId);
+  }
+
+  /**
+   * @return an immutable snapshot of the ROIs of an image, in insertion order
+   */
+  public List<UserROI> getForImage(final String imageFileName) {
+    ImagePartition partition = partitions.get(imageFileName);
+    return partition == null ? List.of() : partition.snapshot();
+  }
+
+  /**
+   * @return an immutable snapshot of the ROIs of one type for an image, in insertion order
+   */
+  public List<UserROI> getForImage(final String imageFileName, final UserROI.ROIType type) {
+    ImagePartition partition = partitions.get(imageFileName);
+    return partition == null ? List.of() : partition.snapshot(type);
+  }
+
+  /**
+   * @return an immutable snapshot of all ROIs, grouped by image
+   */
+  public List<UserROI> getAll() {
+    List<UserROI> all = new ArrayList<>(roisById.size());
+    partitions.values().forEach(partition -> all.addAll(partition.snapshot()));
+    return Collections.unmodifiableList(all);
+  }
+
+  /**
+   * @return immutable snapshots of every non-empty image's ROIs, keyed by image file name
+   */
+  public Map<String, List<UserROI>> getAllByImage() {
+    Map<String, List<UserROI>> result = new LinkedHashMap<>();
+    partitions.forEach(
+        (imageFileName, partition) -> {
+          List<UserROI> rois = partition.snapshot();
+          if (!rois.isEmpty()) {
+            result.put(imageFileName, rois);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * @return the names of all images that have stored ROIs
+   */
+  public Set<String> getImageFileNames() {
+    return Set.copyOf(getAllByImage().keySet());
+  }
+
+  /**
+   * Removes all ROIs of an image.
+   *
+   * @return the removed ROIs
+   */
+  public List<UserROI> clearImage(final String imageFileName) {
+    ImagePartition partition = partitions.remove(imageFileName);
+    if (partition == null) {
+      return List.of();
+    }
+    List<UserROI> removed;
+    synchronized (partition) {
+      partition.detached = true;
+      removed = partition.snapshot();
+      removed.forEach(roi -> roisById.remove(roi.getId(), roi));
+    }
+    ROIGeometryCache geometryCache = ROIGeometryCache.getInstance();
+    removed.forEach(roi -> geometryCache.evict(roi.getId()));
+    return removed;
+  }
+
+  /**
+   * Removes all ROIs.
+   *
+   * @return the names of the images that had ROIs
+   */
+  public Set<String> clear() {
+    Set<String> imageFileNames = new HashSet<>();
+    for (String imageFileName : Set.copyOf(partitions.keySet())) {
+      if (!clearImage(imageFileName).isEmpty()) {
+        imageFileNames.add(imageFileName);
+      }
+    }
+    return imageFileNames;
+  }
+
+  public int size(final String imageFileName) {
+    ImagePartition partition = partitions.get(imageFileName);
+    return partition == null ? 0 : partition.size();
+  }
+
+  public int size() {
+    return roisById.size();
+  }
+
+  public boolean isEmpty() {
+    return roisById.isEmpty();
+  }
+
+  private ImagePartition partition(final String imageFileName) {
+    return partitions.computeIfAbsent(imageFileName, name -> new ImagePartition());
+  }
+}
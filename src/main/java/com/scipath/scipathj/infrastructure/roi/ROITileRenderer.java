@@ -0,0 +1,503 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tiled, level-of-detail ROI overlay renderer.
+ *
+ * <p>Instead of rasterising every ROI into one image-sized buffer, the overlay is split into
+ * screen-sized tiles at power-of-two zoom levels. Only tiles intersecting the visible area are
+ * rendered, each from the ROIs the {@link ROISpatialIndex} returns for its region, and rendered
+ * tiles are kept in a small LRU cache. Memory is therefore bounded by the cache size, not by the
+ * slide size, and panning only renders the tiles that scroll into view.
+ *
+ * <p>When zoomed far out, outlines would be a few pixels across and cost as much to draw as at full
+ * detail. Below {@link #DOT_LOD_SCALE} ROIs are drawn as class-coloured centroid dots and below
+ * {@link #HEATMAP_LOD_SCALE} as a density heatmap, so the cost of a tile depends on its pixel count
+ * rather than on the number of ROIs it covers.
+ *
+ * <p>With {@link #setBackgroundRendering(Runnable)} missing tiles are rasterised on a background
+ * thread instead of during the paint. Until every visible tile of the current state is ready, the
+ * previous frame's tiles keep being painted, so a filter or settings change swaps in as a whole
+ * instead of tile by tile. Requests are coalesced: each paint replaces the queue with the tiles it
+ * still misses, and invalidating drops all queued work, so only the latest state is rendered.
+ *
+ * <p>Apart from the painter callbacks, which may run on the background thread, all methods must
+ * be called from the thread that paints the overlay.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROITileRenderer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ROITileRenderer.class);
+
+  /** Tile edge length in screen pixels. */
+  public static final int TILE_SIZE = 256;
+
+  /** Below this scale (screen pixels per image pixel) ROIs are drawn as centroid dots. */
+  public static final double DOT_LOD_SCALE = 0.25;
+
+  /** Below this scale ROIs are aggregated into a density heatmap. */
+  public static final double HEATMAP_LOD_SCALE = 1.0 / 16;
+
+  /** Default tile budget, 64 MB of ARGB tiles: about four full-HD screens. */
+  private static final int DEFAULT_MAX_TILES = 256;
+
+  /** Extra screen pixels around a tile so outlines crossing its edge are drawn on both sides. */
+  private static final int TILE_MARGIN = 4;
+
+  private static final int DOT_SIZE = 3;
+  private static final int HEATMAP_CELL = 8;
+  private static final int HEATMAP_SATURATION = 8;
+  private static final int MIN_LEVEL = -8;
+  private static final int MAX_LEVEL = 4;
+
+  private static final ExecutorService BACKGROUND_RENDERER =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "SciPathJ-OverlayRenderer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+          });
+
+  /** Cache marker for tiles without any visible ROI. */
+  private static final BufferedImage EMPTY_TILE =
+      new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+
+  /**
+   * Draws ROIs for the renderer. Implementations decide visibility and appearance. With
+   * background rendering enabled the methods are called from the renderer thread.
+   */
+  public interface ROIPainter {
+
+    /**
+     * @return whether the ROI passes the current filters
+     */
+    boolean isVisible(UserROI roi);
+
+    /**
+     * Draws the ROIs of a tile at full detail. Implementations should batch ROIs of the same
+     * appearance, e.g. into one path per colour using {@link ROIGeometryCache}.
+     *
+     * @param g the tile graphics, in tile pixel coordinates
+     * @param rois the visible ROIs intersecting the tile, in paint order
+     * @param imageToTile transform from image to tile pixel coordinates
+     */
+    void paintROIs(Graphics2D g, List<UserROI> rois, AffineTransform imageToTile);
+
+    /**
+     * @return the colour of the ROI in the dot and heatmap levels of detail
+     */
+    Color getLODColor(UserROI roi);
+  }
+
+  private record TileKey(int level, int tileX, int tileY) {}
+
+  private final ROISpatialIndex index;
+  private final ROIPainter painter;
+  private final int maxTiles;
+  private final Map<TileKey, BufferedImage> tiles;
+  private final Map<TileKey, BufferedImage> staleTiles = new HashMap<>();
+  private int imageWidth = 0;
+  private int imageHeight = 0;
+  private Runnable repaintCallback;
+  private volatile int generation = 0;
+
+  // Tiles waiting for the background renderer, guarded by requestLock
+  private final Object requestLock = new Object();
+  private final Set<TileKey> requestedTiles = new LinkedHashSet<>();
+  private int requestGeneration = 0;
+  private TileKey renderingTile;
+  private int renderingGeneration;
+  private boolean drainScheduled = false;
+
+  /**
+   * @param index the ROIs to render
+   * @param painter draws the ROIs
+   */
+  public ROITileRenderer(final ROISpatialIndex index, final ROIPainter painter) {
+    this(index, painter, DEFAULT_MAX_TILES);
+  }
+
+  /**
+   * @param index the ROIs to render
+   * @param painter draws the ROIs
+   * @param maxTiles maximum number of cached tiles
+   */
+  public ROITileRenderer(
+      final ROISpatialIndex index, final ROIPainter painter, final int maxTiles) {
+    this.index = index;
+    this.painter = painter;
+    this.maxTiles = maxTiles;
+    this.tiles =
+        new LinkedHashMap<>(64, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(final Map.Entry<TileKey, BufferedImage> eldest) {
+            return size() > maxTiles;
+          }
+        };
+  }
+
+  /**
+   * Sets the image size, which limits the tiles that are rendered. Zero means unbounded.
+   */
+  public void setImageSize(final int width, final int height) {
+    if (width != imageWidth || height != imageHeight) {
+      imageWidth = width;
+      imageHeight = height;
+      invalidate();
+    }
+  }
+
+  /**
+   * Renders missing tiles on a background thread instead of during the paint.
+   *
+   * @param repaintCallback called on the event dispatch thread when a tile is ready, typically
+   *     the overlay's {@code repaint}
+   */
+  public void setBackgroundRendering(final Runnable repaintCallback) {
+    this.repaintCallback = repaintCallback;
+  }
+
+  /**
+   * Marks all cached tiles as outdated, e.g. after the ROIs, filters or appearance settings
+   * changed. With background rendering the outdated tiles are still painted until the new frame
+   * is complete.
+   */
+  public void invalidate() {
+    generation++;
+    if (repaintCallback != null && !tiles.isEmpty()) {
+      // The previous frame is the newest tile of each position, bounded like the cache itself
+      if (staleTiles.size() + tiles.size() > maxTiles) {
+        staleTiles.clear();
+      }
+      staleTiles.putAll(tiles);
+    }
+    tiles.clear();
+    synchronized (requestLock) {
+      requestedTiles.clear();
+    }
+  }
+
+  /**
+   * Drops all tiles including the previous frame, e.g. when a different image is shown.
+   */
+  public void clear() {
+    invalidate();
+    staleTiles.clear();
+  }
+
+  /**
+   * @return the number of cached tiles
+   */
+  public int getCachedTileCount() {
+    return tiles.size();
+  }
+
+  /**
+   * Paints the visible part of the overlay.
+   *
+   * @param g the target graphics in screen coordinates; its clip selects the tiles to paint
+   * @param scaleX horizontal screen pixels per image pixel
+   * @param scaleY vertical screen pixels per image pixel
+   * @param offsetX screen x of the image origin
+   * @param offsetY screen y of the image origin
+   * @return the number of tiles painted
+   */
+  public int paint(
+      final Graphics2D g,
+      final double scaleX,
+      final double scaleY,
+      final double offsetX,
+      final double offsetY) {
+    if (index.size() == 0 || scaleX <= 0 || scaleY <= 0) {
+      return 0;
+    }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      return 0;
+    }
+
+    int level = levelFor(Math.min(scaleX, scaleY));
+    double levelScale = Math.scalb(1.0, level);
+    double imagePerTile = TILE_SIZE / levelScale;
+
+    // Visible image region, limited to the image
+    double minX = (clip.x - offsetX) / scaleX;
+    double minY = (clip.y - offsetY) / scaleY;
+    double maxX = (clip.x + clip.width - offsetX) / scaleX;
+    double maxY = (clip.y + clip.height - offsetY) / scaleY;
+    if (imageWidth > 0 && imageHeight > 0) {
+      minX = Math.max(minX, 0);
+      minY = Math.max(minY, 0);
+      maxX = Math.min(maxX, imageWidth);
+      maxY = Math.min(maxY, imageHeight);
+    }
+    if (maxX <= minX || maxY <= minY) {
+      return 0;
+    }
+
+    int firstTileX = (int) Math.floor(minX / imagePerTile);
+    int firstTileY = (int) Math.floor(minY / imagePerTile);
+    int lastTileX = (int) Math.ceil(maxX / imagePerTile) - 1;
+    int lastTileY = (int) Math.ceil(maxY / imagePerTile) - 1;
+
+    Object interpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+    g.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    List<TileKey> missing = new ArrayList<>();
+    for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+      for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+        TileKey key = new TileKey(level, tileX, tileY);
+        if (!tiles.containsKey(key)) {
+          if (repaintCallback == null) {
+            tiles.put(key, renderTile(key, levelScale));
+          } else {
+            missing.add(key);
+          }
+        }
+      }
+    }
+
+    // Keep showing the previous frame until the new one is complete, then swap
+    boolean showStale = !missing.isEmpty() && !staleTiles.isEmpty();
+    if (missing.isEmpty()) {
+      staleTiles.clear();
+    } else {
+      requestTiles(missing);
+    }
+
+    int painted = 0;
+    try {
+      for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+        for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+          TileKey key = new TileKey(level, tileX, tileY);
+          BufferedImage tile = showStale ? staleTiles.get(key) : null;
+          if (tile == null) {
+            tile = tiles.get(key);
+          }
+          if (tile == null || tile == EMPTY_TILE) {
+            continue;
+          }
+          // Snap both edges to whole pixels so neighbouring tiles neither overlap nor leave gaps
+          int x0 = (int) Math.floor(offsetX + tileX * imagePerTile * scaleX);
+          int y0 = (int) Math.floor(offsetY + tileY * imagePerTile * scaleY);
+          int x1 = (int) Math.floor(offsetX + (tileX + 1) * imagePerTile * scaleX);
+          int y1 = (int) Math.floor(offsetY + (tileY + 1) * imagePerTile * scaleY);
+          g.drawImage(tile, x0, y0, x1 - x0, y1 - y0, null);
+          painted++;
+        }
+      }
+    } finally {
+      if (interpolation != null) {
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+      }
+    }
+    return painted;
+  }
+
+  /**
+   * Power-of-two level closest to the display scale, so tiles are drawn at 0.7x to 1.4x.
+   */
+  private static int levelFor(final double scale) {
+    int level = (int) Math.round(Math.log(scale) / Math.log(2));
+    return Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level));
+  }
+
+  // ===== BACKGROUND RENDERING =====
+
+  /**
+   * Replaces the queued requests with the tiles the latest paint is missing.
+   */
+  private void requestTiles(final List<TileKey> keys) {
+    synchronized (requestLock) {
+      requestedTiles.clear();
+      for (TileKey key : keys) {
+        // A tile in flight for an older state is discarded when it finishes, so render it again
+        if (!key.equals(renderingTile) || renderingGeneration != generation) {
+          requestedTiles.add(key);
+        }
+      }
+      requestGeneration = generation;
+      if (!drainScheduled && !requestedTiles.isEmpty()) {
+        drainScheduled = true;
+        BACKGROUND_RENDERER.execute(this::drainRequests);
+      }
+    }
+  }
+
+  private void drainRequests() {
+    while (true) {
+      TileKey key;
+      int tileGeneration;
+      synchronized (requestLock) {
+        renderingTile = null;
+        Iterator<TileKey> next = requestedTiles.iterator();
+        if (!next.hasNext()) {
+          drainScheduled = false;
+          return;
+        }
+        key = next.next();
+        next.remove();
+        renderingTile = key;
+        tileGeneration = requestGeneration;
+        renderingGeneration = tileGeneration;
+      }
+
+      BufferedImage tile;
+      try {
+        tile = renderTile(key, Math.scalb(1.0, key.level()));
+      } catch (RuntimeException e) {
+        LOGGER.debug("Failed to render overlay tile {}: {}", key, e.getMessage());
+        tile = EMPTY_TILE;
+      }
+      final BufferedImage rendered = tile;
+      SwingUtilities.invokeLater(() -> installTile(key, rendered, tileGeneration));
+    }
+  }
+
+  private void installTile(final TileKey key, final BufferedImage tile, final int tileGeneration) {
+    if (tileGeneration != generation) {
+      return; // rendered for an outdated state
+    }
+    tiles.put(key, tile);
+    if (repaintCallback != null) {
+      repaintCallback.run();
+    }
+  }
+
+  private BufferedImage renderTile(final TileKey key, final double levelScale) {
+    long start = System.nanoTime();
+    double imagePerTile = TILE_SIZE / levelScale;
+    double margin = TILE_MARGIN / levelScale;
+    Rectangle region =
+        new Rectangle(
+            (int) Math.floor(key.tileX() * imagePerTile - margin),
+            (int) Math.floor(key.tileY() * imagePerTile - margin),
+            (int) Math.ceil(imagePerTile + 2 * margin),
+            (int) Math.ceil(imagePerTile + 2 * margin));
+    List<UserROI> rois = new ArrayList<>();
+    for (UserROI roi : index.query(region)) {
+      if (painter.isVisible(roi)) {
+        rois.add(roi);
+      }
+    }
+    if (rois.isEmpty()) {
+      return EMPTY_TILE;
+    }
+
+    BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = tile.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+      g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+      AffineTransform imageToTile =
+          new AffineTransform(
+              levelScale,
+              0,
+              0,
+              levelScale,
+              -key.tileX() * (double) TILE_SIZE,
+              -key.tileY() * (double) TILE_SIZE);
+
+      if (levelScale < HEATMAP_LOD_SCALE) {
+        paintHeatmap(g, rois, imageToTile);
+      } else if (levelScale < DOT_LOD_SCALE) {
+        paintDots(g, rois, imageToTile);
+      } else {
+        painter.paintROIs(g, rois, imageToTile);
+      }
+    } finally {
+      g.dispose();
+    }
+
+    LOGGER.trace(
+        "Rendered overlay tile {} with {} ROIs in {} ms",
+        key,
+        rois.size(),
+        (System.nanoTime() - start) / 1_000_000);
+    return tile;
+  }
+
+  private void paintDots(
+      final Graphics2D g, final List<UserROI> rois, final AffineTransform imageToTile) {
+    double[] point = new double[2];
+    for (UserROI roi : rois) {
+      point[0] = roi.getCenterX();
+      point[1] = roi.getCenterY();
+      imageToTile.transform(point, 0, point, 0, 1);
+      g.setColor(painter.getLODColor(roi));
+      g.fillRect(
+          (int) point[0] - DOT_SIZE / 2, (int) point[1] - DOT_SIZE / 2, DOT_SIZE, DOT_SIZE);
+    }
+  }
+
+  /**
+   * Bins ROI centroids into cells and colours each cell by the mean ROI colour, with an opacity
+   * that grows with the ROI count.
+   */
+  private void paintHeatmap(
+      final Graphics2D g, final List<UserROI> rois, final AffineTransform imageToTile) {
+    int cells = TILE_SIZE / HEATMAP_CELL;
+    int[] counts = new int[cells * cells];
+    long[] red = new long[counts.length];
+    long[] green = new long[counts.length];
+    long[] blue = new long[counts.length];
+    double[] point = new double[2];
+    for (UserROI roi : rois) {
+      point[0] = roi.getCenterX();
+      point[1] = roi.getCenterY();
+      imageToTile.transform(point, 0, point, 0, 1);
+      int cellX = (int) Math.floor(point[0] / HEATMAP_CELL);
+      int cellY = (int) Math.floor(point[1] / HEATMAP_CELL);
+      if (cellX < 0 || cellY < 0 || cellX >= cells || cellY >= cells) {
+        continue; // in the margin, drawn by the neighbouring tile
+      }
+      int cell = cellY * cells + cellX;
+      Color color = painter.getLODColor(roi);
+      counts[cell]++;
+      red[cell] += color.getRed();
+      green[cell] += color.getGreen();
+      blue[cell] += color.getBlue();
+    }
+
+    g.setComposite(AlphaComposite.Src);
+    for (int cell = 0; cell < counts.length; cell++) {
+      int count = counts[cell];
+      if (count == 0) {
+        continue;
+      }
+      int alpha = 64 + Math.min(count, HEATMAP_SATURATION) * (191 / HEATMAP_SATURATION);
+      g.setColor(
+          new Color(
+              (int) (red[cell] / count),
+              (int) (green[cell] / count),
+              (int) (blue[cell] / count),
+              alpha));
+      g.fillRect(
+          (cell % cells) * HEATMAP_CELL, (cell / cells) * HEATMAP_CELL, HEATMAP_CELL, HEATMAP_CELL);
+    }
+  }
+}
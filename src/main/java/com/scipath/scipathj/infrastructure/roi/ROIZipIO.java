@@ -0,0 +1,276 @@
+package com.scipath.scipathj.infrastructure.roi;
+
+import ij.gui.Roi;
+import ij.io.RoiDecoder;
+import ij.io.RoiEncoder;
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads and writes ImageJ ROI sets and SciPathJ master archives entirely in memory.
+ *
+ * <p>A ROI set is a ZIP of {@code .roi} entries, the format of ImageJ's ROI Manager. A master
+ * archive is a ZIP holding one ROI set per image, named {@code <image>_ROIs.zip}. ROIs are
+ * encoded to and decoded from byte arrays with {@link RoiEncoder} and {@link RoiDecoder}, and
+ * nested ROI sets are built in memory, so neither saving nor loading touches temporary files or
+ * directories.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ROIZipIO {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ROIZipIO.class);
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // Offsets in the ImageJ .roi header, see ij.io.RoiDecoder
+  private static final int ROI_HEADER_SIZE = 64;
+  private static final int TOP_OFFSET = 8;
+  private static final int LEFT_OFFSET = 10;
+  private static final int BOTTOM_OFFSET = 12;
+  private static final int RIGHT_OFFSET = 14;
+
+  /** Suffix of the per-image ROI sets inside a master archive. */
+  public static final String IMAGE_ENTRY_SUFFIX = "_ROIs.zip";
+
+  private ROIZipIO() {}
+
+  /**
+   * Writes a master archive with one nested ROI set per image.
+   *
+   * <p>Nested sets are stored uncompressed: their entries are already deflated, and stored entries
+   * can be read by {@link ROIArchive} with a single positioned read instead of being inflated.
+   *
+   * @param outputFile the archive to create
+   * @param roisByImage the ROIs to save, keyed by image file name
+   * @param converter converts a ROI to the ImageJ ROI to encode
+   */
+  public static void writeMasterZip(
+      final File outputFile,
+      final Map<String, List<UserROI>> roisByImage,
+      final Function<UserROI, Roi> converter)
+      throws IOException {
+    try (ZipOutputStream master = openZip(outputFile)) {
+      Set<String> entryNames = new HashSet<>();
+      for (Map.Entry<String, List<UserROI>> entry : roisByImage.entrySet()) {
+        if (entry.getValue().isEmpty()) {
+          continue;
+        }
+        String entryName = imageEntryName(entry.getKey());
+        if (!entryNames.add(entryName)) {
+          LOGGER.warn(
+              "Skipping ROIs of '{}': another image is already saved as '{}'",
+              entry.getKey(),
+              entryName);
+          continue;
+        }
+        byte[] roiSet = encodeROISet(entry.getValue(), converter);
+        CRC32 crc = new CRC32();
+        crc.update(roiSet);
+        ZipEntry zipEntry = new ZipEntry(entryName);
+        zipEntry.setMethod(ZipEntry.STORED);
+        zipEntry.setSize(roiSet.length);
+        zipEntry.setCompressedSize(roiSet.length);
+        zipEntry.setCrc(crc.getValue());
+        master.putNextEntry(zipEntry);
+        master.write(roiSet);
+        master.closeEntry();
+      }
+    }
+  }
+
+  /**
+   * Encodes the ROIs of one image as an in-memory ImageJ ROI set.
+   *
+   * @param rois the ROIs in save order
+   * @param converter converts a ROI to the ImageJ ROI to encode
+   * @return the ZIP content
+   */
+  public static byte[] encodeROISet(
+      final List<UserROI> rois, final Function<UserROI, Roi> converter) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(out)) {
+      writeEntries(zip, rois, converter);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Writes the ROIs of one image as an ImageJ ROI set.
+   *
+   * @param outputFile the ZIP file to create
+   * @param rois the ROIs in save order
+   * @param converter converts a ROI to the ImageJ ROI to encode
+   */
+  public static void writeROISet(
+      final File outputFile, final List<UserROI> rois, final Function<UserROI, Roi> converter)
+      throws IOException {
+    try (ZipOutputStream zip = openZip(outputFile)) {
+      writeEntries(zip, rois, converter);
+    }
+  }
+
+  /**
+   * Decodes every {@code .roi} entry of a ROI set stream. Entries that fail to decode are logged
+   * and skipped.
+   *
+   * @param in the ROI set; it is not closed
+   * @param consumer receives each decoded ROI together with its entry name
+   */
+  public static void readROISet(final InputStream in, final RoiConsumer consumer)
+      throws IOException {
+    readEntries(
+        in,
+        (entryName, data) -> {
+          Roi roi = decode(data, entryName);
+          return roi == null || consumer.accept(entryName, roi);
+        });
+  }
+
+  /**
+   * Reads the raw content of every {@code .roi} entry of a ROI set stream without decoding it,
+   * e.g. to decode on other threads.
+   *
+   * @param in the ROI set; it is not closed
+   * @param consumer receives each entry name with its {@code .roi} bytes
+   */
+  public static void readEntries(final InputStream in, final EntryConsumer consumer)
+      throws IOException {
+    try (ZipInputStream zip = new ZipInputStream(nonClosing(in))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (!entry.isDirectory()
+            && entry.getName().endsWith(".roi")
+            && !consumer.accept(entry.getName(), zip.readAllBytes())) {
+          return;
+        }
+        zip.closeEntry();
+      }
+    }
+  }
+
+  /**
+   * Decodes one ROI from its {@code .roi} file content.
+   *
+   * @return the ROI, or null if the data is not a valid ROI
+   */
+  public static Roi decode(final byte[] data, final String entryName) {
+    try {
+      return new RoiDecoder(data, entryName).getRoi();
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("Failed to decode ROI '{}': {}", entryName, e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Reads only the bounding box from the header of a {@code .roi} file, which is far cheaper than
+   * a full {@link #decode(byte[], String)}. Used to show placeholders while ROIs are decoded.
+   *
+   * @return the integer bounds, or null if the data is not a ROI
+   */
+  public static Rectangle decodeBounds(final byte[] data) {
+    if (data == null || data.length < ROI_HEADER_SIZE || !hasRoiMagic(data)) {
+      return null;
+    }
+    int top = readShort(data, TOP_OFFSET);
+    int left = readShort(data, LEFT_OFFSET);
+    int bottom = readShort(data, BOTTOM_OFFSET);
+    int right = readShort(data, RIGHT_OFFSET);
+    // Coordinates are 16-bit; wrap the far edges of ROIs beyond 32767 pixels
+    int width = right >= left ? right - left : right - left + 65536;
+    int height = bottom >= top ? bottom - top : bottom - top + 65536;
+    return new Rectangle(left, top, width, height);
+  }
+
+  /**
+   * @return the name of an image's nested ROI set inside a master archive
+   */
+  public static String imageEntryName(final String imageFileName) {
+    String baseName = imageFileName;
+    int lastDot = baseName.lastIndexOf('.');
+    if (lastDot > 0) {
+      baseName = baseName.substring(0, lastDot);
+    }
+    return baseName.replaceAll("[^a-zA-Z0-9._-]", "_") + IMAGE_ENTRY_SUFFIX;
+  }
+
+  /**
+   * Receives decoded ROIs.
+   */
+  @FunctionalInterface
+  public interface RoiConsumer {
+    /**
+     * @return false to stop reading
+     */
+    boolean accept(String entryName, Roi roi);
+  }
+
+  /**
+   * Receives raw {@code .roi} entries.
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    /**
+     * @return false to stop reading
+     */
+    boolean accept(String entryName, byte[] data);
+  }
+
+  private static void writeEntries(
+      final ZipOutputStream zip, final List<UserROI> rois, final Function<UserROI, Roi> converter)
+      throws IOException {
+    for (int i = 0; i < rois.size(); i++) {
+      UserROI userROI = rois.get(i);
+      byte[] data = RoiEncoder.saveAsByteArray(converter.apply(userROI));
+      if (data == null) {
+        LOGGER.warn("Failed to encode ROI '{}', skipping", userROI.getName());
+        continue;
+      }
+      zip.putNextEntry(new ZipEntry(String.format("%04d-%s.roi", i + 1, userROI.getName())));
+      zip.write(data);
+      zip.closeEntry();
+    }
+  }
+
+  private static boolean hasRoiMagic(final byte[] data) {
+    return data[0] == 'I' && data[1] == 'o' && data[2] == 'u' && data[3] == 't';
+  }
+
+  private static int readShort(final byte[] data, final int offset) {
+    return (short) (((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF));
+  }
+
+  private static ZipOutputStream openZip(final File outputFile) throws IOException {
+    return new ZipOutputStream(
+        new BufferedOutputStream(new FileOutputStream(outputFile), BUFFER_SIZE));
+  }
+
+  private static InputStream nonClosing(final InputStream in) {
+    return new FilterInputStream(in) {
+      @Override
+      public void close() {
+        // The caller owns the underlying stream
+      }
+    };
+  }
+}
@@ -0,0 +1,359 @@
+package com.scipath.scipathj.infrastructure.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free ring buffer of log entries drained by a single writer thread.
+ *
+ * <p>Producers claim a slot with one compare-and-set and return immediately; timestamps, layout
+ * and file I/O all happen on the writer thread. Each log file is kept open as a {@link
+ * FileChannel} and the entries drained in one pass are written with one call per file. Files are
+ * rotated by size into {@code name.1} ... {@code name.N}. When the ring is full, entries are
+ * dropped and counted rather than blocking the caller; only control records, which must not be
+ * lost, wait for space.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class AsyncLogWriter {
+
+  private static final DateTimeFormatter TIMESTAMP_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+  private static final int MAX_BATCH = 1024;
+
+  /** One log entry, formatted by the writer thread. */
+  record Entry(
+      String fileName,
+      long timeMillis,
+      String threadName,
+      String level,
+      String logger,
+      String message,
+      Throwable throwable) {}
+
+  private static final class LogFile {
+    private FileChannel channel;
+    private long size;
+    private final StringBuilder pending = new StringBuilder();
+  }
+
+  private final AtomicReferenceArray<Entry> ring;
+  private final int mask;
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final ZoneId zone = ZoneId.systemDefault();
+  private final Map<String, LogFile> files = new HashMap<>();
+  private final Thread writer;
+
+  // Writer thread only
+  private long cachedSecond = Long.MIN_VALUE;
+  private String cachedSecondText;
+
+  private volatile long consumed = 0;
+  private volatile long written = 0;
+  private volatile boolean idle = false;
+  private volatile File directory;
+  private volatile long maxFileBytes;
+  private volatile int maxBackups;
+
+  /**
+   * @param capacity the ring size, rounded up to a power of two
+   * @param directory the directory log files are written to
+   * @param maxFileBytes the size at which a log file is rotated, at least 1
+   * @param maxBackups the number of rotated files kept per log
+   */
+  AsyncLogWriter(
+      final int capacity, final File directory, final long maxFileBytes, final int maxBackups) {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    this.ring = new AtomicReferenceArray<>(size);
+    this.mask = size - 1;
+    this.directory = directory;
+    this.maxFileBytes = Math.max(1, maxFileBytes);
+    this.maxBackups = maxBackups;
+    this.writer = new Thread(this::drainLoop, "SciPathJ-DirectLog");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queues an entry without blocking.
+   *
+   * @return false if the ring was full and the entry was dropped
+   */
+  boolean offer(final Entry entry) {
+    if (!tryPublish(entry)) {
+      dropped.incrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Queues an entry, waiting for the writer to free a slot if the ring is full. Used for control
+   * records, which must not be dropped.
+   */
+  private void put(final Entry entry) {
+    while (!tryPublish(entry)) {
+      if (Thread.currentThread() == writer) {
+        // The writer cannot wait for itself; its own control records run in place
+        append(entry);
+        return;
+      }
+      LockSupport.unpark(writer);
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+    }
+  }
+
+  private boolean tryPublish(final Entry entry) {
+    long index;
+    do {
+      index = claimed.get();
+      if (index - consumed >= ring.length()) {
+        return false;
+      }
+    } while (!claimed.compareAndSet(index, index + 1));
+    ring.set((int) (index & mask), entry);
+    if (idle) {
+      LockSupport.unpark(writer);
+    }
+    return true;
+  }
+
+  /**
+   * Waits until every entry queued before the call has been written.
+   *
+   * @return false if the timeout elapsed first
+   */
+  boolean flush(final long timeoutMillis) {
+    long target = claimed.get();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    LockSupport.unpark(writer);
+    while (written < target) {
+      if (System.nanoTime() > deadline || Thread.currentThread() == writer) {
+        return false;
+      }
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+    }
+    return true;
+  }
+
+  void setDirectory(final File directory) {
+    this.directory = directory;
+    // Open channels still point at the old directory; the writer reopens lazily
+    put(new Entry(null, 0, null, null, null, null, null));
+  }
+
+  File getDirectory() {
+    return directory;
+  }
+
+  void setRotation(final long maxFileBytes, final int maxBackups) {
+    this.maxFileBytes = Math.max(1, maxFileBytes);
+    this.maxBackups = maxBackups;
+  }
+
+  /**
+   * @return the number of entries dropped because the ring was full
+   */
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  private void drainLoop() {
+    long reportedDrops = 0;
+    while (true) {
+      int drained = 0;
+      long index = consumed;
+      while (drained < MAX_BATCH && index < claimed.get()) {
+        int slot = (int) (index & mask);
+        Entry entry = ring.get(slot);
+        if (entry == null) {
+          // Slot claimed but not yet published
+          Thread.onSpinWait();
+          continue;
+        }
+        ring.set(slot, null);
+        consumed = ++index;
+        try {
+          append(entry);
+        } catch (Throwable e) {
+          // A failing entry, e.g. a throwable whose toString() throws, must not stop the writer
+          System.err.println("Failed to format log entry: " + e);
+        }
+        drained++;
+      }
+      long drops = dropped.get();
+      if (drops != reportedDrops) {
+        appendDropNotice(drops - reportedDrops);
+        reportedDrops = drops;
+      }
+      writePending();
+      written = index;
+      if (drained == 0) {
+        idle = true;
+        if (claimed.get() == consumed) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        idle = false;
+      }
+    }
+  }
+
+  private void append(final Entry entry) {
+    if (entry.fileName() == null) {
+      closeAll();
+      return;
+    }
+    LogFile file = files.computeIfAbsent(entry.fileName(), name -> new LogFile());
+    StringBuilder line = file.pending;
+    appendTimestamp(line, entry.timeMillis());
+    line.append(" [").append(entry.threadName()).append("] ");
+    line.append(entry.level());
+    for (int i = entry.level().length(); i < 5; i++) {
+      line.append(' ');
+    }
+    line.append(' ').append(entry.logger()).append(" - ").append(entry.message());
+    line.append(System.lineSeparator());
+    if (entry.throwable() != null) {
+      StringWriter trace = new StringWriter();
+      entry.throwable().printStackTrace(new PrintWriter(trace));
+      line.append(trace);
+    }
+  }
+
+  /**
+   * Appends the timestamp, formatting the date and time only once per second.
+   */
+  private void appendTimestamp(final StringBuilder line, final long timeMillis) {
+    long second = Math.floorDiv(timeMillis, 1000);
+    if (second != cachedSecond) {
+      cachedSecond = second;
+      cachedSecondText =
+          TIMESTAMP_FORMAT.format(
+              LocalDateTime.ofInstant(Instant.ofEpochSecond(second), zone));
+    }
+    int millis = Math.floorMod(timeMillis, 1000);
+    line.append(cachedSecondText).append('.');
+    if (millis < 100) {
+      line.append('0');
+    }
+    if (millis < 10) {
+      line.append('0');
+    }
+    line.append(millis);
+  }
+
+  private void appendDropNotice(final long count) {
+    for (LogFile file : files.values()) {
+      file.pending
+          .append("... ")
+          .append(count)
+          .append(" log entries dropped, the log queue was full")
+          .append(System.lineSeparator());
+    }
+  }
+
+  private void writePending() {
+    for (Map.Entry<String, LogFile> entry : files.entrySet()) {
+      LogFile file = entry.getValue();
+      if (file.pending.length() == 0) {
+        continue;
+      }
+      byte[] bytes = file.pending.toString().getBytes(StandardCharsets.UTF_8);
+      file.pending.setLength(0);
+      try {
+        if (file.channel != null && file.size + bytes.length > maxFileBytes && file.size > 0) {
+          rotate(entry.getKey(), file);
+        }
+        if (file.channel == null) {
+          open(entry.getKey(), file);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+          file.size += file.channel.write(buffer);
+        }
+      } catch (IOException e) {
+        System.err.println("Failed to write to log file " + entry.getKey() + ": " + e.getMessage());
+        closeQuietly(file);
+      }
+    }
+  }
+
+  private void open(final String fileName, final LogFile file) throws IOException {
+    Path path = directory.toPath().resolve(fileName);
+    Files.createDirectories(path.getParent());
+    file.channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    file.size = file.channel.size();
+    // An empty file is kept whatever the limit, or opening would rotate forever
+    if (file.size > 0 && file.size >= maxFileBytes) {
+      rotate(fileName, file);
+      open(fileName, file);
+    }
+  }
+
+  private void rotate(final String fileName, final LogFile file) throws IOException {
+    closeQuietly(file);
+    Path path = directory.toPath().resolve(fileName);
+    if (maxBackups <= 0) {
+      Files.deleteIfExists(path);
+      return;
+    }
+    Files.deleteIfExists(backup(path, maxBackups));
+    for (int i = maxBackups - 1; i >= 1; i--) {
+      Path source = backup(path, i);
+      if (Files.exists(source)) {
+        Files.move(source, backup(path, i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    if (Files.exists(path)) {
+      Files.move(path, backup(path, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static Path backup(final Path path, final int generation) {
+    return path.resolveSibling(path.getFileName() + "." + generation);
+  }
+
+  private void closeAll() {
+    writePending();
+    files.values().forEach(AsyncLogWriter::closeQuietly);
+  }
+
+  private static void closeQuietly(final LogFile file) {
+    if (file.channel == null) {
+      return;
+    }
+    try {
+      file.channel.close();
+    } catch (IOException e) {
+      // Nothing left to report to
+    }
+    file.channel = null;
+    file.size = 0;
+  }
+}
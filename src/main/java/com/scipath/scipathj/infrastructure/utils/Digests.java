@@ -0,0 +1,132 @@
+package com.scipath.scipathj.infrastructure.utils;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 digests identifying analysis inputs: image file contents and settings records.
+ *
+ * <p>Settings digests are computed from every record component, recursively and with maps in key
+ * order, so two settings digests are equal exactly when the settings are, unlike their rounded
+ * {@code toString()} forms.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Digests {
+
+  private static final int READ_BUFFER_SIZE = 1024 * 1024;
+
+  private Digests() {}
+
+  /**
+   * @return the hex SHA-256 digest of a file's contents
+   */
+  public static String file(final Path file) throws IOException {
+    MessageDigest digest = sha256();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * @return the hex SHA-256 digest of the given settings records, in order
+   */
+  public static String settings(final Record... settings) {
+    StringBuilder canonical = new StringBuilder();
+    for (Record record : settings) {
+      appendCanonical(canonical, record);
+      canonical.append('\n');
+    }
+    return HexFormat.of()
+        .formatHex(sha256().digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * @return the hex SHA-256 digest of the given strings, each terminated by a newline
+   */
+  public static String strings(final String... parts) {
+    StringBuilder joined = new StringBuilder();
+    for (String part : parts) {
+      joined.append(part).append('\n');
+    }
+    return HexFormat.of()
+        .formatHex(sha256().digest(joined.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static void appendCanonical(final StringBuilder out, final Object value) {
+    if (value == null) {
+      out.append("null");
+    } else if (value instanceof Record record) {
+      out.append(record.getClass().getName()).append('{');
+      for (RecordComponent component : record.getClass().getRecordComponents()) {
+        out.append(component.getName()).append('=');
+        try {
+          Method accessor = component.getAccessor();
+          // Nested settings records need not be public
+          accessor.trySetAccessible();
+          appendCanonical(out, accessor.invoke(record));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+          throw new IllegalStateException(
+              "Cannot read " + component.getName() + " of " + record.getClass().getName(), e);
+        }
+        out.append(';');
+      }
+      out.append('}');
+    } else if (value instanceof Map<?, ?> map) {
+      Map<String, Object> sorted = new TreeMap<>();
+      map.forEach((key, entry) -> sorted.put(String.valueOf(key), entry));
+      out.append('{');
+      sorted.forEach(
+          (key, entry) -> {
+            out.append(key).append('=');
+            appendCanonical(out, entry);
+            out.append(';');
+          });
+      out.append('}');
+    } else if (value instanceof Collection<?> collection) {
+      out.append('[');
+      collection.forEach(
+          element -> {
+            appendCanonical(out, element);
+            out.append(';');
+          });
+      out.append(']');
+    } else if (value instanceof Color color) {
+      out.append('#').append(Integer.toHexString(color.getRGB()));
+    } else if (value instanceof Enum<?> constant) {
+      out.append(constant.name());
+    } else {
+      out.append(value);
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
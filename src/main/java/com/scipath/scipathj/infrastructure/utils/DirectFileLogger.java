@@ -1,45 +1,62 @@
 package com.scipath.scipathj.infrastructure.utils;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
  * Direct file logger that bypasses SLF4J/Logback for guaranteed logging in packaged applications.
  * This ensures we can always capture debug information regardless of logging configuration issues.
  *
+ * <p>Calls are cheap enough for inference hot paths: the level is checked before anything is
+ * formatted, and enabled entries are handed to an {@link AsyncLogWriter} that formats and writes
+ * them on its own thread into log files that stay open. Errors wait briefly for the writer so they
+ * reach the disk even if the process dies right after.
+ *
+ * <p>The log directory, level and rotation size can be set with the system properties {@code
+ * scipathj.log.dir}, {@code scipathj.log.level} (DEBUG, INFO, WARN, ERROR or OFF) and {@code
+ * scipathj.log.maxFileMB}, or at runtime through the setters.
+ *
  * @author Sebastian Micu
  * @version 1.0.0
  * @since 1.0.0
  */
 public class DirectFileLogger {
 
-  private static final DateTimeFormatter TIMESTAMP_FORMAT =
-      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
-  private static File logDir;
-  private static boolean initialized = false;
+  private static final String[] LEVELS = {"DEBUG", "INFO", "WARN", "ERROR", "OFF"};
+  private static final int DEFAULT_LEVEL = 1; // INFO
+  private static final int ERROR_LEVEL = 3;
+
+  private static final int RING_CAPACITY = 8192;
+  private static final long DEFAULT_MAX_FILE_MB = 10;
+  private static final int MAX_BACKUPS = 3;
+  private static final long ERROR_FLUSH_TIMEOUT_MS = 500;
+  private static final long SHUTDOWN_FLUSH_TIMEOUT_MS = 2000;
+
+  private static volatile int threshold =
+      levelIndex(System.getProperty("scipathj.log.level", LEVELS[DEFAULT_LEVEL]));
+  private static volatile AsyncLogWriter writer;
 
   /**
    * Initialize the direct file logger.
    */
   public static synchronized void initialize() {
-    if (initialized) {
+    if (writer != null) {
       return;
     }
 
     try {
       String userHome = System.getProperty("user.home");
-      logDir = new File(userHome, "Desktop/scipathj-logs");
+      File logDir =
+          new File(
+              System.getProperty(
+                  "scipathj.log.dir", new File(userHome, "Desktop/scipathj-logs").getPath()));
+      long maxFileMB = Long.getLong("scipathj.log.maxFileMB", DEFAULT_MAX_FILE_MB);
 
-      if (!logDir.exists()) {
-        logDir.mkdirs();
-      }
-
-      initialized = true;
+      writer = new AsyncLogWriter(RING_CAPACITY, logDir, maxFileMB * 1024 * 1024, MAX_BACKUPS);
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(() -> flush(SHUTDOWN_FLUSH_TIMEOUT_MS), "SciPathJ-DirectLog-Flush"));
 
       // Write initialization message
       writeToFile(
@@ -60,31 +77,55 @@ public class DirectFileLogger {
   }
 
   /**
-   * Write a log message directly to a file.
+   * Sets the directory log files are written to. Files already open are closed and reopened in
+   * the new directory.
    */
-  public static void writeToFile(String filename, String level, String logger, String message) {
-    if (!initialized) {
-      initialize();
-    }
+  public static void setLogDirectory(File directory) {
+    writer().setDirectory(directory);
+  }
 
-    try {
-      File logFile = new File(logDir, filename);
-      String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
-      String logLine =
-          String.format(
-              "%s [%s] %-5s %s - %s%n",
-              timestamp, Thread.currentThread().getName(), level, logger, message);
-
-      try (FileWriter fw = new FileWriter(logFile, StandardCharsets.UTF_8, true);
-          PrintWriter pw = new PrintWriter(fw)) {
-        pw.print(logLine);
-        pw.flush();
-      }
+  public static File getLogDirectory() {
+    return writer().getDirectory();
+  }
 
-    } catch (IOException e) {
-      System.err.println("Failed to write to log file " + filename + ": " + e.getMessage());
-      e.printStackTrace();
-    }
+  /**
+   * Sets the minimum level that is logged.
+   *
+   * @param level DEBUG, INFO, WARN, ERROR, or OFF to disable direct logging
+   */
+  public static void setLevel(String level) {
+    threshold = levelIndex(level);
+  }
+
+  /**
+   * Sets the size at which log files are rotated.
+   */
+  public static void setMaxFileSize(long maxFileBytes) {
+    writer().setRotation(maxFileBytes, MAX_BACKUPS);
+  }
+
+  /**
+   * @return whether messages of a level are logged; callers can skip building messages otherwise
+   */
+  public static boolean isEnabled(String level) {
+    return levelIndex(level) >= threshold;
+  }
+
+  /**
+   * Waits until queued messages have been written.
+   *
+   * @return false if the timeout elapsed first
+   */
+  public static boolean flush(long timeoutMillis) {
+    AsyncLogWriter current = writer;
+    return current == null || current.flush(timeoutMillis);
+  }
+
+  /**
+   * Write a log message directly to a file.
+   */
+  public static void writeToFile(String filename, String level, String logger, String message) {
+    write(filename, level, logger, message, null);
   }
 
   /**
@@ -92,33 +133,55 @@ public class DirectFileLogger {
    */
   public static void writeException(
       String filename, String level, String logger, String message, Throwable throwable) {
-    if (!initialized) {
-      initialize();
-    }
-
-    try {
-      File logFile = new File(logDir, filename);
-      String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+    write(filename, level, logger, message, throwable);
+  }
 
-      try (FileWriter fw = new FileWriter(logFile, StandardCharsets.UTF_8, true);
-          PrintWriter pw = new PrintWriter(fw)) {
+  private static void write(
+      String filename, String level, String logger, String message, Throwable throwable) {
+    int levelIndex = levelIndex(level);
+    if (levelIndex < threshold) {
+      return;
+    }
+    AsyncLogWriter current = writer();
+    current.offer(
+        new AsyncLogWriter.Entry(
+            filename,
+            System.currentTimeMillis(),
+            Thread.currentThread().getName(),
+            level,
+            logger,
+            message,
+            throwable));
+    if (levelIndex >= ERROR_LEVEL) {
+      current.flush(ERROR_FLUSH_TIMEOUT_MS);
+    }
+  }
 
-        pw.printf(
-            "%s [%s] %-5s %s - %s%n",
-            timestamp, Thread.currentThread().getName(), level, logger, message);
+  private static AsyncLogWriter writer() {
+    AsyncLogWriter current = writer;
+    if (current == null) {
+      initialize();
+      current = writer;
+    }
+    return current;
+  }
 
-        if (throwable != null) {
-          throwable.printStackTrace(pw);
+  /**
+   * @return the index of a level name; unknown names count as INFO
+   */
+  private static int levelIndex(String level) {
+    if (level != null) {
+      String upper = level.trim().toUpperCase(Locale.ROOT);
+      for (int i = 0; i < LEVELS.length; i++) {
+        if (LEVELS[i].equals(upper)) {
+          return i;
         }
-
-        pw.flush();
       }
-
-    } catch (IOException e) {
-      System.err.println(
-          "Failed to write exception to log file " + filename + ": " + e.getMessage());
-      e.printStackTrace();
+      if ("WARNING".equals(upper)) {
+        return 2;
+      }
     }
+    return DEFAULT_LEVEL;
   }
 
   /**
@@ -128,6 +191,15 @@ public class DirectFileLogger {
     writeToFile("stardist-direct.log", level, "StarDist", message);
   }
 
+  /**
+   * Log StarDist information whose message is only built if the level is enabled.
+   */
+  public static void logStarDist(String level, Supplier<String> message) {
+    if (isEnabled(level)) {
+      writeToFile("stardist-direct.log", level, "StarDist", message.get());
+    }
+  }
+
   /**
    * Log StarDist exception.
    */
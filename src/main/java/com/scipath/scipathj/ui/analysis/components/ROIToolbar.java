@@ -2,6 +2,7 @@ package com.scipath.scipathj.ui.analysis.components;
 
 import com.scipath.scipathj.ui.common.ROIManager;
 import com.scipath.scipathj.infrastructure.config.MainSettings;
+import com.scipath.scipathj.infrastructure.roi.ROIContainerFile;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import com.scipath.scipathj.ui.utils.UIConstants;
 import com.scipath.scipathj.ui.utils.UIUtils;
@@ -477,7 +478,11 @@ public class ROIToolbar extends JPanel {
     // Show file chooser
     JFileChooser fileChooser = new JFileChooser();
     fileChooser.setDialogTitle("Save All ROIs");
-    fileChooser.setFileFilter(new FileNameExtensionFilter("ZIP files (*.zip)", "zip"));
+    FileNameExtensionFilter zipFilter = new FileNameExtensionFilter("ZIP files (*.zip)", "zip");
+    FileNameExtensionFilter containerFilter =
+        new FileNameExtensionFilter("SciPathJ ROI containers (*.sroi)", "sroi");
+    fileChooser.addChoosableFileFilter(containerFilter);
+    fileChooser.setFileFilter(zipFilter);
 
     // Suggest filename
     fileChooser.setSelectedFile(new File("all_rois.zip"));
@@ -485,10 +490,13 @@ public class ROIToolbar extends JPanel {
     int result = fileChooser.showSaveDialog(this);
     if (result == JFileChooser.APPROVE_OPTION) {
       File outputFile = fileChooser.getSelectedFile();
+      String name = outputFile.getName().toLowerCase();
 
-      // Ensure .zip extension
-      if (!outputFile.getName().toLowerCase().endsWith(".zip")) {
-        outputFile = new File(outputFile.getAbsolutePath() + ".zip");
+      // Ensure a .zip or .sroi extension
+      if (!name.endsWith(".zip") && !name.endsWith(ROIContainerFile.EXTENSION)) {
+        String extension =
+            fileChooser.getFileFilter() == containerFilter ? ROIContainerFile.EXTENSION : ".zip";
+        outputFile = new File(outputFile.getAbsolutePath() + extension);
       }
 
       final File finalOutputFile = outputFile;
@@ -1,5 +1,7 @@
 package com.scipath.scipathj.ui.analysis.dialogs;
 
+import com.scipath.scipathj.analysis.results.CsvFormat;
+import com.scipath.scipathj.analysis.results.FeatureCsvExporter;
 import com.scipath.scipathj.ui.utils.UIConstants;
 import com.scipath.scipathj.ui.utils.UIUtils;
 import com.scipath.scipathj.infrastructure.config.MainSettings;
@@ -15,8 +17,8 @@ import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumnModel;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Dialog for displaying extracted features in a table format.
@@ -134,18 +136,7 @@ public class FeatureDisplayDialog extends JDialog {
 
       if (shouldIncludeROI) {
         // Parse ROI name to extract components
-        String currentImageName;
-        if (this.imageName != null && !this.imageName.trim().isEmpty()) {
-          // Use provided image name if available
-          currentImageName = this.imageName.trim();
-        } else {
-          // Extract from ROI name
-          currentImageName = extractImageName(roiName);
-          // If extraction returns "Unknown", try to use the ROI name itself as fallback
-          if ("Unknown".equals(currentImageName)) {
-            currentImageName = roiName;
-          }
-        }
+        String currentImageName = resolveImageName(roiName);
         String cellType = extractCellType(roiName);
         String roiId = extractROIId(roiName);
 
@@ -231,6 +222,17 @@ public class FeatureDisplayDialog extends JDialog {
     return statsPanel;
   }
 
+  private String resolveImageName(String roiName) {
+    if (this.imageName != null && !this.imageName.trim().isEmpty()) {
+      // Use provided image name if available
+      return this.imageName.trim();
+    }
+    // Extract from ROI name
+    String extracted = extractImageName(roiName);
+    // If extraction returns "Unknown", try to use the ROI name itself as fallback
+    return "Unknown".equals(extracted) ? roiName : extracted;
+  }
+
   private String extractImageName(String roiName) {
     if (roiName == null || roiName.trim().isEmpty()) {
       return "Unknown";
@@ -356,77 +358,71 @@ public class FeatureDisplayDialog extends JDialog {
     int result = fileChooser.showSaveDialog(this);
 
     if (result == JFileChooser.APPROVE_OPTION) {
-      File selectedFile = fileChooser.getSelectedFile();
-      // Ensure the file has .csv extension
-      if (!selectedFile.getName().toLowerCase().endsWith(".csv")) {
-        selectedFile = new File(selectedFile.getAbsolutePath() + ".csv");
+      File chosenFile = fileChooser.getSelectedFile();
+      // Ensure the file has a .csv or .tsv extension; a trailing .gz compresses the export
+      String path = chosenFile.getAbsolutePath();
+      boolean gzip = path.toLowerCase().endsWith(".gz");
+      String tablePath = gzip ? path.substring(0, path.length() - 3) : path;
+      String lowerTablePath = tablePath.toLowerCase();
+      if (!lowerTablePath.endsWith(".csv") && !lowerTablePath.endsWith(".tsv")) {
+        tablePath += ".csv";
+      }
+      File selectedFile = new File(gzip ? tablePath + ".gz" : tablePath);
+
+      // Determine table format settings
+      CsvFormat format = CsvFormat.forFile(selectedFile, mainSettings);
+      boolean includeIgnored = mainSettings == null || mainSettings.includeIgnoredInCsv();
+      FeatureCsvExporter exporter = new FeatureCsvExporter(format, includeIgnored, gzip);
+      List<String> labelColumns = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        labelColumns.add(tableModel.getColumnName(i));
       }
 
-      try (FileWriter writer = new FileWriter(selectedFile)) {
-        // Determine CSV format settings
-        String delimiter;
-        String decimalSeparator;
-
-        if (mainSettings != null && mainSettings.useEuCsvFormat()) {
-          // EU format: semicolon delimiter, comma decimal separator
-          delimiter = ";";
-          decimalSeparator = ",";
-        } else {
-          // US format: comma delimiter, period decimal separator
-          delimiter = ",";
-          decimalSeparator = ".";
-        }
-
-        // Write headers
-        for (int i = 0; i < tableModel.getColumnCount(); i++) {
-          writer.write(tableModel.getColumnName(i));
-          if (i < tableModel.getColumnCount() - 1) {
-            writer.write(delimiter);
-          }
-        }
-        writer.write("\n");
-
-        // Write all data from table (filtering already done during table creation)
-        int exportedRows = tableModel.getRowCount();
-        for (int row = 0; row < exportedRows; row++) {
-          for (int col = 0; col < tableModel.getColumnCount(); col++) {
-            Object value = tableModel.getValueAt(row, col);
-            if (value != null) {
-              String stringValue = value.toString();
-              // If using EU format and this is a numeric column, replace decimal separator
-              if (mainSettings != null && mainSettings.useEuCsvFormat() && value instanceof Number) {
-                stringValue = stringValue.replace(".", decimalSeparator);
-              }
-              writer.write(stringValue);
-            } else {
-              writer.write("");
-            }
-            if (col < tableModel.getColumnCount() - 1) {
-              writer.write(delimiter);
-            }
-          }
-          writer.write("\n");
+      // Stream rows from the feature maps rather than the table, off the event dispatch thread
+      setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+      new SwingWorker<Long, Void>() {
+        @Override
+        protected Long doInBackground() throws IOException {
+          return exporter.export(
+              selectedFile.toPath(),
+              labelColumns,
+              featuresData,
+              roiName ->
+                  new Object[] {
+                    resolveImageName(roiName), extractCellType(roiName), extractROIId(roiName)
+                  });
         }
 
-        String formatType = (mainSettings != null && mainSettings.useEuCsvFormat()) ? "EU" : "US";
-        String inclusionInfo = "";
-        if (mainSettings != null && !mainSettings.includeIgnoredInCsv()) {
-          int originalTotal = featuresData.size();
-          int filteredOut = originalTotal - exportedRows;
-          if (filteredOut > 0) {
-            inclusionInfo = String.format("\nFiltered out %d ignored ROI%s", filteredOut, filteredOut == 1 ? "" : "s");
+        @Override
+        protected void done() {
+          setCursor(Cursor.getDefaultCursor());
+          try {
+            showExportSuccess(format, get(), selectedFile);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } catch (ExecutionException e) {
+            JOptionPane.showMessageDialog(FeatureDisplayDialog.this,
+                "Error exporting to CSV: " + e.getCause().getMessage(),
+                "Export Error", JOptionPane.ERROR_MESSAGE);
           }
         }
+      }.execute();
+    }
+  }
 
-        JOptionPane.showMessageDialog(this,
-            String.format("CSV export successful!\nFormat: %s\nRows exported: %d%s\nSaved to: %s",
-                formatType + " format", exportedRows, inclusionInfo, selectedFile.getAbsolutePath()),
-            "Export Success", JOptionPane.INFORMATION_MESSAGE);
-      } catch (IOException e) {
-        JOptionPane.showMessageDialog(this, "Error exporting to CSV: " + e.getMessage(),
-                                       "Export Error", JOptionPane.ERROR_MESSAGE);
+  private void showExportSuccess(CsvFormat format, long exportedRows, File selectedFile) {
+    String inclusionInfo = "";
+    if (mainSettings != null && !mainSettings.includeIgnoredInCsv()) {
+      long filteredOut = featuresData.size() - exportedRows;
+      if (filteredOut > 0) {
+        inclusionInfo = String.format("\nFiltered out %d ignored ROI%s", filteredOut, filteredOut == 1 ? "" : "s");
       }
     }
+
+    JOptionPane.showMessageDialog(this,
+        String.format("CSV export successful!\nFormat: %s\nRows exported: %d%s\nSaved to: %s",
+            format + " format", exportedRows, inclusionInfo, selectedFile.getAbsolutePath()),
+        "Export Success", JOptionPane.INFORMATION_MESSAGE);
   }
 
 }
\ No newline at end of file
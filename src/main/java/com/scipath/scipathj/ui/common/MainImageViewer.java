@@ -1,6 +1,7 @@
 package com.scipath.scipathj.ui.common;
 
 import com.scipath.scipathj.infrastructure.config.MainSettings;
+import com.scipath.scipathj.infrastructure.image.ImageSource;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import com.scipath.scipathj.ui.themes.ThemeManager;
 import com.scipath.scipathj.ui.utils.ImageLoader;
@@ -12,7 +13,9 @@ import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
@@ -37,17 +40,17 @@ public class MainImageViewer extends JPanel
   private double currentZoom = 1.0;
 
   // Core components
-  private JLabel imageLabel;
+  private TiledImageCanvas imageCanvas;
   private JLabel imageInfoLabel;
   private JScrollPane scrollPane;
   private ROIOverlay roiOverlay;
   private JLayeredPane layeredPane;
   private File currentImageFile;
+  private ImageSource currentImageSource;
   private ImagePlus currentImagePlus;
   private boolean isLoading = false;
 
   // Image display properties
-  private Image originalImage;
   private int originalImageWidth;
   private int originalImageHeight;
 
@@ -68,6 +71,9 @@ public class MainImageViewer extends JPanel
   private long lastUpdateTime = 0;
   private static final long UPDATE_THROTTLE_MS = 16; // ~60fps
 
+  /** An opened image source together with its coarsest pyramid level, decoded for display. */
+  private record LoadedImage(File file, ImageSource source, BufferedImage overview) {}
+
   public MainImageViewer() {
     this.roiManager = ROIManager.getInstance();
     initializeComponents();
@@ -80,7 +86,7 @@ public class MainImageViewer extends JPanel
     setBorder(UIUtils.createPadding(UIConstants.MEDIUM_SPACING));
     setOpaque(false);
 
-    imageLabel = createImageLabel();
+    imageCanvas = createImageCanvas();
     roiOverlay = new ROIOverlay();
     layeredPane = createLayeredPane();
     scrollPane = createScrollPane();
@@ -102,9 +108,9 @@ public class MainImageViewer extends JPanel
       public void componentResized(java.awt.event.ComponentEvent e) {
         LOGGER.debug("MainImageViewer resized: {}x{} - checking if layout update needed",
             getWidth(), getHeight());
-        if (imageLabel.getIcon() != null) {
+        if (imageCanvas.hasImage()) {
           // Force layout update when component is resized
-          updateLayeredPaneLayout((ImageIcon) imageLabel.getIcon());
+          updateLayeredPaneLayout();
         }
       }
     });
@@ -137,9 +143,9 @@ public class MainImageViewer extends JPanel
     JLayeredPane pane = new JLayeredPane();
     pane.setPreferredSize(new Dimension(600, 400));
 
-    // Add image label to bottom layer
-    imageLabel.setBounds(0, 0, 600, 400);
-    pane.add(imageLabel, JLayeredPane.DEFAULT_LAYER);
+    // Add image canvas to bottom layer
+    imageCanvas.setBounds(0, 0, 600, 400);
+    pane.add(imageCanvas, JLayeredPane.DEFAULT_LAYER);
 
     // Add ROI overlay to top layer
     roiOverlay.setBounds(0, 0, 600, 400);
@@ -148,14 +154,11 @@ public class MainImageViewer extends JPanel
     return pane;
   }
 
-  private JLabel createImageLabel() {
-    JLabel label = new JLabel();
-    label.setHorizontalAlignment(SwingConstants.CENTER);
-    label.setVerticalAlignment(SwingConstants.CENTER);
-    label.setOpaque(true);
-    label.setBackground(
+  private TiledImageCanvas createImageCanvas() {
+    TiledImageCanvas canvas = new TiledImageCanvas();
+    canvas.setBackground(
         ThemeManager.isDarkTheme() ? new Color(40, 40, 40) : new Color(250, 250, 250));
-    return label;
+    return canvas;
   }
 
   private JScrollPane createScrollPane() {
@@ -171,7 +174,7 @@ public class MainImageViewer extends JPanel
         new MouseWheelListener() {
           @Override
           public void mouseWheelMoved(MouseWheelEvent e) {
-            if (e.isControlDown() && currentImagePlus != null) {
+            if (e.isControlDown() && currentImageSource != null) {
               Point mousePoint = e.getPoint();
               if (e.getWheelRotation() < 0) {
                 zoomIn(mousePoint);
@@ -210,8 +213,8 @@ public class MainImageViewer extends JPanel
       public void componentResized(java.awt.event.ComponentEvent e) {
         LOGGER.debug("Viewport resized: {}x{} - updating transforms",
             pane.getViewport().getWidth(), pane.getViewport().getHeight());
-        if (imageLabel.getIcon() != null) {
-          updateLayeredPaneLayout((ImageIcon) imageLabel.getIcon());
+        if (imageCanvas.hasImage()) {
+          updateLayeredPaneLayout();
         }
       }
     });
@@ -349,20 +352,29 @@ public class MainImageViewer extends JPanel
         .exceptionally(this::handleImageError);
   }
 
-  private ImagePlus loadImageSafely(File imageFile) {
+  private LoadedImage loadImageSafely(File imageFile) {
+    ImageSource source = ImageLoader.openImageSource(imageFile.getAbsolutePath());
+    if (source == null) {
+      return null;
+    }
     try {
-      return ImageLoader.loadImage(imageFile.getAbsolutePath());
+      // Only the coarsest level is decoded up front; the canvas loads finer tiles as needed
+      return new LoadedImage(imageFile, source, source.readLevel(source.getLevelCount() - 1));
     } catch (Exception e) {
       LOGGER.error("Error loading image: {}", imageFile.getAbsolutePath(), e);
+      source.close();
       return null;
     }
   }
 
-  private void handleImageLoaded(ImagePlus imagePlus) {
+  private void handleImageLoaded(LoadedImage loadedImage) {
     SwingUtilities.invokeLater(
         () -> {
-          if (imagePlus != null) {
-            displayLoadedImage(imagePlus);
+          if (loadedImage != null && !loadedImage.file().equals(currentImageFile)) {
+            // A newer image was requested while this one was loading
+            loadedImage.source().close();
+          } else if (loadedImage != null) {
+            displayLoadedImage(loadedImage);
           } else {
             showErrorState("Unsupported format or corrupted file");
           }
@@ -375,28 +387,26 @@ public class MainImageViewer extends JPanel
     return null;
   }
 
-  private void displayLoadedImage(ImagePlus imagePlus) {
-    this.currentImagePlus = imagePlus;
+  private void displayLoadedImage(LoadedImage loadedImage) {
+    closeImageSource();
+    this.currentImageSource = loadedImage.source();
     this.isLoading = false;
 
     try {
-      Image image = imagePlus.getImage();
-      if (image != null) {
-        this.originalImage = image;
-        this.originalImageWidth = imagePlus.getWidth();
-        this.originalImageHeight = imagePlus.getHeight();
+      BufferedImage overview = loadedImage.overview();
+      if (overview != null) {
+        // All coordinates stay in full resolution; the canvas picks pyramid levels per zoom
+        this.originalImageWidth = currentImageSource.getWidth();
+        this.originalImageHeight = currentImageSource.getHeight();
 
         // Start with 100% zoom (native image resolution)
         currentZoom = 1.0;
 
-        // Create scaled image
-        Image scaledImage = createScaledImage();
-        ImageIcon imageIcon = new ImageIcon(scaledImage);
-        imageLabel.setIcon(imageIcon);
-        imageLabel.setText("");
+        imageCanvas.setImageSource(currentImageSource, overview);
+        imageCanvas.setZoom(currentZoom);
 
         // Update layout
-        updateLayeredPaneLayout(imageIcon);
+        updateLayeredPaneLayout();
 
         // Update ROI overlay
         updateROIOverlay();
@@ -421,11 +431,11 @@ public class MainImageViewer extends JPanel
 
   // ===== LAYOUT AND TRANSFORM CALCULATIONS =====
 
-  private void updateLayeredPaneLayout(ImageIcon imageIcon) {
+  private void updateLayeredPaneLayout() {
     layeredPane.removeAll();
 
-    int imageWidth = imageIcon.getIconWidth();
-    int imageHeight = imageIcon.getIconHeight();
+    int imageWidth = imageCanvas.getScaledWidth();
+    int imageHeight = imageCanvas.getScaledHeight();
 
     // Calculate layered pane size - CRITICAL for synchronization
     // The layered pane must be large enough to contain the image AND provide
@@ -447,8 +457,8 @@ public class MainImageViewer extends JPanel
     int imageX = Math.max(0, (layeredPaneWidth - imageWidth) / 2);
     int imageY = Math.max(0, (layeredPaneHeight - imageHeight) / 2);
 
-    imageLabel.setBounds(imageX, imageY, imageWidth, imageHeight);
-    layeredPane.add(imageLabel, JLayeredPane.DEFAULT_LAYER);
+    imageCanvas.setBounds(imageX, imageY, imageWidth, imageHeight);
+    layeredPane.add(imageCanvas, JLayeredPane.DEFAULT_LAYER);
 
     // Set ROI overlay bounds to exactly match the layered pane
     roiOverlay.setBounds(0, 0, layeredPaneWidth, layeredPaneHeight);
@@ -464,12 +474,11 @@ public class MainImageViewer extends JPanel
   }
 
   public void updateROIOverlayTransform() {
-    if (roiOverlay == null || currentImagePlus == null || imageLabel.getIcon() == null) return;
+    if (roiOverlay == null || currentImageSource == null || !imageCanvas.hasImage()) return;
 
     // Get the exact same values used for image positioning
-    ImageIcon imageIcon = (ImageIcon) imageLabel.getIcon();
-    int imageWidth = imageIcon.getIconWidth();
-    int imageHeight = imageIcon.getIconHeight();
+    int imageWidth = imageCanvas.getScaledWidth();
+    int imageHeight = imageCanvas.getScaledHeight();
 
     // Get current scroll position
     JViewport viewport = scrollPane.getViewport();
@@ -513,7 +522,7 @@ public class MainImageViewer extends JPanel
   // ===== ZOOM FUNCTIONALITY =====
 
   private double calculateFitZoom() {
-    if (originalImage == null || scrollPane == null) {
+    if (currentImageSource == null || scrollPane == null) {
       return 1.0;
     }
 
@@ -524,18 +533,6 @@ public class MainImageViewer extends JPanel
     return Math.min(Math.min(scaleX, scaleY), 1.0);
   }
 
-  private Image createScaledImage() {
-    if (originalImage == null) return null;
-
-    int scaledWidth = Math.max(1, (int) Math.round(originalImageWidth * currentZoom));
-    int scaledHeight = Math.max(1, (int) Math.round(originalImageHeight * currentZoom));
-
-    LOGGER.debug("Creating scaled image: {}x{} -> {}x{} (zoom={})",
-        originalImageWidth, originalImageHeight, scaledWidth, scaledHeight, currentZoom);
-
-    return originalImage.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-  }
-
   private void updateZoomLabel() {
     if (zoomLabel != null) {
       int percentage = (int) Math.round(currentZoom * 100);
@@ -552,7 +549,7 @@ public class MainImageViewer extends JPanel
   }
 
   private void zoomIn(Point centerPoint) {
-    if (currentImagePlus == null) return;
+    if (currentImageSource == null) return;
 
     double newZoom = Math.min(currentZoom + ZOOM_STEP, MAX_ZOOM);
     if (newZoom != currentZoom) {
@@ -561,7 +558,7 @@ public class MainImageViewer extends JPanel
   }
 
   private void zoomOut(Point centerPoint) {
-    if (currentImagePlus == null) return;
+    if (currentImageSource == null) return;
 
     double newZoom = Math.max(currentZoom - ZOOM_STEP, MIN_ZOOM);
     if (newZoom != currentZoom) {
@@ -570,20 +567,20 @@ public class MainImageViewer extends JPanel
   }
 
   private void zoomToFit() {
-    if (currentImagePlus == null) return;
+    if (currentImageSource == null) return;
 
     double fitZoom = calculateFitZoom();
     setZoom(fitZoom, null);
   }
 
   private void zoomTo100() {
-    if (currentImagePlus == null) return;
+    if (currentImageSource == null) return;
 
     setZoom(1.0, null);
   }
 
   private void setZoom(double newZoom, Point centerPoint) {
-    if (currentImagePlus == null || originalImage == null) return;
+    if (currentImageSource == null || !imageCanvas.hasImage()) return;
 
     // Store the current scroll position if we have a center point
     Point scrollPosition = null;
@@ -605,13 +602,11 @@ public class MainImageViewer extends JPanel
     // Update zoom level
     currentZoom = newZoom;
 
-    // Create new scaled image
-    Image scaledImage = createScaledImage();
-    ImageIcon imageIcon = new ImageIcon(scaledImage);
-    imageLabel.setIcon(imageIcon);
+    // Resizing the canvas is enough; it paints visible tiles of the matching pyramid level
+    imageCanvas.setZoom(currentZoom);
 
     // Update layout
-    updateLayeredPaneLayout(imageIcon);
+    updateLayeredPaneLayout();
 
     // Update zoom label and slider
     updateZoomLabel();
@@ -651,8 +646,7 @@ public class MainImageViewer extends JPanel
         UIManager.getColor("Label.disabledForeground"));
     imageInfoLabel.setText("");
     currentImageFile = null;
-    currentImagePlus = null;
-    originalImage = null;
+    closeImageSource();
     currentZoom = 1.0;
     setZoomControlsEnabled(false);
     updateZoomLabel();
@@ -730,14 +724,14 @@ public class MainImageViewer extends JPanel
   }
 
   private void updateImageInfo() {
-    if (currentImageFile == null || currentImagePlus == null) {
+    if (currentImageFile == null || currentImageSource == null) {
       imageInfoLabel.setText("");
       return;
     }
 
     String fileName = currentImageFile.getName();
     String fileSize = ImageLoader.formatFileSize(currentImageFile.length());
-    String dimensions = currentImagePlus.getWidth() + " × " + currentImagePlus.getHeight();
+    String dimensions = originalImageWidth + " × " + originalImageHeight;
     String extension = ImageLoader.getFileExtension(fileName).toUpperCase();
 
     imageInfoLabel.setText(
@@ -750,10 +744,37 @@ public class MainImageViewer extends JPanel
     return currentImageFile;
   }
 
+  /**
+   * Returns the full resolution image, decoding it on first use. The viewer itself only needs a
+   * downsampled pyramid level, so this is the only place the whole raster gets allocated.
+   */
   public ImagePlus getCurrentImagePlus() {
+    if (currentImagePlus == null && currentImageSource != null) {
+      try {
+        currentImagePlus = currentImageSource.readFullResolution();
+      } catch (IOException e) {
+        LOGGER.error("Error reading full resolution image: {}", currentImageSource.getName(), e);
+      }
+    }
     return currentImagePlus;
   }
 
+  /**
+   * Returns the image source of the displayed image, or null if no image is displayed.
+   */
+  public ImageSource getCurrentImageSource() {
+    return currentImageSource;
+  }
+
+  private void closeImageSource() {
+    imageCanvas.clear();
+    if (currentImageSource != null) {
+      currentImageSource.close();
+      currentImageSource = null;
+    }
+    currentImagePlus = null;
+  }
+
   public boolean isLoading() {
     return isLoading;
   }
@@ -810,6 +831,13 @@ public class MainImageViewer extends JPanel
     }
   }
 
+  @Override
+  public void onROIsAdded(String imageFileName, List<UserROI> rois) {
+    if (currentImageFile != null && imageFileName.equals(currentImageFile.getName())) {
+      updateROIOverlay();
+    }
+  }
+
   @Override
   public void onROIRemoved(UserROI roi) {
     if (currentImageFile != null && roi.getImageFileName().equals(currentImageFile.getName())) {
@@ -1,28 +1,45 @@
 package com.scipath.scipathj.ui.common;
 
+import com.scipath.scipathj.infrastructure.roi.ROIArchive;
+import com.scipath.scipathj.infrastructure.roi.ROIStore;
+import com.scipath.scipathj.infrastructure.roi.ROIZipIO;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import com.scipath.scipathj.analysis.algorithms.classification.CellClassification;
+import com.scipath.scipathj.analysis.results.ImageResults;
+import com.scipath.scipathj.analysis.results.ResultsFile;
+import com.scipath.scipathj.analysis.results.ResultsSource;
 import ij.gui.Roi;
 import ij.io.RoiDecoder;
 import ij.io.RoiEncoder;
+import java.awt.Color;
 import java.awt.Rectangle;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Manages user-created ROIs for all images in the application.
  * Handles ROI storage, retrieval, and persistence operations.
+ *
+ * <p>Storage is delegated to an indexed {@link ROIStore}, so the manager can be written to from
+ * parallel image workers. Getters return immutable snapshots.
+ *
+ * <p>A batch that streams its results to disk releases each image with {@link #releaseImage}
+ * once it is written, so memory does not grow with the batch. Released images are paged back in
+ * from the {@link ResultsSource} when their ROIs are requested, and only the most recently used
+ * of them stay resident. A paged image whose ROIs were added or removed holds edits the source
+ * does not have, so it stays resident until it is cleared or released again.
  */
 public class ROIManager {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ROIManager.class);
 
-  // Map of image filename to list of ROIs for that image
-  private final Map<String, List<UserROI>> imageROIs;
+  // Indexed ROI storage, partitioned by image filename and ROI type
+  private final ROIStore imageROIs;
 
   // Map of ROI key to classification results for tooltip display
   private final Map<String, CellClassification.ClassificationResult> classificationResults;
@@ -30,13 +47,23 @@ public class ROIManager {
   // Listeners for ROI changes
   private final List<ROIChangeListener> listeners;
 
+  // Images paged back in from the results source at most, before the least recent is released
+  private static final int MAX_PAGED_IMAGES = 8;
+
+  // Where released images are read back from, and the images whose ROIs only live there
+  private volatile ResultsSource resultsSource;
+  private final Set<String> releasedImages = ConcurrentHashMap.newKeySet();
+  private final Map<String, Boolean> pagedImages = new LinkedHashMap<>(16, 0.75f, true);
+  private final Set<String> editedImages = new HashSet<>(); // Guarded by pagedImages
+  private volatile Function<UserROI.ROIType, Color> pagedROIColors = type -> null;
+
   // Singleton instance
   private static ROIManager instance;
 
   private ROIManager() {
-    this.imageROIs = new ConcurrentHashMap<>();
+    this.imageROIs = new ROIStore();
     this.classificationResults = new ConcurrentHashMap<>();
-    this.listeners = new ArrayList<>();
+    this.listeners = new CopyOnWriteArrayList<>();
   }
 
   /**
@@ -94,12 +121,147 @@ public class ROIManager {
     return new HashMap<>(this.classificationResults);
   }
 
+  /**
+   * Sets where released images are read back from, e.g. the writer of a running batch and then
+   * the results file it finished. Images released from an earlier source are read from the new
+   * one, which must hold them.
+   *
+   * @param source the source, or null if no image will be released
+   */
+  public void setResultsSource(ResultsSource source) {
+    this.resultsSource = source;
+  }
+
+  /**
+   * Sets the display colors of ROIs paged back in, which the results source does not store.
+   *
+   * @param colors the color of each ROI type, or null to keep the type's default color
+   */
+  public void setPagedROIColors(Function<UserROI.ROIType, Color> colors) {
+    this.pagedROIColors = colors != null ? colors : type -> null;
+  }
+
+  /**
+   * Releases the ROIs and classification results of an image from memory once they are stored in
+   * the results source. They are paged back in when requested; listeners are not notified, since
+   * the image still has its ROIs.
+   *
+   * @param imageFileName the image, which the results source must hold
+   */
+  public void releaseImage(String imageFileName) {
+    ResultsSource source = resultsSource;
+    if (source == null || source.getImage(imageFileName) == null) {
+      LOGGER.warn("Keeping ROIs of '{}' in memory, its results are not stored", imageFileName);
+      return;
+    }
+    synchronized (pagedImages) {
+      release(imageFileName);
+    }
+  }
+
+  /**
+   * Drops a resident image whose results the source holds. Callers hold the paging lock.
+   */
+  private void release(String imageFileName) {
+    imageROIs.clearImage(imageFileName);
+    String keyPrefix = ResultsFile.featureKey(imageFileName, "");
+    classificationResults.keySet().removeIf(key -> key.startsWith(keyPrefix));
+    pagedImages.remove(imageFileName);
+    editedImages.remove(imageFileName);
+    releasedImages.add(imageFileName);
+  }
+
+  /**
+   * Pages a released image back in, releasing the least recently paged unedited image beyond
+   * {@link #MAX_PAGED_IMAGES}.
+   */
+  private void ensureResident(String imageFileName) {
+    if (releasedImages.isEmpty()) {
+      return;
+    }
+    synchronized (pagedImages) {
+      if (pagedImages.containsKey(imageFileName) || !releasedImages.contains(imageFileName)) {
+        return;
+      }
+      ImageResults results = readReleased(imageFileName);
+      if (results == null) {
+        return;
+      }
+      imageROIs.addAll(toROIs(results));
+      classificationResults.putAll(results.toClassifications());
+      releasedImages.remove(imageFileName);
+      pagedImages.put(imageFileName, Boolean.TRUE);
+      if (pagedImages.size() > MAX_PAGED_IMAGES) {
+        pagedImages.keySet().stream()
+            .filter(pagedImage -> !editedImages.contains(pagedImage))
+            .findFirst()
+            .ifPresent(this::release);
+      }
+      LOGGER.debug("Paged in {} ROIs of '{}'", results.getROICount(), imageFileName);
+    }
+  }
+
+  /**
+   * Marks a paged image as edited, so it is not released while it holds edits the results
+   * source does not have.
+   */
+  private void markEdited(String imageFileName) {
+    if (releasedImages.isEmpty() && editedImages.isEmpty()) {
+      return;
+    }
+    synchronized (pagedImages) {
+      if (pagedImages.containsKey(imageFileName)) {
+        editedImages.add(imageFileName);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the stored ROIs of an image with the colors of paged ROIs.
+   */
+  private List<UserROI> toROIs(ImageResults results) {
+    List<UserROI> rois = results.toROIs();
+    Function<UserROI.ROIType, Color> colors = pagedROIColors;
+    for (UserROI roi : rois) {
+      Color color = colors.apply(roi.getType());
+      if (color != null) {
+        roi.setDisplayColor(color);
+      }
+    }
+    return rois;
+  }
+
+  /**
+   * @return the stored results of a released image, or null if they cannot be read
+   */
+  private ImageResults readReleased(String imageFileName) {
+    ResultsSource source = resultsSource;
+    try {
+      ImageResults results = source != null ? source.readImage(imageFileName) : null;
+      if (results == null) {
+        LOGGER.error("Results of released image '{}' are no longer available", imageFileName);
+      }
+      return results;
+    } catch (IOException e) {
+      LOGGER.error("Failed to page in ROIs of '{}': {}", imageFileName, e.getMessage());
+      return null;
+    }
+  }
+
   /**
    * Interface for listening to ROI changes
    */
   public interface ROIChangeListener {
     void onROIAdded(UserROI roi);
 
+    /**
+     * Called once for a batch added with {@link ROIManager#addROIs}. Listeners that refresh a view
+     * should override this instead of reacting to every single ROI.
+     */
+    default void onROIsAdded(String imageFileName, List<UserROI> rois) {
+      rois.forEach(this::onROIAdded);
+    }
+
     void onROIRemoved(UserROI roi);
 
     void onROIUpdated(UserROI roi);
@@ -127,17 +289,16 @@ public class ROIManager {
   public void addROI(UserROI roi) {
     if (roi == null) return;
 
-    String imageFileName = roi.getImageFileName();
-    List<UserROI> roisForImage = imageROIs.computeIfAbsent(imageFileName, k -> new ArrayList<>());
+    // A released image is paged in first, so the new ROI joins the stored ones
+    ensureResident(roi.getImageFileName());
 
-    // Check for duplicate ROI by ID to prevent double counting
-    boolean isDuplicate = roisForImage.stream().anyMatch(existing -> existing.getId().equals(roi.getId()));
-    if (isDuplicate) {
-      LOGGER.debug("Skipping duplicate ROI '{}' for image '{}'", roi.getName(), imageFileName);
+    // Duplicate ROIs (same ID) are skipped to prevent double counting
+    if (!imageROIs.add(roi)) {
+      LOGGER.debug(
+          "Skipping duplicate ROI '{}' for image '{}'", roi.getName(), roi.getImageFileName());
       return;
     }
-
-    roisForImage.add(roi);
+    markEdited(roi.getImageFileName());
 
     // LOGGER.info("Added ROI '{}' to image '{}'", roi.getName(), imageFileName);
 
@@ -152,32 +313,55 @@ public class ROIManager {
         });
   }
 
+  /**
+   * Add several ROIs at once, skipping duplicates. Listeners receive one
+   * {@link ROIChangeListener#onROIsAdded} event per image instead of one event per ROI.
+   */
+  public void addROIs(Collection<? extends UserROI> rois) {
+    if (rois == null || rois.isEmpty()) return;
+
+    if (!releasedImages.isEmpty()) {
+      rois.stream().map(UserROI::getImageFileName).distinct().forEach(this::ensureResident);
+    }
+    Map<String, List<UserROI>> added = imageROIs.addAll(rois);
+    added.forEach(
+        (imageFileName, imageRois) -> {
+          markEdited(imageFileName);
+          LOGGER.debug("Added {} ROIs to image '{}'", imageRois.size(), imageFileName);
+          List<UserROI> batch = Collections.unmodifiableList(imageRois);
+          listeners.forEach(
+              listener -> {
+                try {
+                  listener.onROIsAdded(imageFileName, batch);
+                } catch (Exception e) {
+                  LOGGER.error("Error notifying ROI listener", e);
+                }
+              });
+        });
+  }
+
   /**
    * Remove a ROI by ID
    */
   public boolean removeROI(String roiId) {
-    for (List<UserROI> rois : imageROIs.values()) {
-      UserROI toRemove =
-          rois.stream().filter(roi -> roi.getId().equals(roiId)).findFirst().orElse(null);
-
-      if (toRemove != null) {
-        rois.remove(toRemove);
-        LOGGER.info(
-            "Removed ROI '{}' from image '{}'", toRemove.getName(), toRemove.getImageFileName());
-
-        // Notify listeners
-        listeners.forEach(
-            listener -> {
-              try {
-                listener.onROIRemoved(toRemove);
-              } catch (Exception e) {
-                LOGGER.error("Error notifying ROI listener", e);
-              }
-            });
-        return true;
-      }
+    UserROI toRemove = imageROIs.remove(roiId);
+    if (toRemove == null) {
+      return false;
     }
-    return false;
+    markEdited(toRemove.getImageFileName());
+    LOGGER.info(
+        "Removed ROI '{}' from image '{}'", toRemove.getName(), toRemove.getImageFileName());
+
+    // Notify listeners
+    listeners.forEach(
+        listener -> {
+          try {
+            listener.onROIRemoved(toRemove);
+          } catch (Exception e) {
+            LOGGER.error("Error notifying ROI listener", e);
+          }
+        });
+    return true;
   }
 
   /**
@@ -191,31 +375,69 @@ public class ROIManager {
    * Get all ROIs for a specific image
    */
   public List<UserROI> getROIsForImage(String imageFileName) {
-    return imageROIs.getOrDefault(imageFileName, Collections.emptyList()).stream()
-        .collect(Collectors.toList()); // Return defensive copy
+    ensureResident(imageFileName);
+    return imageROIs.getForImage(imageFileName); // Immutable snapshot
+  }
+
+  /**
+   * Get the ROIs of one type for a specific image
+   */
+  public List<UserROI> getROIsForImage(String imageFileName, UserROI.ROIType type) {
+    ensureResident(imageFileName);
+    return imageROIs.getForImage(imageFileName, type);
   }
 
   /**
-   * Get all ROIs across all images
+   * Get all ROIs across all images, reading released images without keeping them resident
    */
   public List<UserROI> getAllROIs() {
-    return imageROIs.values().stream().flatMap(List::stream).collect(Collectors.toList());
+    if (releasedImages.isEmpty()) {
+      return imageROIs.getAll();
+    }
+    List<UserROI> all = new ArrayList<>();
+    getAllROIsByImage().values().forEach(all::addAll);
+    return Collections.unmodifiableList(all);
   }
 
   /**
-   * Get all ROIs organized by image filename
+   * Get all ROIs organized by image filename, reading released images without keeping them
+   * resident
    * @return Map where key is image filename and value is list of ROIs for that image
    */
   public Map<String, List<UserROI>> getAllROIsByImage() {
-    return new HashMap<>(imageROIs); // Return defensive copy
+    Map<String, List<UserROI>> byImage = imageROIs.getAllByImage(); // Immutable snapshots
+    if (releasedImages.isEmpty()) {
+      return byImage;
+    }
+    Map<String, List<UserROI>> all = new LinkedHashMap<>(byImage);
+    for (String imageFileName : new ArrayList<>(releasedImages)) {
+      ImageResults results = readReleased(imageFileName);
+      if (results == null || results.getROICount() == 0) {
+        continue;
+      }
+      // ROIs added while the image was released are resident alongside the stored ones
+      List<UserROI> rois = toROIs(results);
+      List<UserROI> resident = byImage.get(imageFileName);
+      if (resident != null) {
+        rois.addAll(resident);
+      }
+      all.put(imageFileName, Collections.unmodifiableList(rois));
+    }
+    return Collections.unmodifiableMap(all);
   }
 
   /**
    * Clear all ROIs for a specific image
    */
   public void clearROIsForImage(String imageFileName) {
-    List<UserROI> removed = imageROIs.remove(imageFileName);
-    if (removed != null && !removed.isEmpty()) {
+    List<UserROI> removed = imageROIs.clearImage(imageFileName);
+    boolean wasReleased;
+    synchronized (pagedImages) {
+      pagedImages.remove(imageFileName);
+      editedImages.remove(imageFileName);
+      wasReleased = releasedImages.remove(imageFileName);
+    }
+    if (!removed.isEmpty() || wasReleased) {
       LOGGER.info("Cleared {} ROIs from image '{}'", removed.size(), imageFileName);
 
       // Notify listeners
@@ -234,8 +456,13 @@ public class ROIManager {
    * Clear all ROIs from all images
    */
   public void clearAllROIs() {
-    Set<String> imageNames = new HashSet<>(imageROIs.keySet());
-    imageROIs.clear();
+    Set<String> imageNames = new LinkedHashSet<>(imageROIs.clear());
+    synchronized (pagedImages) {
+      imageNames.addAll(releasedImages);
+      releasedImages.clear();
+      pagedImages.clear();
+      editedImages.clear();
+    }
 
     LOGGER.info("Cleared all ROIs from {} images", imageNames.size());
 
@@ -257,14 +484,27 @@ public class ROIManager {
    * Get ROI count for a specific image
    */
   public int getROICount(String imageFileName) {
-    return imageROIs.getOrDefault(imageFileName, Collections.emptyList()).size();
+    int resident = imageROIs.size(imageFileName);
+    return releasedImages.contains(imageFileName)
+        ? releasedROICount(imageFileName) + resident
+        : resident;
   }
 
   /**
    * Get total ROI count across all images
    */
   public int getTotalROICount() {
-    return imageROIs.values().stream().mapToInt(List::size).sum();
+    int total = imageROIs.size();
+    for (String imageFileName : releasedImages) {
+      total += releasedROICount(imageFileName);
+    }
+    return total;
+  }
+
+  private int releasedROICount(String imageFileName) {
+    ResultsSource source = resultsSource;
+    ResultsFile.ImageInfo image = source != null ? source.getImage(imageFileName) : null;
+    return image != null ? image.roiCount() : 0;
   }
 
   /**
@@ -278,7 +518,7 @@ public class ROIManager {
    * Find ROI by ID
    */
   public UserROI findROIById(String roiId) {
-    return getAllROIs().stream().filter(roi -> roi.getId().equals(roiId)).findFirst().orElse(null);
+    return imageROIs.get(roiId);
   }
 
   /**
@@ -308,119 +548,20 @@ public class ROIManager {
   /**
    * Save all ROIs from all images to a master ZIP file.
    * Each image's ROIs are saved in a separate ZIP file within the master ZIP.
+   * Files with the {@code .sroi} extension are written as a binary ROI container instead.
    */
   public void saveAllROIsToMasterZip(File outputFile) throws IOException {
-    if (imageROIs.isEmpty()) {
+    Map<String, List<UserROI>> roisByImage = getAllROIsByImage();
+    if (roisByImage.isEmpty()) {
       throw new IllegalArgumentException("No ROIs found in any image");
     }
 
-    // Create a temporary directory for individual image ZIP files
-    File tempDir =
-        new File(
-            System.getProperty("java.io.tmpdir"),
-            "scipathj_master_rois_" + System.currentTimeMillis());
-    tempDir.mkdirs();
-
-    try {
-      // Create ZIP file for each image that has ROIs
-      for (Map.Entry<String, List<UserROI>> entry : imageROIs.entrySet()) {
-        String imageFileName = entry.getKey();
-        List<UserROI> rois = entry.getValue();
-
-        if (!rois.isEmpty()) {
-          // Create safe filename for the image's ZIP file
-          String safeImageName = sanitizeFileName(imageFileName);
-          File imageZipFile = new File(tempDir, safeImageName + "_ROIs.zip");
-
-          // Save ROIs for this image
-          if (rois.size() == 1) {
-            // For single ROI, create a ZIP containing the single .roi file
-            saveSingleROIAsZip(rois.get(0), imageZipFile);
-          } else {
-            // For multiple ROIs, save as ZIP
-            saveMultipleROIs(rois, imageZipFile);
-          }
-        }
-      }
-
-      // Create master ZIP file containing all image ZIP files
-      createMasterZipFile(tempDir, outputFile);
-
-      LOGGER.info(
-          "Saved ROIs from {} images to master ZIP file '{}'",
-          imageROIs.size(),
-          outputFile.getAbsolutePath());
-
-    } finally {
-      // Clean up temporary files
-      deleteDirectory(tempDir);
-    }
-  }
-
-  /**
-   * Save a single ROI as a ZIP file (for consistency in master ZIP)
-   */
-  private void saveSingleROIAsZip(UserROI userROI, File outputFile) throws IOException {
-    // Create a temporary directory for the single ROI file
-    File tempDir =
-        new File(
-            System.getProperty("java.io.tmpdir"),
-            "scipathj_single_roi_" + System.currentTimeMillis());
-    tempDir.mkdirs();
-
-    try {
-      // Save the ROI as individual file
-      Roi ijRoi = convertToImageJROI(userROI);
-      File roiFile = new File(tempDir, "0001-" + userROI.getName() + ".roi");
-      RoiEncoder.save(ijRoi, roiFile.getAbsolutePath());
-
-      // Create ZIP file containing the single ROI
-      createROIZipFile(tempDir, outputFile);
-
-    } finally {
-      // Clean up temporary files
-      deleteDirectory(tempDir);
-    }
-  }
-
-  /**
-   * Create master ZIP file containing all image ZIP files
-   */
-  private void createMasterZipFile(File sourceDir, File outputFile) throws IOException {
-    try (java.util.zip.ZipOutputStream zos =
-        new java.util.zip.ZipOutputStream(new FileOutputStream(outputFile))) {
-      File[] zipFiles = sourceDir.listFiles((dir, name) -> name.endsWith(".zip"));
-      if (zipFiles != null) {
-        for (File zipFile : zipFiles) {
-          java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(zipFile.getName());
-          zos.putNextEntry(entry);
-
-          try (FileInputStream fis = new FileInputStream(zipFile)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-              zos.write(buffer, 0, length);
-            }
-          }
-          zos.closeEntry();
-        }
-      }
-    }
-  }
-
-  /**
-   * Sanitize filename to be safe for file system
-   */
-  private String sanitizeFileName(String fileName) {
-    // Remove file extension if present
-    String baseName = fileName;
-    int lastDot = baseName.lastIndexOf('.');
-    if (lastDot > 0) {
-      baseName = baseName.substring(0, lastDot);
-    }
+    ROIArchive.write(outputFile, roisByImage, this::convertToImageJROI);
 
-    // Replace unsafe characters with underscores
-    return baseName.replaceAll("[^a-zA-Z0-9._-]", "_");
+    LOGGER.info(
+        "Saved ROIs from {} images to master ZIP file '{}'",
+        roisByImage.size(),
+        outputFile.getAbsolutePath());
   }
 
   /**
@@ -435,72 +576,7 @@ public class ROIManager {
    * Save multiple ROIs to file (as ROI set)
    */
   private void saveMultipleROIs(List<UserROI> rois, File outputFile) throws IOException {
-    // Create a temporary directory for individual ROI files
-    File tempDir =
-        new File(
-            System.getProperty("java.io.tmpdir"), "scipathj_rois_" + System.currentTimeMillis());
-    tempDir.mkdirs();
-
-    try {
-      // Save each ROI as individual file
-      for (int i = 0; i < rois.size(); i++) {
-        UserROI userROI = rois.get(i);
-        Roi ijRoi = convertToImageJROI(userROI);
-        File roiFile = new File(tempDir, String.format("%04d-%s.roi", i + 1, userROI.getName()));
-        RoiEncoder.save(ijRoi, roiFile.getAbsolutePath());
-      }
-
-      // Create ZIP file containing all ROIs
-      createROIZipFile(tempDir, outputFile);
-
-    } finally {
-      // Clean up temporary files
-      deleteDirectory(tempDir);
-    }
-  }
-
-  /**
-   * Create a ZIP file containing all ROI files (ImageJ ROI Set format)
-   */
-  private void createROIZipFile(File roiDir, File outputFile) throws IOException {
-    try (java.util.zip.ZipOutputStream zos =
-        new java.util.zip.ZipOutputStream(new FileOutputStream(outputFile))) {
-      File[] roiFiles = roiDir.listFiles((dir, name) -> name.endsWith(".roi"));
-      if (roiFiles != null) {
-        for (File roiFile : roiFiles) {
-          java.util.zip.ZipEntry entry = new java.util.zip.ZipEntry(roiFile.getName());
-          zos.putNextEntry(entry);
-
-          try (FileInputStream fis = new FileInputStream(roiFile)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = fis.read(buffer)) > 0) {
-              zos.write(buffer, 0, length);
-            }
-          }
-          zos.closeEntry();
-        }
-      }
-    }
-  }
-
-  /**
-   * Delete directory and all its contents
-   */
-  private void deleteDirectory(File dir) {
-    if (dir.exists()) {
-      File[] files = dir.listFiles();
-      if (files != null) {
-        for (File file : files) {
-          if (file.isDirectory()) {
-            deleteDirectory(file);
-          } else {
-            file.delete();
-          }
-        }
-      }
-      dir.delete();
-    }
+    ROIZipIO.writeROISet(outputFile, rois, this::convertToImageJROI);
   }
 
   /**
@@ -593,32 +669,13 @@ public class ROIManager {
   private List<UserROI> loadROISetFromZip(File zipFile, String imageFileName) throws IOException {
     List<UserROI> rois = new ArrayList<>();
 
-    try (java.util.zip.ZipInputStream zis =
-        new java.util.zip.ZipInputStream(new FileInputStream(zipFile))) {
-      java.util.zip.ZipEntry entry;
-      while ((entry = zis.getNextEntry()) != null) {
-        if (entry.getName().endsWith(".roi")) {
-          // Create temporary file for this ROI
-          File tempFile = File.createTempFile("roi_", ".roi");
-          try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = zis.read(buffer)) > 0) {
-              fos.write(buffer, 0, length);
-            }
-          }
-
-          // Load ROI from temporary file
-          UserROI roi = loadSingleROI(tempFile, imageFileName);
-          if (roi != null) {
-            rois.add(roi);
-          }
-
-          // Clean up temporary file
-          tempFile.delete();
-        }
-        zis.closeEntry();
-      }
+    try (InputStream in = new BufferedInputStream(new FileInputStream(zipFile))) {
+      ROIZipIO.readROISet(
+          in,
+          (entryName, ijRoi) -> {
+            rois.add(convertFromImageJROI(ijRoi, imageFileName));
+            return true;
+          });
     }
 
     return rois;
@@ -671,12 +728,13 @@ public class ROIManager {
    */
   public Map<String, Object> getROIStatistics() {
     Map<String, Object> stats = new HashMap<>();
-    stats.put("totalImages", imageROIs.size());
+    Map<String, List<UserROI>> roisByImage = imageROIs.getAllByImage();
+    stats.put("totalImages", roisByImage.size());
     stats.put("totalROIs", getTotalROICount());
 
     // Per-image statistics
     Map<String, Integer> perImageStats = new HashMap<>();
-    imageROIs.forEach((image, rois) -> perImageStats.put(image, rois.size()));
+    roisByImage.forEach((image, rois) -> perImageStats.put(image, rois.size()));
     stats.put("perImageROICount", perImageStats);
 
     return stats;
@@ -1,32 +1,33 @@
 package com.scipath.scipathj.ui.common;
 
 import com.scipath.scipathj.infrastructure.config.MainSettings;
+import com.scipath.scipathj.infrastructure.roi.ROIPathBatch;
+import com.scipath.scipathj.infrastructure.roi.ROISpatialIndex;
+import com.scipath.scipathj.infrastructure.roi.ROITileRenderer;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import com.scipath.scipathj.ui.utils.UIConstants;
 import ij.gui.Roi;
-import ij.gui.ShapeRoi;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
-import java.awt.image.BufferedImage;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import javax.swing.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Ultra-efficient ROI overlay with single-calculation and buffered rendering.
+ * Ultra-efficient ROI overlay with single-calculation and tiled rendering.
  *
  * Key optimizations:
- * - ShapeRoi shapes calculated once at creation time
- * - Large buffer covering entire image at native resolution
- * - Fast copy operations for scroll/zoom (no re-rendering)
- * - Native image resolution as baseline
+ * - Outlines flattened once into the shared ROIGeometryCache and drawn batched per colour
+ * - Only tiles in the visible area are rendered, cached per zoom level (memory bounded by screen
+ *   size, not slide size)
+ * - Centroid dots and density heatmap instead of outlines when zoomed far out
+ * - Tiles rasterised off the EDT; the previous frame stays visible until the new one is complete
+ * - Spatial index for hit-testing and viewport culling, independent of ROI count
  */
 public class ROIOverlay extends JComponent {
 
@@ -36,32 +37,27 @@ public class ROIOverlay extends JComponent {
   private static final int SELECTION_STROKE_WIDTH = UIConstants.SELECTION_STROKE_WIDTH;
   private static final float[] DASH_PATTERN = UIConstants.DASH_PATTERN;
   private static final Color SELECTION_COLOR = UIConstants.ROI_SELECTION_COLOR;
-  private static final int BUFFER_MARGIN = 100; // Extra space around image for scrolling
 
-  // Core settings
-  private MainSettings mainSettings;
+  // Core settings, read by the background overlay renderer
+  private volatile MainSettings mainSettings;
 
   // ROI data
   private final List<UserROI> displayedROIs = new CopyOnWriteArrayList<>();
+  private final ROISpatialIndex spatialIndex = new ROISpatialIndex();
   private String currentImageFileName;
 
-  // Filter state
-  private boolean vesselFilterEnabled = true;
-  private boolean nucleusFilterEnabled = true;
-  private boolean cytoplasmFilterEnabled = true;
-  private boolean cellFilterEnabled = true;
-  private boolean ignoreFilterEnabled = true;
+  // Filter state, read by the background overlay renderer
+  private volatile boolean vesselFilterEnabled = true;
+  private volatile boolean nucleusFilterEnabled = true;
+  private volatile boolean cytoplasmFilterEnabled = true;
+  private volatile boolean cellFilterEnabled = true;
+  private volatile boolean ignoreFilterEnabled = true;
 
-  // Single-calculation shape cache - calculated once, never recalculated
-  private final Map<Integer, java.awt.Shape> originalShapes = new ConcurrentHashMap<>();
+  // Tiled renderer drawing only the visible part of the overlay
+  private final ROITileRenderer tileRenderer =
+      new ROITileRenderer(spatialIndex, new OverlayPainter());
 
-  // Large buffer covering entire image at native resolution
-  private BufferedImage masterBuffer;
-  private int bufferWidth;
-  private int bufferHeight;
-  private boolean bufferValid = false;
-
-  // Transform state for fast copy operations
+  // Transform state shared with the image viewer
   private double scaleX = 1.0;
   private double scaleY = 1.0;
   private double offsetX = 0.0;
@@ -93,6 +89,9 @@ public class ROIOverlay extends JComponent {
     this.mainSettings = Objects.requireNonNull(mainSettings, "mainSettings");
     setOpaque(false);
 
+    // Rasterise overlay tiles in the background and repaint as they arrive
+    tileRenderer.setBackgroundRendering(this::repaint);
+
     // Configure tooltip for immediate appearance and persistence
     ToolTipManager.sharedInstance().setInitialDelay(0);
     ToolTipManager.sharedInstance().setDismissDelay(Integer.MAX_VALUE); // Never dismiss automatically
@@ -148,177 +147,6 @@ public class ROIOverlay extends JComponent {
     });
   }
 
-  // ===== SINGLE-CALCULATION SHAPE SYSTEM =====
-
-  /**
-   * Calculate and cache the original shape for an ROI - done once per ROI lifetime
-   */
-  private java.awt.Shape getOrCalculateOriginalShape(UserROI roi) {
-    Integer roiKey = roi.hashCode();
-
-    java.awt.Shape cachedShape = originalShapes.get(roiKey);
-    if (cachedShape != null) {
-      return cachedShape;
-    }
-
-    // Calculate shape once and cache forever
-    java.awt.Shape calculatedShape = calculateOriginalShape(roi);
-    if (calculatedShape != null) {
-      originalShapes.put(roiKey, calculatedShape);
-      // LOGGER.debug("Calculated and cached original shape for ROI: {}", roi.getName());
-    }
-
-    return calculatedShape;
-  }
-
-  /**
-   * Calculate the original shape for an ROI at native image resolution
-   */
-  private java.awt.Shape calculateOriginalShape(UserROI roi) {
-    Roi imageJRoi = roi.getImageJRoi();
-    if (imageJRoi == null) {
-      // Fallback to simple rectangle
-      Rectangle bounds = roi.getBounds();
-      return new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height);
-    }
-
-    // Handle ShapeRoi (donut shapes) - calculate once at creation
-    if (imageJRoi instanceof ShapeRoi) {
-      ShapeRoi shapeRoi = (ShapeRoi) imageJRoi;
-      java.awt.Shape shape = shapeRoi.getShape();
-      if (shape != null) {
-        // LOGGER.debug("Extracted Shape from ShapeRoi for '{}': {}", roi.getName(), shape.getClass().getSimpleName());
-        return shape;
-      }
-    }
-
-    // Fallback to polygon for other complex shapes
-    Polygon polygon = imageJRoi.getPolygon();
-    if (polygon != null) {
-      return polygon;
-    }
-
-    // Final fallback to bounding rectangle
-    Rectangle bounds = imageJRoi.getBounds();
-    return new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height);
-  }
-
-  // ===== MASTER BUFFER SYSTEM =====
-
-  /**
-   * Initialize or resize the master buffer for native image resolution
-   */
-  private void ensureBufferSize(int width, int height) {
-    // For native resolution rendering, we need space for the entire image
-    // plus margins for positioning ROIs that might extend beyond image bounds
-    int requiredWidth = width + 2 * BUFFER_MARGIN;
-    int requiredHeight = height + 2 * BUFFER_MARGIN;
-
-    if (masterBuffer == null || bufferWidth < requiredWidth || bufferHeight < requiredHeight) {
-      bufferWidth = Math.max(requiredWidth, bufferWidth);
-      bufferHeight = Math.max(requiredHeight, bufferHeight);
-
-      masterBuffer = new BufferedImage(bufferWidth, bufferHeight, BufferedImage.TYPE_INT_ARGB);
-      bufferValid = false;
-    }
-  }
-
-  /**
-   * Render all ROIs to the master buffer at native image resolution
-   */
-  private void renderToMasterBuffer() {
-    if (masterBuffer == null || displayedROIs.isEmpty()) {
-      bufferValid = false;
-      return;
-    }
-
-
-    Graphics2D g2d = masterBuffer.createGraphics();
-
-    try {
-      // Clear buffer with transparent background
-      g2d.setComposite(AlphaComposite.Clear);
-      g2d.fillRect(0, 0, bufferWidth, bufferHeight);
-      g2d.setComposite(AlphaComposite.SrcOver);
-
-      // Disable antialiasing for maximum performance
-      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-
-      // Render only ROIs that pass the current filter
-      for (UserROI roi : displayedROIs) {
-        if (shouldDisplayROI(roi)) {
-          renderROIAtNativeResolution(g2d, roi, BUFFER_MARGIN, BUFFER_MARGIN);
-        }
-      }
-
-      bufferValid = true;
-
-    } finally {
-      g2d.dispose();
-    }
-  }
-
-  /**
-   * Render a single ROI to the buffer at native resolution
-   * IMPORTANT: Only apply base coordinate offsets here, not scaling/translation
-   * The main scaling and translation will be applied during copyFromMasterBuffer()
-   */
-  private void renderROIAtNativeResolution(Graphics2D g2d, UserROI roi, int offsetX, int offsetY) {
-    java.awt.Shape originalShape = getOrCalculateOriginalShape(roi);
-    if (originalShape == null) return;
-
-    // Get appearance settings
-    MainSettings.ROICategory category = determineROICategory(roi);
-    MainSettings.ROIAppearanceSettings settings = mainSettings.getSettingsForCategory(category);
-
-    // Check if ROI should be ignored
-    boolean isIgnored = roi.isIgnored();
-    Color fillColor, borderColor;
-    float borderWidth;
-
-    if (isIgnored) {
-      // Use ignore settings for ignored ROIs
-      MainSettings.IgnoreROIAppearanceSettings ignoreSettings = mainSettings.ignoreSettings();
-      if (!ignoreSettings.showIgnoredROIs()) {
-        return; // Don't render ignored ROIs if they're disabled
-      }
-      fillColor = ignoreSettings.getFillColor();
-      borderColor = ignoreSettings.ignoreColor();
-      borderWidth = ignoreSettings.borderWidth();
-    } else {
-      // Use normal settings for regular ROIs
-      fillColor = settings.getFillColor();
-      borderColor = roi.getDisplayColor() != null ? roi.getDisplayColor() : settings.borderColor();
-      borderWidth = settings.borderWidth();
-    }
-
-    // Calculate position: base margin offset plus ROI-specific base coordinates
-    double totalOffsetX = offsetX;
-    double totalOffsetY = offsetY;
-
-    // For ShapeRoi objects, account for their base coordinates
-    Roi imageJRoi = roi.getImageJRoi();
-    if (imageJRoi instanceof ShapeRoi) {
-      ShapeRoi shapeRoi = (ShapeRoi) imageJRoi;
-      totalOffsetX += shapeRoi.getXBase();
-      totalOffsetY += shapeRoi.getYBase();
-    }
-
-    // Create transformed shape with ONLY position offset (no scaling)
-    AffineTransform transform = AffineTransform.getTranslateInstance(totalOffsetX, totalOffsetY);
-    java.awt.Shape transformedShape = transform.createTransformedShape(originalShape);
-
-    // Fill shape
-    g2d.setColor(fillColor);
-    g2d.fill(transformedShape);
-
-    // Draw border
-    Stroke borderStroke = new BasicStroke(borderWidth);
-    g2d.setStroke(borderStroke);
-    g2d.setColor(borderColor);
-    g2d.draw(transformedShape);
-  }
   @Override
   protected void paintComponent(Graphics g) {
     super.paintComponent(g);
@@ -326,20 +154,11 @@ public class ROIOverlay extends JComponent {
     Graphics2D g2d = (Graphics2D) g.create();
     
     try {
-      // HIGH-LEVEL LOGGING: Track rendering path and ROI count
-      String renderingPath;
-      if (bufferValid && masterBuffer != null) {
-        renderingPath = "BUFFER_COPY";
-        copyFromMasterBuffer(g2d);
-      } else if (!displayedROIs.isEmpty()) {
-        renderingPath = "DIRECT_RENDER";
-        renderDirectly(g2d);
-      } else {
-        renderingPath = "NO_ROIS";
+      if (!displayedROIs.isEmpty()) {
+        tileRenderer.paint(g2d, scaleX, scaleY, offsetX, offsetY);
       }
-      
 
-      // Always render creation ROI directly (not in buffer)
+      // Always render creation ROI directly (not in tiles)
       if (isCreatingROI && roiStartPoint != null && roiCurrentPoint != null) {
         renderCreationROI(g2d);
       }
@@ -350,86 +169,40 @@ public class ROIOverlay extends JComponent {
   }
 
   /**
-   * Fast copy from master buffer with exact coordinate synchronization
-   * CRITICAL: This must use exactly the same transform as the image
+   * Draws the ROIs into overlay tiles using the current settings and filters
    */
-  private void copyFromMasterBuffer(Graphics2D g2d) {
-    if (masterBuffer == null || !bufferValid) {
-      renderDirectly(g2d);
-      return;
+  private class OverlayPainter implements ROITileRenderer.ROIPainter {
+
+    @Override
+    public boolean isVisible(UserROI roi) {
+      return shouldDisplayROI(roi)
+          && (!roi.isIgnored() || mainSettings.ignoreSettings().showIgnoredROIs());
     }
 
-    // SIMPLIFIED APPROACH: The buffer contains ROIs at native resolution
-    // We always copy the entire image region from the buffer and let the transform handle positioning
-    // This eliminates complex coordinate calculations that could introduce errors
-    try {
-      int srcX = BUFFER_MARGIN;
-      int srcY = BUFFER_MARGIN;
-      int srcWidth = Math.min(imageWidth, bufferWidth - 2 * BUFFER_MARGIN);
-      int srcHeight = Math.min(imageHeight, bufferHeight - 2 * BUFFER_MARGIN);
-
-      if (srcWidth <= 0 || srcHeight <= 0) {
-        renderDirectly(g2d);
-        return;
+    @Override
+    public void paintROIs(Graphics2D g2d, List<UserROI> rois, AffineTransform imageToTile) {
+      // One path per run of ROIs sharing an appearance instead of one fill and draw call per ROI
+      ROIPathBatch batch = new ROIPathBatch(imageToTile);
+      for (UserROI roi : rois) {
+        addToBatch(batch, roi);
       }
-
-      // Extract the image portion from the buffer (fixed region)
-      BufferedImage visiblePortion = masterBuffer.getSubimage(srcX, srcY, srcWidth, srcHeight);
-
-      // Apply EXACTLY the same transform as the image uses
-      // This ensures the overlay moves exactly the same amount as the image
-      AffineTransform transform = new AffineTransform();
-      transform.scale(scaleX, scaleY);
-      transform.translate(offsetX / scaleX, offsetY / scaleY);
-
-
-      g2d.drawImage(visiblePortion, transform, null);
-
-    } catch (Exception e) {
-
+      batch.draw(g2d);
     }
-  }
-
-  /**
-   * Direct rendering fallback when buffer is not available
-   */
-  private void renderDirectly(Graphics2D g2d) {
-    LOGGER.debug("DIRECT RENDERING: {} ROIs with transform scale=({}, {}), offset=({}, {})",
-        displayedROIs.size(), scaleX, scaleY, offsetX, offsetY);
 
-    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-    g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-
-    // Render only ROIs that pass the current filter
-    for (UserROI roi : displayedROIs) {
-      if (shouldDisplayROI(roi)) {
-        renderROIDirect(g2d, roi);
+    @Override
+    public Color getLODColor(UserROI roi) {
+      if (roi.isIgnored()) {
+        return mainSettings.ignoreSettings().ignoreColor();
+      }
+      if (roi.getDisplayColor() != null) {
+        return roi.getDisplayColor();
       }
+      return mainSettings.getSettingsForCategory(determineROICategory(roi)).borderColor();
     }
   }
 
-  private void renderROIDirect(Graphics2D g2d, UserROI roi) {
-    java.awt.Shape originalShape = getOrCalculateOriginalShape(roi);
-    if (originalShape == null) return;
-
-    // UNIFIED APPROACH: Use exactly the same transform as buffer copy path
-    // First, create the base transform (same as buffer copy)
-    AffineTransform transform = new AffineTransform();
-    transform.scale(scaleX, scaleY);
-    transform.translate(offsetX / scaleX, offsetY / scaleY);
-
-    // Apply any additional ROI-specific offsets (for ShapeRoi base coordinates)
-    Roi imageJRoi = roi.getImageJRoi();
-    if (imageJRoi instanceof ShapeRoi) {
-      ShapeRoi shapeRoi = (ShapeRoi) imageJRoi;
-      // Apply base coordinate offset AFTER the main transform
-      transform.translate(shapeRoi.getXBase(), shapeRoi.getYBase());
-    }
-
-    // Apply the transform to the shape
-    java.awt.Shape transformedShape = transform.createTransformedShape(originalShape);
-
-    // Get appearance settings and render
+  private void addToBatch(ROIPathBatch batch, UserROI roi) {
+    // Get appearance settings
     MainSettings.ROICategory category = determineROICategory(roi);
     MainSettings.ROIAppearanceSettings settings = mainSettings.getSettingsForCategory(category);
 
@@ -441,9 +214,6 @@ public class ROIOverlay extends JComponent {
     if (isIgnored) {
       // Use ignore settings for ignored ROIs
       MainSettings.IgnoreROIAppearanceSettings ignoreSettings = mainSettings.ignoreSettings();
-      if (!ignoreSettings.showIgnoredROIs()) {
-        return; // Don't render ignored ROIs if they're disabled
-      }
       fillColor = ignoreSettings.getFillColor();
       borderColor = ignoreSettings.ignoreColor();
       borderWidth = ignoreSettings.borderWidth();
@@ -454,13 +224,7 @@ public class ROIOverlay extends JComponent {
       borderWidth = settings.borderWidth();
     }
 
-    g2d.setColor(fillColor);
-    g2d.fill(transformedShape);
-
-    Stroke borderStroke = new BasicStroke(borderWidth);
-    g2d.setStroke(borderStroke);
-    g2d.setColor(borderColor);
-    g2d.draw(transformedShape);
+    batch.add(roi, fillColor, borderColor, borderWidth);
   }
 
   private void renderCreationROI(Graphics2D g2d) {
@@ -507,11 +271,19 @@ public class ROIOverlay extends JComponent {
       // Add all ROIs without filtering - filtering will happen during rendering
       displayedROIs.addAll(rois);
     }
+
+    // Same image: update the index incrementally and keep showing the old tiles until the new
+    // ones are rendered. Otherwise start over.
+    if (!Objects.equals(imageFileName, currentImageFileName)) {
+      spatialIndex.clear();
+      tileRenderer.clear();
+    } else {
+      tileRenderer.invalidate();
+    }
+    spatialIndex.update(displayedROIs);
     currentImageFileName = imageFileName;
     selectedROI = null;
 
-    // Invalidate buffer and trigger re-render
-    bufferValid = false;
     repaint();
 
   }
@@ -535,18 +307,15 @@ public class ROIOverlay extends JComponent {
       this.imageWidth = width;
       this.imageHeight = height;
 
-      ensureBufferSize(width, height);
-
-      // Trigger buffer re-render on dimension change
-      if (!displayedROIs.isEmpty()) {
-        renderToMasterBuffer();
-      }
+      // Tiles outside the new image bounds are no longer valid
+      tileRenderer.setImageSize(width, height);
+      repaint();
     }
   }
 
   public void updateSettings(MainSettings newSettings) {
     this.mainSettings = Objects.requireNonNull(newSettings, "newSettings");
-    bufferValid = false; // Settings change requires re-render
+    tileRenderer.invalidate(); // Settings change requires re-render
     repaint();
   }
 
@@ -583,7 +352,7 @@ public class ROIOverlay extends JComponent {
       }
     }
     // Trigger re-render with new filter state
-    bufferValid = false;
+    tileRenderer.invalidate();
     repaint();
   }
 
@@ -747,18 +516,13 @@ public class ROIOverlay extends JComponent {
   }
 
   private UserROI findROIAtPoint(Point point) {
-    // Iterate backwards to find topmost visible ROI
-    for (int i = displayedROIs.size() - 1; i >= 0; i--) {
-      UserROI roi = displayedROIs.get(i);
-
-      // Only consider ROIs that pass the current filter
-      if (shouldDisplayROI(roi)) {
-        if (isPointInROI(point, roi)) {
-          return roi;
-        }
-      }
-    }
-    return null;
+    // Transform screen point to image coordinates
+    double imageX = (point.x - offsetX) / scaleX;
+    double imageY = (point.y - offsetY) / scaleY;
+
+    // Topmost ROI whose bounds contain the point, that passes the filter and the exact shape test
+    return spatialIndex.findTopmost(
+        imageX, imageY, roi -> shouldDisplayROI(roi) && isPointInROI(point, roi));
   }
 
   private boolean isPointInROI(Point point, UserROI roi) {
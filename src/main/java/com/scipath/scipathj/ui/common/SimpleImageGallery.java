@@ -5,10 +5,15 @@ import com.scipath.scipathj.ui.utils.UIConstants;
 import com.scipath.scipathj.ui.utils.UIUtils;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
@@ -23,6 +28,12 @@ import org.slf4j.LoggerFactory;
  * with minimal information display. It's designed to work alongside a main
  * image viewer component.</p>
  *
+ * <p>The list is virtualised: thumbnail components exist only for the rows in the
+ * viewport plus a prefetch margin. Rows scrolling out of that range are recycled and
+ * their pending loads cancelled, so folders with thousands of images cost no more
+ * than the visible part. Loaded thumbnails are kept in a bounded memory cache to make
+ * scrolling back instant.</p>
+ *
  * @author Sebastian Micu
  * @version 1.0.0
  * @since 1.0.0
@@ -31,22 +42,43 @@ public class SimpleImageGallery extends JPanel {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(SimpleImageGallery.class);
 
+  // Rows materialised above and below the viewport
+  private static final int PREFETCH_ROWS = 8;
+  private static final int MEMORY_CACHE_SIZE = 512;
+  private static final int ROW_HEIGHT = UIConstants.PANEL_HEIGHT + UIConstants.SMALL_SPACING;
+
   private JScrollPane scrollPane;
   private JPanel thumbnailContainer;
+  private ThumbnailStrip thumbnailStrip;
   private JLabel statusLabel;
 
   private File currentFolder;
-  private List<SimpleImageThumbnail> thumbnails;
-  private SimpleImageThumbnail selectedThumbnail;
+  private List<File> imageFiles;
+  private final Map<Integer, SimpleImageThumbnail> materializedThumbnails = new HashMap<>();
+  private final Map<CachedThumbnailKey, BufferedImage> thumbnailMemoryCache =
+      new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CachedThumbnailKey, BufferedImage> eldest) {
+          return size() > MEMORY_CACHE_SIZE;
+        }
+      };
+  private int selectedIndex = -1;
   private ActionListener selectionChangeListener;
 
   private boolean isLoading = false;
 
+  /** Identifies a loaded thumbnail; the timestamp invalidates it when the file changes. */
+  private record CachedThumbnailKey(File file, long lastModified) {
+    static CachedThumbnailKey of(File file) {
+      return new CachedThumbnailKey(file, file.lastModified());
+    }
+  }
+
   /**
    * Creates a new SimpleImageGallery.
    */
   public SimpleImageGallery() {
-    this.thumbnails = new ArrayList<>();
+    this.imageFiles = new ArrayList<>();
 
     initializeComponents();
     setupLayout();
@@ -62,6 +94,7 @@ public class SimpleImageGallery extends JPanel {
     setOpaque(false);
 
     createThumbnailContainer();
+    thumbnailStrip = new ThumbnailStrip();
     createScrollPane();
     createStatusLabel();
   }
@@ -85,6 +118,8 @@ public class SimpleImageGallery extends JPanel {
     scrollPane.setBorder(BorderFactory.createEmptyBorder());
     scrollPane.setOpaque(false);
     scrollPane.getViewport().setOpaque(false);
+    // Fires on scrolling and on viewport resizes
+    scrollPane.getViewport().addChangeListener(e -> updateMaterializedThumbnails());
   }
 
   /**
@@ -115,11 +150,21 @@ public class SimpleImageGallery extends JPanel {
     add(statusLabel, BorderLayout.SOUTH);
   }
 
+  /**
+   * Replaces the thumbnail strip with the (emptied) state container.
+   */
+  private void showStateContainer() {
+    thumbnailContainer.removeAll();
+    if (scrollPane.getViewport().getView() != thumbnailContainer) {
+      scrollPane.setViewportView(thumbnailContainer);
+    }
+  }
+
   /**
    * Shows the empty state when no images are available.
    */
   private void showEmptyState() {
-    thumbnailContainer.removeAll();
+    showStateContainer();
     thumbnailContainer.add(createStatePanel(FontAwesomeSolid.IMAGES, "No images", null));
     statusLabel.setText("");
     revalidate();
@@ -130,7 +175,7 @@ public class SimpleImageGallery extends JPanel {
    * Shows the loading state while images are being processed.
    */
   private void showLoadingState() {
-    thumbnailContainer.removeAll();
+    showStateContainer();
     thumbnailContainer.add(createStatePanel(FontAwesomeSolid.SPINNER, "Loading...", null));
     statusLabel.setText("Loading images...");
     revalidate();
@@ -159,7 +204,7 @@ public class SimpleImageGallery extends JPanel {
       return;
     }
 
-    if (folder.equals(currentFolder) && !thumbnails.isEmpty() && highlightFile == null) {
+    if (folder.equals(currentFolder) && !imageFiles.isEmpty() && highlightFile == null) {
       LOGGER.debug("Folder already loaded: {}", folder.getAbsolutePath());
       return;
     }
@@ -215,68 +260,127 @@ public class SimpleImageGallery extends JPanel {
   }
 
   /**
-   * Displays the provided image files as thumbnails.
+   * Displays the provided image files as thumbnails. Only the rows around the viewport are
+   * materialised, see {@link #updateMaterializedThumbnails()}.
    *
-   * @param imageFiles array of image files to display
+   * @param files array of image files to display
    */
-  private void displayImages(File[] imageFiles) {
-    // Setup thumbnail container
-    thumbnailContainer.removeAll();
-
-    // Create thumbnails
-    for (File imageFile : imageFiles) {
-      SimpleImageThumbnail thumbnail = new SimpleImageThumbnail(imageFile);
-
-      // Add selection listener
-      thumbnail.addPropertyChangeListener(
-          "thumbnailSelected",
-          evt -> {
-            SimpleImageThumbnail clickedThumbnail = (SimpleImageThumbnail) evt.getNewValue();
-            selectThumbnail(clickedThumbnail);
-          });
-
-      thumbnails.add(thumbnail);
-      thumbnailContainer.add(thumbnail);
+  private void displayImages(File[] files) {
+    clearThumbnails();
+    imageFiles = new ArrayList<>(Arrays.asList(files));
 
-      // Add spacing between thumbnails
-      if (thumbnails.size() < imageFiles.length) {
-        thumbnailContainer.add(Box.createVerticalStrut(UIConstants.SMALL_SPACING));
-      }
-    }
+    scrollPane.setViewportView(thumbnailStrip);
+    scrollPane.getViewport().setViewPosition(new Point(0, 0));
+    thumbnailStrip.revalidate();
 
     this.isLoading = false;
     updateStatusLabel();
 
     // Auto-select first image
-    if (!thumbnails.isEmpty()) {
-      selectThumbnail(thumbnails.get(0));
+    if (!imageFiles.isEmpty()) {
+      selectThumbnail(0);
     }
 
     revalidate();
     repaint();
+    // The viewport extent is only known after layout
+    SwingUtilities.invokeLater(this::updateMaterializedThumbnails);
 
     LOGGER.info(
-        "Displayed {} images from folder: {}", imageFiles.length, currentFolder.getAbsolutePath());
+        "Displayed {} images from folder: {}", files.length, currentFolder.getAbsolutePath());
   }
 
   /**
-   * Selects the specified thumbnail.
+   * Creates thumbnail components for the visible rows plus the prefetch margin and recycles the
+   * ones that left that range, cancelling their pending loads.
+   */
+  private void updateMaterializedThumbnails() {
+    if (imageFiles.isEmpty() || scrollPane.getViewport().getView() != thumbnailStrip) {
+      return;
+    }
+
+    Rectangle viewRect = scrollPane.getViewport().getViewRect();
+    int padding = UIConstants.MEDIUM_SPACING;
+    int first = Math.max(0, (viewRect.y - padding) / ROW_HEIGHT - PREFETCH_ROWS);
+    int last =
+        Math.min(
+            imageFiles.size() - 1,
+            (viewRect.y + viewRect.height - padding) / ROW_HEIGHT + PREFETCH_ROWS);
+
+    Iterator<Map.Entry<Integer, SimpleImageThumbnail>> iterator =
+        materializedThumbnails.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Integer, SimpleImageThumbnail> entry = iterator.next();
+      if (entry.getKey() < first || entry.getKey() > last) {
+        releaseThumbnail(entry.getValue());
+        iterator.remove();
+      }
+    }
+
+    for (int index = first; index <= last; index++) {
+      SimpleImageThumbnail thumbnail = materializedThumbnails.get(index);
+      if (thumbnail == null) {
+        thumbnail = createThumbnail(index);
+        materializedThumbnails.put(index, thumbnail);
+        thumbnailStrip.add(thumbnail);
+      }
+      thumbnail.setBounds(getRowBounds(index));
+    }
+    thumbnailStrip.repaint();
+  }
+
+  private SimpleImageThumbnail createThumbnail(int index) {
+    File imageFile = imageFiles.get(index);
+    SimpleImageThumbnail thumbnail =
+        new SimpleImageThumbnail(
+            imageFile, thumbnailMemoryCache.get(CachedThumbnailKey.of(imageFile)));
+    thumbnail.setSelected(index == selectedIndex);
+
+    // Add selection listener
+    thumbnail.addPropertyChangeListener("thumbnailSelected", evt -> selectThumbnail(index));
+    return thumbnail;
+  }
+
+  private void releaseThumbnail(SimpleImageThumbnail thumbnail) {
+    thumbnail.cancelThumbnailLoad();
+    if (thumbnail.getThumbnailImage() != null) {
+      thumbnailMemoryCache.put(
+          CachedThumbnailKey.of(thumbnail.getImageFile()), thumbnail.getThumbnailImage());
+    }
+    thumbnailStrip.remove(thumbnail);
+  }
+
+  /**
+   * Gets the bounds of a row in the thumbnail strip, centred horizontally.
+   */
+  private Rectangle getRowBounds(int index) {
+    int x = Math.max(0, (thumbnailStrip.getWidth() - UIConstants.PANEL_WIDTH) / 2);
+    int y = UIConstants.MEDIUM_SPACING + index * ROW_HEIGHT;
+    return new Rectangle(x, y, UIConstants.PANEL_WIDTH, UIConstants.PANEL_HEIGHT);
+  }
+
+  /**
+   * Selects the thumbnail at the specified index.
    *
-   * @param thumbnail the thumbnail to select
+   * @param index the index of the image to select
    */
-  private void selectThumbnail(SimpleImageThumbnail thumbnail) {
+  private void selectThumbnail(int index) {
     // Deselect previous thumbnail
-    if (selectedThumbnail != null) {
-      selectedThumbnail.setSelected(false);
+    SimpleImageThumbnail previous = materializedThumbnails.get(selectedIndex);
+    if (previous != null) {
+      previous.setSelected(false);
     }
 
     // Select new thumbnail
-    selectedThumbnail = thumbnail;
-    if (selectedThumbnail != null) {
-      selectedThumbnail.setSelected(true);
+    selectedIndex = index;
+    SimpleImageThumbnail current = materializedThumbnails.get(index);
+    if (current != null) {
+      current.setSelected(true);
+    }
 
-      // Scroll to selected thumbnail
-      scrollPane.getViewport().scrollRectToVisible(selectedThumbnail.getBounds());
+    // Scroll to selected row; this materialises it if needed
+    if (index >= 0) {
+      thumbnailStrip.scrollRectToVisible(getRowBounds(index));
     }
 
     updateStatusLabel();
@@ -287,7 +391,7 @@ public class SimpleImageGallery extends JPanel {
    * Shows a message when no images are found in the folder.
    */
   private void showNoImagesFound() {
-    thumbnailContainer.removeAll();
+    showStateContainer();
     thumbnailContainer.add(
         createStatePanel(
             FontAwesomeSolid.EXCLAMATION_TRIANGLE, "No images found", UIConstants.WARNING_COLOR));
@@ -303,7 +407,7 @@ public class SimpleImageGallery extends JPanel {
    * @param errorMessage the error message to display
    */
   private void showErrorState(String errorMessage) {
-    thumbnailContainer.removeAll();
+    showStateContainer();
     thumbnailContainer.add(
         createStatePanel(
             FontAwesomeSolid.EXCLAMATION_CIRCLE, "Error loading", UIConstants.ERROR_COLOR));
@@ -355,10 +459,10 @@ public class SimpleImageGallery extends JPanel {
   private void updateStatusLabel() {
     if (isLoading) {
       statusLabel.setText("Loading...");
-    } else if (thumbnails.isEmpty()) {
+    } else if (imageFiles.isEmpty()) {
       statusLabel.setText("No images");
     } else {
-      statusLabel.setText(String.format("%d images", thumbnails.size()));
+      statusLabel.setText(String.format("%d images", imageFiles.size()));
     }
   }
 
@@ -366,8 +470,11 @@ public class SimpleImageGallery extends JPanel {
    * Clears all thumbnails and resets the state.
    */
   private void clearThumbnails() {
-    thumbnails.clear();
-    selectedThumbnail = null;
+    // Drop queued loads of the previous folder so they don't delay the new one
+    materializedThumbnails.values().forEach(this::releaseThumbnail);
+    materializedThumbnails.clear();
+    imageFiles = new ArrayList<>();
+    selectedIndex = -1;
     thumbnailContainer.removeAll();
   }
 
@@ -377,7 +484,7 @@ public class SimpleImageGallery extends JPanel {
    * @return selected image file, or null if none selected
    */
   public File getSelectedImageFile() {
-    return selectedThumbnail != null ? selectedThumbnail.getImageFile() : null;
+    return selectedIndex >= 0 ? imageFiles.get(selectedIndex) : null;
   }
 
   /**
@@ -386,7 +493,7 @@ public class SimpleImageGallery extends JPanel {
    * @return list of all image files
    */
   public List<File> getAllImageFiles() {
-    return thumbnails.stream().map(SimpleImageThumbnail::getImageFile).toList();
+    return List.copyOf(imageFiles);
   }
 
   /**
@@ -395,7 +502,7 @@ public class SimpleImageGallery extends JPanel {
    * @return number of images
    */
   public int getImageCount() {
-    return thumbnails.size();
+    return imageFiles.size();
   }
 
   /**
@@ -431,12 +538,10 @@ public class SimpleImageGallery extends JPanel {
    * @param imageFile the image file to select
    */
   public void selectImageByFile(File imageFile) {
-    if (imageFile != null && thumbnails != null) {
-      for (SimpleImageThumbnail thumbnail : thumbnails) {
-        if (thumbnail.getImageFile().equals(imageFile)) {
-          selectThumbnail(thumbnail);
-          break;
-        }
+    if (imageFile != null) {
+      int index = imageFiles.indexOf(imageFile);
+      if (index >= 0) {
+        selectThumbnail(index);
       }
     }
   }
@@ -449,4 +554,49 @@ public class SimpleImageGallery extends JPanel {
       loadImagesFromFolder(currentFolder);
     }
   }
+
+  /**
+   * Scrollable view holding the materialised thumbnails at absolute positions. Its preferred height
+   * covers all rows, so the scroll bar reflects the whole folder.
+   */
+  private final class ThumbnailStrip extends JPanel implements Scrollable {
+
+    ThumbnailStrip() {
+      super(null);
+      setOpaque(false);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+      int padding = UIConstants.MEDIUM_SPACING;
+      int rows = imageFiles.size();
+      int height = rows == 0 ? 0 : rows * ROW_HEIGHT - UIConstants.SMALL_SPACING;
+      return new Dimension(UIConstants.PANEL_WIDTH + 2 * padding, height + 2 * padding);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+      return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+      return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+      return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+      return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+      return false;
+    }
+  }
 }
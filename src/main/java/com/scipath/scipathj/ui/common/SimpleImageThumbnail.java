@@ -1,6 +1,7 @@
 package com.scipath.scipathj.ui.common;
 
 import com.scipath.scipathj.ui.utils.ImageLoader;
+import com.scipath.scipathj.ui.utils.ThumbnailLoader;
 import com.scipath.scipathj.ui.utils.UIConstants;
 import com.scipath.scipathj.ui.utils.UIUtils;
 import java.awt.*;
@@ -8,7 +9,6 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +33,7 @@ public class SimpleImageThumbnail extends JPanel {
   private BufferedImage thumbnailImage;
   private boolean isSelected = false;
   private boolean isLoading = false;
+  private ThumbnailLoader.Request thumbnailRequest;
 
   /**
    * Creates a new SimpleImageThumbnail for the specified image file.
@@ -40,11 +41,25 @@ public class SimpleImageThumbnail extends JPanel {
    * @param imageFile the image file to display
    */
   public SimpleImageThumbnail(File imageFile) {
+    this(imageFile, null);
+  }
+
+  /**
+   * Creates a new SimpleImageThumbnail, reusing an already loaded thumbnail if available.
+   *
+   * @param imageFile the image file to display
+   * @param thumbnail a previously loaded thumbnail, or null to load it asynchronously
+   */
+  public SimpleImageThumbnail(File imageFile, BufferedImage thumbnail) {
     this.imageFile = imageFile;
     initializeComponents();
     setupLayout();
     setupEventHandlers();
-    loadThumbnailAsync();
+    if (thumbnail != null) {
+      setThumbnailImage(thumbnail);
+    } else {
+      loadThumbnailAsync();
+    }
   }
 
   /**
@@ -186,37 +201,39 @@ public class SimpleImageThumbnail extends JPanel {
   }
 
   /**
-   * Loads the thumbnail image asynchronously.
+   * Queues the thumbnail on the shared loader. The request starts with background priority and is
+   * promoted once the component is first painted, i.e. when it is actually on screen.
    */
   private void loadThumbnailAsync() {
-    CompletableFuture.supplyAsync(
-            () -> {
-              try {
-                LOGGER.debug("Loading thumbnail for: {}", imageFile.getName());
-                return ImageLoader.createThumbnail(imageFile.getAbsolutePath());
-              } catch (Exception e) {
-                LOGGER.warn("Failed to create thumbnail for: {}", imageFile.getName(), e);
-                return null;
-              }
-            })
-        .thenAccept(
-            thumbnail -> {
-              SwingUtilities.invokeLater(
-                  () -> {
-                    if (thumbnail != null) {
-                      setThumbnailImage(thumbnail);
-                    } else {
-                      showErrorIndicator();
-                    }
-                  });
-            })
-        .exceptionally(
-            throwable -> {
-              LOGGER.error(
-                  "Error in thumbnail loading task for: {}", imageFile.getName(), throwable);
-              SwingUtilities.invokeLater(this::showErrorIndicator);
-              return null;
-            });
+    thumbnailRequest =
+        ThumbnailLoader.getInstance()
+            .load(
+                imageFile,
+                false,
+                thumbnail -> {
+                  if (thumbnail != null) {
+                    setThumbnailImage(thumbnail);
+                  } else {
+                    showErrorIndicator();
+                  }
+                });
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    super.paintComponent(g);
+    if (isLoading && thumbnailRequest != null) {
+      thumbnailRequest.markVisible();
+    }
+  }
+
+  /**
+   * Cancels a pending thumbnail load, e.g. when the gallery is cleared.
+   */
+  public void cancelThumbnailLoad() {
+    if (isLoading && thumbnailRequest != null) {
+      thumbnailRequest.cancel();
+    }
   }
 
   /**
@@ -228,10 +245,9 @@ public class SimpleImageThumbnail extends JPanel {
     this.thumbnailImage = thumbnail;
     this.isLoading = false;
 
-    // Scale the image to fit the thumbnail size while maintaining aspect ratio
-    Image scaledImage =
-        thumbnail.getScaledInstance(
-            UIConstants.THUMBNAIL_SIZE, UIConstants.THUMBNAIL_SIZE, Image.SCALE_SMOOTH);
+    // Scale the image to the thumbnail size
+    BufferedImage scaledImage =
+        ImageLoader.scaleImage(thumbnail, UIConstants.THUMBNAIL_SIZE, UIConstants.THUMBNAIL_SIZE);
     imageLabel.setIcon(new ImageIcon(scaledImage));
     imageLabel.setText("");
     imageLabel.setBackground(null);
@@ -0,0 +1,496 @@
+package com.scipath.scipathj.ui.common;
+
+import com.scipath.scipathj.infrastructure.image.ImageSource;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Viewport renderer for large images, painting only the tiles that intersect the visible area.
+ *
+ * <p>The component is sized to the zoomed image, but painting is driven by the clip rectangle so
+ * the cost of a repaint depends on the viewport size, not on the image size. For every zoom level
+ * the nearest pyramid level of the {@link ImageSource} is used:
+ *
+ * <ul>
+ *   <li>Sources with fast region access (tiled/stripped TIFF) are read tile by tile on a background
+ *       loader and kept in a byte-bounded LRU tile cache.
+ *   <li>Other sources decode the first reduced level once in the background, which sources
+ *       subsample while decoding, and derive the coarser levels from it by successive halving.
+ *       Full resolution is never held as a whole; at full zoom the missing visible tiles are read
+ *       together in one region read, since each read decodes the file again, and cached like
+ *       those of tiled sources. A read the viewport has moved away from before it started is
+ *       skipped.
+ * </ul>
+ *
+ * Until the wanted tiles arrive, the nearest decoded level, at worst the coarsest level decoded up
+ * front, is painted in their place. Zooming only resizes the component; no scaled copy of the
+ * image is ever created. All cache state is confined to the EDT.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public class TiledImageCanvas extends JComponent {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(TiledImageCanvas.class);
+
+  private static final int TILE_SIZE = 512;
+  private static final long MAX_TILE_CACHE_BYTES = 256L * 1024 * 1024;
+
+  private static final ExecutorService TILE_LOADER =
+      Executors.newFixedThreadPool(
+          2,
+          runnable -> {
+            Thread thread = new Thread(runnable, "SciPathJ-TileLoader");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private record TileKey(int level, int tileX, int tileY) {}
+
+  private final LinkedHashMap<TileKey, BufferedImage> tileCache =
+      new LinkedHashMap<>(64, 0.75f, true);
+  private final Set<TileKey> pendingTiles = new HashSet<>();
+  // Tiles of the latest region read; a skipped earlier read leaves these pending
+  private Set<TileKey> regionTiles = Set.of();
+  private volatile int regionRequest = 0;
+  private final Map<Integer, BufferedImage> levelRasters = new HashMap<>();
+  private long cachedTileBytes = 0;
+
+  private ImageSource source;
+  private BufferedImage overview;
+  private int overviewLevel;
+  private double zoom = 1.0;
+  private volatile int generation = 0;
+
+  public TiledImageCanvas() {
+    setOpaque(true);
+  }
+
+  /**
+   * Displays a new image.
+   *
+   * @param source the image source; not closed by this component
+   * @param overview the coarsest pyramid level of the source, already decoded
+   */
+  public void setImageSource(final ImageSource source, final BufferedImage overview) {
+    clearCaches();
+    this.source = source;
+    this.overview = overview;
+    this.overviewLevel = source.getLevelCount() - 1;
+    if (!source.hasFastRegionAccess() && source.getLevelCount() > 1) {
+      buildPyramid(source, generation);
+    }
+    updateSize();
+  }
+
+  /**
+   * Removes the displayed image and drops all cached tiles.
+   */
+  public void clear() {
+    clearCaches();
+    source = null;
+    overview = null;
+    updateSize();
+  }
+
+  public boolean hasImage() {
+    return source != null;
+  }
+
+  public void setZoom(final double zoom) {
+    this.zoom = zoom;
+    updateSize();
+  }
+
+  public int getScaledWidth() {
+    return source == null ? 0 : Math.max(1, (int) Math.round(source.getWidth() * zoom));
+  }
+
+  public int getScaledHeight() {
+    return source == null ? 0 : Math.max(1, (int) Math.round(source.getHeight() * zoom));
+  }
+
+  private void updateSize() {
+    Dimension size = new Dimension(getScaledWidth(), getScaledHeight());
+    setPreferredSize(size);
+    repaint();
+  }
+
+  private void clearCaches() {
+    generation++;
+    tileCache.clear();
+    pendingTiles.clear();
+    regionTiles = Set.of();
+    levelRasters.clear();
+    cachedTileBytes = 0;
+  }
+
+  // ===== PAINTING =====
+
+  @Override
+  protected void paintComponent(final Graphics g) {
+    Graphics2D g2d = (Graphics2D) g.create();
+    try {
+      Rectangle clip = g2d.getClipBounds();
+      if (clip == null) {
+        clip = new Rectangle(0, 0, getWidth(), getHeight());
+      }
+      g2d.setColor(getBackground());
+      g2d.fillRect(clip.x, clip.y, clip.width, clip.height);
+      if (source == null || overview == null) {
+        return;
+      }
+
+      g2d.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION,
+          zoom >= 2.0
+              ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+              : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+      int level = source.getBestLevel(1.0 / zoom);
+      if (source.hasFastRegionAccess() || (level == 0 && source.getLevelCount() > 1)) {
+        paintTiles(g2d, clip, level);
+      } else {
+        paintLevelRaster(g2d, clip, level);
+      }
+    } finally {
+      g2d.dispose();
+    }
+  }
+
+  private double scaleX(final int level) {
+    return zoom * source.getWidth() / source.getLevelWidth(level);
+  }
+
+  private double scaleY(final int level) {
+    return zoom * source.getHeight() / source.getLevelHeight(level);
+  }
+
+  private void paintTiles(final Graphics2D g2d, final Rectangle clip, final int level) {
+    double scaleX = scaleX(level);
+    double scaleY = scaleY(level);
+    int levelWidth = source.getLevelWidth(level);
+    int levelHeight = source.getLevelHeight(level);
+
+    int firstTileX = Math.max(0, (int) Math.floor(clip.x / scaleX) / TILE_SIZE);
+    int firstTileY = Math.max(0, (int) Math.floor(clip.y / scaleY) / TILE_SIZE);
+    int lastTileX =
+        Math.min(
+            (levelWidth - 1) / TILE_SIZE,
+            (int) Math.floor((clip.x + clip.width - 1) / scaleX) / TILE_SIZE);
+    int lastTileY =
+        Math.min(
+            (levelHeight - 1) / TILE_SIZE,
+            (int) Math.floor((clip.y + clip.height - 1) / scaleY) / TILE_SIZE);
+
+    List<TileKey> missing = new ArrayList<>();
+    for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+      for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+        TileKey key = new TileKey(level, tileX, tileY);
+        Rectangle bounds = tileBounds(key);
+        BufferedImage tile = tileCache.get(key);
+        if (tile != null) {
+          g2d.drawImage(
+              tile,
+              bounds.x,
+              bounds.y,
+              bounds.x + bounds.width,
+              bounds.y + bounds.height,
+              0,
+              0,
+              tile.getWidth(),
+              tile.getHeight(),
+              null);
+        } else {
+          missing.add(key);
+          paintLevelRaster(g2d, bounds.intersection(clip), level);
+        }
+      }
+    }
+    if (source.hasFastRegionAccess()) {
+      missing.forEach(this::requestTile);
+    } else if (!missing.isEmpty()) {
+      requestRegion(level, missing);
+    }
+  }
+
+  private void paintLevelRaster(final Graphics2D g2d, final Rectangle clip, final int level) {
+    BufferedImage raster = levelRasters.get(level);
+    int rasterLevel = level;
+    if (raster == null) {
+      // Nearest already decoded level, preferring finer ones
+      for (int distance = 1; distance < source.getLevelCount() && raster == null; distance++) {
+        if (levelRasters.containsKey(level - distance)) {
+          rasterLevel = level - distance;
+        } else if (levelRasters.containsKey(level + distance)) {
+          rasterLevel = level + distance;
+        } else {
+          continue;
+        }
+        raster = levelRasters.get(rasterLevel);
+      }
+    }
+    if (raster == null) {
+      raster = overview;
+      rasterLevel = overviewLevel;
+    }
+    drawRegion(g2d, raster, rasterLevel, clip);
+  }
+
+  /**
+   * Draws the part of a whole-level raster that falls into a screen rectangle.
+   */
+  private void drawRegion(
+      final Graphics2D g2d, final BufferedImage image, final int level, final Rectangle screen) {
+    if (screen.isEmpty()) {
+      return;
+    }
+    double scaleX = scaleX(level);
+    double scaleY = scaleY(level);
+    int sx1 = Math.max(0, (int) Math.floor(screen.x / scaleX));
+    int sy1 = Math.max(0, (int) Math.floor(screen.y / scaleY));
+    int sx2 = Math.min(image.getWidth(), (int) Math.ceil((screen.x + screen.width) / scaleX));
+    int sy2 = Math.min(image.getHeight(), (int) Math.ceil((screen.y + screen.height) / scaleY));
+    if (sx2 <= sx1 || sy2 <= sy1) {
+      return;
+    }
+    g2d.drawImage(
+        image,
+        (int) Math.round(sx1 * scaleX),
+        (int) Math.round(sy1 * scaleY),
+        (int) Math.round(sx2 * scaleX),
+        (int) Math.round(sy2 * scaleY),
+        sx1,
+        sy1,
+        sx2,
+        sy2,
+        null);
+  }
+
+  private Rectangle tileBounds(final TileKey key) {
+    double scaleX = scaleX(key.level());
+    double scaleY = scaleY(key.level());
+    int px = key.tileX() * TILE_SIZE;
+    int py = key.tileY() * TILE_SIZE;
+    int pw = Math.min(TILE_SIZE, source.getLevelWidth(key.level()) - px);
+    int ph = Math.min(TILE_SIZE, source.getLevelHeight(key.level()) - py);
+    int x1 = (int) Math.round(px * scaleX);
+    int y1 = (int) Math.round(py * scaleY);
+    int x2 = (int) Math.round((px + pw) * scaleX);
+    int y2 = (int) Math.round((py + ph) * scaleY);
+    return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+  }
+
+  // ===== BACKGROUND LOADING =====
+
+  private void requestTile(final TileKey key) {
+    if (!pendingTiles.add(key)) {
+      return;
+    }
+    final ImageSource tileSource = source;
+    final int requestGeneration = generation;
+    TILE_LOADER.execute(
+        () -> {
+          if (requestGeneration != generation) {
+            return;
+          }
+          BufferedImage tile = null;
+          try {
+            int px = key.tileX() * TILE_SIZE;
+            int py = key.tileY() * TILE_SIZE;
+            tile =
+                tileSource.readRegion(key.level(), new Rectangle(px, py, TILE_SIZE, TILE_SIZE));
+          } catch (IOException | RuntimeException e) {
+            LOGGER.debug(
+                "Failed to read tile {} of {}: {}", key, tileSource.getName(), e.getMessage());
+          }
+          final BufferedImage loaded = tile;
+          SwingUtilities.invokeLater(() -> installTile(key, loaded, requestGeneration));
+        });
+  }
+
+  /**
+   * Reads the missing visible tiles of a source without fast region access in one region read,
+   * since every read decodes the file again up to the bottom of the region. A read is skipped if a
+   * later one was requested before it started, i.e. the viewport moved on.
+   */
+  private void requestRegion(final int level, final List<TileKey> keys) {
+    if (pendingTiles.containsAll(keys)) {
+      return;
+    }
+    Rectangle region = null;
+    for (TileKey key : keys) {
+      Rectangle tile =
+          new Rectangle(key.tileX() * TILE_SIZE, key.tileY() * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+      region = region == null ? tile : region.union(tile);
+    }
+    pendingTiles.addAll(keys);
+    regionTiles = Set.copyOf(keys);
+    final Rectangle readRegion = region;
+    final ImageSource tileSource = source;
+    final int requestGeneration = generation;
+    final int request = ++regionRequest;
+    TILE_LOADER.execute(
+        () -> {
+          if (requestGeneration != generation) {
+            return;
+          }
+          if (request != regionRequest) {
+            SwingUtilities.invokeLater(() -> releaseRegion(keys, requestGeneration));
+            return;
+          }
+          BufferedImage image = null;
+          try {
+            image = tileSource.readRegion(level, readRegion);
+          } catch (IOException | RuntimeException e) {
+            LOGGER.debug(
+                "Failed to read region {} of {}: {}",
+                readRegion,
+                tileSource.getName(),
+                e.getMessage());
+          }
+          for (TileKey key : keys) {
+            final BufferedImage tile = image != null ? cutTile(image, readRegion, key) : null;
+            SwingUtilities.invokeLater(() -> installTile(key, tile, requestGeneration));
+          }
+        });
+  }
+
+  /**
+   * Lets the tiles of a skipped region read be requested again, unless the latest read covers them.
+   */
+  private void releaseRegion(final List<TileKey> keys, final int requestGeneration) {
+    if (requestGeneration != generation) {
+      return;
+    }
+    for (TileKey key : keys) {
+      if (!regionTiles.contains(key)) {
+        pendingTiles.remove(key);
+      }
+    }
+    repaint();
+  }
+
+  /**
+   * Copies one tile out of a region read, so cached tiles do not keep the whole region alive.
+   */
+  private static BufferedImage cutTile(
+      final BufferedImage image, final Rectangle region, final TileKey key) {
+    int x = key.tileX() * TILE_SIZE - region.x;
+    int y = key.tileY() * TILE_SIZE - region.y;
+    int width = Math.min(TILE_SIZE, image.getWidth() - x);
+    int height = Math.min(TILE_SIZE, image.getHeight() - y);
+    if (width <= 0 || height <= 0) {
+      return null;
+    }
+    BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = tile.createGraphics();
+    g2d.drawImage(image, 0, 0, width, height, x, y, x + width, y + height, null);
+    g2d.dispose();
+    return tile;
+  }
+
+  private void installTile(final TileKey key, final BufferedImage tile, final int tileGeneration) {
+    if (tileGeneration != generation) {
+      return;
+    }
+    pendingTiles.remove(key);
+    if (tile == null) {
+      return;
+    }
+    // Overlapping region reads may deliver a tile twice
+    BufferedImage replaced = tileCache.put(key, tile);
+    if (replaced != null) {
+      cachedTileBytes -= (long) replaced.getWidth() * replaced.getHeight() * 4;
+    }
+    cachedTileBytes += (long) tile.getWidth() * tile.getHeight() * 4;
+    Iterator<Map.Entry<TileKey, BufferedImage>> eldest = tileCache.entrySet().iterator();
+    while (cachedTileBytes > MAX_TILE_CACHE_BYTES && eldest.hasNext()) {
+      BufferedImage evicted = eldest.next().getValue();
+      cachedTileBytes -= (long) evicted.getWidth() * evicted.getHeight() * 4;
+      eldest.remove();
+    }
+    if (key.level() == source.getBestLevel(1.0 / zoom)) {
+      repaint(tileBounds(key));
+    }
+  }
+
+  /**
+   * Decodes the first reduced level once and derives the coarser levels by successive halving, for
+   * sources where every region read would decode the whole file again. Sources read reduced
+   * levels with subsampling, so full resolution is never decoded into one raster.
+   */
+  private void buildPyramid(final ImageSource pyramidSource, final int pyramidGeneration) {
+    if (pyramidSource.getLevelCount() < 3) {
+      // The only reduced level is the overview, which is already decoded
+      return;
+    }
+    TILE_LOADER.execute(
+        () -> {
+          long start = System.currentTimeMillis();
+          try {
+            BufferedImage previous = pyramidSource.readLevel(1);
+            installLevel(1, previous, pyramidGeneration);
+            for (int level = 2; level < pyramidSource.getLevelCount() - 1; level++) {
+              if (pyramidGeneration != generation) {
+                return;
+              }
+              previous =
+                  downscale(
+                      previous,
+                      pyramidSource.getLevelWidth(level),
+                      pyramidSource.getLevelHeight(level));
+              installLevel(level, previous, pyramidGeneration);
+            }
+            LOGGER.debug(
+                "Built display pyramid for {} in {} ms",
+                pyramidSource.getName(),
+                System.currentTimeMillis() - start);
+          } catch (IOException | RuntimeException e) {
+            LOGGER.error("Failed to build display pyramid for {}", pyramidSource.getName(), e);
+          }
+        });
+  }
+
+  private void installLevel(
+      final int level, final BufferedImage raster, final int rasterGeneration) {
+    SwingUtilities.invokeLater(
+        () -> {
+          if (rasterGeneration == generation) {
+            levelRasters.put(level, raster);
+            repaint();
+          }
+        });
+  }
+
+  private static BufferedImage downscale(
+      final BufferedImage image, final int width, final int height) {
+    BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g2d = scaled.createGraphics();
+    g2d.setRenderingHint(
+        RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    g2d.drawImage(image, 0, 0, width, height, null);
+    g2d.dispose();
+    return scaled;
+  }
+}
@@ -1,5 +1,6 @@
 package com.scipath.scipathj.ui.controllers;
 
+import com.scipath.scipathj.analysis.results.ResultsFile;
 import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
 import com.scipath.scipathj.infrastructure.engine.SciPathJEngine;
 import com.scipath.scipathj.ui.common.StatusPanel;
@@ -7,6 +8,8 @@ import com.scipath.scipathj.ui.analysis.dialogs.FeatureDisplayDialog;
 import com.scipath.scipathj.ui.model.PipelineInfo;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.swing.*;
 import org.slf4j.Logger;
@@ -40,6 +43,8 @@ public class AnalysisController {
   private File currentFolder;
   private int currentImageCount;
   private Map<String, Map<String, Object>> currentFeatures;
+  // Results file of the last batch, whose features are only read when displayed
+  private File currentResultsFile;
 
   /**
    * Creates a new AnalysisController instance.
@@ -61,6 +66,7 @@ public class AnalysisController {
     // Create the execution controller
     this.executionController = new AnalysisExecutionController(engine, configurationManager, statusPanel, parentComponent);
     this.executionController.setAnalysisCompleteCallback(this::handleAnalysisComplete);
+    this.executionController.setResultsFileCallback(this::storeResultsFile);
 
     LOGGER.debug("Analysis controller created");
   }
@@ -220,7 +226,7 @@ public class AnalysisController {
    * Shows the extracted features in a table dialog.
    */
   public void showFeaturesDialog() {
-    if (currentFeatures == null || currentFeatures.isEmpty()) {
+    if (!hasFeatures()) {
       JOptionPane.showMessageDialog(parentComponent,
           "No features available. Please run analysis first.",
           "No Features", JOptionPane.INFORMATION_MESSAGE);
@@ -233,7 +239,7 @@ public class AnalysisController {
 
       FeatureDisplayDialog dialog = new FeatureDisplayDialog(
           (java.awt.Frame) SwingUtilities.getWindowAncestor(parentComponent),
-          currentFeatures,
+          loadFeatures(),
           null, // imageName
           mainSettings);
       dialog.setVisible(true);
@@ -253,6 +259,33 @@ public class AnalysisController {
     LOGGER.debug("Stored {} ROI features from analysis", features.size());
   }
 
+  /**
+   * Stores the results file of a finished batch, replacing the features of earlier batches.
+   */
+  public void storeResultsFile(File resultsFile) {
+    this.currentResultsFile = resultsFile;
+    this.currentFeatures = null;
+    LOGGER.debug("Features of the last batch are stored in {}", resultsFile);
+  }
+
+  /**
+   * Reads the features of the last batch back from its results file, together with the features
+   * that were not written to it.
+   */
+  private Map<String, Map<String, Object>> loadFeatures() throws IOException {
+    if (currentResultsFile == null) {
+      return currentFeatures;
+    }
+    Map<String, Map<String, Object>> features;
+    try (ResultsFile results = ResultsFile.open(currentResultsFile.toPath())) {
+      features = new LinkedHashMap<>(results.readAllFeatures());
+    }
+    if (currentFeatures != null) {
+      features.putAll(currentFeatures);
+    }
+    return features;
+  }
+
   /**
    * Gets the current extracted features.
    */
@@ -265,6 +298,6 @@ public class AnalysisController {
    * Checks if features are available.
    */
   public boolean hasFeatures() {
-    return currentFeatures != null && !currentFeatures.isEmpty();
+    return (currentFeatures != null && !currentFeatures.isEmpty()) || currentResultsFile != null;
   }
 }
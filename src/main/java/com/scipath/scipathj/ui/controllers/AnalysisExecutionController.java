@@ -1,6 +1,7 @@
 package com.scipath.scipathj.ui.controllers;
 
 import com.scipath.scipathj.analysis.pipeline.AnalysisPipeline;
+import com.scipath.scipathj.analysis.results.ResultsFile;
 import com.scipath.scipathj.infrastructure.config.ConfigurationManager;
 import com.scipath.scipathj.analysis.config.NuclearSegmentationSettings;
 import com.scipath.scipathj.analysis.config.SegmentationConstants;
@@ -11,6 +12,7 @@ import java.awt.*;
 import java.io.File;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import javax.swing.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +32,9 @@ public class AnalysisExecutionController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisExecutionController.class);
 
+  // Batches whose results stay in the configuration directory, including the newest
+  private static final int KEPT_BATCHES = 5;
+
   private final SciPathJEngine engine;
   private final ConfigurationManager configurationManager;
   private final StatusPanel statusPanel;
@@ -37,6 +42,7 @@ public class AnalysisExecutionController {
 
   private SwingWorker<Void, String> currentAnalysisWorker;
   private BiConsumer<String, Map<String, Map<String, Object>>> onAnalysisComplete;
+  private Consumer<File> onResultsFileWritten;
 
   // Analysis state
   private boolean isAnalysisRunning = false;
@@ -71,6 +77,16 @@ public class AnalysisExecutionController {
     this.onAnalysisComplete = callback;
   }
 
+  /**
+   * Sets the callback for when a batch has finished its results file, which holds the features
+   * that are not passed to the analysis complete callback.
+   *
+   * @param callback the callback function receiving the results file
+   */
+  public void setResultsFileCallback(Consumer<File> callback) {
+    this.onResultsFileWritten = callback;
+  }
+
   /**
    * Starts the analysis process for the given parameters.
    *
@@ -147,6 +163,9 @@ public class AnalysisExecutionController {
           var roiManager = com.scipath.scipathj.ui.common.ROIManager.getInstance();
 
           AnalysisPipeline pipeline = new AnalysisPipeline(configurationManager, mainSettings, roiManager);
+          File resultsFile = createResultsFile();
+          pipeline.setResultsFile(resultsFile);
+          pipeline.setMetricsFile(metricsFileFor(resultsFile));
 
           // Set up progress callbacks
           pipeline.setProgressMessageCallback(this::publish);
@@ -155,6 +174,11 @@ public class AnalysisExecutionController {
           // Execute the pipeline
           AnalysisPipeline.AnalysisResults results = pipeline.processBatch(imageFiles);
 
+          // Features streamed to the results file are read back when they are displayed
+          if (onResultsFileWritten != null && resultsFile.exists()) {
+            onResultsFileWritten.accept(resultsFile);
+          }
+
           // Store extracted features for later display
           if (results.allExtractedFeatures() != null && !results.allExtractedFeatures().isEmpty()) {
             // Notify callback about extracted features
@@ -235,4 +259,63 @@ public class AnalysisExecutionController {
       return false;
     });
   }
+
+  /**
+   * Names the results file of a new batch in the configuration directory, e.g.
+   * {@code ~/.scipathj/results/batch-20250101-120000.spjr}, and deletes the files of older
+   * batches beyond the {@code -Dscipathj.results.keep} most recent ones (default 5).
+   */
+  private File createResultsFile() {
+    String timestamp =
+        java.time.LocalDateTime.now()
+            .format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    File directory = new File(configurationManager.getConfigDirectory(), "results");
+    pruneOldBatches(
+        directory, Math.max(1, Integer.getInteger("scipathj.results.keep", KEPT_BATCHES)) - 1);
+    return new File(directory, "batch-" + timestamp + ResultsFile.EXTENSION);
+  }
+
+  /**
+   * Deletes the results, journal and metrics files of all but the most recent batches.
+   *
+   * @param keep the number of earlier batches to keep
+   */
+  private static void pruneOldBatches(final File directory, final int keep) {
+    File[] files = directory.listFiles((dir, name) -> name.startsWith("batch-"));
+    if (files == null) {
+      return;
+    }
+    // Batch names sort by their timestamp; every file of a batch starts with its name
+    java.util.TreeMap<String, java.util.List<File>> batches =
+        new java.util.TreeMap<>(java.util.Comparator.reverseOrder());
+    for (File file : files) {
+      String name = file.getName();
+      int dot = name.indexOf('.');
+      String batch = dot < 0 ? name : name.substring(0, dot);
+      batches.computeIfAbsent(batch, key -> new java.util.ArrayList<>()).add(file);
+    }
+    int kept = 0;
+    for (java.util.List<File> batchFiles : batches.values()) {
+      if (kept++ < keep) {
+        continue;
+      }
+      for (File file : batchFiles) {
+        if (!file.delete()) {
+          LOGGER.debug("Could not delete old batch file {}", file);
+        }
+      }
+    }
+    if (kept > keep) {
+      LOGGER.info("Deleted {} old batches from {}", kept - keep, directory);
+    }
+  }
+
+  /**
+   * @return the JSON metrics file written next to a batch results file
+   */
+  private static File metricsFileFor(final File resultsFile) {
+    String name = resultsFile.getName();
+    String base = name.substring(0, name.length() - ResultsFile.EXTENSION.length());
+    return new File(resultsFile.getParentFile(), base + ".metrics.json");
+  }
 }
\ No newline at end of file
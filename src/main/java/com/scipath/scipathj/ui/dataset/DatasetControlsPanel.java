@@ -521,7 +521,7 @@ public class DatasetControlsPanel extends JPanel {
     
     private void handleLoadROIs() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setFileFilter(new FileNameExtensionFilter("ZIP files", "zip"));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("ROI archives", "zip", "sroi"));
         
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
             File selectedFile = fileChooser.getSelectedFile();
@@ -1,6 +1,8 @@
 package com.scipath.scipathj.ui.dataset;
 
+import com.scipath.scipathj.infrastructure.image.ImageSource;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
+import com.scipath.scipathj.ui.common.TiledImageCanvas;
 import com.scipath.scipathj.ui.themes.ThemeManager;
 import com.scipath.scipathj.ui.utils.ImageLoader;
 import com.scipath.scipathj.ui.utils.UIConstants;
@@ -11,7 +13,9 @@ import java.awt.event.AdjustmentEvent;
 import java.awt.event.AdjustmentListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
@@ -36,17 +40,17 @@ public class DatasetImageViewer extends JPanel {
     private double currentZoom = 1.0;
 
     // Core components
-    private JLabel imageLabel;
+    private TiledImageCanvas imageCanvas;
     private JLabel imageInfoLabel;
     private JScrollPane scrollPane;
     private NewDatasetROIOverlay roiOverlay;
     private JLayeredPane layeredPane;
     private File currentImageFile;
+    private ImageSource currentImageSource;
     private ImagePlus currentImagePlus;
     private boolean isLoading = false;
 
     // Image display properties
-    private Image originalImage;
     private int originalImageWidth;
     private int originalImageHeight;
 
@@ -64,6 +68,9 @@ public class DatasetImageViewer extends JPanel {
     private long lastUpdateTime = 0;
     private static final long UPDATE_THROTTLE_MS = 16; // ~60fps
 
+    /** An opened image source together with its coarsest pyramid level, decoded for display. */
+    private record LoadedImage(File file, ImageSource source, BufferedImage overview) {}
+
     public DatasetImageViewer() {
         initializeComponents();
         setupROISystem();
@@ -75,7 +82,7 @@ public class DatasetImageViewer extends JPanel {
         setBorder(UIUtils.createPadding(UIConstants.MEDIUM_SPACING));
         setOpaque(false);
 
-        imageLabel = createImageLabel();
+        imageCanvas = createImageCanvas();
         roiOverlay = new NewDatasetROIOverlay();
         layeredPane = createLayeredPane();
         scrollPane = createScrollPane();
@@ -96,8 +103,8 @@ public class DatasetImageViewer extends JPanel {
             @Override
             public void componentResized(java.awt.event.ComponentEvent e) {
                 LOGGER.debug("DatasetImageViewer resized: {}x{}", getWidth(), getHeight());
-                if (imageLabel.getIcon() != null) {
-                    updateLayeredPaneLayout((ImageIcon) imageLabel.getIcon());
+                if (imageCanvas.hasImage()) {
+                    updateLayeredPaneLayout();
                 }
             }
         });
@@ -111,9 +118,9 @@ public class DatasetImageViewer extends JPanel {
         JLayeredPane pane = new JLayeredPane();
         pane.setPreferredSize(new Dimension(600, 400));
 
-        // Add image label to bottom layer
-        imageLabel.setBounds(0, 0, 600, 400);
-        pane.add(imageLabel, JLayeredPane.DEFAULT_LAYER);
+        // Add image canvas to bottom layer
+        imageCanvas.setBounds(0, 0, 600, 400);
+        pane.add(imageCanvas, JLayeredPane.DEFAULT_LAYER);
 
         // Add streamlined ROI overlay to top layer
         roiOverlay.setBounds(0, 0, 600, 400);
@@ -122,14 +129,11 @@ public class DatasetImageViewer extends JPanel {
         return pane;
     }
 
-    private JLabel createImageLabel() {
-        JLabel label = new JLabel();
-        label.setHorizontalAlignment(SwingConstants.CENTER);
-        label.setVerticalAlignment(SwingConstants.CENTER);
-        label.setOpaque(true);
-        label.setBackground(
+    private TiledImageCanvas createImageCanvas() {
+        TiledImageCanvas canvas = new TiledImageCanvas();
+        canvas.setBackground(
             ThemeManager.isDarkTheme() ? new Color(40, 40, 40) : new Color(250, 250, 250));
-        return label;
+        return canvas;
     }
 
     private JScrollPane createScrollPane() {
@@ -144,7 +148,7 @@ public class DatasetImageViewer extends JPanel {
         pane.addMouseWheelListener(new MouseWheelListener() {
             @Override
             public void mouseWheelMoved(MouseWheelEvent e) {
-                if (e.isControlDown() && currentImagePlus != null) {
+                if (e.isControlDown() && currentImageSource != null) {
                     Point mousePoint = e.getPoint();
                     if (e.getWheelRotation() < 0) {
                         zoomIn(mousePoint);
@@ -179,8 +183,8 @@ public class DatasetImageViewer extends JPanel {
             public void componentResized(java.awt.event.ComponentEvent e) {
                 LOGGER.debug("Viewport resized: {}x{}", 
                     pane.getViewport().getWidth(), pane.getViewport().getHeight());
-                if (imageLabel.getIcon() != null) {
-                    updateLayeredPaneLayout((ImageIcon) imageLabel.getIcon());
+                if (imageCanvas.hasImage()) {
+                    updateLayeredPaneLayout();
                 }
             }
         });
@@ -273,23 +277,33 @@ public class DatasetImageViewer extends JPanel {
         showLoadingState();
 
         CompletableFuture.supplyAsync(() -> loadImageSafely(imageFile))
-            .thenAccept(imagePlus -> handleImageLoaded(imagePlus, roiZipFile))
+            .thenAccept(loadedImage -> handleImageLoaded(loadedImage, roiZipFile))
             .exceptionally(this::handleImageError);
     }
 
-    private ImagePlus loadImageSafely(File imageFile) {
+    private LoadedImage loadImageSafely(File imageFile) {
+        ImageSource source = ImageLoader.openImageSource(imageFile.getAbsolutePath());
+        if (source == null) {
+            return null;
+        }
         try {
-            return ImageLoader.loadImage(imageFile.getAbsolutePath());
+            // Only the coarsest level is decoded up front; the canvas loads finer tiles as needed
+            return new LoadedImage(imageFile, source, source.readLevel(source.getLevelCount() - 1));
         } catch (Exception e) {
             LOGGER.error("Error loading image: {}", imageFile.getAbsolutePath(), e);
+            source.close();
             return null;
         }
     }
 
-    private void handleImageLoaded(ImagePlus imagePlus, File roiZipFile) {
+    private void handleImageLoaded(LoadedImage loadedImage, File roiZipFile) {
         SwingUtilities.invokeLater(() -> {
-            if (imagePlus != null) {
-                displayImageWithROIs(imagePlus, roiZipFile);
+            if (loadedImage != null && !loadedImage.file().equals(currentImageFile)) {
+                // The viewer was cleared while this image was loading
+                loadedImage.source().close();
+                isLoading = false;
+            } else if (loadedImage != null) {
+                displayImageWithROIs(loadedImage, roiZipFile);
             } else {
                 showErrorState("Unsupported format or corrupted file");
             }
@@ -302,26 +316,26 @@ public class DatasetImageViewer extends JPanel {
         return null;
     }
 
-    private void displayImageWithROIs(ImagePlus imagePlus, File roiZipFile) {
+    private void displayImageWithROIs(LoadedImage loadedImage, File roiZipFile) {
         try {
-            currentImagePlus = imagePlus;
+            closeImageSource();
+            currentImageSource = loadedImage.source();
             isLoading = false;
-            originalImage = imagePlus.getImage();
-            originalImageWidth = imagePlus.getWidth();
-            originalImageHeight = imagePlus.getHeight();
+            // All coordinates stay in full resolution; the canvas picks pyramid levels per zoom
+            originalImageWidth = currentImageSource.getWidth();
+            originalImageHeight = currentImageSource.getHeight();
 
             // Start with fit zoom for better initial view
             currentZoom = calculateFitZoom();
 
-            // Create and display scaled image
-            Image scaledImage = createScaledImage();
-            if (scaledImage != null) {
-                ImageIcon imageIcon = new ImageIcon(scaledImage);
-                imageLabel.setIcon(imageIcon);
-                imageLabel.setText("");
+            // Display the image through the tiled canvas
+            BufferedImage overview = loadedImage.overview();
+            if (overview != null) {
+                imageCanvas.setImageSource(currentImageSource, overview);
+                imageCanvas.setZoom(currentZoom);
 
                 // Update layout
-                updateLayeredPaneLayout(imageIcon);
+                updateLayeredPaneLayout();
 
                 // Set original image dimensions for ROI overlay
                 roiOverlay.setImageDimensions(originalImageWidth, originalImageHeight);
@@ -338,7 +352,7 @@ public class DatasetImageViewer extends JPanel {
                 updateImageInfo();
                 LOGGER.info("Successfully displayed image: {}", currentImageFile.getName());
             } else {
-                showErrorState("Could not scale image");
+                showErrorState("Could not extract image data");
             }
         } catch (Exception e) {
             LOGGER.error("Error displaying image: {}", currentImageFile.getName(), e);
@@ -348,11 +362,11 @@ public class DatasetImageViewer extends JPanel {
 
     // ===== LAYOUT AND TRANSFORM CALCULATIONS =====
 
-    private void updateLayeredPaneLayout(ImageIcon imageIcon) {
+    private void updateLayeredPaneLayout() {
         layeredPane.removeAll();
 
-        int imageWidth = imageIcon.getIconWidth();
-        int imageHeight = imageIcon.getIconHeight();
+        int imageWidth = imageCanvas.getScaledWidth();
+        int imageHeight = imageCanvas.getScaledHeight();
 
         // Calculate layered pane size
         Dimension viewportSize = scrollPane.getViewport().getSize();
@@ -368,8 +382,8 @@ public class DatasetImageViewer extends JPanel {
         int imageX = Math.max(0, (layeredPaneWidth - imageWidth) / 2);
         int imageY = Math.max(0, (layeredPaneHeight - imageHeight) / 2);
 
-        imageLabel.setBounds(imageX, imageY, imageWidth, imageHeight);
-        layeredPane.add(imageLabel, JLayeredPane.DEFAULT_LAYER);
+        imageCanvas.setBounds(imageX, imageY, imageWidth, imageHeight);
+        layeredPane.add(imageCanvas, JLayeredPane.DEFAULT_LAYER);
 
         // Set ROI overlay bounds to match layered pane
         roiOverlay.setBounds(0, 0, layeredPaneWidth, layeredPaneHeight);
@@ -385,14 +399,13 @@ public class DatasetImageViewer extends JPanel {
     }
 
     private void updateROIOverlayTransform() {
-        if (roiOverlay == null || currentImagePlus == null || imageLabel.getIcon() == null) {
+        if (roiOverlay == null || currentImageSource == null || !imageCanvas.hasImage()) {
             return;
         }
 
         // Get image positioning values
-        ImageIcon imageIcon = (ImageIcon) imageLabel.getIcon();
-        int displayedImageWidth = imageIcon.getIconWidth();
-        int displayedImageHeight = imageIcon.getIconHeight();
+        int displayedImageWidth = imageCanvas.getScaledWidth();
+        int displayedImageHeight = imageCanvas.getScaledHeight();
 
         // Calculate scale factors (same for both X and Y to maintain aspect ratio)
         double scaleX = (double) displayedImageWidth / originalImageWidth;
@@ -415,7 +428,7 @@ public class DatasetImageViewer extends JPanel {
     // ===== ZOOM FUNCTIONALITY =====
 
     private double calculateFitZoom() {
-        if (originalImage == null || scrollPane == null) {
+        if (currentImageSource == null || scrollPane == null) {
             return 1.0;
         }
 
@@ -426,18 +439,6 @@ public class DatasetImageViewer extends JPanel {
         return Math.min(Math.min(scaleX, scaleY), 1.0);
     }
 
-    private Image createScaledImage() {
-        if (originalImage == null) return null;
-
-        int scaledWidth = Math.max(1, (int) Math.round(originalImageWidth * currentZoom));
-        int scaledHeight = Math.max(1, (int) Math.round(originalImageHeight * currentZoom));
-
-        LOGGER.debug("Creating scaled image: {}x{} -> {}x{} (zoom={})",
-            originalImageWidth, originalImageHeight, scaledWidth, scaledHeight, currentZoom);
-
-        return originalImage.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-    }
-
     private void updateZoomLabel() {
         if (zoomLabel != null) {
             int percentage = (int) Math.round(currentZoom * 100);
@@ -454,7 +455,7 @@ public class DatasetImageViewer extends JPanel {
     }
 
     private void zoomIn(Point centerPoint) {
-        if (currentImagePlus == null) return;
+        if (currentImageSource == null) return;
 
         double newZoom = Math.min(currentZoom + ZOOM_STEP, MAX_ZOOM);
         if (newZoom != currentZoom) {
@@ -463,7 +464,7 @@ public class DatasetImageViewer extends JPanel {
     }
 
     private void zoomOut(Point centerPoint) {
-        if (currentImagePlus == null) return;
+        if (currentImageSource == null) return;
 
         double newZoom = Math.max(currentZoom - ZOOM_STEP, MIN_ZOOM);
         if (newZoom != currentZoom) {
@@ -472,20 +473,20 @@ public class DatasetImageViewer extends JPanel {
     }
 
     private void zoomToFit() {
-        if (currentImagePlus == null) return;
+        if (currentImageSource == null) return;
 
         double fitZoom = calculateFitZoom();
         setZoom(fitZoom, null);
     }
 
     private void zoomTo100() {
-        if (currentImagePlus == null) return;
+        if (currentImageSource == null) return;
 
         setZoom(1.0, null);
     }
 
     private void setZoom(double newZoom, Point centerPoint) {
-        if (currentImagePlus == null || originalImage == null) return;
+        if (currentImageSource == null || !imageCanvas.hasImage()) return;
 
         // Store scroll position if we have a center point
         final Point scrollPosition;
@@ -506,31 +507,26 @@ public class DatasetImageViewer extends JPanel {
 
         currentZoom = newZoom;
 
-        // Update image
-        Image scaledImage = createScaledImage();
-        if (scaledImage != null) {
-            ImageIcon newImageIcon = new ImageIcon(scaledImage);
-            imageLabel.setIcon(newImageIcon);
-
-            updateLayeredPaneLayout(newImageIcon);
-
-            if (scrollPosition != null) {
-                SwingUtilities.invokeLater(() -> {
-                    JViewport viewport = scrollPane.getViewport();
-                    int x = Math.max(0, Math.min(scrollPosition.x, layeredPane.getWidth() - viewport.getWidth()));
-                    int y = Math.max(0, Math.min(scrollPosition.y, layeredPane.getHeight() - viewport.getHeight()));
-                    viewport.setViewPosition(new Point(x, y));
-                });
-            }
+        // Update image; resizing the canvas is enough, it paints visible tiles only
+        imageCanvas.setZoom(currentZoom);
+        updateLayeredPaneLayout();
+
+        if (scrollPosition != null) {
+            SwingUtilities.invokeLater(() -> {
+                JViewport viewport = scrollPane.getViewport();
+                int x = Math.max(0, Math.min(scrollPosition.x, layeredPane.getWidth() - viewport.getWidth()));
+                int y = Math.max(0, Math.min(scrollPosition.y, layeredPane.getHeight() - viewport.getHeight()));
+                viewport.setViewPosition(new Point(x, y));
+            });
+        }
 
-            updateZoomLabel();
-            updateImageInfo();
+        updateZoomLabel();
+        updateImageInfo();
 
-            // Update slider without triggering listener
-            if (zoomSlider != null && !zoomSlider.getValueIsAdjusting()) {
-                int sliderValue = (int) Math.round(currentZoom * 100);
-                zoomSlider.setValue(sliderValue);
-            }
+        // Update slider without triggering listener
+        if (zoomSlider != null && !zoomSlider.getValueIsAdjusting()) {
+            int sliderValue = (int) Math.round(currentZoom * 100);
+            zoomSlider.setValue(sliderValue);
         }
     }
 
@@ -561,8 +557,7 @@ public class DatasetImageViewer extends JPanel {
             UIManager.getColor("Label.disabledForeground"));
         imageInfoLabel.setText("");
         currentImageFile = null;
-        currentImagePlus = null;
-        originalImage = null;
+        closeImageSource();
         currentZoom = 1.0;
         setZoomControlsEnabled(false);
         updateZoomLabel();
@@ -632,7 +627,7 @@ public class DatasetImageViewer extends JPanel {
     }
 
     private void updateImageInfo() {
-        if (currentImageFile != null && currentImagePlus != null) {
+        if (currentImageFile != null && currentImageSource != null) {
             String info = String.format("%s | %d × %d pixels | %s | %.0f%%",
                 currentImageFile.getName(),
                 originalImageWidth, originalImageHeight,
@@ -650,10 +645,37 @@ public class DatasetImageViewer extends JPanel {
         return currentImageFile;
     }
 
+    /**
+     * Returns the full resolution image, decoding it on first use. The viewer itself only needs a
+     * downsampled pyramid level, so this is the only place the whole raster gets allocated.
+     */
     public ImagePlus getCurrentImagePlus() {
+        if (currentImagePlus == null && currentImageSource != null) {
+            try {
+                currentImagePlus = currentImageSource.readFullResolution();
+            } catch (IOException e) {
+                LOGGER.error("Error reading full resolution image: {}", currentImageSource.getName(), e);
+            }
+        }
         return currentImagePlus;
     }
 
+    /**
+     * Returns the image source of the displayed image, or null if no image is displayed.
+     */
+    public ImageSource getCurrentImageSource() {
+        return currentImageSource;
+    }
+
+    private void closeImageSource() {
+        imageCanvas.clear();
+        if (currentImageSource != null) {
+            currentImageSource.close();
+            currentImageSource = null;
+        }
+        currentImagePlus = null;
+    }
+
     public NewDatasetROIOverlay getROIOverlay() {
         return roiOverlay;
     }
@@ -368,7 +368,8 @@ public class DatasetSetupPanel extends JPanel {
         fileChooser.setDialogTitle("Select ROI ZIP File");
         fileChooser.setCurrentDirectory(FileSystemView.getFileSystemView().getDefaultDirectory());
 
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("ZIP Files", "zip");
+        FileNameExtensionFilter filter =
+            new FileNameExtensionFilter("ROI Archives (*.zip, *.sroi)", "zip", "sroi");
         fileChooser.setFileFilter(filter);
 
         if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
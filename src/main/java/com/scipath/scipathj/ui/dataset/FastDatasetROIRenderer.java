@@ -1,10 +1,14 @@
 package com.scipath.scipathj.ui.dataset;
 
+import com.scipath.scipathj.infrastructure.roi.ROIPathBatch;
+import com.scipath.scipathj.infrastructure.roi.ROISpatialIndex;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import ij.gui.Roi;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.slf4j.Logger;
@@ -13,6 +17,7 @@ import org.slf4j.LoggerFactory;
 /**
  * Ultra-fast ROI renderer for dataset creation - mimics Fiji's performance.
  * Simplified architecture with direct polygon rendering and proper coordinate handling.
+ * Hit-testing and viewport culling go through a {@link ROISpatialIndex}.
  * 
  * @author Sebastian Micu
  * @version 3.0.0
@@ -33,6 +38,11 @@ public class FastDatasetROIRenderer {
     private UserROI selectedROI = null;
     private UserROI hoveredROI = null;
     private final List<UserROI> visibleROIs = new CopyOnWriteArrayList<>();
+    private final ROISpatialIndex spatialIndex = new ROISpatialIndex();
+    
+    // Bounding boxes of ROIs still being decoded, drawn until their polygons arrive
+    private final List<ProgressiveROILoader.Placeholder> placeholders = new ArrayList<>();
+    private int resolvedPlaceholders = 0;
     
     // Performance optimization
     private BufferedImage cachedOverlay = null;
@@ -58,8 +68,10 @@ public class FastDatasetROIRenderer {
      */
     public void setROIs(List<UserROI> rois) {
         visibleROIs.clear();
+        spatialIndex.clear();
         if (rois != null) {
             visibleROIs.addAll(rois);
+            spatialIndex.addAll(rois);
         }
         overlayDirty = true;
         LOGGER.debug("Updated visible ROIs: {} total", visibleROIs.size());
@@ -71,10 +83,37 @@ public class FastDatasetROIRenderer {
     public void addROIs(List<UserROI> newROIs) {
         if (newROIs != null && !newROIs.isEmpty()) {
             visibleROIs.addAll(newROIs);
+            spatialIndex.addAll(newROIs);
             overlayDirty = true;
         }
     }
     
+    /**
+     * Add placeholder boxes for ROIs that are still loading.
+     */
+    public void addPlaceholders(List<ProgressiveROILoader.Placeholder> pending) {
+        placeholders.addAll(pending);
+    }
+    
+    /**
+     * Drop the oldest placeholders once their ROIs have been decoded.
+     */
+    public void resolvePlaceholders(int count) {
+        resolvedPlaceholders = Math.min(placeholders.size(), resolvedPlaceholders + count);
+        if (resolvedPlaceholders == placeholders.size()) {
+            clearPlaceholders();
+        }
+    }
+    
+    public void clearPlaceholders() {
+        placeholders.clear();
+        resolvedPlaceholders = 0;
+    }
+    
+    public boolean hasPlaceholders() {
+        return resolvedPlaceholders < placeholders.size();
+    }
+    
     /**
      * Set interaction state.
      */
@@ -99,7 +138,7 @@ public class FastDatasetROIRenderer {
                       double scaleX, double scaleY, double offsetX, double offsetY) {
         
         // Remove global outlinesVisible check - let type-specific filtering handle visibility
-        if (visibleROIs.isEmpty()) {
+        if (visibleROIs.isEmpty() && !hasPlaceholders()) {
             return;
         }
         
@@ -115,10 +154,13 @@ public class FastDatasetROIRenderer {
         g2d.scale(scaleX, scaleY);
         
         try {
-            // Render all ROIs in optimal order
-            for (UserROI roi : visibleROIs) {
-                renderSingleROI(g2d, roi);
+            // Render only ROIs in the repaint area, batched per colour
+            ROIPathBatch batch = new ROIPathBatch(new AffineTransform());
+            for (UserROI roi : getROIsInClip(g2d)) {
+                addToBatch(batch, roi);
             }
+            batch.draw(g2d);
+            renderPlaceholders(g2d, scaleX, true, true);
             
         } finally {
             g2d.setTransform(originalTransform);
@@ -135,7 +177,7 @@ public class FastDatasetROIRenderer {
                       double scaleX, double scaleY, double offsetX, double offsetY,
                       boolean nucleiVisible, boolean cellsVisible) {
         
-        if (visibleROIs.isEmpty()) {
+        if (visibleROIs.isEmpty() && !hasPlaceholders()) {
             return;
         }
         
@@ -151,12 +193,15 @@ public class FastDatasetROIRenderer {
         g2d.scale(scaleX, scaleY);
         
         try {
-            // Render ROIs based on type visibility
-            for (UserROI roi : visibleROIs) {
+            // Render ROIs in the repaint area based on type visibility, batched per colour
+            ROIPathBatch batch = new ROIPathBatch(new AffineTransform());
+            for (UserROI roi : getROIsInClip(g2d)) {
                 if (shouldRenderROI(roi, nucleiVisible, cellsVisible)) {
-                    renderSingleROI(g2d, roi);
+                    addToBatch(batch, roi);
                 }
             }
+            batch.draw(g2d);
+            renderPlaceholders(g2d, scaleX, nucleiVisible, cellsVisible);
             
         } finally {
             g2d.setTransform(originalTransform);
@@ -166,11 +211,53 @@ public class FastDatasetROIRenderer {
         LOGGER.trace("Rendered {} ROIs in {}ms with type filtering", visibleROIs.size(), renderTime);
     }
     
+    /**
+     * Draw pending placeholders of the visible types as thin boxes in one path; the graphics is in
+     * image coordinates.
+     */
+    private void renderPlaceholders(Graphics2D g2d, double scale,
+                                    boolean nucleiVisible, boolean cellsVisible) {
+        if (!hasPlaceholders() || (!nucleiVisible && !cellsVisible)) {
+            return;
+        }
+        Rectangle clip = g2d.getClipBounds();
+        Path2D.Float path = new Path2D.Float();
+        for (int i = resolvedPlaceholders; i < placeholders.size(); i++) {
+            ProgressiveROILoader.Placeholder placeholder = placeholders.get(i);
+            Rectangle bounds = placeholder.bounds();
+            if (shouldRenderType(placeholder.type(), nucleiVisible, cellsVisible)
+                && (clip == null || clip.intersects(bounds))) {
+                path.append(bounds, false);
+            }
+        }
+        g2d.setStroke(new BasicStroke((float) (1.0 / Math.max(scale, 1e-6))));
+        g2d.setColor(new Color(defaultColor.getRed(), defaultColor.getGreen(),
+                               defaultColor.getBlue(), 128));
+        g2d.draw(path);
+    }
+    
+    /**
+     * Query the spatial index for the ROIs under the clip, which is already in image coordinates.
+     */
+    private List<UserROI> getROIsInClip(Graphics2D g2d) {
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null) {
+            return visibleROIs;
+        }
+        // Widen by a pixel so borders on the edge are not lost
+        clip.grow(1, 1);
+        return spatialIndex.query(clip);
+    }
+    
     /**
      * Check if ROI should be rendered based on type visibility.
      */
     private boolean shouldRenderROI(UserROI roi, boolean nucleiVisible, boolean cellsVisible) {
-        UserROI.ROIType type = roi.getType();
+        return shouldRenderType(roi.getType(), nucleiVisible, cellsVisible);
+    }
+    
+    private boolean shouldRenderType(UserROI.ROIType type, boolean nucleiVisible,
+                                     boolean cellsVisible) {
         switch (type) {
             case NUCLEUS:
                 return nucleiVisible;
@@ -183,36 +270,15 @@ public class FastDatasetROIRenderer {
     }
     
     /**
-     * Fast single ROI rendering.
+     * Add a single ROI to the batch with its state-dependent appearance.
      */
-    private void renderSingleROI(Graphics2D g2d, UserROI roi) {
+    private void addToBatch(ROIPathBatch batch, UserROI roi) {
         try {
-            // Get ROI geometry
-            Roi ijRoi = roi.getImageJRoi();
-            if (ijRoi == null) {
-                return;
-            }
-            
-            // Get polygon (fastest approach)
-            Polygon polygon = ijRoi.getPolygon();
-            if (polygon == null || polygon.npoints < 3) {
-                return;
-            }
-            
             // Determine colors
             Color borderColor = getBorderColor(roi);
-            Color fillColor = getFillColor(roi, borderColor);
+            Color fillColor = fillOpacity > 0 ? getFillColor(roi, borderColor) : null;
             
-            // Fill if opacity > 0
-            if (fillOpacity > 0 && fillColor.getAlpha() > 0) {
-                g2d.setColor(fillColor);
-                g2d.fillPolygon(polygon);
-            }
-            
-            // Draw border
-            g2d.setColor(borderColor);
-            g2d.setStroke(new BasicStroke(getBorderWidth(roi)));
-            g2d.drawPolygon(polygon);
+            batch.add(roi, fillColor, borderColor, getBorderWidth(roi));
             
         } catch (Exception e) {
             LOGGER.trace("Failed to render ROI '{}': {}", roi.getName(), e.getMessage());
@@ -269,15 +335,9 @@ public class FastDatasetROIRenderer {
         double imageX = (point.x - offsetX) / scaleX;
         double imageY = (point.y - offsetY) / scaleY;
         
-        // Check ROIs in reverse order (top to bottom)
-        for (int i = visibleROIs.size() - 1; i >= 0; i--) {
-            UserROI roi = visibleROIs.get(i);
-            if (isPointInROI(imageX, imageY, roi)) {
-                return roi;
-            }
-        }
-        
-        return null;
+        // Topmost ROI whose bounds contain the point and that passes the exact test
+        return spatialIndex.findTopmost(Math.round(imageX), Math.round(imageY),
+            roi -> isPointInROI(imageX, imageY, roi));
     }
     
     /**
@@ -289,15 +349,10 @@ public class FastDatasetROIRenderer {
         double imageX = (point.x - offsetX) / scaleX;
         double imageY = (point.y - offsetY) / scaleY;
         
-        // Check ROIs in reverse order (top to bottom), respecting type visibility
-        for (int i = visibleROIs.size() - 1; i >= 0; i--) {
-            UserROI roi = visibleROIs.get(i);
-            if (shouldRenderROI(roi, nucleiVisible, cellsVisible) && isPointInROI(imageX, imageY, roi)) {
-                return roi;
-            }
-        }
-        
-        return null;
+        // Topmost ROI whose bounds contain the point, respecting type visibility
+        return spatialIndex.findTopmost(Math.round(imageX), Math.round(imageY),
+            roi -> shouldRenderROI(roi, nucleiVisible, cellsVisible)
+                && isPointInROI(imageX, imageY, roi));
     }
     
     /**
@@ -323,6 +378,8 @@ public class FastDatasetROIRenderer {
      */
     public void clear() {
         visibleROIs.clear();
+        clearPlaceholders();
+        spatialIndex.clear();
         selectedROI = null;
         hoveredROI = null;
         overlayDirty = true;
@@ -201,14 +201,29 @@ public class NewDatasetROIOverlay extends JComponent implements ProgressiveROILo
         LOGGER.debug("Batch loaded: {} ROIs, total: {}", batch.size(), totalLoaded);
     }
     
+    @Override
+    public void onPlaceholdersLoaded(List<ProgressiveROILoader.Placeholder> placeholders) {
+        renderer.addPlaceholders(placeholders);
+        repaint();
+    }
+    
+    @Override
+    public void onPlaceholdersResolved(int count) {
+        renderer.resolvePlaceholders(count);
+    }
+    
     @Override
     public void onLoadingComplete(int totalLoaded) {
+        renderer.clearPlaceholders();
+        repaint();
         LOGGER.info("Loading complete: {} ROIs loaded for image '{}'", totalLoaded, currentImageFileName);
         notifyProgressUpdate(totalLoaded, totalLoaded);
     }
     
     @Override
     public void onLoadingFailed(String error) {
+        renderer.clearPlaceholders();
+        repaint();
         LOGGER.error("Loading failed: {}", error);
     }
     
@@ -218,7 +233,7 @@ public class NewDatasetROIOverlay extends JComponent implements ProgressiveROILo
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         
-        if (allROIs.isEmpty()) {
+        if (allROIs.isEmpty() && !renderer.hasPlaceholders()) {
             return;
         }
         
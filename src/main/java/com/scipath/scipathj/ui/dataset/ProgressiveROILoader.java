@@ -1,25 +1,34 @@
 package com.scipath.scipathj.ui.dataset;
 
+import com.scipath.scipathj.infrastructure.roi.ROIArchive;
+import com.scipath.scipathj.infrastructure.roi.ROIZipIO;
 import com.scipath.scipathj.infrastructure.roi.UserROI;
 import ij.gui.Roi;
-import ij.io.RoiDecoder;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Rectangle;
 import java.io.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.SwingUtilities;
-import javax.swing.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Progressive ROI loader that displays ROIs as they're loaded for immediate visual feedback.
- * Optimized for speed with smart filtering and batch processing.
- * 
+ *
+ * <p>The archive is read on one background thread, which hands chunks of raw {@code .roi} entries
+ * to a bounded pool of decoder threads. Decoded chunks are delivered in archive order. Before a
+ * chunk is decoded, the bounding boxes in its ROI headers are published as placeholders, so the
+ * overlay shows where ROIs are while their polygons stream in. Updates are coalesced into a single
+ * pending event dispatch, so the UI receives as few, as large batches as it can keep up with.
+ *
  * @author Sebastian Micu
  * @version 3.0.0
  */
@@ -27,28 +36,80 @@ public class ProgressiveROILoader {
     
     private static final Logger LOGGER = LoggerFactory.getLogger(ProgressiveROILoader.class);
     
-    // Batch processing settings
-    private static final int BATCH_SIZE = 200;
-    private static final int BATCH_DELAY_MS = 50;
+    // Decoding settings
+    private static final int CHUNK_SIZE = 256;
+    private static final int DECODER_THREADS =
+        Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int MAX_CHUNKS_IN_FLIGHT = DECODER_THREADS * 8;
+    
+    private static final AtomicInteger DECODER_COUNT = new AtomicInteger();
+    private static final ExecutorService DECODERS =
+        Executors.newFixedThreadPool(DECODER_THREADS, runnable -> {
+            Thread thread =
+                new Thread(runnable, "SciPathJ-ROIDecoder-" + DECODER_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     
     // Progress listeners
     private final List<ProgressListener> listeners = new ArrayList<>();
     
-    // Loading state
+    // Loading state; every load or cancel bumps the generation and stale work is discarded
     private volatile boolean isLoading = false;
-    private volatile boolean isCancelled = false;
+    private volatile long generation = 0;
+    
+    // Updates waiting for the event dispatch thread, guarded by pendingLock
+    private final Object pendingLock = new Object();
+    private List<Placeholder> pendingPlaceholders = new ArrayList<>();
+    private int pendingResolved = 0;
+    private List<UserROI> pendingROIs = new ArrayList<>();
+    private int pendingTotalLoaded = 0;
+    private long pendingGeneration = -1;
+    private boolean publishScheduled = false;
     
     /**
-     * Interface for progress updates.
+     * Interface for progress updates. All methods are called on the event dispatch thread.
      */
     public interface ProgressListener {
         void onBatchLoaded(List<UserROI> batch, int totalLoaded, int totalExpected);
         void onLoadingComplete(int totalLoaded);
         void onLoadingFailed(String error);
+        
+        /**
+         * Bounding boxes of ROIs that are still being decoded, in load order.
+         */
+        default void onPlaceholdersLoaded(List<Placeholder> placeholders) {
+        }
+        
+        /**
+         * The given number of oldest placeholders has been decoded; their ROIs arrive with the
+         * following {@link #onBatchLoaded} call, unless their chunk failed to decode. Remaining
+         * placeholders are obsolete once loading completes.
+         */
+        default void onPlaceholdersResolved(int count) {
+        }
     }
     
     /**
-     * Load ROIs progressively from ZIP file.
+     * Bounding box of a ROI that is still being decoded, with the type its name stands for.
+     */
+    public record Placeholder(Rectangle bounds, UserROI.ROIType type) {
+    }
+    
+    /** Raw ROI entry waiting to be decoded. */
+    private record RawROI(String entryName, String name, byte[] data) {
+    }
+    
+    /** Decoded chunk with the number of placeholders it resolves. */
+    private record DecodedChunk(List<UserROI> rois, int placeholders) {
+    }
+    
+    /** Chunk handed to the decoders, with the number of placeholders it resolves. */
+    private record PendingChunk(Future<DecodedChunk> future, int placeholders) {
+    }
+    
+    /**
+     * Load ROIs progressively from a master ZIP file or ROI container.
      */
     public CompletableFuture<Void> loadROIsProgressively(File zipFile, String imageFileName) {
         if (zipFile == null || !zipFile.exists() || imageFileName == null) {
@@ -56,19 +117,21 @@ public class ProgressiveROILoader {
             return CompletableFuture.completedFuture(null);
         }
         
+        long loadGeneration = ++generation;
         isLoading = true;
-        isCancelled = false;
         
         LOGGER.info("Starting progressive loading from: {}", zipFile.getName());
         
         return CompletableFuture.runAsync(() -> {
             try {
-                loadROIsFromZipFile(zipFile, imageFileName);
+                loadROIsFromArchive(zipFile, imageFileName, loadGeneration);
             } catch (Exception e) {
                 LOGGER.error("Progressive loading failed", e);
                 SwingUtilities.invokeLater(() -> notifyError(e.getMessage()));
             } finally {
-                isLoading = false;
+                if (generation == loadGeneration) {
+                    isLoading = false;
+                }
             }
         });
     }
@@ -77,7 +140,7 @@ public class ProgressiveROILoader {
      * Cancel ongoing loading operation.
      */
     public void cancelLoading() {
-        isCancelled = true;
+        generation++;
         isLoading = false;
     }
     
@@ -106,127 +169,200 @@ public class ProgressiveROILoader {
     
     // === PRIVATE METHODS ===
     
-    private void loadROIsFromZipFile(File zipFile, String imageFileName) throws IOException {
-        List<UserROI> allROIs = new ArrayList<>();
+    private void loadROIsFromArchive(File zipFile, String imageFileName, long loadGeneration)
+            throws IOException {
+        // The archive's directory is parsed once and cached, so this is a direct lookup
+        ROIArchive archive = ROIArchive.open(zipFile);
+        LOGGER.debug("Looking up ROIs for image: {} in {}", imageFileName, zipFile.getName());
         
-        // Convert image filename to expected ZIP format
-        String expectedZipName = convertImageNameToZipName(imageFileName);
-        LOGGER.debug("Looking for nested ZIP: {} for image: {}", expectedZipName, imageFileName);
+        Deque<PendingChunk> inFlight = new ArrayDeque<>();
+        List<RawROI> chunk = new ArrayList<>(CHUNK_SIZE);
+        List<Placeholder> placeholders = new ArrayList<>(CHUNK_SIZE);
+        int[] totalLoaded = {0};
         
-        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zipFile), 65536))) {
-            ZipEntry entry;
-            
-            while ((entry = zis.getNextEntry()) != null && !isCancelled) {
-                if (entry.getName().equals(expectedZipName) && !entry.isDirectory()) {
-                    LOGGER.info("Found matching nested ZIP: {}", entry.getName());
-                    
-                    // Load ROIs from nested ZIP with progressive updates
-                    loadROIsFromNestedZipProgressive(zis, imageFileName, allROIs);
-                    break;
-                }
-                zis.closeEntry();
+        boolean found = archive.readImageEntries(imageFileName, (entryName, data) -> {
+            if (generation != loadGeneration) {
+                return false;
             }
-        }
+            String name = cleanROIName(entryName);
+            if (!shouldIncludeROI(name)) {
+                return true;
+            }
+            chunk.add(new RawROI(entryName, name, data));
+            // Fast path: the header bounds are available long before the polygon is decoded
+            Rectangle bounds = ROIZipIO.decodeBounds(data);
+            if (bounds != null) {
+                placeholders.add(new Placeholder(bounds, placeholderType(name)));
+            }
+            if (chunk.size() >= CHUNK_SIZE) {
+                submitChunk(chunk, placeholders, imageFileName, inFlight, loadGeneration);
+                chunk.clear();
+                placeholders.clear();
+                totalLoaded[0] += deliverChunks(inFlight, MAX_CHUNKS_IN_FLIGHT, totalLoaded[0],
+                                                loadGeneration);
+            }
+            return true;
+        });
         
-        if (!isCancelled) {
-            SwingUtilities.invokeLater(() -> notifyComplete(allROIs.size()));
+        if (!chunk.isEmpty()) {
+            submitChunk(chunk, placeholders, imageFileName, inFlight, loadGeneration);
         }
-    }
-    
-    private void loadROIsFromNestedZipProgressive(ZipInputStream parentZis, String imageFileName, 
-                                                 List<UserROI> allROIs) throws IOException {
+        totalLoaded[0] += deliverChunks(inFlight, 0, totalLoaded[0], loadGeneration);
         
-        // Read nested ZIP data
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = parentZis.read(buffer)) != -1) {
-            baos.write(buffer, 0, bytesRead);
+        if (!found) {
+            LOGGER.info("No ROIs stored for image '{}' in {}", imageFileName, zipFile.getName());
         }
         
-        // Process nested ZIP with progressive updates
-        try (ZipInputStream nestedZis = new ZipInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
-            ZipEntry nestedEntry;
-            List<UserROI> currentBatch = new ArrayList<>();
-            int totalProcessed = 0;
-            
-            while ((nestedEntry = nestedZis.getNextEntry()) != null && !isCancelled) {
-                if (nestedEntry.getName().endsWith(".roi")) {
-                    try {
-                        UserROI roi = loadROIFromZipEntry(nestedZis, nestedEntry.getName(), imageFileName);
-                        if (roi != null && shouldIncludeROI(roi)) {
-                            currentBatch.add(roi);
-                            allROIs.add(roi);
-                            totalProcessed++;
-                            
-                            // Send batch when it reaches size limit
-                            if (currentBatch.size() >= BATCH_SIZE) {
-                                sendBatchUpdate(new ArrayList<>(currentBatch), totalProcessed, -1);
-                                currentBatch.clear();
-                                
-                                // Small delay to allow UI updates
-                                try {
-                                    Thread.sleep(BATCH_DELAY_MS);
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                    return;
-                                }
-                            }
-                        }
-                    } catch (Exception e) {
-                        LOGGER.warn("Failed to load ROI '{}': {}", nestedEntry.getName(), e.getMessage());
-                    }
+        if (generation == loadGeneration) {
+            LOGGER.info("Progressive loading complete: {} ROIs processed", totalLoaded[0]);
+            int total = totalLoaded[0];
+            // Queued after every pending publish, so listeners see all batches first
+            SwingUtilities.invokeLater(() -> {
+                if (generation == loadGeneration) {
+                    notifyComplete(total);
                 }
-                nestedZis.closeEntry();
+            });
+        } else {
+            inFlight.forEach(pending -> pending.future().cancel(false));
+        }
+    }
+    
+    private void submitChunk(List<RawROI> chunk, List<Placeholder> placeholders,
+                             String imageFileName, Deque<PendingChunk> inFlight,
+                             long loadGeneration) {
+        List<RawROI> raw = List.copyOf(chunk);
+        int placeholderCount = placeholders.size();
+        publish(loadGeneration, List.copyOf(placeholders), 0, List.of(), 0);
+        inFlight.add(new PendingChunk(
+            DECODERS.submit(
+                () -> decodeChunk(raw, imageFileName, placeholderCount, loadGeneration)),
+            placeholderCount));
+    }
+    
+    private DecodedChunk decodeChunk(List<RawROI> raw, String imageFileName, int placeholders,
+                                     long loadGeneration) {
+        List<UserROI> rois = new ArrayList<>(raw.size());
+        for (RawROI entry : raw) {
+            if (generation != loadGeneration) {
+                break;
             }
-            
-            // Send final batch if not empty
-            if (!currentBatch.isEmpty() && !isCancelled) {
-                sendBatchUpdate(new ArrayList<>(currentBatch), totalProcessed, totalProcessed);
+            Roi ijRoi = ROIZipIO.decode(entry.data(), entry.entryName());
+            if (ijRoi != null) {
+                rois.add(new UserROI(ijRoi, imageFileName, entry.name()));
             }
         }
-        
-        LOGGER.info("Progressive loading complete: {} ROIs processed", allROIs.size());
+        return new DecodedChunk(rois, placeholders);
     }
     
-    private UserROI loadROIFromZipEntry(ZipInputStream zis, String entryName, String imageFileName) throws IOException {
-        String roiName = cleanROIName(entryName);
-        
-        // Create temporary file for ROI data
-        File tempFile = File.createTempFile("roi_", ".roi");
-        tempFile.deleteOnExit();
-        
-        try {
-            // Write ROI data to temp file
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = zis.read(buffer)) != -1) {
-                    fos.write(buffer, 0, bytesRead);
-                }
+    /**
+     * Delivers decoded chunks in submission order: completed ones at the head of the queue, and
+     * older ones until at most {@code maxInFlight} remain.
+     *
+     * @return the number of ROIs delivered
+     */
+    private int deliverChunks(Deque<PendingChunk> inFlight, int maxInFlight,
+                              int totalLoaded, long loadGeneration) {
+        int delivered = 0;
+        while (!inFlight.isEmpty() && generation == loadGeneration
+               && (inFlight.size() > maxInFlight || inFlight.peekFirst().future().isDone())) {
+            PendingChunk pending = inFlight.pollFirst();
+            try {
+                DecodedChunk decoded = pending.future().get();
+                delivered += decoded.rois().size();
+                publish(loadGeneration, List.of(), decoded.placeholders(), decoded.rois(),
+                        totalLoaded + delivered);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelLoading();
+            } catch (ExecutionException e) {
+                LOGGER.warn("Failed to decode ROI chunk: {}", e.getCause().getMessage());
+                // Its ROIs never arrive, so their placeholders must not stay on screen
+                publish(loadGeneration, List.of(), pending.placeholders(), List.of(),
+                        totalLoaded + delivered);
             }
-            
-            // Load ROI from temp file
-            Roi ijRoi = RoiDecoder.open(tempFile.getAbsolutePath());
-            if (ijRoi != null) {
-                return new UserROI(ijRoi, imageFileName, roiName);
+        }
+        return delivered;
+    }
+    
+    /**
+     * Merges an update into the pending one and schedules a single dispatch for all of them.
+     */
+    private void publish(long loadGeneration, List<Placeholder> placeholders, int resolved,
+                         List<UserROI> rois, int totalLoaded) {
+        if (placeholders.isEmpty() && resolved == 0 && rois.isEmpty()) {
+            return;
+        }
+        synchronized (pendingLock) {
+            if (pendingGeneration != loadGeneration) {
+                pendingPlaceholders = new ArrayList<>();
+                pendingResolved = 0;
+                pendingROIs = new ArrayList<>();
+                pendingTotalLoaded = 0;
+                pendingGeneration = loadGeneration;
             }
-            
-        } finally {
-            tempFile.delete();
+            pendingPlaceholders.addAll(placeholders);
+            pendingResolved += resolved;
+            pendingROIs.addAll(rois);
+            pendingTotalLoaded = Math.max(pendingTotalLoaded, totalLoaded);
+            if (publishScheduled) {
+                return;
+            }
+            publishScheduled = true;
         }
-        
-        return null;
+        SwingUtilities.invokeLater(this::dispatchPending);
     }
     
-    private boolean shouldIncludeROI(UserROI roi) {
-        if (roi == null) {
-            return false;
+    private void dispatchPending() {
+        List<Placeholder> placeholders;
+        int resolved;
+        List<UserROI> rois;
+        int totalLoaded;
+        long updateGeneration;
+        synchronized (pendingLock) {
+            placeholders = pendingPlaceholders;
+            resolved = pendingResolved;
+            rois = pendingROIs;
+            totalLoaded = pendingTotalLoaded;
+            updateGeneration = pendingGeneration;
+            pendingPlaceholders = new ArrayList<>();
+            pendingResolved = 0;
+            pendingROIs = new ArrayList<>();
+            pendingTotalLoaded = 0;
+            publishScheduled = false;
         }
-        
+        if (updateGeneration != generation) {
+            return;
+        }
+        for (ProgressListener listener : listeners) {
+            try {
+                if (!placeholders.isEmpty()) {
+                    listener.onPlaceholdersLoaded(placeholders);
+                }
+                if (resolved > 0) {
+                    listener.onPlaceholdersResolved(resolved);
+                }
+                if (!rois.isEmpty()) {
+                    listener.onBatchLoaded(rois, totalLoaded, -1);
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error notifying progress listener", e);
+            }
+        }
+    }
+    
+    /**
+     * @return the type of an included ROI, for filtering its placeholder like the decoded ROI
+     */
+    private static UserROI.ROIType placeholderType(String name) {
+        return name.toLowerCase().startsWith("nucleus")
+            ? UserROI.ROIType.NUCLEUS
+            : UserROI.ROIType.CELL;
+    }
+    
+    private boolean shouldIncludeROI(String name) {
         // Filter for cells and nuclei only for performance
-        String name = roi.getName().toLowerCase();
-        return name.startsWith("cell") || name.startsWith("nucleus");
+        String lowerName = name.toLowerCase();
+        return lowerName.startsWith("cell") || lowerName.startsWith("nucleus");
     }
     
     private String cleanROIName(String entryName) {
@@ -254,32 +390,6 @@ public class ProgressiveROILoader {
         return name.isEmpty() ? "ROI_" + System.currentTimeMillis() % 10000 : name;
     }
     
-    private String convertImageNameToZipName(String imageFileName) {
-        if (imageFileName == null) {
-            return null;
-        }
-        
-        String nameWithoutExt = imageFileName;
-        int lastDot = imageFileName.lastIndexOf('.');
-        if (lastDot > 0) {
-            nameWithoutExt = imageFileName.substring(0, lastDot);
-        }
-        
-        return nameWithoutExt.replace(' ', '_') + "_ROIs.zip";
-    }
-    
-    private void sendBatchUpdate(List<UserROI> batch, int totalLoaded, int totalExpected) {
-        SwingUtilities.invokeLater(() -> {
-            for (ProgressListener listener : listeners) {
-                try {
-                    listener.onBatchLoaded(batch, totalLoaded, totalExpected);
-                } catch (Exception e) {
-                    LOGGER.error("Error notifying progress listener", e);
-                }
-            }
-        });
-    }
-    
     private void notifyComplete(int totalLoaded) {
         for (ProgressListener listener : listeners) {
             try {
@@ -299,4 +409,4 @@ public class ProgressiveROILoader {
             }
         }
     }
-}
\ No newline at end of file
+}
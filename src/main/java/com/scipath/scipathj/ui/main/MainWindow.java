@@ -26,6 +26,7 @@ import com.scipath.scipathj.ui.utils.UIUtils;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import javax.swing.*;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
 import org.kordamp.ikonli.swing.FontIcon;
@@ -522,6 +523,11 @@ public class MainWindow extends JFrame {
             updateROIToolbarState();
           }
 
+          @Override
+          public void onROIsAdded(String imageFileName, List<UserROI> rois) {
+            updateROIToolbarState();
+          }
+
           @Override
           public void onROIRemoved(UserROI roi) {
             updateROIToolbarState();
@@ -132,6 +132,11 @@ public class ROIController {
         updateROIToolbarState();
       }
 
+      @Override
+      public void onROIsAdded(String imageFileName, List<UserROI> rois) {
+        updateROIToolbarState();
+      }
+
       @Override
       public void onROIRemoved(UserROI roi) {
         updateROIToolbarState();
@@ -1,10 +1,14 @@
 package com.scipath.scipathj.ui.utils;
 
+import com.scipath.scipathj.infrastructure.image.ImageSource;
+import com.scipath.scipathj.infrastructure.image.ImageSources;
+import com.scipath.scipathj.infrastructure.image.ThumbnailCache;
 import ij.ImagePlus;
 import ij.io.Opener;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -115,6 +119,42 @@ public class ImageLoader {
     }
   }
 
+  /**
+   * Opens a region/level based image source for the specified file path.
+   *
+   * <p>Unlike {@link #loadImage(String)} this does not decode the full resolution raster for
+   * formats that support region reads, so it should be preferred for viewing large images.</p>
+   *
+   * @param filePath the path to the image file
+   * @return the opened ImageSource (to be closed by the caller), or null if opening failed
+   */
+  public static ImageSource openImageSource(String filePath) {
+    if (filePath == null || filePath.trim().isEmpty()) {
+      LOGGER.warn("Invalid file path provided: {}", filePath);
+      return null;
+    }
+
+    File file = new File(filePath);
+    if (!isImageFile(file)) {
+      LOGGER.debug("File is not a supported image format: {}", filePath);
+      return null;
+    }
+
+    try {
+      ImageSource source = ImageSources.open(file);
+      LOGGER.debug(
+          "Opened image source: {} ({}x{}, {} levels)",
+          filePath,
+          source.getWidth(),
+          source.getHeight(),
+          source.getLevelCount());
+      return source;
+    } catch (Exception e) {
+      LOGGER.error("Error opening image source: {}", filePath, e);
+      return null;
+    }
+  }
+
   /**
    * Creates a thumbnail image from an ImagePlus object.
    *
@@ -128,40 +168,11 @@ public class ImageLoader {
     }
 
     try {
-      // Get the original image
-      Image originalImage = imagePlus.getImage();
+      BufferedImage originalImage = imagePlus.getBufferedImage();
       if (originalImage == null) {
         return null;
       }
-
-      // Calculate thumbnail dimensions
-      int originalWidth = imagePlus.getWidth();
-      int originalHeight = imagePlus.getHeight();
-
-      double scale = Math.min((double) maxSize / originalWidth, (double) maxSize / originalHeight);
-
-      int thumbnailWidth = (int) (originalWidth * scale);
-      int thumbnailHeight = (int) (originalHeight * scale);
-
-      // Create scaled image
-      Image scaledImage =
-          originalImage.getScaledInstance(thumbnailWidth, thumbnailHeight, Image.SCALE_SMOOTH);
-
-      // Convert to BufferedImage
-      BufferedImage thumbnail =
-          new BufferedImage(thumbnailWidth, thumbnailHeight, BufferedImage.TYPE_INT_RGB);
-
-      Graphics2D g2d = thumbnail.createGraphics();
-      g2d.setRenderingHint(
-          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-
-      g2d.drawImage(scaledImage, 0, 0, null);
-      g2d.dispose();
-
-      return thumbnail;
-
+      return scaleToFit(originalImage, maxSize);
     } catch (Exception e) {
       LOGGER.error("Error creating thumbnail for image: {}", imagePlus.getTitle(), e);
       return null;
@@ -171,21 +182,98 @@ public class ImageLoader {
   /**
    * Creates a thumbnail image from a file path.
    *
+   * <p>Thumbnails are served from the persistent {@link ThumbnailCache} when possible. Otherwise
+   * the image is decoded at reduced resolution (embedded thumbnail, pyramid level or subsampled
+   * read) and the result is cached, so reopening a known folder decodes nothing.</p>
+   *
    * @param filePath the path to the image file
    * @return BufferedImage thumbnail, or null if creation failed
    */
   public static BufferedImage createThumbnail(String filePath) {
-    ImagePlus imagePlus = loadImage(filePath);
-    if (imagePlus == null) {
+    if (filePath == null || filePath.trim().isEmpty()) {
+      LOGGER.warn("Invalid file path provided: {}", filePath);
       return null;
     }
 
-    BufferedImage thumbnail = createThumbnail(imagePlus, MAX_THUMBNAIL_SIZE);
+    File file = new File(filePath);
+    if (!file.isFile() || !isImageFile(file)) {
+      LOGGER.debug("File is not a supported image file: {}", filePath);
+      return null;
+    }
+
+    ThumbnailCache cache = ThumbnailCache.getInstance();
+    String key = null;
+    try {
+      key = cache.keyOf(file);
+      BufferedImage cached = cache.get(key, MAX_THUMBNAIL_SIZE);
+      if (cached != null) {
+        LOGGER.debug("Thumbnail cache hit: {}", filePath);
+        return cached;
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Cannot compute thumbnail cache key for {}: {}", filePath, e.getMessage());
+    }
+
+    try {
+      long start = System.currentTimeMillis();
+      BufferedImage thumbnail =
+          scaleToFit(ImageSources.readThumbnail(file, MAX_THUMBNAIL_SIZE), MAX_THUMBNAIL_SIZE);
+      if (key != null) {
+        cache.put(key, MAX_THUMBNAIL_SIZE, thumbnail);
+      }
+      LOGGER.debug(
+          "Created thumbnail for {} in {} ms", filePath, System.currentTimeMillis() - start);
+      return thumbnail;
+    } catch (IOException e) {
+      LOGGER.warn("Failed to create thumbnail for {}: {}", filePath, e.getMessage());
+      return null;
+    }
+  }
 
-    // Clean up ImagePlus to free memory
-    imagePlus.close();
+  /**
+   * Scales an image so that its larger side equals {@code maxSize}, keeping the aspect ratio.
+   *
+   * @param image the image to scale
+   * @param maxSize the size of the larger side of the result
+   * @return the scaled RGB image
+   */
+  public static BufferedImage scaleToFit(BufferedImage image, int maxSize) {
+    double scale =
+        Math.min((double) maxSize / image.getWidth(), (double) maxSize / image.getHeight());
+    return scaleImage(
+        image,
+        Math.max(1, (int) (image.getWidth() * scale)),
+        Math.max(1, (int) (image.getHeight() * scale)));
+  }
 
-    return thumbnail;
+  /**
+   * Scales an image to the given size. Large reductions are done in successive halving steps, so
+   * bilinear interpolation still averages every source pixel.
+   *
+   * @param image the image to scale
+   * @param width the target width
+   * @param height the target height
+   * @return the scaled RGB image
+   */
+  public static BufferedImage scaleImage(BufferedImage image, int width, int height) {
+    BufferedImage current = image;
+    int currentWidth = image.getWidth();
+    int currentHeight = image.getHeight();
+    do {
+      // Never below the target, so upscaling happens in a single step
+      currentWidth = Math.max(width, currentWidth / 2);
+      currentHeight = Math.max(height, currentHeight / 2);
+      BufferedImage step =
+          new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+      Graphics2D g2d = step.createGraphics();
+      g2d.setRenderingHint(
+          RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+      g2d.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+      g2d.dispose();
+      current = step;
+    } while (currentWidth != width || currentHeight != height);
+    return current;
   }
 
   /**
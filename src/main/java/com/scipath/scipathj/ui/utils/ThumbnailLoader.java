@@ -0,0 +1,159 @@
+package com.scipath.scipathj.ui.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded, prioritised loader for gallery thumbnails.
+ *
+ * <p>Thumbnails are created by {@link ImageLoader#createThumbnail(String)} on a small fixed pool
+ * instead of the common ForkJoin pool, so opening a large folder cannot saturate every core with
+ * full image decodes. Pending requests are ordered so that thumbnails currently visible on screen
+ * come first and, within the same visibility, the most recent request wins, which follows the
+ * user while scrolling. Requests that are no longer needed can be cancelled before they run.
+ *
+ * @author Sebastian Micu
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ThumbnailLoader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailLoader.class);
+
+  private static final ThumbnailLoader INSTANCE =
+      new ThumbnailLoader(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() / 2)));
+
+  private final ThreadPoolExecutor executor;
+  private final AtomicLong sequence = new AtomicLong();
+
+  private ThumbnailLoader(final int threads) {
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            30,
+            TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "SciPathJ-Thumbnail-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              thread.setPriority(Thread.NORM_PRIORITY - 1);
+              return thread;
+            });
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * @return the shared loader
+   */
+  public static ThumbnailLoader getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Queues a thumbnail for loading.
+   *
+   * @param imageFile the image file
+   * @param visible whether the thumbnail is currently on screen
+   * @param callback receives the thumbnail (or {@code null} on failure) on the EDT; it is not
+   *     called for cancelled requests
+   * @return a handle to reprioritise or cancel the request
+   */
+  public Request load(
+      final File imageFile, final boolean visible, final Consumer<BufferedImage> callback) {
+    Request request = new Request(imageFile, visible, callback, sequence.incrementAndGet());
+    executor.execute(request);
+    return request;
+  }
+
+  /**
+   * A queued thumbnail load. Ordered by visibility first, then newest first.
+   */
+  public final class Request implements Runnable, Comparable<Request> {
+
+    private final File imageFile;
+    private final Consumer<BufferedImage> callback;
+    private final long order;
+    private volatile boolean visible;
+    private volatile boolean cancelled = false;
+
+    private Request(
+        final File imageFile,
+        final boolean visible,
+        final Consumer<BufferedImage> callback,
+        final long order) {
+      this.imageFile = imageFile;
+      this.visible = visible;
+      this.callback = callback;
+      this.order = order;
+    }
+
+    /**
+     * Moves a pending request ahead of all thumbnails that are not on screen. Does nothing if the
+     * request is already running or done.
+     */
+    public void markVisible() {
+      if (visible || cancelled) {
+        return;
+      }
+      // The queue orders on insertion, so the request is re-inserted with its new priority
+      if (executor.remove(this)) {
+        visible = true;
+        executor.execute(this);
+      }
+    }
+
+    /**
+     * Cancels the request. A pending request is removed from the queue; a running one completes
+     * but its callback is not invoked.
+     */
+    public void cancel() {
+      cancelled = true;
+      executor.remove(this);
+    }
+
+    public boolean isCancelled() {
+      return cancelled;
+    }
+
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+      BufferedImage thumbnail = null;
+      try {
+        LOGGER.debug("Loading thumbnail for: {}", imageFile.getName());
+        thumbnail = ImageLoader.createThumbnail(imageFile.getAbsolutePath());
+      } catch (Exception e) {
+        LOGGER.warn("Failed to create thumbnail for: {}", imageFile.getName(), e);
+      }
+      final BufferedImage result = thumbnail;
+      SwingUtilities.invokeLater(
+          () -> {
+            if (!cancelled) {
+              callback.accept(result);
+            }
+          });
+    }
+
+    @Override
+    public int compareTo(final Request other) {
+      if (visible != other.visible) {
+        return visible ? -1 : 1;
+      }
+      return Long.compare(other.order, order);
+    }
+  }
+}
@@ -87,13 +87,16 @@ public class DefaultModelExecutor<T extends RealType<T>> extends DefaultTask
       DirectFileLogger.logStarDist("INFO", "Inizio elaborazione tiles...");
       for (int i = 0; i < input.size(); i++) {
         AdvancedTiledView<T> tile = input.get(i);
-        DirectFileLogger.logStarDist("INFO", "Elaborazione tile " + (i + 1) + "/" + input.size());
+        final int tileNumber = i + 1;
+        DirectFileLogger.logStarDist(
+            "INFO", () -> "Elaborazione tile " + tileNumber + "/" + input.size());
 
         try {
           AdvancedTiledView<T> result = run(tile, network);
           if (result != null) {
             output.add(result);
-            DirectFileLogger.logStarDist("INFO", "Tile " + (i + 1) + " elaborato con successo");
+            DirectFileLogger.logStarDist(
+                "INFO", () -> "Tile " + tileNumber + " elaborato con successo");
           } else {
             DirectFileLogger.logStarDist(
                 "ERROR", "ERRORE: Tile " + (i + 1) + " ha restituito null");
@@ -145,10 +148,10 @@ public class DefaultModelExecutor<T extends RealType<T>> extends DefaultTask
   private AdvancedTiledView<T> run(final AdvancedTiledView<T> input, final Network network)
       throws OutOfMemoryError, IllegalArgumentException, ExecutionException {
     DirectFileLogger.logStarDist("DEBUG", "--- Inizio elaborazione singolo tile ---");
-    DirectFileLogger.logStarDist("DEBUG", "Input tile presente: " + (input != null));
-    DirectFileLogger.logStarDist("DEBUG", "Network presente: " + (network != null));
+    DirectFileLogger.logStarDist("DEBUG", () -> "Input tile presente: " + (input != null));
+    DirectFileLogger.logStarDist("DEBUG", () -> "Network presente: " + (network != null));
 
-    if (input != null) {
+    if (input != null && DirectFileLogger.isEnabled("DEBUG")) {
       DirectFileLogger.logStarDist("DEBUG", "Input tile dimensions: " + input.numDimensions());
       long[] dims = new long[input.numDimensions()];
       input.dimensions(dims);
@@ -165,15 +168,15 @@ public class DefaultModelExecutor<T extends RealType<T>> extends DefaultTask
 
       Future<List<RandomAccessibleInterval<T>>> resultFuture = pool.submit(network);
       DirectFileLogger.logStarDist(
-          "DEBUG", "Task submitted, future presente: " + (resultFuture != null));
+          "DEBUG", () -> "Task submitted, future presente: " + (resultFuture != null));
 
       if (resultFuture != null) {
         DirectFileLogger.logStarDist("DEBUG", "Waiting for result...");
         List<RandomAccessibleInterval<T>> result = resultFuture.get();
-        DirectFileLogger.logStarDist("DEBUG", "Result ottenuto: " + (result != null));
+        DirectFileLogger.logStarDist("DEBUG", () -> "Result ottenuto: " + (result != null));
 
         if (result != null) {
-          DirectFileLogger.logStarDist("DEBUG", "Result size: " + result.size());
+          DirectFileLogger.logStarDist("DEBUG", () -> "Result size: " + result.size());
           input.getProcessedTiles().addAll(result);
           DirectFileLogger.logStarDist("DEBUG", "Result aggiunto ai processed tiles");
         } else {
@@ -52,6 +52,26 @@ public class Candidates {
       double threshold,
       int b,
       LogService log) {
+    this(prob, dist, threshold, new int[] {b, b, b, b}, 0, 0, log);
+  }
+
+  /**
+   * Extracts candidates from a tile of a larger image.
+   *
+   * <p>{@code prob} and {@code dist} are tile-local (zero-min) rasters; {@code offsetX} and {@code
+   * offsetY} give the position of the tile in the full image, so that all polygons, origins and
+   * bounding boxes are expressed in full-image coordinates. The boundary exclusion is given per side
+   * ({@code left, top, right, bottom}) so that it can be applied at the image border only and not
+   * at internal tile seams.
+   */
+  public Candidates(
+      RandomAccessibleInterval<FloatType> prob,
+      RandomAccessibleInterval<FloatType> dist,
+      double threshold,
+      int[] exclude,
+      long offsetX,
+      long offsetY,
+      LogService log) {
     final long start = System.currentTimeMillis();
     this.verbose = log != null;
     this.log = log;
@@ -59,6 +79,7 @@ public class Candidates {
     final long[] shape = Intervals.dimensionsAsLongArray(dist);
     final int ndim = shape.length;
     assert ndim == 3;
+    assert exclude.length == 4;
 
     int nrays = (int) shape[2];
     final double[] phis = Utils.rayAngles(nrays);
@@ -66,8 +87,8 @@ public class Candidates {
     final RandomAccess<FloatType> r = prob.randomAccess();
     final RandomAccess<FloatType> s = dist.randomAccess();
 
-    for (int i = b; i < shape[0] - b; i++) {
-      for (int j = b; j < shape[1] - b; j++) {
+    for (int i = exclude[0]; i < shape[0] - exclude[2]; i++) {
+      for (int j = exclude[1]; j < shape[1] - exclude[3]; j++) {
         r.setPosition(i, 0);
         r.setPosition(j, 1);
         s.setPosition(i, 0);
@@ -77,11 +98,13 @@ public class Candidates {
           final Path poly = new Path();
           long xmin = Long.MAX_VALUE, xmax = Long.MIN_VALUE;
           long ymin = Long.MAX_VALUE, ymax = Long.MIN_VALUE;
+          final long gi = i + offsetX;
+          final long gj = j + offsetY;
           for (int k = 0; k < nrays; k++) {
             s.setPosition(k, 2);
             FloatType d = s.get();
-            long x = Math.round(S * (i + d.getRealDouble() * Math.cos(phis[k])));
-            long y = Math.round(S * (j + d.getRealDouble() * Math.sin(phis[k])));
+            long x = Math.round(S * (gi + d.getRealDouble() * Math.cos(phis[k])));
+            long y = Math.round(S * (gj + d.getRealDouble() * Math.sin(phis[k])));
             xmin = Math.min(xmin, x);
             ymin = Math.min(ymin, y);
             xmax = Math.max(xmax, x);
@@ -90,7 +113,7 @@ public class Candidates {
           }
           polygons.add(poly);
           bboxes.add(new Box2D(xmin, xmax, ymin, ymax));
-          origins.add(new Point2D(S * i, S * j));
+          origins.add(new Point2D(S * gi, S * gj));
           scores.add(score);
           areas.add(poly.area());
         }
@@ -104,6 +127,30 @@ public class Candidates {
           String.format("Candidates constructor took %d ms", System.currentTimeMillis() - start));
   }
 
+  /**
+   * Creates candidates from polygons that have already been extracted (and suppressed) elsewhere,
+   * e.g. the surviving polygons of several tiles. {@code winner} holds the indices that survived.
+   */
+  Candidates(
+      List<Path> polygons,
+      List<Point2D> origins,
+      List<Box2D> bboxes,
+      List<Double> areas,
+      List<Float> scores,
+      List<Integer> winner,
+      LogService log) {
+    this.verbose = log != null;
+    this.log = log;
+    this.polygons.addAll(polygons);
+    this.origins.addAll(origins);
+    this.bboxes.addAll(bboxes);
+    this.areas.addAll(areas);
+    this.scores.addAll(scores);
+    this.winner.addAll(winner);
+    score_indices = Utils.argsortDescending(this.scores);
+    suppressed = new boolean[this.polygons.size()];
+  }
+
   public void nms_v0(final double threshold) {
     final long start = System.currentTimeMillis();
     // TODO: apply same trick (bbox search window) as in c++ version
@@ -161,7 +208,7 @@ public class Candidates {
       log.info(String.format("Candidates NMS took %d ms", System.currentTimeMillis() - start));
   }
 
-  private double poly_intersection_area(final Path a, final Path b) {
+  static double poly_intersection_area(final Path a, final Path b) {
     final Clipper c = new DefaultClipper();
     final Paths res = new Paths();
     c.clear();
@@ -185,25 +232,29 @@ public class Candidates {
     return score_indices;
   }
 
-  //    public Point2D getOrigin(int i) {
-  //        return origins.get(i);
-  //    }
+  Point2D getOrigin(int i) {
+    return origins.get(i);
+  }
 
-  //    public Path getPolygon(int i) {
-  //        return polygons.get(i);
-  //    }
+  Path getPolygon(int i) {
+    return polygons.get(i);
+  }
 
-  //    public Box2D getBbox(int i) {
-  //        return bboxes.get(i);
-  //    }
+  Box2D getBbox(int i) {
+    return bboxes.get(i);
+  }
 
-  //    public float getScore(int i) {
-  //        return scores.get(i);
-  //    }
+  float getScore(int i) {
+    return scores.get(i);
+  }
+
+  double getArea(int i) {
+    return areas.get(i);
+  }
 
-  //    public double getArea(int i) {
-  //        return areas.get(i);
-  //    }
+  static long getScale() {
+    return S;
+  }
 
   public PolygonRoi getPolygonRoi(int i) {
     return Utils.toPolygonRoi(polygons.get(i), S);
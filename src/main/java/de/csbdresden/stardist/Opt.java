@@ -36,6 +36,8 @@ public class Opt {
   public static final String VERBOSE = "Verbose";
   public static final String CSBDEEP_PROGRESS_WINDOW = "Show CNN Progress";
   public static final String SHOW_PROB_DIST = "Show CNN Output";
+  public static final String STREAM_TILES = "Stream tiles (bounded memory)";
+  public static final String STREAM_TILE_SIZE = "Streaming tile size";
   public static final String SET_THRESHOLDS =
       "Set optimized postprocessing thresholds (for selected model)";
   public static final String RESTORE_DEFAULTS = "Restore Defaults";
@@ -58,6 +60,8 @@ public class Opt {
     DEFAULTS.put(VERBOSE, false);
     DEFAULTS.put(CSBDEEP_PROGRESS_WINDOW, false);
     DEFAULTS.put(SHOW_PROB_DIST, false);
+    DEFAULTS.put(STREAM_TILES, false);
+    DEFAULTS.put(STREAM_TILE_SIZE, 1024);
   }
 
   static Object getDefault(final String key) {
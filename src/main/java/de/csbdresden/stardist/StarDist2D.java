@@ -5,7 +5,9 @@ import static de.csbdresden.stardist.StarDist2DModel.MODEL_DSB2018_HEAVY_AUGMENT
 import static de.csbdresden.stardist.StarDist2DModel.MODEL_DSB2018_PAPER;
 import static de.csbdresden.stardist.StarDist2DModel.MODEL_HE_HEAVY_AUGMENTATION;
 
+import com.scipath.scipathj.infrastructure.metrics.Timer;
 import de.csbdresden.CommandFromMacro;
+import de.csbdresden.csbdeep.normalize.HistogramPercentile;
 import ij.IJ;
 import ij.ImagePlus;
 import java.io.File;
@@ -24,9 +26,12 @@ import net.imagej.ImgPlus;
 import net.imagej.axis.Axes;
 import net.imagej.axis.AxisType;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converters;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.real.FloatType;
 import net.imglib2.util.Pair;
+import net.imglib2.util.Util;
 import net.imglib2.util.ValuePair;
 import net.imglib2.view.Views;
 import org.scijava.ItemIO;
@@ -182,6 +187,12 @@ public class StarDist2D extends StarDist2DBase implements Command {
   @Parameter(label = Opt.SHOW_PROB_DIST)
   private boolean showProbAndDist = (boolean) Opt.getDefault(Opt.SHOW_PROB_DIST);
 
+  @Parameter(label = Opt.STREAM_TILES)
+  private boolean streamTiles = (boolean) Opt.getDefault(Opt.STREAM_TILES);
+
+  @Parameter(label = Opt.STREAM_TILE_SIZE, min = "64", stepSize = "64")
+  private int streamTileSize = (int) Opt.getDefault(Opt.STREAM_TILE_SIZE);
+
   // TODO: values for block multiple and overlap
 
   @Parameter(label = Opt.SET_THRESHOLDS, callback = "setThresholds")
@@ -206,6 +217,8 @@ public class StarDist2D extends StarDist2DBase implements Command {
     verbose = (boolean) Opt.getDefault(Opt.VERBOSE);
     showCsbdeepProgress = (boolean) Opt.getDefault(Opt.CSBDEEP_PROGRESS_WINDOW);
     showProbAndDist = (boolean) Opt.getDefault(Opt.SHOW_PROB_DIST);
+    streamTiles = (boolean) Opt.getDefault(Opt.STREAM_TILES);
+    streamTileSize = (int) Opt.getDefault(Opt.STREAM_TILE_SIZE);
   }
 
   private void percentileBottomChanged() {
@@ -315,7 +328,13 @@ public class StarDist2D extends StarDist2DBase implements Command {
 
       // TODO: option to normalize image/timelapse channel by channel or all channels jointly
 
-      if (true && isTimelapse) {
+      if (streamTiles && !isTimelapse) {
+        if (showProbAndDist)
+          log.warn(
+              String.format(
+                  "\"%s\" is not available when streaming tiles.", Opt.SHOW_PROB_DIST));
+        runStreaming(paramsCNN, inputAxes);
+      } else if (true && isTimelapse) {
         // TODO: option to normalize timelapse frame by frame (currently) or jointly
         final ImgPlus<? extends RealType<?>> inputImgPlus = input.getImgPlus();
         final long numFrames = input.getFrames();
@@ -332,9 +351,13 @@ public class StarDist2D extends StarDist2DBase implements Command {
                   Views.hyperSlice(inputImgPlus, inputTimeDim, t),
                   inputAxes.stream().filter(axis -> axis != Axes.TIME));
           paramsCNN.put("input", inputFrameDS);
-          final Future<CommandModule> futureCNN =
-              command.run(de.csbdresden.csbdeep.commands.GenericNetwork.class, false, paramsCNN);
-          final Dataset prediction = (Dataset) futureCNN.get().getOutput("output");
+          final Dataset prediction;
+          try (Timer.Sample sample = StarDistMetrics.INFERENCE.start()) {
+            final Future<CommandModule> futureCNN =
+                command.run(
+                    de.csbdresden.csbdeep.commands.GenericNetwork.class, false, paramsCNN);
+            prediction = (Dataset) futureCNN.get().getOutput("output");
+          }
 
           final Pair<Dataset, Dataset> probAndDist = splitPrediction(prediction);
           final Dataset probDS = probAndDist.getA();
@@ -365,9 +388,12 @@ public class StarDist2D extends StarDist2DBase implements Command {
         //       - joint normalization of all frames
         //       - requires more memory to store intermediate results (prob and dist) of all frames
         //       - allows showing prob and dist easily
-        final Future<CommandModule> futureCNN =
-            command.run(de.csbdresden.csbdeep.commands.GenericNetwork.class, false, paramsCNN);
-        final Dataset prediction = (Dataset) futureCNN.get().getOutput("output");
+        final Dataset prediction;
+        try (Timer.Sample sample = StarDistMetrics.INFERENCE.start()) {
+          final Future<CommandModule> futureCNN =
+              command.run(de.csbdresden.csbdeep.commands.GenericNetwork.class, false, paramsCNN);
+          prediction = (Dataset) futureCNN.get().getOutput("output");
+        }
 
         final Pair<Dataset, Dataset> probAndDist = splitPrediction(prediction);
         final Dataset probDS = probAndDist.getA();
@@ -403,6 +429,181 @@ public class StarDist2D extends StarDist2DBase implements Command {
     }
   }
 
+  /**
+   * Streaming variant of the prediction + NMS pipeline for very large images.
+   *
+   * <p>The image is cut into square tiles of {@code streamTileSize} pixels. Each tile is predicted
+   * together with an overlap margin of the model's receptive field, candidates are extracted and
+   * suppressed on the tile alone, and only the winners centred in the tile's own core are kept.
+   * {@link TiledCandidates#stitch(double)} then removes remaining duplicates along the seams. Peak
+   * memory is therefore bounded by the tile size: the full-resolution prob/dist maps never exist.
+   *
+   * <p>Percentile normalization is computed once over the whole input so that all tiles are scaled
+   * identically, which per-tile normalization inside CSBDeep would not do.
+   */
+  private void runStreaming(
+      final HashMap<String, Object> paramsCNN, final LinkedHashSet<AxisType> inputAxes)
+      throws InterruptedException, ExecutionException {
+    final long start = System.currentTimeMillis();
+    final RandomAccessibleInterval<? extends RealType<?>> inputRAI = input.getImgPlus();
+    final int xDim = input.dimensionIndex(Axes.X);
+    final int yDim = input.dimensionIndex(Axes.Y);
+    final long width = input.dimension(xDim);
+    final long height = input.dimension(yDim);
+
+    final int blockMultiple = (int) paramsCNN.get("blockMultiple");
+    final int overlap = (int) paramsCNN.get("overlap");
+    final long tileSize =
+        ((Math.max(streamTileSize, blockMultiple) + blockMultiple - 1) / blockMultiple)
+            * blockMultiple;
+    final long tilesX = (width + tileSize - 1) / tileSize;
+    final long tilesY = (height + tileSize - 1) / tileSize;
+    final int numTiles = (int) (tilesX * tilesY);
+
+    final float[] normRange = normalizeInput ? computeGlobalPercentiles(inputRAI) : null;
+    paramsCNN.put("normalizeInput", false);
+    paramsCNN.put("nTiles", 1);
+
+    final TiledCandidates tiled = new TiledCandidates(verbose ? log : null);
+    final long[] min = new long[inputRAI.numDimensions()];
+    final long[] max = new long[inputRAI.numDimensions()];
+    int done = 0;
+    for (long ty = 0; ty < tilesY; ty++) {
+      for (long tx = 0; tx < tilesX; tx++) {
+        final long coreMinX = tx * tileSize;
+        final long coreMinY = ty * tileSize;
+        final long coreMaxX = Math.min(width, coreMinX + tileSize) - 1;
+        final long coreMaxY = Math.min(height, coreMinY + tileSize) - 1;
+        final long extMinX = Math.max(0, coreMinX - overlap);
+        final long extMinY = Math.max(0, coreMinY - overlap);
+        final long extMaxX = Math.min(width - 1, coreMaxX + overlap);
+        final long extMaxY = Math.min(height - 1, coreMaxY + overlap);
+
+        inputRAI.min(min);
+        inputRAI.max(max);
+        min[xDim] = inputRAI.min(xDim) + extMinX;
+        max[xDim] = inputRAI.min(xDim) + extMaxX;
+        min[yDim] = inputRAI.min(yDim) + extMinY;
+        max[yDim] = inputRAI.min(yDim) + extMaxY;
+        final RandomAccessibleInterval<? extends RealType<?>> tileRAI =
+            Views.zeroMin(Views.interval(inputRAI, min, max));
+
+        paramsCNN.put("input", tileToDataset(tileRAI, normRange, inputAxes));
+        final Dataset prediction;
+        try (Timer.Sample sample = StarDistMetrics.INFERENCE.start()) {
+          final Future<CommandModule> futureCNN =
+              command.run(de.csbdresden.csbdeep.commands.GenericNetwork.class, false, paramsCNN);
+          prediction = (Dataset) futureCNN.get().getOutput("output");
+        }
+        final Pair<Dataset, Dataset> probAndDist = splitPrediction(prediction);
+
+        // exclude boundary pixels only where the tile touches the image border, not at seams
+        final int[] exclude = {
+          extMinX == 0 ? excludeBoundary : 0,
+          extMinY == 0 ? excludeBoundary : 0,
+          extMaxX == width - 1 ? excludeBoundary : 0,
+          extMaxY == height - 1 ? excludeBoundary : 0
+        };
+        final Candidates candidates;
+        try (Timer.Sample sample = StarDistMetrics.CANDIDATES.start()) {
+          candidates =
+              new Candidates(
+                  (RandomAccessibleInterval<FloatType>) probAndDist.getA().getImgPlus(),
+                  (RandomAccessibleInterval<FloatType>) probAndDist.getB().getImgPlus(),
+                  probThresh,
+                  exclude,
+                  extMinX,
+                  extMinY,
+                  verbose ? log : null);
+          sample.setObjects(candidates.getSorted().size());
+        }
+        StarDistMetrics.nms(candidates, nmsThresh);
+        final int kept = tiled.add(candidates, coreMinX, coreMinY, coreMaxX, coreMaxY);
+        if (verbose)
+          log.info(
+              String.format(
+                  "tile %d/%d: %d polygon candidates, %d winners, %d kept in tile core",
+                  done + 1,
+                  numTiles,
+                  candidates.getSorted().size(),
+                  candidates.getWinner().size(),
+                  kept));
+
+        status.showProgress(++done, numTiles);
+      }
+    }
+
+    final Candidates polygons;
+    try (Timer.Sample sample = StarDistMetrics.STITCH.start()) {
+      polygons = tiled.stitch(nmsThresh);
+      sample.setObjects(polygons.getWinner().size());
+    }
+    export(outputType, polygons, 0, 0, roiPositionActive);
+    label = labelImageToDataset(outputType);
+
+    if (verbose)
+      log.info(
+          String.format(
+              "Streaming StarDist over %d tiles took %d ms",
+              numTiles, System.currentTimeMillis() - start));
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Dataset tileToDataset(
+      final RandomAccessibleInterval<? extends RealType<?>> tile,
+      final float[] normRange,
+      final LinkedHashSet<AxisType> axes) {
+    if (normRange == null) return Utils.raiToDataset(dataset, "Input Tile", tile, axes);
+    final float low = normRange[0];
+    final float factor = normRange[1] - normRange[0] < 0.0000001 ? 1 : 1 / (normRange[1] - low);
+    final RandomAccessibleInterval<FloatType> normalized =
+        Converters.convert(
+            (RandomAccessibleInterval) tile,
+            (in, out) ->
+                ((FloatType) out)
+                    .set(Math.max(0, (((RealType<?>) in).getRealFloat() - low) * factor)),
+            new FloatType());
+    return Utils.raiToDataset(dataset, "Input Tile", normalized, axes);
+  }
+
+  /**
+   * Low/high input percentiles over the whole image. Integer images are counted in a histogram so
+   * that no per-pixel copy of the input is needed; other types fall back to CSBDeep's sort-based
+   * implementation.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private float[] computeGlobalPercentiles(
+      final RandomAccessibleInterval<? extends RealType<?>> rai) {
+    final RealType<?> type = Util.getTypeFromInterval(rai);
+    if (!(type instanceof IntegerType) || type.getMinValue() < 0 || type.getMaxValue() > 65535) {
+      return new HistogramPercentile()
+          .computePercentiles(
+              (RandomAccessibleInterval) rai,
+              new float[] {(float) percentileBottom, (float) percentileTop},
+              null);
+    }
+    final long[] hist = new long[(int) type.getMaxValue() + 1];
+    long count = 0;
+    for (final RealType<?> v : Views.iterable(rai)) {
+      hist[(int) v.getRealDouble()]++;
+      count++;
+    }
+    return new float[] {
+      histogramRank(hist, count, percentileBottom), histogramRank(hist, count, percentileTop)
+    };
+  }
+
+  private static float histogramRank(final long[] hist, final long count, final double percentile) {
+    // same rank definition as HistogramPercentile: round((n - 1) * p / 100) in sorted order
+    final long k = Math.min(count - 1, Math.max(0, Math.round((count - 1) * percentile / 100.)));
+    long cumulative = 0;
+    for (int v = 0; v < hist.length; v++) {
+      cumulative += hist[v];
+      if (cumulative > k) return v;
+    }
+    return hist.length - 1;
+  }
+
   // this function is very cumbersome... is there a better way to do this?
   private Pair<Dataset, Dataset> splitPrediction(final Dataset prediction) {
     final RandomAccessibleInterval<FloatType> predictionRAI =
@@ -60,6 +60,8 @@ public class StarDist2DModel {
   public final int tileOverlap;
   private final String protocol;
   private File localModelDirectory;
+  // Whether the models directories were searched; their contents do not change while running
+  private boolean localModelSearched;
 
   public StarDist2DModel(
       URL url, double probThresh, double nmsThresh, int sizeDivBy, int tileOverlap) {
@@ -119,7 +121,16 @@ public class StarDist2DModel {
    * Try to find the model in the local models directory.
    * This looks for already extracted models to avoid extraction issues.
    */
-  private File findLocalModelFile() throws IOException {
+  private synchronized File findLocalModelFile() throws IOException {
+    if (localModelSearched) {
+      return localModelDirectory;
+    }
+    localModelDirectory = searchLocalModelFile();
+    localModelSearched = true;
+    return localModelDirectory;
+  }
+
+  private File searchLocalModelFile() throws IOException {
     // Determine which model this is based on the URL
     String modelName = getModelNameFromUrl();
     if (modelName == null) {
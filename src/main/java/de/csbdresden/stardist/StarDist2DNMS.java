@@ -1,5 +1,6 @@
 package de.csbdresden.stardist;
 
+import com.scipath.scipathj.infrastructure.metrics.Timer;
 import de.csbdresden.CommandFromMacro;
 import ij.IJ;
 import ij.ImagePlus;
@@ -135,14 +136,18 @@ public class StarDist2DNMS extends StarDist2DBase implements Command {
       final long numFrames = prob.getFrames();
 
       for (int t = 0; t < numFrames; t++) {
-        final Candidates polygons =
-            new Candidates(
-                Views.hyperSlice(probRAI, probTimeDim, t),
-                Views.hyperSlice(distRAI, distTimeDim, t),
-                probThresh,
-                excludeBoundary,
-                verbose ? log : null);
-        polygons.nms(nmsThresh);
+        final Candidates polygons;
+        try (Timer.Sample sample = StarDistMetrics.CANDIDATES.start()) {
+          polygons =
+              new Candidates(
+                  Views.hyperSlice(probRAI, probTimeDim, t),
+                  Views.hyperSlice(distRAI, distTimeDim, t),
+                  probThresh,
+                  excludeBoundary,
+                  verbose ? log : null);
+          sample.setObjects(polygons.getSorted().size());
+        }
+        StarDistMetrics.nms(polygons, nmsThresh);
         if (verbose)
           log.info(
               String.format(
@@ -151,9 +156,13 @@ public class StarDist2DNMS extends StarDist2DBase implements Command {
         export(outputType, polygons, 1 + t, numFrames, roiPosition);
       }
     } else {
-      final Candidates polygons =
-          new Candidates(probRAI, distRAI, probThresh, excludeBoundary, verbose ? log : null);
-      polygons.nms(nmsThresh);
+      final Candidates polygons;
+      try (Timer.Sample sample = StarDistMetrics.CANDIDATES.start()) {
+        polygons =
+            new Candidates(probRAI, distRAI, probThresh, excludeBoundary, verbose ? log : null);
+        sample.setObjects(polygons.getSorted().size());
+      }
+      StarDistMetrics.nms(polygons, nmsThresh);
       if (verbose)
         log.info(
             String.format(
@@ -0,0 +1,31 @@
+package de.csbdresden.stardist;
+
+import com.scipath.scipathj.infrastructure.metrics.MetricsRegistry;
+import com.scipath.scipathj.infrastructure.metrics.Timer;
+
+/** Timers of the StarDist steps, registered with the SciPathJ metrics registry. */
+final class StarDistMetrics {
+
+  private static final MetricsRegistry REGISTRY = MetricsRegistry.getInstance();
+
+  static final Timer INFERENCE =
+      REGISTRY.timer(
+          "stardist.inference", "Network prediction, per image or per streaming tile");
+  static final Timer CANDIDATES =
+      REGISTRY.timer(
+          "stardist.candidates", "Polygon candidate construction, objects are candidates");
+  static final Timer NMS =
+      REGISTRY.timer("stardist.nms", "Non-maximum suppression, objects are surviving polygons");
+  static final Timer STITCH =
+      REGISTRY.timer("stardist.stitch", "Merging streaming tiles, objects are final polygons");
+
+  private StarDistMetrics() {}
+
+  /** Runs non-maximum suppression on candidates, timing it. */
+  static void nms(final Candidates candidates, final double nmsThresh) {
+    try (Timer.Sample sample = NMS.start()) {
+      candidates.nms(nmsThresh);
+      sample.setObjects(candidates.getWinner().size());
+    }
+  }
+}
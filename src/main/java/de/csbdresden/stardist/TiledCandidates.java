@@ -0,0 +1,134 @@
+package de.csbdresden.stardist;
+
+import de.lighti.clipper.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.scijava.log.LogService;
+
+/**
+ * Accumulates the NMS winners of individually processed tiles and stitches them into one set of
+ * polygons.
+ *
+ * <p>Every tile is predicted with an overlap margin, but only the winners whose origin lies inside
+ * the tile's core region (the part of the image the tile "owns") are kept. That removes the
+ * duplicates found twice in the overlap of two neighbouring tiles. Objects straddling a seam can
+ * still be claimed by two tiles with slightly different centres, so {@link #stitch(double)} runs a
+ * final greedy NMS across tiles. Neighbour lookup in that pass goes through a uniform grid over the
+ * bounding boxes, so its cost grows with the number of objects, not quadratically.
+ *
+ * <p>Only winning polygons are retained; no full-resolution probability or distance raster is ever
+ * needed.
+ */
+public class TiledCandidates {
+
+  private final List<Path> polygons = new ArrayList<>();
+  private final List<Point2D> origins = new ArrayList<>();
+  private final List<Box2D> bboxes = new ArrayList<>();
+  private final List<Double> areas = new ArrayList<>();
+  private final List<Float> scores = new ArrayList<>();
+  private final List<Integer> tileIds = new ArrayList<>();
+  private final LogService log;
+  private int numTiles = 0;
+  private long maxExtent = 1;
+
+  public TiledCandidates(LogService log) {
+    this.log = log;
+  }
+
+  /**
+   * Adds the winners of an already suppressed tile.
+   *
+   * @param tile candidates of one tile, in full-image coordinates, after {@link Candidates#nms}
+   * @param coreMinX first column owned by the tile (full-image pixels, inclusive)
+   * @param coreMinY first row owned by the tile (inclusive)
+   * @param coreMaxX last column owned by the tile (inclusive)
+   * @param coreMaxY last row owned by the tile (inclusive)
+   * @return number of winners kept from this tile
+   */
+  public int add(Candidates tile, long coreMinX, long coreMinY, long coreMaxX, long coreMaxY) {
+    final long s = Candidates.getScale();
+    final int tileId = numTiles++;
+    int kept = 0;
+    for (final int i : tile.getWinner()) {
+      final Point2D o = tile.getOrigin(i);
+      final long x = o.x / s;
+      final long y = o.y / s;
+      if (x < coreMinX || x > coreMaxX || y < coreMinY || y > coreMaxY) continue;
+      final Box2D bbox = tile.getBbox(i);
+      polygons.add(tile.getPolygon(i));
+      origins.add(o);
+      bboxes.add(bbox);
+      areas.add(tile.getArea(i));
+      scores.add(tile.getScore(i));
+      tileIds.add(tileId);
+      maxExtent = Math.max(maxExtent, Math.max(bbox.xmax - bbox.xmin, bbox.ymax - bbox.ymin));
+      kept++;
+    }
+    return kept;
+  }
+
+  public int size() {
+    return polygons.size();
+  }
+
+  /**
+   * Suppresses polygons from different tiles that overlap by more than {@code threshold} and
+   * returns the stitched result. Polygons from the same tile are never compared again, since they
+   * already went through NMS together.
+   */
+  public Candidates stitch(final double threshold) {
+    final long start = System.currentTimeMillis();
+    final int n = polygons.size();
+    final List<Integer> order = Utils.argsortDescending(scores);
+    final long cell = Math.max(1, maxExtent);
+    final Map<Long, List<Integer>> grid = new HashMap<>();
+    final List<Integer> winner = new ArrayList<>();
+
+    for (int ii = 0; ii < n; ii++) {
+      final int i = order.get(ii);
+      final Box2D bbox = bboxes.get(i);
+      final long cx0 = Math.floorDiv(bbox.xmin, cell), cx1 = Math.floorDiv(bbox.xmax, cell);
+      final long cy0 = Math.floorDiv(bbox.ymin, cell), cy1 = Math.floorDiv(bbox.ymax, cell);
+
+      boolean suppressed = false;
+      for (long cx = cx0; cx <= cx1 && !suppressed; cx++) {
+        for (long cy = cy0; cy <= cy1 && !suppressed; cy++) {
+          final List<Integer> bucket = grid.get(key(cx, cy));
+          if (bucket == null) continue;
+          for (final int j : bucket) {
+            if (tileIds.get(j).equals(tileIds.get(i))) continue;
+            if (!bbox.does_intersect(bboxes.get(j))) continue;
+            final double area_inter =
+                Candidates.poly_intersection_area(polygons.get(i), polygons.get(j));
+            final double overlap =
+                area_inter / Math.min(areas.get(i) + 1e-10, areas.get(j) + 1e-10);
+            if (overlap > threshold) {
+              suppressed = true;
+              break;
+            }
+          }
+        }
+      }
+      if (suppressed) continue;
+
+      winner.add(i);
+      for (long cx = cx0; cx <= cx1; cx++)
+        for (long cy = cy0; cy <= cy1; cy++)
+          grid.computeIfAbsent(key(cx, cy), k -> new ArrayList<>()).add(i);
+    }
+
+    if (log != null)
+      log.info(
+          String.format(
+              "Seam stitching of %d tiles: %d polygons, %d remain (took %d ms)",
+              numTiles, n, winner.size(), System.currentTimeMillis() - start));
+
+    return new Candidates(polygons, origins, bboxes, areas, scores, winner, log);
+  }
+
+  private static long key(long cx, long cy) {
+    return (cx << 32) ^ (cy & 0xffffffffL);
+  }
+}
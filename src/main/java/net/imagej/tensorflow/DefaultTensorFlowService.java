@@ -38,18 +38,8 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
   public void initialize() {
     super.initialize();
     LOGGER.debug("Initializing custom TensorFlow service with Java 21 compatibility");
-
-    try {
-      // Initialize model cache with safe directory
-      initializeModelCache();
-
-      // Get TensorFlow version safely
-      this.tensorFlowVersion = TensorFlowUtil.getTensorFlowJARVersion(getClass().getClassLoader());
-      LOGGER.debug("TensorFlow version detected: {}", tensorFlowVersion);
-
-    } catch (Exception e) {
-      LOGGER.warn("Error during TensorFlow service initialization", e);
-    }
+    // The model cache and the TensorFlow version are resolved on first use, so creating a context
+    // does not touch the file system
   }
 
   /**
@@ -169,8 +159,9 @@ public class DefaultTensorFlowService extends AbstractService implements TensorF
   @Override
   public File modelDir(String modelName) {
     try {
-      if (modelCache != null) {
-        return modelCache.getBaseDirectory();
+      DiskLocationCache cache = modelCache();
+      if (cache != null) {
+        return cache.getBaseDirectory();
       } else {
         // Fallback to temp directory
         String tempDir = System.getProperty("java.io.tmpdir");